@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.benchmarks.gateway;
+
+import java.net.URI;
+import java.util.Map;
+
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import lombok.experimental.UtilityClass;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import tech.amak.portbuddy.gateway.client.SslServiceClient;
+import tech.amak.portbuddy.gateway.config.AppProperties;
+import tech.amak.portbuddy.gateway.dto.CertificateResponse;
+import tech.amak.portbuddy.gateway.ssl.DynamicSslProvider;
+import tech.amak.portbuddy.gateway.ssl.OcspStaplingService;
+import tech.amak.portbuddy.gateway.ssl.SessionTicketKeyManager;
+
+/**
+ * Shared stubs for gateway benchmarks: an ssl-service client that never leaves the process,
+ * load balancer requests and a stub port-buddy-server upstream.
+ */
+@UtilityClass
+public class GatewayFixtures {
+
+    public static final String BASE_DOMAIN = "portbuddy.dev";
+    public static final String OWNED_PREFIX = "owned";
+
+    /**
+     * Creates application properties for the given base domain with SSL and fallback certificate settings
+     * that make {@link DynamicSslProvider} generate a self-signed fallback.
+     *
+     * @param sessionResumption whether TLS session resumption is enabled
+     * @return application properties
+     */
+    public static AppProperties appProperties(final boolean sessionResumption) {
+        return new AppProperties(0, BASE_DOMAIN, "https://" + BASE_DOMAIN, null, null,
+            new AppProperties.Ssl(true, null,
+                new AppProperties.SessionResumption(sessionResumption, null, null, 20_000, null), null), null);
+    }
+
+    /**
+     * Creates a dynamic SSL provider backed by a stub ssl-service client that reports no certificate,
+     * so every hostname resolves to the self-signed fallback context.
+     *
+     * @return SSL provider
+     */
+    public static DynamicSslProvider sslProvider() {
+        final var properties = appProperties(true);
+        return new DynamicSslProvider(new StubSslServiceClient(), properties, new SessionTicketKeyManager(properties),
+            new OcspStaplingService(properties, (certificate, issuer) -> Mono.empty()));
+    }
+
+    /**
+     * Builds a load balancer request as the gateway produces it for an incoming exchange.
+     *
+     * @param url  request URL
+     * @param host value of the Host header, or {@code null} to omit it
+     * @return load balancer request
+     */
+    public static Request<RequestDataContext> lbRequest(final String url, final String host) {
+        final var headers = new HttpHeaders();
+        if (host != null) {
+            headers.set(HttpHeaders.HOST, host);
+        }
+        final var data = new RequestData(HttpMethod.GET, URI.create(url), headers,
+            new LinkedMultiValueMap<>(), Map.of());
+        return new DefaultRequest<>(new RequestDataContext(data));
+    }
+
+    /**
+     * Starts a stub port-buddy-server that confirms tunnel ownership for subdomains starting with
+     * {@link #OWNED_PREFIX} and answers every other request with a small body.
+     *
+     * @return started server bound to an ephemeral port
+     */
+    public static DisposableServer startStubServer() {
+        return HttpServer.create()
+            .host("127.0.0.1")
+            .port(0)
+            .route(routes -> routes
+                .get("/ingress/resolve/{subdomain}", (request, response) -> {
+                    final var subdomain = request.param("subdomain");
+                    return subdomain != null && subdomain.startsWith(OWNED_PREFIX)
+                        ? response.status(200).send()
+                        : response.status(404).send();
+                })
+                .route(request -> true, (request, response) -> response.sendString(Mono.just("ok"))))
+            .bindNow();
+    }
+
+    private static final class StubSslServiceClient extends SslServiceClient {
+
+        private StubSslServiceClient() {
+            super(WebClient.builder());
+        }
+
+        @Override
+        public Mono<CertificateResponse> getCertificate(final String domain) {
+            return Mono.empty();
+        }
+    }
+}
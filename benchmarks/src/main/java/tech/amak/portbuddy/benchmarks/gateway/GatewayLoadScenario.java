@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.benchmarks.gateway;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SSLException;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.RewritePathGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.web.server.adapter.DefaultServerWebExchange;
+import org.springframework.web.server.i18n.AcceptHeaderLocaleContextResolver;
+import org.springframework.web.server.session.DefaultWebSessionManager;
+
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import tech.amak.portbuddy.gateway.config.SslServerConfig;
+import tech.amak.portbuddy.gateway.filter.PortBuddyRewritePathGatewayFilterFactory;
+import tech.amak.portbuddy.gateway.ssl.DynamicSslProvider;
+
+/**
+ * In-process load scenario for the gateway ingress path. Starts a stub port-buddy-server upstream and
+ * a TLS front server configured by {@link SslServerConfig} (SNI lookup through {@link DynamicSslProvider}),
+ * which rewrites paths with {@link PortBuddyRewritePathGatewayFilterFactory} and proxies to the stub
+ * over a pooled Reactor Netty client. Two phases are run and reported:
+ * <ul>
+ *     <li>handshakes: every request opens a new TLS connection, reported as handshakes per second;</li>
+ *     <li>requests: keep-alive connections are reused, reported as requests per second.</li>
+ * </ul>
+ * Settings are read from system properties: {@code scenario.concurrency} (default 64),
+ * {@code scenario.duration} in seconds per phase (default 15) and {@code scenario.hosts},
+ * the number of distinct SNI hostnames (default 100).
+ */
+public final class GatewayLoadScenario {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private final int concurrency = Integer.getInteger("scenario.concurrency", 64);
+    private final Duration duration = Duration.ofSeconds(Long.getLong("scenario.duration", 15));
+    private final int hosts = Integer.getInteger("scenario.hosts", 100);
+
+    private GatewayLoadScenario() {
+    }
+
+    /**
+     * Runs the scenario and prints a summary table to standard output.
+     *
+     * @param args unused
+     * @throws SSLException if the client SSL context cannot be built
+     */
+    public static void main(final String[] args) throws SSLException {
+        new GatewayLoadScenario().run();
+    }
+
+    private void run() throws SSLException {
+        final var upstream = GatewayFixtures.startStubServer();
+        final var upstreamClient = HttpClient.create(ConnectionProvider.builder("scenario-upstream")
+                .maxConnections(concurrency)
+                .build())
+            .remoteAddress(() -> new InetSocketAddress(upstream.host(), upstream.port()));
+
+        final var sslProvider = GatewayFixtures.sslProvider();
+        final var factory = new NettyReactiveWebServerFactory(0);
+        new SslServerConfig(GatewayFixtures.appProperties(true), sslProvider, null).sslCustomizer().customize(factory);
+        final var frontServer = factory.getWebServer(proxyHandler(upstreamClient));
+        frontServer.start();
+
+        try {
+            final var port = frontServer.getPort();
+            final var clientSslContext = SslContextBuilder.forClient()
+                .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                .build();
+
+            System.out.printf("Gateway load scenario: concurrency=%d, duration=%ss per phase, hosts=%d%n",
+                concurrency, duration.toSeconds(), hosts);
+            System.out.printf("%-12s %12s %10s %10s %10s %8s%n", "phase", "ops/s", "p50 ms", "p90 ms", "p99 ms",
+                "errors");
+
+            // Warm the SNI cache and JIT so both phases measure steady state.
+            final var warmup = ConnectionProvider.create("scenario-warmup", concurrency);
+            runPhase("warmup", frontClient(port, warmup), clientSslContext, Duration.ofSeconds(3), false);
+            warmup.disposeLater().block();
+
+            runPhase("handshakes", frontClient(port, ConnectionProvider.newConnection()), clientSslContext,
+                duration, true);
+
+            final var pooled = ConnectionProvider.create("scenario-front", concurrency);
+            runPhase("requests", frontClient(port, pooled), clientSslContext, duration, true);
+            pooled.disposeLater().block();
+        } finally {
+            frontServer.stop();
+            upstream.disposeNow();
+        }
+    }
+
+    private HttpHandler proxyHandler(final HttpClient upstreamClient) {
+        final GatewayFilter rewrite = new PortBuddyRewritePathGatewayFilterFactory()
+            .apply(new RewritePathGatewayFilterFactory.Config()
+                .setRegexp("/(?<remaining>.*)")
+                .setReplacement("/_/$\\{subdomain}/$\\{remaining}"));
+        final var codecs = ServerCodecConfigurer.create();
+        final var sessions = new DefaultWebSessionManager();
+        final var locales = new AcceptHeaderLocaleContextResolver();
+
+        return (request, response) -> {
+            final var exchange = new DefaultServerWebExchange(request, response, sessions, codecs, locales);
+            final var host = request.getHeaders().getHost();
+            final var subdomain = host == null ? "unknown" : host.getHostString().split("\\.", 2)[0];
+            ServerWebExchangeUtils.putUriTemplateVariables(exchange, Map.of("subdomain", subdomain));
+
+            return rewrite.filter(exchange, rewritten -> upstreamClient.get()
+                .uri(rewritten.getRequest().getURI().getRawPath())
+                .responseSingle((upstreamResponse, body) -> body.asByteArray()
+                    .defaultIfEmpty(new byte[0])
+                    .flatMap(bytes -> {
+                        final var proxied = rewritten.getResponse();
+                        proxied.setStatusCode(HttpStatusCode.valueOf(upstreamResponse.status().code()));
+                        return proxied.writeWith(Mono.just(proxied.bufferFactory().wrap(bytes)));
+                    })));
+        };
+    }
+
+    private HttpClient frontClient(final int port, final ConnectionProvider provider) {
+        return HttpClient.create(provider)
+            .remoteAddress(() -> new InetSocketAddress("127.0.0.1", port));
+    }
+
+    private void runPhase(final String name, final HttpClient client, final SslContext sslContext,
+                          final Duration phaseDuration, final boolean report) {
+        final var recorder = new Recorder(TimeUnit.SECONDS.toMicros(30), 3);
+        final var completed = new LongAdder();
+        final var errors = new LongAdder();
+        final var deadline = System.nanoTime() + phaseDuration.toNanos();
+        final var started = System.nanoTime();
+
+        try (var workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var i = 0; i < concurrency; i++) {
+                workers.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        final var host = "tunnel-%d.%s".formatted(
+                            ThreadLocalRandom.current().nextInt(hosts), GatewayFixtures.BASE_DOMAIN);
+                        final var begin = System.nanoTime();
+                        try {
+                            client.secure(spec -> spec.sslContext(sslContext)
+                                    .serverNames(new SNIHostName(host)))
+                                .headers(headers -> headers.set("Host", host))
+                                .get()
+                                .uri("/api/items?page=1")
+                                .responseSingle((response, body) -> body.asByteArray())
+                                .block(REQUEST_TIMEOUT);
+                            recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - begin));
+                            completed.increment();
+                        } catch (final Exception e) {
+                            errors.increment();
+                        }
+                    }
+                });
+            }
+        }
+
+        if (!report) {
+            return;
+        }
+
+        final var elapsedSeconds = (System.nanoTime() - started) / 1e9;
+        final Histogram histogram = recorder.getIntervalHistogram();
+        System.out.printf("%-12s %12.1f %10.2f %10.2f %10.2f %8d%n",
+            name,
+            completed.sum() / elapsedSeconds,
+            histogram.getValueAtPercentile(50) / 1000.0,
+            histogram.getValueAtPercentile(90) / 1000.0,
+            histogram.getValueAtPercentile(99) / 1000.0,
+            errors.sum());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.benchmarks.gateway;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+
+import reactor.netty.DisposableServer;
+import tech.amak.portbuddy.gateway.loadbalancer.NetProxyPublicHostLoadBalancer;
+import tech.amak.portbuddy.gateway.loadbalancer.PortBuddySubdomainLoadBalancer;
+
+/**
+ * Measures instance selection for ingress and net-proxy routes. The subdomain load balancer probes
+ * every server instance over HTTP, so its benchmarks run against an in-process stub server to show
+ * the per-request cost of that probe compared to the plain round-robin path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBalancerBenchmark {
+
+    private static final int INSTANCES = 3;
+
+    private DisposableServer stubServer;
+    private PortBuddySubdomainLoadBalancer subdomainLoadBalancer;
+    private NetProxyPublicHostLoadBalancer netProxyLoadBalancer;
+    private Request<RequestDataContext> ownedSubdomainRequest;
+    private Request<RequestDataContext> unknownSubdomainRequest;
+    private Request<RequestDataContext> apiRequest;
+    private Request<RequestDataContext> publicHostRequest;
+    private Request<RequestDataContext> noPublicHostRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stubServer = GatewayFixtures.startStubServer();
+
+        final var servers = new ServiceInstance[INSTANCES];
+        final var proxies = new ServiceInstance[INSTANCES];
+        for (var i = 0; i < INSTANCES; i++) {
+            servers[i] = new DefaultServiceInstance("server-" + i, "port-buddy-server",
+                stubServer.host(), stubServer.port(), false);
+            final var proxy = new DefaultServiceInstance("net-proxy-" + i, "net-proxy",
+                "127.0.0.1", 8070 + i, false);
+            proxy.getMetadata().put("public-host", "net-%d.%s".formatted(i, GatewayFixtures.BASE_DOMAIN));
+            proxies[i] = proxy;
+        }
+
+        subdomainLoadBalancer = new PortBuddySubdomainLoadBalancer(
+            ServiceInstanceListSuppliers.toProvider("port-buddy-server", servers), "port-buddy-server");
+        netProxyLoadBalancer = new NetProxyPublicHostLoadBalancer(
+            ServiceInstanceListSuppliers.toProvider("net-proxy", proxies), "net-proxy");
+
+        final var baseDomain = GatewayFixtures.BASE_DOMAIN;
+        ownedSubdomainRequest = GatewayFixtures.lbRequest("http://port-buddy-server/",
+            GatewayFixtures.OWNED_PREFIX + "-app." + baseDomain);
+        unknownSubdomainRequest = GatewayFixtures.lbRequest("http://port-buddy-server/", "missing." + baseDomain);
+        apiRequest = GatewayFixtures.lbRequest("http://port-buddy-server/api/tunnels", null);
+        publicHostRequest = GatewayFixtures.lbRequest(
+            "http://net-proxy/api/net-tunnel/1?type=tcp&port=0&public-host=net-" + (INSTANCES - 1) + "." + baseDomain,
+            null);
+        noPublicHostRequest = GatewayFixtures.lbRequest("http://net-proxy/api/net-tunnel/1?type=tcp", null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stubServer.disposeNow();
+    }
+
+    @Benchmark
+    public Response<ServiceInstance> subdomainOwned() {
+        return subdomainLoadBalancer.choose(ownedSubdomainRequest).block();
+    }
+
+    @Benchmark
+    public Response<ServiceInstance> subdomainFallback() {
+        return subdomainLoadBalancer.choose(unknownSubdomainRequest).block();
+    }
+
+    @Benchmark
+    public Response<ServiceInstance> subdomainRoundRobin() {
+        return subdomainLoadBalancer.choose(apiRequest).block();
+    }
+
+    @Benchmark
+    public Response<ServiceInstance> netProxyByPublicHost() {
+        return netProxyLoadBalancer.choose(publicHostRequest).block();
+    }
+
+    @Benchmark
+    public Response<ServiceInstance> netProxyDefault() {
+        return netProxyLoadBalancer.choose(noPublicHostRequest).block();
+    }
+}
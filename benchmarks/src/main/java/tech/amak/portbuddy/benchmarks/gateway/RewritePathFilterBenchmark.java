@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.benchmarks.gateway;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.RewritePathGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import reactor.core.publisher.Mono;
+import tech.amak.portbuddy.gateway.filter.PortBuddyRewritePathGatewayFilterFactory;
+
+/**
+ * Measures the per-request cost of {@link PortBuddyRewritePathGatewayFilterFactory} for the subdomain
+ * and custom domain ingress routes, configured exactly as in the gateway route definitions.
+ * Exchange creation is included in every invocation and measured separately by {@link #exchangeOnly}
+ * so it can be subtracted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RewritePathFilterBenchmark {
+
+    private static final String PATH = "/api/v1/orders/42/items";
+    private static final String QUERY = "?expand=product&page=2";
+
+    private GatewayFilter subdomainFilter;
+    private GatewayFilter customDomainFilter;
+    private GatewayFilterChain chain;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final var factory = new PortBuddyRewritePathGatewayFilterFactory();
+        subdomainFilter = factory.apply(new RewritePathGatewayFilterFactory.Config()
+            .setRegexp("/(?<remaining>.*)")
+            .setReplacement("/_/$\\{subdomain}/$\\{remaining}"));
+        customDomainFilter = factory.apply(new RewritePathGatewayFilterFactory.Config()
+            .setRegexp("/(?<remaining>.*)")
+            .setReplacement("/_custom/$\\{customDomain}/$\\{remaining}"));
+        chain = exchange -> Mono.empty();
+    }
+
+    @Benchmark
+    public void exchangeOnly(final Blackhole blackhole) {
+        blackhole.consume(subdomainExchange());
+    }
+
+    @Benchmark
+    public void subdomainRewrite() {
+        subdomainFilter.filter(subdomainExchange(), chain).block();
+    }
+
+    @Benchmark
+    public void customDomainRewrite() {
+        final var exchange = MockServerWebExchange.from(MockServerHttpRequest
+            .get("https://shop.example.com:443" + PATH + QUERY)
+            .header("Host", "shop.example.com:443"));
+        customDomainFilter.filter(exchange, chain).block();
+    }
+
+    private static MockServerWebExchange subdomainExchange() {
+        final var exchange = MockServerWebExchange.from(MockServerHttpRequest
+            .get("https://demo." + GatewayFixtures.BASE_DOMAIN + PATH + QUERY));
+        ServerWebExchangeUtils.putUriTemplateVariables(exchange, Map.of("subdomain", "demo"));
+        return exchange;
+    }
+}
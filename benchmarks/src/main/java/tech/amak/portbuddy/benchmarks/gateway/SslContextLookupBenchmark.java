@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.benchmarks.gateway;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.netty.handler.ssl.SslContext;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import tech.amak.portbuddy.gateway.ssl.DynamicSslProvider;
+import tech.amak.portbuddy.gateway.ssl.SniSslContextMapping;
+
+/**
+ * Measures the SNI lookup path executed on every TLS handshake: {@link DynamicSslProvider#getSslContext}
+ * on its own and wrapped by {@link SniSslContextMapping#map}. Contexts are pre-warmed so the numbers
+ * reflect the cache hit path, which is what steady-state handshakes see.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SslContextLookupBenchmark {
+
+    @Param({"16", "1024"})
+    private int hostnames;
+
+    private DynamicSslProvider sslProvider;
+    private SniSslContextMapping mapping;
+    private String[] hosts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sslProvider = GatewayFixtures.sslProvider();
+        mapping = new SniSslContextMapping(sslProvider);
+        hosts = new String[hostnames];
+        for (var i = 0; i < hostnames; i++) {
+            // Half the hosts are tunnel subdomains sharing the wildcard lookup, half are custom domains.
+            hosts[i] = i % 2 == 0
+                ? "tunnel-%d.%s".formatted(i, GatewayFixtures.BASE_DOMAIN)
+                : "custom-%d.example.com".formatted(i);
+            sslProvider.getSslContext(hosts[i]).block();
+        }
+    }
+
+    @Benchmark
+    public SslContext getSslContext() {
+        return sslProvider.getSslContext(nextHost()).block();
+    }
+
+    @Benchmark
+    public SslContext getSslContextWithoutSni() {
+        return sslProvider.getSslContext(null).block();
+    }
+
+    @Benchmark
+    public SslContext sniMapping() {
+        return mapping.map(nextHost(), ImmediateEventExecutor.INSTANCE.newPromise()).getNow();
+    }
+
+    private String nextHost() {
+        return hosts[ThreadLocalRandom.current().nextInt(hosts.length)];
+    }
+}
@@ -8,7 +8,9 @@ import static tech.amak.portbuddy.cli.utils.JsonUtils.MAPPER;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
@@ -17,9 +19,14 @@ import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
+import tech.amak.portbuddy.cli.bench.BenchCommand;
+import tech.amak.portbuddy.cli.capture.CaptureInspector;
+import tech.amak.portbuddy.cli.capture.CaptureRing;
 import tech.amak.portbuddy.cli.config.ConfigurationService;
+import tech.amak.portbuddy.cli.config.TunnelsFile;
 import tech.amak.portbuddy.cli.tunnel.HttpTunnelClient;
 import tech.amak.portbuddy.cli.tunnel.NetTunnelClient;
+import tech.amak.portbuddy.cli.tunnel.UpstreamPool;
 import tech.amak.portbuddy.cli.ui.ConsoleUi;
 import tech.amak.portbuddy.cli.utils.HttpUtils;
 import tech.amak.portbuddy.common.ClientConfig;
@@ -29,7 +36,8 @@ import tech.amak.portbuddy.common.dto.ExposeResponse;
 import tech.amak.portbuddy.common.dto.auth.RegisterRequest;
 import tech.amak.portbuddy.common.dto.auth.RegisterResponse;
 import tech.amak.portbuddy.common.dto.auth.TokenExchangeRequest;
-import tech.amak.portbuddy.common.dto.auth.TokenExchangeResponse;
+import tech.amak.portbuddy.common.json.ApiCodec;
+import tech.amak.portbuddy.common.tunnel.SocketProfile;
 
 /**
  * Main class for the PortBuddy CLI application.
@@ -42,6 +50,7 @@ public class PortBuddy {
     private static final int EXIT_OK = 0;
     private static final int EXIT_ERROR = 1;
     private static final int EXIT_USAGE = 2;
+    private static final int DEFAULT_CAPTURE_SIZE_MB = 64;
 
     private final ConfigurationService configurationService = ConfigurationService.INSTANCE;
 
@@ -49,6 +58,15 @@ public class PortBuddy {
     private String portReservation;
     private String passcode;
     private boolean verbose;
+    private boolean tlsSni;
+    private boolean direct;
+    private boolean noDatagram;
+    private boolean standby;
+    private SocketProfile socketProfile = SocketProfile.INTERACTIVE;
+    private Integer maxInFlight;
+    private Path statsFile;
+    private Path captureFile;
+    private int captureSizeMb = DEFAULT_CAPTURE_SIZE_MB;
     private final List<String> positionalArgs = new ArrayList<>();
 
     private final OkHttpClient http = HttpUtils.createClient();
@@ -87,6 +105,61 @@ public class PortBuddy {
                 return EXIT_OK;
             } else if ("-v".equals(arg) || "--verbose".equals(arg)) {
                 this.verbose = true;
+            } else if ("--tls-sni".equals(arg)) {
+                this.tlsSni = true;
+            } else if ("--direct".equals(arg)) {
+                this.direct = true;
+            } else if ("--no-datagram".equals(arg)) {
+                this.noDatagram = true;
+            } else if ("--standby".equals(arg)) {
+                this.standby = true;
+            } else if (arg.startsWith("--max-in-flight=")) {
+                try {
+                    this.maxInFlight = Integer.parseInt(arg.substring("--max-in-flight=".length()));
+                } catch (final NumberFormatException e) {
+                    System.err.println("Error: Option '--max-in-flight' requires a number.");
+                    return EXIT_USAGE;
+                }
+                if (maxInFlight < 1) {
+                    System.err.println("Error: Option '--max-in-flight' must be at least 1.");
+                    return EXIT_USAGE;
+                }
+            } else if ("--capture".equals(arg)) {
+                this.captureFile = configurationService.getDefaultCaptureFile();
+            } else if (arg.startsWith("--capture=")) {
+                this.captureFile = Path.of(arg.substring("--capture=".length()));
+            } else if (arg.startsWith("--capture-size=")) {
+                try {
+                    this.captureSizeMb = Integer.parseInt(arg.substring("--capture-size=".length()));
+                } catch (final NumberFormatException e) {
+                    System.err.println("Error: Option '--capture-size' requires a number.");
+                    return EXIT_USAGE;
+                }
+                if (captureSizeMb < 1 || captureSizeMb > 1024) {
+                    System.err.println("Error: Option '--capture-size' must be between 1 and 1024.");
+                    return EXIT_USAGE;
+                }
+            } else if ("inspect".equals(arg) && positionalArgs.isEmpty()) {
+                return new CaptureInspector(configurationService.getDefaultCaptureFile())
+                    .run(Arrays.asList(args).subList(i + 1, args.length));
+            } else if ("bench".equals(arg) && positionalArgs.isEmpty()) {
+                return new BenchCommand().run(Arrays.asList(args).subList(i + 1, args.length));
+            } else if ("up".equals(arg) && positionalArgs.isEmpty()) {
+                return up(Arrays.asList(args).subList(i + 1, args.length));
+            } else if (arg.startsWith("--stats-json=")) {
+                this.statsFile = Path.of(arg.substring("--stats-json=".length()));
+            } else if ("--profile".equals(arg)) {
+                if (++i >= args.length) {
+                    System.err.println("Error: Option '--profile' requires an argument.");
+                    return EXIT_USAGE;
+                }
+                if (!parseSocketProfile(args[i])) {
+                    return EXIT_USAGE;
+                }
+            } else if (arg.startsWith("--profile=")) {
+                if (!parseSocketProfile(arg.substring("--profile=".length()))) {
+                    return EXIT_USAGE;
+                }
             } else if ("-d".equals(arg) || "--domain".equals(arg)) {
                 if (++i < args.length) {
                     this.domain = args[i];
@@ -134,26 +207,64 @@ public class PortBuddy {
         return expose();
     }
 
+    private boolean parseSocketProfile(final String value) {
+        try {
+            this.socketProfile = SocketProfile.from(value);
+            return true;
+        } catch (final IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage() + " (expected interactive or bulk)");
+            return false;
+        }
+    }
+
     private void printHelp() {
-        System.out.println("Usage: portbuddy [options] [mode] [host:][port]");
+        System.out.println("Usage: portbuddy [options] [mode] [host:][port][,[host:][port]...]");
         System.out.println("Expose local ports to public network (simple ngrok alternative).");
+        System.out.println("Several comma-separated targets are load-balanced, least busy first.");
         System.out.println();
         System.out.println("Options:");
         System.out.println("  -d, --domain=<domain>       Requested domain (e.g. my-domain)");
         System.out.println("  -pr, --port-reservation=<host:port>");
         System.out.println("                              Use specific port reservation host:port for TCP/UDP");
         System.out.println("  -pc, --passcode=<passcode>  Passcode to secure HTTP tunnel (temporary for this tunnel)");
+        System.out.println("  --tls-sni                   Expose a TLS TCP service on the shared TLS port,");
+        System.out.println("                              routed by the server name its clients request");
+        System.out.println("  --direct                    Carry a TCP/UDP tunnel over a direct TCP connection to the");
+        System.out.println("                              proxy instead of a WebSocket through the gateway");
+        System.out.println("  --max-in-flight=<n>         Maximum HTTP requests sent to the local service at once");
+        System.out.println("                              (default 64); more wait in a queue");
+        System.out.println("  --profile=<interactive|bulk>");
+        System.out.println("                              Tune TCP tunnel sockets for latency (default) or throughput");
+        System.out.println("  --no-datagram               Keep UDP tunnel datagrams on the WebSocket even when the");
+        System.out.println("                              proxy offers to carry them over UDP");
+        System.out.println("  --standby                   Keep a standby connection the tunnel switches to at once");
+        System.out.println("                              when the active one drops");
+        System.out.println("  --stats-json=<file>         Write latency percentiles and throughput to a JSON file");
+        System.out.println("                              on exit");
+        System.out.println("  --capture[=<file>]          Record HTTP exchanges into a ring file for 'inspect'");
+        System.out.println("                              (default ~/.port-buddy/capture.ring)");
+        System.out.println("  --capture-size=<MB>         Size of the capture ring file (default 64)");
         System.out.println("  -v, --verbose               Verbose logging");
         System.out.println("  -h, --help                  Show this help message and exit.");
         System.out.println("  -V, --version               Print version information and exit.");
         System.out.println();
         System.out.println("Commands:");
         System.out.println("  init <apiToken>             Initialize CLI with API token");
+        System.out.println("  inspect [options] [file]    List, show and replay captured HTTP exchanges");
+        System.out.println("  bench [options] <target>    Measure a tunnel end-to-end under load");
+        System.out.println("  up [file]                   Start the tunnels of a YAML file (default "
+                           + TunnelsFile.DEFAULT_FILE + ")");
+        System.out.println("                              in one process over shared connections");
         System.out.println();
         System.out.println("Examples:");
         System.out.println("  portbuddy 3000");
+        System.out.println("  portbuddy 3000,3001,3002");
         System.out.println("  portbuddy tcp 5432");
+        System.out.println("  portbuddy --tls-sni tcp 8443");
+        System.out.println("  portbuddy --profile=bulk tcp 873");
         System.out.println("  portbuddy --domain=my-app 8080");
+        System.out.println("  portbuddy bench --echo=8080 https://my-app.portbuddy.dev");
+        System.out.println("  portbuddy up services.yml");
     }
 
     private void printVersion() {
@@ -186,36 +297,21 @@ public class PortBuddy {
         }
 
         final var mode = TunnelType.from(modeStr);
-        final var hostPort = parseHostPort(hostPortStr);
-        if (hostPort == null) {
-            return EXIT_USAGE;
-        }
-        if (hostPort.port < 1 || hostPort.port > 65535) {
-            System.err.println("Port must be in range [1, 65535]");
+        final var hostPorts = parseTargets(hostPortStr);
+        if (hostPorts == null) {
             return EXIT_USAGE;
         }
+        final var hostPort = hostPorts.getFirst();
+        final var upstreams = toUpstreams(hostPorts);
+        final var targets = String.join(",", upstreams.upstreams().stream().map(Object::toString).toList());
 
         final var config = configurationService.getConfig();
-
-        // 1) Ensure API key is present and exchange it for a JWT at startup
-        if (!ensureAuthenticated(config)) {
-            return EXIT_ERROR;
+        if (maxInFlight != null) {
+            config.setMaxInFlightRequests(maxInFlight);
         }
 
-        final var apiKey = config.getApiToken();
-        final var jwt = exchangeApiTokenForJwt(config.getServerUrl(), apiKey);
-        if (Objects.equals(jwt, OUTDATED)) {
-            System.err.println("""
-                Your portbuddy CLI is outdated.
-                Please upgrade to the latest version and try again.""");
-            return EXIT_ERROR;
-        }
-
-        if (jwt == null || jwt.isBlank()) {
-            System.err.println("""
-                Failed to authenticate with the provided API Key.
-                CLI must be initialized with a valid API Key.
-                Example: portbuddy init {API_TOKEN}""");
+        final var jwt = authenticate(config);
+        if (jwt == null) {
             return EXIT_ERROR;
         }
 
@@ -227,7 +323,7 @@ public class PortBuddy {
                 return EXIT_ERROR;
             }
 
-            final var localInfo = String.format("%s://%s:%d", hostPort.scheme, hostPort.host, hostPort.port);
+            final var localInfo = String.format("%s://%s", hostPort.scheme, targets);
             final var publicInfo = expose.publicUrl();
             final var ui = new ConsoleUi(TunnelType.HTTP, localInfo, publicInfo);
             final var tunnelId = expose.tunnelId();
@@ -236,15 +332,26 @@ public class PortBuddy {
                 return EXIT_ERROR;
             }
 
+            final CaptureRing capture;
+            try {
+                capture = captureFile != null
+                    ? CaptureRing.create(captureFile, captureSizeMb * 1024 * 1024)
+                    : null;
+            } catch (final IOException e) {
+                System.err.println("Failed to create capture file: " + e.getMessage());
+                return EXIT_ERROR;
+            }
+
             final var client = new HttpTunnelClient(
                 config.getServerUrl(),
                 tunnelId,
-                hostPort.host,
-                hostPort.port,
+                upstreams,
                 hostPort.scheme,
                 jwt,
                 publicInfo,
                 ui,
+                capture,
+                standby,
                 verbose
             );
 
@@ -258,7 +365,12 @@ public class PortBuddy {
             } catch (final InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
+            exportStats(ui);
+            closeCapture(capture);
         } else {
+            if (captureFile != null) {
+                System.err.println("Capture records HTTP exchanges only; ignoring it for a " + mode + " tunnel");
+            }
             final var scheme = mode == TunnelType.UDP ? "udp" : "tcp";
             final var expose = callExposeTunnel(config.getServerUrl(), jwt,
                 new ExposeRequest(mode, scheme, hostPort.host, hostPort.port, null, portReservation, null));
@@ -266,7 +378,7 @@ public class PortBuddy {
                 System.err.println("Failed to contact server to create " + mode + " tunnel");
                 return EXIT_ERROR;
             }
-            final var localInfo = String.format("%s %s:%d", mode.name().toLowerCase(), hostPort.host, hostPort.port);
+            final var localInfo = String.format("%s %s", mode.name().toLowerCase(), targets);
             final var publicInfo = String.format("%s:%d", expose.publicHost(), expose.publicPort());
             final var ui = new ConsoleUi(mode, localInfo, publicInfo);
             final var tunnelId = expose.tunnelId();
@@ -274,26 +386,8 @@ public class PortBuddy {
                 System.err.println("Server did not return tunnelId");
                 return EXIT_ERROR;
             }
-            // Use configured API server URL for the WebSocket control channel, not the public TCP host
-            final var serverUri = URI.create(config.getServerUrl());
-            final var wsHost = serverUri.getHost();
-            final var wsPort = serverUri.getPort() == -1
-                ? ("https".equalsIgnoreCase(serverUri.getScheme()) ? 443 : 80)
-                : serverUri.getPort();
-            final var secure = "https".equalsIgnoreCase(serverUri.getScheme());
-            final var tcpClient = new NetTunnelClient(
-                wsHost,
-                wsPort,
-                secure,
-                tunnelId,
-                hostPort.host,
-                hostPort.port,
-                mode,
-                expose.publicHost(),
-                expose.publicPort(),
-                jwt,
-                ui,
-                verbose);
+            final var tcpClient = createNetTunnelClient(config, mode, upstreams, tlsSni, socketProfile, expose, jwt,
+                ui);
             final var thread = new Thread(tcpClient::runBlocking, "port-buddy-net-client-" + mode.name().toLowerCase());
             ui.setOnExit(tcpClient::close);
             thread.start();
@@ -304,13 +398,264 @@ public class PortBuddy {
             } catch (final InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
+            exportStats(ui);
+        }
+
+        System.out.println("\nThanks, bye!");
+
+        return EXIT_OK;
+    }
+
+    /**
+     * Starts the tunnels of a file in this process. HTTP tunnels are served over one control connection; TCP
+     * and UDP tunnels keep a connection each, as different proxies may serve them, but share its client and
+     * heartbeat thread. Options given before the command apply to all tunnels.
+     */
+    private int up(final List<String> upArgs) {
+        if (upArgs.size() > 1) {
+            System.err.println("Usage: portbuddy [options] up [file]");
+            return EXIT_USAGE;
+        }
+        final var file = Path.of(upArgs.isEmpty() ? TunnelsFile.DEFAULT_FILE : upArgs.getFirst());
+        final List<TunnelsFile.Tunnel> tunnels;
+        try {
+            tunnels = TunnelsFile.read(file);
+        } catch (final IOException e) {
+            System.err.println("Failed to read " + file + ": " + e.getMessage());
+            return EXIT_USAGE;
+        }
+        if (tunnels.isEmpty()) {
+            System.err.println("No tunnels in " + file);
+            return EXIT_USAGE;
+        }
+        final var hostPortsByTunnel = new ArrayList<List<HostPort>>();
+        for (final var tunnel : tunnels) {
+            final var hostPorts = parseTargets(tunnel.target());
+            if (hostPorts == null) {
+                return EXIT_USAGE;
+            }
+            hostPortsByTunnel.add(hostPorts);
+        }
+
+        final var config = configurationService.getConfig();
+        if (maxInFlight != null) {
+            config.setMaxInFlightRequests(maxInFlight);
+        }
+
+        final var jwt = authenticate(config);
+        if (jwt == null) {
+            return EXIT_ERROR;
+        }
+
+        // Expose all tunnels first, so the console knows them before any traffic arrives
+        final var exposes = new ArrayList<ExposeResponse>();
+        final var forwardings = new ArrayList<ConsoleUi.Forwarding>();
+        for (var i = 0; i < tunnels.size(); i++) {
+            final var tunnel = tunnels.get(i);
+            final var hostPort = hostPortsByTunnel.get(i).getFirst();
+            final var mode = tunnel.type();
+            final var netScheme = mode == TunnelType.UDP ? "udp" : "tcp";
+            final var request = mode == TunnelType.HTTP
+                ? new ExposeRequest(mode, hostPort.scheme, hostPort.host, hostPort.port, tunnel.domain(), null,
+                    tunnel.passcode())
+                : new ExposeRequest(mode, netScheme, hostPort.host, hostPort.port, null, tunnel.portReservation(),
+                    null);
+            final var expose = callExposeTunnel(config.getServerUrl(), jwt, request);
+            if (expose == null || expose.tunnelId() == null
+                || mode != TunnelType.HTTP && (expose.publicHost() == null || expose.publicPort() == null)) {
+                System.err.println("Failed to create " + mode + " tunnel for " + tunnel.target());
+                return EXIT_ERROR;
+            }
+            exposes.add(expose);
+            final var targets = String.join(",", hostPortsByTunnel.get(i).stream()
+                .map(target -> target.host + ":" + target.port)
+                .toList());
+            final var local = mode == TunnelType.HTTP
+                ? hostPort.scheme + "://" + targets
+                : mode.name().toLowerCase() + " " + targets;
+            final var localInfo = tunnel.name() != null ? tunnel.name() + ": " + local : local;
+            final var publicInfo = mode == TunnelType.HTTP
+                ? expose.publicUrl()
+                : expose.publicHost() + ":" + expose.publicPort();
+            forwardings.add(new ConsoleUi.Forwarding(mode, localInfo, publicInfo));
+        }
+        final var ui = new ConsoleUi(forwardings);
+
+        final var hasHttp = tunnels.stream().anyMatch(tunnel -> tunnel.type() == TunnelType.HTTP);
+        final CaptureRing capture;
+        try {
+            capture = captureFile != null && hasHttp
+                ? CaptureRing.create(captureFile, captureSizeMb * 1024 * 1024)
+                : null;
+        } catch (final IOException e) {
+            System.err.println("Failed to create capture file: " + e.getMessage());
+            return EXIT_ERROR;
+        }
+
+        final var routes = new ArrayList<HttpTunnelClient.Route>();
+        final var threads = new ArrayList<Thread>();
+        final var closers = new ArrayList<Runnable>();
+        for (var i = 0; i < tunnels.size(); i++) {
+            final var tunnel = tunnels.get(i);
+            final var expose = exposes.get(i);
+            final var hostPorts = hostPortsByTunnel.get(i);
+            final var upstreams = toUpstreams(hostPorts);
+            if (tunnel.type() == TunnelType.HTTP) {
+                routes.add(new HttpTunnelClient.Route(expose.tunnelId(), upstreams, hostPorts.getFirst().scheme,
+                    expose.publicUrl(), ui, capture));
+                continue;
+            }
+            final var profile = tunnel.profile() != null ? tunnel.profile() : socketProfile;
+            final var netClient = createNetTunnelClient(config, tunnel.type(), upstreams, tlsSni || tunnel.tlsSni(),
+                profile, expose, jwt, ui);
+            threads.add(new Thread(netClient::runBlocking,
+                "port-buddy-net-client-" + tunnel.type().name().toLowerCase() + "-" + i));
+            closers.add(netClient::close);
+        }
+        if (!routes.isEmpty()) {
+            final var httpClient = new HttpTunnelClient(config.getServerUrl(), jwt, routes, standby, verbose);
+            threads.add(new Thread(httpClient::runBlocking, "port-buddy-http-client"));
+            closers.add(httpClient::close);
+        }
+
+        ui.setOnExit(() -> closers.forEach(Runnable::run));
+        threads.forEach(Thread::start);
+        ui.start();
+        ui.waitForExit();
+        for (final var thread : threads) {
+            try {
+                thread.join(2000);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
         }
+        exportStats(ui);
+        closeCapture(capture);
 
         System.out.println("\nThanks, bye!");
 
         return EXIT_OK;
     }
 
+    private NetTunnelClient createNetTunnelClient(final ClientConfig config,
+                                                  final TunnelType mode,
+                                                  final UpstreamPool upstreams,
+                                                  final boolean sniRouting,
+                                                  final SocketProfile profile,
+                                                  final ExposeResponse expose,
+                                                  final String jwt,
+                                                  final ConsoleUi ui) {
+        // Use configured API server URL for the WebSocket control channel, not the public TCP host
+        final var serverUri = URI.create(config.getServerUrl());
+        final var wsHost = serverUri.getHost();
+        final var wsPort = serverUri.getPort() == -1
+            ? ("https".equalsIgnoreCase(serverUri.getScheme()) ? 443 : 80)
+            : serverUri.getPort();
+        final var secure = "https".equalsIgnoreCase(serverUri.getScheme());
+        return new NetTunnelClient(
+            wsHost,
+            wsPort,
+            secure,
+            expose.tunnelId(),
+            upstreams,
+            mode,
+            sniRouting && mode == TunnelType.TCP,
+            direct,
+            !noDatagram,
+            standby,
+            profile,
+            expose.publicHost(),
+            expose.publicPort(),
+            jwt,
+            ui,
+            verbose);
+    }
+
+    private void closeCapture(final CaptureRing capture) {
+        if (capture == null) {
+            return;
+        }
+        try {
+            capture.close();
+            System.out.println("\nCaptured exchanges: portbuddy inspect " + captureFile);
+        } catch (final IOException e) {
+            System.err.println("Failed to close capture file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses comma-separated targets, which form a pool of upstreams behind one tunnel.
+     *
+     * @return the targets, or {@code null} after printing the problem
+     */
+    private List<HostPort> parseTargets(final String hostPortStr) {
+        final var hostPorts = new ArrayList<HostPort>();
+        for (final var target : hostPortStr.split(",")) {
+            final var parsed = parseHostPort(target);
+            if (parsed == null) {
+                return null;
+            }
+            if (parsed.port < 1 || parsed.port > 65535) {
+                System.err.println("Port must be in range [1, 65535]");
+                return null;
+            }
+            if (!hostPorts.isEmpty() && !hostPorts.getFirst().scheme.equals(parsed.scheme)) {
+                System.err.println("All targets must use the same scheme");
+                return null;
+            }
+            hostPorts.add(parsed);
+        }
+        return hostPorts;
+    }
+
+    private static UpstreamPool toUpstreams(final List<HostPort> hostPorts) {
+        return new UpstreamPool(hostPorts.stream()
+            .map(target -> new UpstreamPool.Upstream(target.host, target.port))
+            .toList());
+    }
+
+    /**
+     * Ensures an API key is present and exchanges it for a JWT.
+     *
+     * @return the JWT, or {@code null} after printing the problem
+     */
+    private String authenticate(final ClientConfig config) {
+        if (!ensureAuthenticated(config)) {
+            return null;
+        }
+
+        final var apiKey = config.getApiToken();
+        final var jwt = exchangeApiTokenForJwt(config.getServerUrl(), apiKey);
+        if (Objects.equals(jwt, OUTDATED)) {
+            System.err.println("""
+                Your portbuddy CLI is outdated.
+                Please upgrade to the latest version and try again.""");
+            return null;
+        }
+
+        if (jwt == null || jwt.isBlank()) {
+            System.err.println("""
+                Failed to authenticate with the provided API Key.
+                CLI must be initialized with a valid API Key.
+                Example: portbuddy init {API_TOKEN}""");
+            return null;
+        }
+        return jwt;
+    }
+
+    private void exportStats(final ConsoleUi ui) {
+        if (statsFile == null) {
+            return;
+        }
+        try {
+            ui.exportStats(statsFile);
+            System.out.println("\nStatistics written to " + statsFile.toAbsolutePath());
+        } catch (final IOException e) {
+            System.err.println("Failed to write statistics: " + e.getMessage());
+        }
+    }
+
     private ExposeResponse callExposeTunnel(final String baseUrl, final String jwt, final ExposeRequest requestBody) {
         final var tunnelType = requestBody.tunnelType();
 
@@ -318,7 +663,7 @@ public class PortBuddy {
             final var url = baseUrl + "/api/expose/"
                             + (tunnelType == TunnelType.HTTP ? "http" : "net");
 
-            final var json = MAPPER.writeValueAsString(requestBody);
+            final var json = ApiCodec.write(requestBody);
             final var request = new Request.Builder()
                 .url(url)
                 .post(RequestBody.create(json, MediaType.parse("application/json")))
@@ -338,7 +683,7 @@ public class PortBuddy {
                 if (body == null) {
                     return null;
                 }
-                return MAPPER.readValue(body.string(), ExposeResponse.class);
+                return ApiCodec.readExposeResponse(body.string());
             }
         } catch (final Exception e) {
             log.warn("Expose {} tunnel call error: {}", tunnelType, e.toString());
@@ -355,7 +700,7 @@ public class PortBuddy {
             final var url = baseUrl + "/api/auth/token-exchange";
             final var cliVersion = resolveCliVersion();
             final var payload = new TokenExchangeRequest(apiToken, cliVersion);
-            final var json = MAPPER.writeValueAsString(payload);
+            final var json = ApiCodec.write(payload);
             final var request = new Request.Builder()
                 .url(url)
                 .post(RequestBody.create(json, MediaType.parse("application/json")))
@@ -373,7 +718,7 @@ public class PortBuddy {
                 if (body == null) {
                     return null;
                 }
-                final var resp = MAPPER.readValue(body.string(), TokenExchangeResponse.class);
+                final var resp = ApiCodec.readTokenExchangeResponse(body.string());
                 final var accessToken = resp.getAccessToken() == null ? "" : resp.getAccessToken();
                 final var tokenType = resp.getTokenType() == null ? "" : resp.getTokenType();
                 if (!accessToken.isBlank() && (tokenType.isBlank() || "Bearer".equalsIgnoreCase(tokenType))) {
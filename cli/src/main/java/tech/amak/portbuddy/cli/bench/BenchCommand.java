@@ -0,0 +1,538 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.cli.bench;
+
+import static tech.amak.portbuddy.cli.utils.JsonUtils.MAPPER;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import tech.amak.portbuddy.cli.ui.LatencyHistogram;
+import tech.amak.portbuddy.cli.utils.HttpUtils;
+import tech.amak.portbuddy.common.TunnelType;
+
+/**
+ * {@code portbuddy bench}: drives HTTP, TCP or UDP load against the public endpoint of a tunnel and reports
+ * throughput and latency percentiles. With {@code --echo} it also serves the local side, and then splits
+ * every round trip into the way to the local service and the way back. With {@code --startup} it measures
+ * how long the CLI takes from launch to the first tunneled request instead.
+ */
+@Slf4j
+public class BenchCommand {
+
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_ERROR = 1;
+    private static final int EXIT_USAGE = 2;
+    private static final int DEFAULT_CONCURRENCY = 16;
+    private static final int DEFAULT_DURATION_SECONDS = 10;
+    private static final int DEFAULT_MESSAGE_SIZE = 64;
+    private static final long UDP_TIMEOUT_MS = 1000;
+    private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+
+    private TunnelType type;
+    private URI target;
+    private long rate;
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private Integer size;
+    private int durationSeconds = DEFAULT_DURATION_SECONDS;
+    private Integer echoPort;
+    private Path jsonFile;
+    private Integer startupRuns;
+    private List<String> tunnelArgs = List.of();
+
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final LatencyHistogram toLocal = new LatencyHistogram();
+    private final LatencyHistogram fromLocal = new LatencyHistogram();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong lost = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong nextSlot = new AtomicLong();
+    private long intervalNanos;
+    private long deadline;
+
+    /**
+     * Runs the command.
+     *
+     * @param args arguments following {@code bench}
+     * @return exit code
+     */
+    public int run(final List<String> args) {
+        final var usage = parse(args);
+        if (usage != null) {
+            return usage;
+        }
+        if (startupRuns != null) {
+            return runStartup(args);
+        }
+        final var messageSize = size != null ? size : type == TunnelType.HTTP ? 0 : DEFAULT_MESSAGE_SIZE;
+        EchoUpstream echo = null;
+        try {
+            if (echoPort != null) {
+                echo = EchoUpstream.start(type, echoPort, messageSize);
+                System.out.printf("Echo service on localhost:%d; expose it with 'portbuddy %s%d'%n", echoPort,
+                    type == TunnelType.HTTP ? "" : type.name().toLowerCase() + " ", echoPort);
+            }
+            System.out.printf("Benchmarking %s for %d s with %d connections%s, %d byte payloads%n", target,
+                durationSeconds, concurrency, rate > 0 ? " at " + rate + " ops/s" : "", messageSize);
+            final var elapsedNanos = drive(messageSize);
+            final var report = report(elapsedNanos, messageSize);
+            print(report);
+            if (jsonFile != null) {
+                MAPPER.writerWithDefaultPrettyPrinter().writeValue(jsonFile.toFile(), report);
+                System.out.println("Report written to " + jsonFile.toAbsolutePath());
+            }
+            return report.errors() > 0 && report.operations() == 0 ? EXIT_ERROR : EXIT_OK;
+        } catch (final IOException e) {
+            System.err.println("Benchmark failed: " + e.getMessage());
+            return EXIT_ERROR;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EXIT_ERROR;
+        } finally {
+            if (echo != null) {
+                echo.close();
+            }
+        }
+    }
+
+    private Integer parse(final List<String> args) {
+        try {
+            for (var i = 0; i < args.size(); i++) {
+                final var arg = args.get(i);
+                if ("--".equals(arg)) {
+                    tunnelArgs = args.subList(i + 1, args.size());
+                    break;
+                } else if (arg.startsWith("--startup=")) {
+                    startupRuns = Integer.parseInt(value(arg));
+                } else if (arg.startsWith("--rate=")) {
+                    rate = Long.parseLong(value(arg));
+                } else if (arg.startsWith("--concurrency=")) {
+                    concurrency = Integer.parseInt(value(arg));
+                } else if (arg.startsWith("--size=")) {
+                    size = Integer.parseInt(value(arg));
+                } else if (arg.startsWith("--duration=")) {
+                    durationSeconds = Integer.parseInt(value(arg));
+                } else if (arg.startsWith("--echo=")) {
+                    echoPort = Integer.parseInt(value(arg));
+                } else if (arg.startsWith("--json=")) {
+                    jsonFile = Path.of(value(arg));
+                } else if ("-h".equals(arg) || "--help".equals(arg)) {
+                    printHelp();
+                    return EXIT_OK;
+                } else if (arg.startsWith("-") || target != null) {
+                    System.err.println("Unknown option: " + arg);
+                    printHelp();
+                    return EXIT_USAGE;
+                } else {
+                    target = URI.create(arg);
+                }
+            }
+        } catch (final IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return EXIT_USAGE;
+        }
+        if (target == null || target.getScheme() == null || target.getHost() == null) {
+            System.err.println("Error: Missing target, e.g. https://my-app.portbuddy.dev or tcp://host:port");
+            return EXIT_USAGE;
+        }
+        type = switch (target.getScheme().toLowerCase()) {
+            case "http", "https" -> TunnelType.HTTP;
+            case "tcp" -> TunnelType.TCP;
+            case "udp" -> TunnelType.UDP;
+            default -> null;
+        };
+        if (type == null || type != TunnelType.HTTP && target.getPort() == -1) {
+            System.err.println("Error: Target must be http(s)://host[:port][/path], tcp://host:port or "
+                + "udp://host:port");
+            return EXIT_USAGE;
+        }
+        if (rate < 0 || concurrency < 1 || durationSeconds < 1 || size != null && size < 0
+            || (type == TunnelType.UDP && size != null && size > 65_507)
+            || (type == TunnelType.TCP && size != null && size < 1)
+            || echoPort != null && (echoPort < 1 || echoPort > 65_535)
+            || startupRuns != null && startupRuns < 1) {
+            System.err.println("Error: Option out of range");
+            return EXIT_USAGE;
+        }
+        if (startupRuns != null && (echoPort == null || tunnelArgs.isEmpty())) {
+            System.err.println("Error: --startup needs --echo and the tunnel arguments after '--', e.g. "
+                + "--echo=8080 https://my-app.portbuddy.dev -- --domain=my-app 8080");
+            return EXIT_USAGE;
+        }
+        return null;
+    }
+
+    private int runStartup(final List<String> args) {
+        EchoUpstream echo = null;
+        try {
+            final var launcher = StartupBench.launcher(args);
+            echo = EchoUpstream.start(type, echoPort, EchoUpstream.STAMP_END);
+            System.out.printf("Measuring time to first request through %s over %d launches of '%s'%n", target,
+                startupRuns, String.join(" ", tunnelArgs));
+            final var bench = new StartupBench(target, type, startupRuns, launcher, tunnelArgs);
+            final var timeToFirstRequest = bench.run();
+            final var report = new StartupReport(target.toString(), type.name().toLowerCase(), startupRuns,
+                bench.failures(), timeToFirstRequest.count() > 0 ? timeToFirstRequest.snapshot() : null);
+            System.out.println();
+            System.out.printf("%d of %d launches reached the echo service%n", report.runs() - report.failures(),
+                report.runs());
+            if (report.timeToFirstRequest() != null) {
+                System.out.printf("%-18s %9s %9s %9s %9s %9s%n", "Startup (ms)", "mean", "p50", "p90", "p99", "max");
+                printLatency("first request", report.timeToFirstRequest());
+            }
+            if (jsonFile != null) {
+                MAPPER.writerWithDefaultPrettyPrinter().writeValue(jsonFile.toFile(), report);
+                System.out.println("Report written to " + jsonFile.toAbsolutePath());
+            }
+            return report.failures() > 0 ? EXIT_ERROR : EXIT_OK;
+        } catch (final IOException e) {
+            System.err.println("Benchmark failed: " + e.getMessage());
+            return EXIT_ERROR;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EXIT_ERROR;
+        } finally {
+            if (echo != null) {
+                echo.close();
+            }
+        }
+    }
+
+    private static String value(final String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+
+    private long drive(final int messageSize) throws InterruptedException {
+        final var http = type == TunnelType.HTTP ? createHttpClient() : null;
+        final var started = System.nanoTime();
+        intervalNanos = rate > 0 ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+        nextSlot.set(started);
+        deadline = started + TimeUnit.SECONDS.toNanos(durationSeconds);
+        final var workers = new ArrayList<Thread>();
+        for (var i = 0; i < concurrency; i++) {
+            workers.add(Thread.startVirtualThread(() -> {
+                switch (type) {
+                    case HTTP -> runHttp(http, messageSize);
+                    case TCP -> runTcp(messageSize);
+                    default -> runUdp(messageSize);
+                }
+            }));
+        }
+        for (final var worker : workers) {
+            worker.join();
+        }
+        if (http != null) {
+            http.dispatcher().executorService().shutdown();
+            http.connectionPool().evictAll();
+        }
+        return System.nanoTime() - started;
+    }
+
+    private OkHttpClient createHttpClient() {
+        return HttpUtils.createClient().newBuilder()
+            .connectionPool(new ConnectionPool(concurrency, 1, TimeUnit.MINUTES))
+            .connectTimeout(10, TimeUnit.SECONDS)
+            .readTimeout(30, TimeUnit.SECONDS)
+            .followRedirects(false)
+            .build();
+    }
+
+    /**
+     * Waits for the next operation slot when a rate is set.
+     *
+     * @return the time the operation was due, from which its latency counts so that a stalled tunnel is not
+     *     hidden by operations that were never sent; {@code -1} once the benchmark is over
+     */
+    private long awaitSlot() {
+        if (intervalNanos == 0) {
+            final var now = System.nanoTime();
+            return now - deadline < 0 ? now : -1;
+        }
+        final var slot = nextSlot.getAndAdd(intervalNanos);
+        if (slot - deadline >= 0) {
+            return -1;
+        }
+        var wait = slot - System.nanoTime();
+        while (wait > 0) {
+            LockSupport.parkNanos(wait);
+            wait = slot - System.nanoTime();
+        }
+        return slot;
+    }
+
+    private void runHttp(final OkHttpClient http, final int messageSize) {
+        final var payload = randomPayload(messageSize);
+        final var url = target.getPath() == null || target.getPath().isEmpty()
+            ? target.resolve("/").toString()
+            : target.toString();
+        long due;
+        while ((due = awaitSlot()) >= 0) {
+            final var request = new Request.Builder().url(url);
+            if (messageSize > 0) {
+                request.post(RequestBody.create(payload, OCTET_STREAM));
+            }
+            final var sent = System.nanoTime();
+            try (final var response = http.newCall(request.build()).execute()) {
+                final var body = response.body() != null ? response.body().bytes() : new byte[0];
+                final var done = System.nanoTime();
+                if (!response.isSuccessful()) {
+                    errors.incrementAndGet();
+                    continue;
+                }
+                bytesSent.addAndGet(messageSize);
+                bytesReceived.addAndGet(body.length);
+                final var received = response.header(EchoUpstream.RECEIVED_HEADER);
+                record(due, sent, received != null ? Long.parseLong(received) : 0, done);
+            } catch (final IOException | NumberFormatException e) {
+                log.debug("Bench request failed: {}", e.toString());
+                errors.incrementAndGet();
+            }
+        }
+    }
+
+    private void runTcp(final int messageSize) {
+        final var message = randomPayload(messageSize);
+        final var reply = new byte[messageSize];
+        while (System.nanoTime() - deadline < 0) {
+            try (final var socket = new Socket()) {
+                socket.setTcpNoDelay(true);
+                socket.connect(new InetSocketAddress(target.getHost(), target.getPort()), 10_000);
+                socket.setSoTimeout(30_000);
+                exchangeTcp(socket.getInputStream(), socket.getOutputStream(), message, reply);
+                return;
+            } catch (final IOException e) {
+                // Reconnect and go on; the failed operation was counted
+                log.debug("Bench connection failed: {}", e.toString());
+                errors.incrementAndGet();
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+            }
+        }
+    }
+
+    private void exchangeTcp(final InputStream in,
+                             final OutputStream out,
+                             final byte[] message,
+                             final byte[] reply) throws IOException {
+        long due;
+        while ((due = awaitSlot()) >= 0) {
+            final var sent = System.nanoTime();
+            out.write(message);
+            if (in.readNBytes(reply, 0, reply.length) < reply.length) {
+                throw new IOException("Connection closed by the tunnel");
+            }
+            final var done = System.nanoTime();
+            bytesSent.addAndGet(message.length);
+            bytesReceived.addAndGet(reply.length);
+            record(due, sent, stampOf(reply, reply.length), done);
+        }
+    }
+
+    private void runUdp(final int messageSize) {
+        final var message = randomPayload(messageSize);
+        final var reply = new DatagramPacket(new byte[65_535], 65_535);
+        try (final var socket = new DatagramSocket()) {
+            socket.connect(new InetSocketAddress(target.getHost(), target.getPort()));
+            socket.setSoTimeout((int) UDP_TIMEOUT_MS);
+            long due;
+            while ((due = awaitSlot()) >= 0) {
+                final var sent = System.nanoTime();
+                // Tag the datagram so a late reply to an earlier one is not taken for this one
+                final var tag = sent;
+                if (message.length >= Long.BYTES) {
+                    ByteBuffer.wrap(message).putLong(0, tag);
+                }
+                socket.send(new DatagramPacket(message, message.length));
+                bytesSent.addAndGet(message.length);
+                if (receiveUdp(socket, reply, message.length >= Long.BYTES ? tag : null)) {
+                    final var done = System.nanoTime();
+                    bytesReceived.addAndGet(reply.getLength());
+                    record(due, sent, stampOf(reply.getData(), reply.getLength()), done);
+                } else {
+                    lost.incrementAndGet();
+                }
+            }
+        } catch (final IOException e) {
+            log.debug("Bench UDP socket failed: {}", e.toString());
+            errors.incrementAndGet();
+        }
+    }
+
+    private static boolean receiveUdp(final DatagramSocket socket, final DatagramPacket reply, final Long tag)
+        throws IOException {
+        while (true) {
+            try {
+                reply.setLength(65_535);
+                socket.receive(reply);
+            } catch (final SocketTimeoutException e) {
+                return false;
+            }
+            if (tag == null || reply.getLength() >= Long.BYTES
+                               && ByteBuffer.wrap(reply.getData()).getLong(0) == tag) {
+                return true;
+            }
+        }
+    }
+
+    private static long stampOf(final byte[] data, final int length) {
+        return length >= EchoUpstream.STAMP_END ? ByteBuffer.wrap(data).getLong(EchoUpstream.STAMP_OFFSET) : 0;
+    }
+
+    private void record(final long due, final long sent, final long received, final long done) {
+        total.record(done - due);
+        // The echo stamp shares this process's clock; anything else is not a usable time
+        if (received != 0 && received - sent >= 0 && done - received >= 0) {
+            toLocal.record(received - due);
+            fromLocal.record(done - received);
+        }
+    }
+
+    private static byte[] randomPayload(final int size) {
+        final var payload = new byte[size];
+        ThreadLocalRandom.current().nextBytes(payload);
+        return payload;
+    }
+
+    private BenchReport report(final long elapsedNanos, final int messageSize) {
+        final var seconds = elapsedNanos / 1e9;
+        final var operations = total.count();
+        return new BenchReport(target.toString(), type.name().toLowerCase(), concurrency, rate, messageSize,
+            seconds, operations, errors.get(), lost.get(), operations / seconds,
+            bytesSent.get() / seconds, bytesReceived.get() / seconds, total.snapshot(),
+            toLocal.count() > 0 ? toLocal.snapshot() : null, fromLocal.count() > 0 ? fromLocal.snapshot() : null);
+    }
+
+    private static void print(final BenchReport report) {
+        System.out.println();
+        System.out.printf("%d operations in %.1f s: %.1f ops/s | errors %d%s%n", report.operations(),
+            report.durationSeconds(), report.operationsPerSecond(), report.errors(),
+            "udp".equals(report.type()) ? " | lost " + report.lost() : "");
+        System.out.printf("Throughput: sent %s/s | received %s/s%n",
+            formatBytes(report.bytesSentPerSecond()), formatBytes(report.bytesReceivedPerSecond()));
+        System.out.println();
+        System.out.printf("%-18s %9s %9s %9s %9s %9s%n", "Latency (ms)", "mean", "p50", "p90", "p99", "max");
+        printLatency("round trip", report.latency());
+        if (report.toLocal() != null) {
+            printLatency("to local", report.toLocal());
+            printLatency("back from local", report.fromLocal());
+        } else {
+            System.out.println("(run with --echo to split round trips into the way to the local side and back)");
+        }
+    }
+
+    private static void printLatency(final String label, final LatencyHistogram.Snapshot snapshot) {
+        System.out.printf("%-18s %9.2f %9.2f %9.2f %9.2f %9.2f%n", label, snapshot.mean(), snapshot.p50(),
+            snapshot.p90(), snapshot.p99(), snapshot.max());
+    }
+
+    private static String formatBytes(final double bytes) {
+        if (bytes < 1024) {
+            return "%.0f B".formatted(bytes);
+        }
+        if (bytes < 1024 * 1024) {
+            return "%.2f KB".formatted(bytes / 1024.0);
+        }
+        return "%.2f MB".formatted(bytes / (1024.0 * 1024.0));
+    }
+
+    private void printHelp() {
+        System.out.println("Usage: portbuddy bench [options] <target> [-- <tunnel arguments>]");
+        System.out.println("Measure a tunnel end-to-end by driving load against its public endpoint.");
+        System.out.println("Target is http(s)://host[:port][/path], tcp://host:port or udp://host:port.");
+        System.out.println();
+        System.out.println("Options:");
+        System.out.println("  --rate=<n>                  Operations per second in total (default: unlimited)");
+        System.out.println("  --concurrency=<n>           Concurrent connections (default 16)");
+        System.out.println("  --size=<bytes>              Payload per operation; HTTP sends a GET unless it is set");
+        System.out.println("                              (default 64 for TCP and UDP)");
+        System.out.println("  --duration=<seconds>        How long to run (default 10)");
+        System.out.println("  --echo=<port>               Also run an echo service on localhost:<port> to expose;");
+        System.out.println("                              splits latency into the way to the local side and back");
+        System.out.println("  --startup=<runs>            Instead of load, launch the tunnel given after '--'");
+        System.out.println("                              this many times and measure the time to the first");
+        System.out.println("                              request through it; needs --echo");
+        System.out.println("  --json=<file>               Write the report to a JSON file");
+        System.out.println();
+        System.out.println("Examples:");
+        System.out.println("  portbuddy bench --echo=8080 https://my-app.portbuddy.dev");
+        System.out.println("  portbuddy bench --rate=500 --size=1024 tcp://tcp.portbuddy.dev:43012");
+        System.out.println("  portbuddy bench --startup=20 --echo=8080 https://my-app.portbuddy.dev -- "
+            + "--domain=my-app 8080");
+    }
+
+    /**
+     * Result of a benchmark. Rates are per second, latencies in milliseconds.
+     *
+     * @param target                 benchmarked endpoint
+     * @param type                   protocol
+     * @param concurrency            concurrent connections
+     * @param rate                   requested operations per second, {@code 0} for as fast as possible
+     * @param payloadSize            payload per operation
+     * @param durationSeconds        actual duration
+     * @param operations             completed operations
+     * @param errors                 failed operations and connections
+     * @param lost                   UDP datagrams without a reply
+     * @param operationsPerSecond    completed operations per second
+     * @param bytesSentPerSecond     payload sent per second
+     * @param bytesReceivedPerSecond payload received per second
+     * @param latency                round trip, from when the operation was due
+     * @param toLocal                way to the local side, or {@code null} without the echo service
+     * @param fromLocal              way back from the local side, or {@code null} without the echo service
+     */
+    public record BenchReport(String target,
+                              String type,
+                              int concurrency,
+                              long rate,
+                              int payloadSize,
+                              double durationSeconds,
+                              long operations,
+                              long errors,
+                              long lost,
+                              double operationsPerSecond,
+                              double bytesSentPerSecond,
+                              double bytesReceivedPerSecond,
+                              LatencyHistogram.Snapshot latency,
+                              LatencyHistogram.Snapshot toLocal,
+                              LatencyHistogram.Snapshot fromLocal) {
+    }
+
+    /**
+     * Result of a startup benchmark, in milliseconds.
+     *
+     * @param target             probed endpoint
+     * @param type               protocol
+     * @param runs               launches of the tunnel
+     * @param failures           launches through which no request made it
+     * @param timeToFirstRequest time from launch to the first request answered through the tunnel, or
+     *                           {@code null} if every launch failed
+     */
+    public record StartupReport(String target,
+                                String type,
+                                int runs,
+                                int failures,
+                                LatencyHistogram.Snapshot timeToFirstRequest) {
+    }
+}
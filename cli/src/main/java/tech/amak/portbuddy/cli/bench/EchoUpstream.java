@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.cli.bench;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpServer;
+
+import lombok.extern.slf4j.Slf4j;
+import tech.amak.portbuddy.common.TunnelType;
+
+/**
+ * Echo service for a tunnel to point at while it is benchmarked. It runs in the same process as the load
+ * generator, so it stamps the time each request reached it with the same clock: HTTP responses carry it in
+ * the {@value #RECEIVED_HEADER} header, and TCP messages and UDP datagrams of at least
+ * {@value #STAMP_END} bytes carry it in bytes 8 to 15.
+ */
+@Slf4j
+final class EchoUpstream implements Closeable {
+
+    static final String RECEIVED_HEADER = "X-Bench-Received";
+    static final int STAMP_OFFSET = 8;
+    static final int STAMP_END = STAMP_OFFSET + Long.BYTES;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private HttpServer httpServer;
+    private ServerSocket tcpServer;
+    private DatagramSocket udpSocket;
+
+    /**
+     * Starts an echo service on the loopback interface.
+     *
+     * @param type        protocol to serve
+     * @param port        port to listen on
+     * @param messageSize size of TCP messages, which the stream carries back to back
+     * @return the running service
+     * @throws IOException if the port cannot be bound
+     */
+    static EchoUpstream start(final TunnelType type, final int port, final int messageSize) throws IOException {
+        final var echo = new EchoUpstream();
+        final var address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        try {
+            switch (type) {
+                case HTTP -> echo.startHttp(address);
+                case TCP -> echo.startTcp(address, messageSize);
+                case UDP -> echo.startUdp(address);
+                default -> throw new IllegalArgumentException("Unsupported type " + type);
+            }
+        } catch (final IOException | RuntimeException e) {
+            echo.close();
+            throw e;
+        }
+        return echo;
+    }
+
+    private void startHttp(final InetSocketAddress address) throws IOException {
+        // Headers and body go out in separate writes; without this Nagle's algorithm delays the body
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        httpServer = HttpServer.create(address, 0);
+        httpServer.createContext("/", exchange -> {
+            final var received = System.nanoTime();
+            try (exchange) {
+                final var body = exchange.getRequestBody().readAllBytes();
+                exchange.getResponseHeaders().add(RECEIVED_HEADER, Long.toString(received));
+                final var contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+                if (contentType != null) {
+                    exchange.getResponseHeaders().add("Content-Type", contentType);
+                }
+                exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length);
+                exchange.getResponseBody().write(body);
+            }
+        });
+        httpServer.setExecutor(executor);
+        httpServer.start();
+    }
+
+    private void startTcp(final InetSocketAddress address, final int messageSize) throws IOException {
+        tcpServer = new ServerSocket();
+        tcpServer.bind(address);
+        executor.execute(() -> {
+            while (!tcpServer.isClosed()) {
+                try {
+                    final var socket = tcpServer.accept();
+                    executor.execute(() -> echoTcp(socket, messageSize));
+                } catch (final IOException e) {
+                    log.debug("Echo accept failed: {}", e.toString());
+                }
+            }
+        });
+    }
+
+    private static void echoTcp(final Socket socket, final int messageSize) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            final var in = socket.getInputStream();
+            final var out = socket.getOutputStream();
+            final var message = new byte[messageSize];
+            while (in.readNBytes(message, 0, messageSize) == messageSize) {
+                stamp(message, messageSize);
+                out.write(message);
+            }
+        } catch (final IOException e) {
+            log.debug("Echo connection failed: {}", e.toString());
+        }
+    }
+
+    private void startUdp(final InetSocketAddress address) throws IOException {
+        udpSocket = new DatagramSocket(address);
+        executor.execute(() -> {
+            final var packet = new DatagramPacket(new byte[65_535], 65_535);
+            while (!udpSocket.isClosed()) {
+                try {
+                    packet.setLength(65_535);
+                    udpSocket.receive(packet);
+                    stamp(packet.getData(), packet.getLength());
+                    udpSocket.send(packet);
+                } catch (final IOException e) {
+                    log.debug("Echo datagram failed: {}", e.toString());
+                }
+            }
+        });
+    }
+
+    private static void stamp(final byte[] message, final int length) {
+        if (length >= STAMP_END) {
+            ByteBuffer.wrap(message).putLong(STAMP_OFFSET, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+        }
+        try {
+            if (tcpServer != null) {
+                tcpServer.close();
+            }
+        } catch (final IOException e) {
+            log.debug("Failed to close echo listener: {}", e.toString());
+        }
+        if (udpSocket != null) {
+            udpSocket.close();
+        }
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.cli.bench;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import tech.amak.portbuddy.cli.ui.LatencyHistogram;
+import tech.amak.portbuddy.cli.utils.HttpUtils;
+import tech.amak.portbuddy.common.TunnelType;
+
+/**
+ * Measures time to first tunneled request: launches the CLI the way this process was launched, with the
+ * given tunnel arguments, and probes the public endpoint until a request comes back from the echo service.
+ * Each run covers process start, configuration, authentication, the expose call, the tunnel connection
+ * and the first request, which is what a CI job pays every time it starts a tunnel.
+ */
+@Slf4j
+final class StartupBench {
+
+    private static final long PROBE_INTERVAL_MS = 20;
+    private static final long RUN_TIMEOUT_MS = 60_000;
+    private static final long PAUSE_BETWEEN_RUNS_MS = 1000;
+    private static final int PROBE_TIMEOUT_MS = 2000;
+
+    private final URI target;
+    private final TunnelType type;
+    private final int runs;
+    private final List<String> launcher;
+    private final List<String> tunnelArgs;
+    private final LatencyHistogram timeToFirstRequest = new LatencyHistogram();
+    private final OkHttpClient http;
+    private int failures;
+
+    StartupBench(final URI target,
+                 final TunnelType type,
+                 final int runs,
+                 final List<String> launcher,
+                 final List<String> tunnelArgs) {
+        this.target = target;
+        this.type = type;
+        this.runs = runs;
+        this.launcher = launcher;
+        this.tunnelArgs = tunnelArgs;
+        this.http = type == TunnelType.HTTP
+            ? HttpUtils.createClient().newBuilder()
+                .connectTimeout(PROBE_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .readTimeout(PROBE_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .followRedirects(false)
+                .build()
+            : null;
+    }
+
+    /**
+     * Returns the command that starts this CLI, without its arguments.
+     *
+     * @param benchArgs arguments following {@code bench}, which end the command line of this process
+     * @throws IOException if the command line of this process is not available
+     */
+    static List<String> launcher(final List<String> benchArgs) throws IOException {
+        final var info = ProcessHandle.current().info();
+        final var command = info.command().orElse(null);
+        final var arguments = info.arguments().map(Arrays::asList).orElse(null);
+        final var end = arguments != null ? arguments.size() - benchArgs.size() - 1 : -1;
+        if (command == null || end < 0 || !"bench".equals(arguments.get(end))
+            || !arguments.subList(end + 1, arguments.size()).equals(benchArgs)) {
+            throw new IOException("Cannot tell how this CLI was started");
+        }
+        final var launcher = new ArrayList<String>(end + 1);
+        launcher.add(command);
+        // A JVM launch keeps its options and main class; global CLI options before 'bench' are kept too
+        launcher.addAll(arguments.subList(0, end));
+        return launcher;
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @return time to first tunneled request of the successful runs
+     */
+    LatencyHistogram run() throws InterruptedException {
+        final var command = new ArrayList<>(launcher);
+        command.addAll(tunnelArgs);
+        for (var i = 1; i <= runs; i++) {
+            final var elapsed = runOnce(command);
+            if (elapsed < 0) {
+                failures++;
+                System.out.printf("Run %d/%d failed%n", i, runs);
+            } else {
+                timeToFirstRequest.record(elapsed);
+                System.out.printf("Run %d/%d: %.0f ms%n", i, runs, elapsed / 1e6);
+            }
+            if (i < runs) {
+                // Give the server a moment to release the domain or port of the previous run
+                Thread.sleep(PAUSE_BETWEEN_RUNS_MS);
+            }
+        }
+        if (http != null) {
+            http.dispatcher().executorService().shutdown();
+            http.connectionPool().evictAll();
+        }
+        return timeToFirstRequest;
+    }
+
+    int failures() {
+        return failures;
+    }
+
+    private long runOnce(final List<String> command) throws InterruptedException {
+        final Process process;
+        final var started = System.nanoTime();
+        try {
+            process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        } catch (final IOException e) {
+            System.err.println("Failed to start " + command.getFirst() + ": " + e.getMessage());
+            return -1;
+        }
+        try {
+            final var deadline = started + TimeUnit.MILLISECONDS.toNanos(RUN_TIMEOUT_MS);
+            while (System.nanoTime() - deadline < 0) {
+                if (probe()) {
+                    return System.nanoTime() - started;
+                }
+                if (!process.isAlive()) {
+                    System.err.println("Tunnel exited with code " + process.exitValue());
+                    return -1;
+                }
+                Thread.sleep(PROBE_INTERVAL_MS);
+            }
+            System.err.println("No request made it through the tunnel within " + RUN_TIMEOUT_MS / 1000 + " s");
+            return -1;
+        } finally {
+            process.destroy();
+            if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    /**
+     * Sends one request and tells whether the echo service answered it; anything else, such as the
+     * server's answer for an unknown tunnel, means the tunnel is not up yet.
+     */
+    private boolean probe() {
+        try {
+            return switch (type) {
+                case HTTP -> probeHttp();
+                case TCP -> probeTcp();
+                default -> probeUdp();
+            };
+        } catch (final IOException e) {
+            log.debug("Startup probe failed: {}", e.toString());
+            return false;
+        }
+    }
+
+    private boolean probeHttp() throws IOException {
+        final var request = new Request.Builder().url(target.toString()).build();
+        try (final var response = http.newCall(request).execute()) {
+            return response.isSuccessful() && response.header(EchoUpstream.RECEIVED_HEADER) != null;
+        }
+    }
+
+    private boolean probeTcp() throws IOException {
+        try (final var socket = new Socket()) {
+            socket.connect(new InetSocketAddress(target.getHost(), target.getPort()), PROBE_TIMEOUT_MS);
+            socket.setSoTimeout(PROBE_TIMEOUT_MS);
+            socket.getOutputStream().write(new byte[EchoUpstream.STAMP_END]);
+            final var reply = socket.getInputStream().readNBytes(EchoUpstream.STAMP_END);
+            return reply.length == EchoUpstream.STAMP_END && isStamped(reply);
+        } catch (final SocketTimeoutException e) {
+            return false;
+        }
+    }
+
+    private boolean probeUdp() throws IOException {
+        try (final var socket = new DatagramSocket()) {
+            socket.connect(new InetSocketAddress(target.getHost(), target.getPort()));
+            socket.setSoTimeout((int) (PROBE_INTERVAL_MS * 10));
+            socket.send(new DatagramPacket(new byte[EchoUpstream.STAMP_END], EchoUpstream.STAMP_END));
+            final var reply = new DatagramPacket(new byte[EchoUpstream.STAMP_END], EchoUpstream.STAMP_END);
+            socket.receive(reply);
+            return reply.getLength() == EchoUpstream.STAMP_END && isStamped(reply.getData());
+        } catch (final SocketTimeoutException e) {
+            return false;
+        }
+    }
+
+    private static boolean isStamped(final byte[] reply) {
+        return ByteBuffer.wrap(reply).getLong(EchoUpstream.STAMP_OFFSET) != 0;
+    }
+}
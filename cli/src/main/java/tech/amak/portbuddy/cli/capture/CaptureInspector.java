@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.cli.capture;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import tech.amak.portbuddy.cli.utils.HttpUtils;
+
+/**
+ * {@code portbuddy inspect}: lists, shows and replays exchanges captured with {@code --capture}.
+ */
+public class CaptureInspector {
+
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_ERROR = 1;
+    private static final int EXIT_USAGE = 2;
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_SHOWN_BODY = 4096;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss.SSS")
+        .withZone(ZoneId.systemDefault());
+
+    private final Path defaultFile;
+    private Path file;
+    private String method;
+    private String pathPart;
+    private String status;
+    private Long sequence;
+    private int limit = DEFAULT_LIMIT;
+    private boolean show;
+    private boolean replay;
+    private String target;
+
+    /**
+     * Constructs an inspector.
+     *
+     * @param defaultFile capture file read unless another one is given
+     */
+    public CaptureInspector(final Path defaultFile) {
+        this.defaultFile = defaultFile;
+    }
+
+    /**
+     * Runs the command.
+     *
+     * @param args arguments following {@code inspect}
+     * @return exit code
+     */
+    public int run(final List<String> args) {
+        for (final var arg : args) {
+            if (arg.startsWith("--method=")) {
+                method = arg.substring("--method=".length());
+            } else if (arg.startsWith("--path=")) {
+                pathPart = arg.substring("--path=".length());
+            } else if (arg.startsWith("--status=")) {
+                status = arg.substring("--status=".length()).toLowerCase();
+            } else if (arg.startsWith("--seq=") || arg.startsWith("--limit=")) {
+                try {
+                    final var value = Long.parseLong(arg.substring(arg.indexOf('=') + 1));
+                    if (arg.startsWith("--seq=")) {
+                        sequence = value;
+                    } else {
+                        limit = (int) Math.max(1, Math.min(Integer.MAX_VALUE, value));
+                    }
+                } catch (final NumberFormatException e) {
+                    System.err.println("Error: Option '" + arg.substring(0, arg.indexOf('=')) + "' requires a number.");
+                    return EXIT_USAGE;
+                }
+            } else if ("--show".equals(arg)) {
+                show = true;
+            } else if ("--replay".equals(arg)) {
+                replay = true;
+            } else if (arg.startsWith("--target=")) {
+                target = stripTrailingSlash(arg.substring("--target=".length()));
+            } else if ("-h".equals(arg) || "--help".equals(arg)) {
+                printHelp();
+                return EXIT_OK;
+            } else if (arg.startsWith("-") || file != null) {
+                System.err.println("Unknown option: " + arg);
+                printHelp();
+                return EXIT_USAGE;
+            } else {
+                file = Path.of(arg);
+            }
+        }
+        final var captureFile = file != null ? file : defaultFile;
+        if (!Files.exists(captureFile)) {
+            System.err.println("No capture at " + captureFile + ". Run a tunnel with --capture first.");
+            return EXIT_ERROR;
+        }
+
+        final List<Captured> selected;
+        try (final var ring = CaptureRing.open(captureFile)) {
+            selected = select(ring.entries());
+        } catch (final IOException e) {
+            System.err.println("Failed to read capture: " + e.getMessage());
+            return EXIT_ERROR;
+        }
+        if (selected.isEmpty()) {
+            System.out.println("(no matching exchanges)");
+            return EXIT_OK;
+        }
+        if (replay) {
+            return replay(selected);
+        }
+        for (final var captured : selected) {
+            if (show) {
+                printDetails(captured);
+            } else {
+                printSummary(captured);
+            }
+        }
+        return EXIT_OK;
+    }
+
+    private List<Captured> select(final List<CaptureRing.Entry> entries) {
+        final var matching = new ArrayList<Captured>();
+        for (final var entry : entries) {
+            final CapturedExchange exchange;
+            try {
+                exchange = CapturedExchange.decode(entry.payload());
+            } catch (final IllegalArgumentException e) {
+                continue;
+            }
+            if (matches(entry.sequence(), exchange)) {
+                matching.add(new Captured(entry.sequence(), exchange));
+            }
+        }
+        // The most recent exchanges are the interesting ones
+        return matching.subList(Math.max(0, matching.size() - limit), matching.size());
+    }
+
+    private boolean matches(final long seq, final CapturedExchange exchange) {
+        if (sequence != null && sequence != seq) {
+            return false;
+        }
+        if (method != null && !method.equalsIgnoreCase(exchange.method())) {
+            return false;
+        }
+        if (pathPart != null && (exchange.path() == null || !exchange.path().contains(pathPart))) {
+            return false;
+        }
+        if (status != null) {
+            final var code = Integer.toString(exchange.status());
+            // 5xx matches any 500-599 status
+            return status.length() == 3 && status.endsWith("xx")
+                ? code.charAt(0) == status.charAt(0)
+                : code.equals(status);
+        }
+        return true;
+    }
+
+    private void printSummary(final Captured captured) {
+        final var exchange = captured.exchange();
+        System.out.printf("#%-6d %s %-6s %-3d %7.1f ms %s%n", captured.sequence(),
+            TIME.format(Instant.ofEpochMilli(exchange.timestampMillis())), exchange.method(), exchange.status(),
+            exchange.durationNanos() / 1e6, pathAndQuery(exchange));
+    }
+
+    private void printDetails(final Captured captured) {
+        final var exchange = captured.exchange();
+        System.out.printf("#%d at %s to %s (%.1f ms)%n", captured.sequence(),
+            Instant.ofEpochMilli(exchange.timestampMillis()), exchange.target(), exchange.durationNanos() / 1e6);
+        System.out.println("> " + exchange.method() + " " + pathAndQuery(exchange));
+        exchange.requestHeaders().forEach((name, values) -> values.forEach(value ->
+            System.out.println("> " + name + ": " + value)));
+        printBody(exchange.requestBody(), exchange.requestBodyLength());
+        System.out.println("< " + exchange.status());
+        exchange.responseHeaders().forEach((name, values) -> values.forEach(value ->
+            System.out.println("< " + name + ": " + value)));
+        printBody(exchange.responseBody(), exchange.responseBodyLength());
+        System.out.println();
+    }
+
+    private static void printBody(final byte[] body, final int length) {
+        if (length == 0) {
+            return;
+        }
+        System.out.println();
+        final var shown = Math.min(body.length, MAX_SHOWN_BODY);
+        final var text = decodeText(body, shown);
+        if (text == null) {
+            System.out.println("(" + length + " bytes of binary data)");
+            return;
+        }
+        System.out.println(text);
+        if (length > shown) {
+            System.out.println("... (" + length + " bytes in total)");
+        }
+    }
+
+    private static String decodeText(final byte[] body, final int length) {
+        try {
+            // A multibyte character cut at the end is not a reason to treat the body as binary
+            final var decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+            final var input = ByteBuffer.wrap(body, 0, length);
+            final var output = CharBuffer.allocate(length);
+            final var result = decoder.decode(input, output, true);
+            if (result.isError() && input.remaining() > 3) {
+                result.throwException();
+            }
+            return output.flip().toString();
+        } catch (final CharacterCodingException e) {
+            return null;
+        }
+    }
+
+    private int replay(final List<Captured> selected) {
+        final var client = HttpUtils.createClient().newBuilder()
+            .connectTimeout(10, TimeUnit.SECONDS)
+            .readTimeout(60, TimeUnit.SECONDS)
+            .followRedirects(false)
+            .followSslRedirects(false)
+            .build();
+        var failed = false;
+        for (final var captured : selected) {
+            final var exchange = captured.exchange();
+            if (exchange.requestBodyLength() > exchange.requestBody().length) {
+                System.out.printf("#%-6d skipped: request body was cut when captured%n", captured.sequence());
+                continue;
+            }
+            final var base = target != null ? target : exchange.target();
+            final var request = new Request.Builder().url(base + pathAndQuery(exchange));
+            String contentType = null;
+            for (final var header : exchange.requestHeaders().entrySet()) {
+                if (header.getKey() == null || isHopByHop(header.getKey())) {
+                    continue;
+                }
+                if (header.getKey().equalsIgnoreCase("Content-Type")) {
+                    contentType = header.getValue().isEmpty() ? null : header.getValue().getFirst();
+                    continue;
+                }
+                header.getValue().forEach(value -> request.addHeader(header.getKey(), value));
+            }
+            final var mediaType = contentType != null ? MediaType.parse(contentType) : null;
+            final var body = exchange.requestBodyLength() > 0 || requiresBody(exchange.method())
+                ? RequestBody.create(exchange.requestBody(), mediaType)
+                : null;
+            final var started = System.nanoTime();
+            try (final var response = client.newCall(request.method(exchange.method(), body).build()).execute()) {
+                final var responseBody = response.body() != null ? response.body().bytes() : new byte[0];
+                System.out.printf("#%-6d %-6s %-3d (captured %d) %7.1f ms %6d bytes %s%n", captured.sequence(),
+                    exchange.method(), response.code(), exchange.status(), (System.nanoTime() - started) / 1e6,
+                    responseBody.length, pathAndQuery(exchange));
+            } catch (final IOException | IllegalArgumentException e) {
+                failed = true;
+                System.out.printf("#%-6d %-6s failed: %s%n", captured.sequence(), exchange.method(), e.getMessage());
+            }
+        }
+        return failed ? EXIT_ERROR : EXIT_OK;
+    }
+
+    private static boolean isHopByHop(final String name) {
+        return switch (name.toLowerCase()) {
+            case "host", "content-length", "connection", "transfer-encoding", "keep-alive", "upgrade" -> true;
+            default -> false;
+        };
+    }
+
+    private static boolean requiresBody(final String method) {
+        return switch (method.toUpperCase()) {
+            case "POST", "PUT", "PATCH" -> true;
+            default -> false;
+        };
+    }
+
+    private static String pathAndQuery(final CapturedExchange exchange) {
+        final var path = exchange.path() != null ? exchange.path() : "/";
+        return exchange.query() != null && !exchange.query().isBlank() ? path + "?" + exchange.query() : path;
+    }
+
+    private static String stripTrailingSlash(final String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private void printHelp() {
+        System.out.println("Usage: portbuddy inspect [options] [file]");
+        System.out.println("List, show and replay HTTP exchanges captured with --capture.");
+        System.out.println();
+        System.out.println("Options:");
+        System.out.println("  --method=<method>           Only exchanges with this request method");
+        System.out.println("  --path=<text>               Only exchanges whose path contains the text");
+        System.out.println("  --status=<code>             Only exchanges with this status, e.g. 404 or 5xx");
+        System.out.println("  --seq=<n>                   Only the exchange with this number");
+        System.out.println("  --limit=<n>                 At most the last n matching exchanges (default 50)");
+        System.out.println("  --show                      Print headers and bodies");
+        System.out.println("  --replay                    Send the requests to the local service again");
+        System.out.println("  --target=<scheme://host:port>");
+        System.out.println("                              Replay against this service instead of the captured one");
+        System.out.println();
+        System.out.println("Examples:");
+        System.out.println("  portbuddy inspect --status=5xx");
+        System.out.println("  portbuddy inspect --seq=42 --show");
+        System.out.println("  portbuddy inspect --path=/api/orders --method=POST --replay");
+    }
+
+    private record Captured(long sequence, CapturedExchange exchange) {
+    }
+}
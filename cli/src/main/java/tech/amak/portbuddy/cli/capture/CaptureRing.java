@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.cli.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Fixed-size ring of records in a memory-mapped file. Appending copies the record into the mapping and
+ * bumps two offsets in the file header, so capturing costs about as much as a memory copy; once the file
+ * is full the oldest records are overwritten. The file can be read by another process, e.g. while the
+ * tunnel is still running.
+ *
+ * <p>Offsets in the header are virtual: they only grow, and the position in the file is the offset modulo
+ * the capacity. Records never wrap around the end of the file; the rest of the file is skipped instead.
+ */
+public final class CaptureRing implements Closeable {
+
+    private static final int MAGIC = 0x50424331; // "PBC1"
+    private static final int HEADER_SIZE = 64;
+    private static final int HEAD_OFFSET = 8;
+    private static final int TAIL_OFFSET = 16;
+    private static final int CAPACITY_OFFSET = 24;
+    // Record header: payload length and sequence number
+    private static final int RECORD_HEADER_SIZE = 16;
+    // Marks that the rest of the file until its end is unused
+    private static final int SKIP_TO_END = -1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long capacity;
+    private long head;
+    private long tail;
+    private long sequence;
+
+    private CaptureRing(final FileChannel channel, final MappedByteBuffer buffer, final long capacity) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Creates a ring file for appending, replacing any earlier capture at the same path. The file is only
+     * readable by its owner as captured traffic may contain credentials.
+     *
+     * @param file     ring file
+     * @param capacity bytes available for records
+     * @return the ring
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public static CaptureRing create(final Path file, final int capacity) throws IOException {
+        if (capacity < 4096) {
+            throw new IllegalArgumentException("Capture capacity must be at least 4096 bytes");
+        }
+        final var parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            restrictPermissions(file);
+            final var size = HEADER_SIZE + (long) align(capacity);
+            final var ring = new CaptureRing(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size),
+                size - HEADER_SIZE);
+            ring.buffer.putInt(0, MAGIC);
+            ring.buffer.putLong(CAPACITY_OFFSET, ring.capacity);
+            ring.writeOffsets();
+            return ring;
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens an existing ring file for reading.
+     *
+     * @param file ring file
+     * @return the ring
+     * @throws IOException if the file cannot be read or is not a capture
+     */
+    public static CaptureRing open(final Path file) throws IOException {
+        final var channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            final var size = channel.size();
+            final var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < HEADER_SIZE || buffer.getInt(0) != MAGIC
+                || buffer.getLong(CAPACITY_OFFSET) != size - HEADER_SIZE) {
+                throw new IOException("Not a capture file: " + file);
+            }
+            return new CaptureRing(channel, buffer, size - HEADER_SIZE);
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends a record, evicting the oldest records as needed. Records larger than a quarter of the ring
+     * are dropped so a single huge exchange cannot flush the whole capture.
+     *
+     * @param payload record bytes
+     * @return {@code true} if the record was stored
+     */
+    public synchronized boolean append(final byte[] payload) {
+        final var size = align(RECORD_HEADER_SIZE + payload.length);
+        if (size > capacity / 4) {
+            return false;
+        }
+        final var position = position(head);
+        final var skip = capacity - position < size ? capacity - position : 0;
+        evictUntil(head + skip + size - capacity);
+        // Publish the eviction before overwriting, so readers drop records torn by this write
+        buffer.putLong(TAIL_OFFSET, tail);
+        if (skip > 0) {
+            if (skip >= Integer.BYTES) {
+                buffer.putInt(HEADER_SIZE + (int) position, SKIP_TO_END);
+            }
+            head += skip;
+        }
+        final var start = HEADER_SIZE + (int) position(head);
+        buffer.putInt(start, payload.length);
+        buffer.putLong(start + Integer.BYTES * 2, ++sequence);
+        buffer.put(start + RECORD_HEADER_SIZE, payload);
+        head += size;
+        writeOffsets();
+        return true;
+    }
+
+    /**
+     * Returns the records currently in the ring, oldest first. Records overwritten by a concurrent writer
+     * while they are read are left out.
+     */
+    public List<Entry> entries() {
+        final var entries = new ArrayList<Entry>();
+        final var end = buffer.getLong(HEAD_OFFSET);
+        var offset = buffer.getLong(TAIL_OFFSET);
+        while (offset < end) {
+            final var position = position(offset);
+            final var start = HEADER_SIZE + (int) position;
+            final var length = capacity - position < RECORD_HEADER_SIZE ? SKIP_TO_END : buffer.getInt(start);
+            if (length == SKIP_TO_END) {
+                offset += capacity - position;
+                continue;
+            }
+            if (length < 0 || length > capacity - position - RECORD_HEADER_SIZE) {
+                break;
+            }
+            final var payload = new byte[length];
+            buffer.get(start + RECORD_HEADER_SIZE, payload);
+            final var seq = buffer.getLong(start + Integer.BYTES * 2);
+            if (buffer.getLong(TAIL_OFFSET) > offset) {
+                // Evicted while it was read; the writer may be far ahead, so start over from its tail
+                offset = buffer.getLong(TAIL_OFFSET);
+                continue;
+            }
+            entries.add(new Entry(seq, payload));
+            offset += align(RECORD_HEADER_SIZE + length);
+        }
+        return entries;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buffer.isReadOnly()) {
+            channel.close();
+            return;
+        }
+        buffer.force();
+        channel.close();
+    }
+
+    private void evictUntil(final long offset) {
+        while (tail < offset) {
+            final var position = position(tail);
+            if (capacity - position < RECORD_HEADER_SIZE) {
+                tail += capacity - position;
+                continue;
+            }
+            final var length = buffer.getInt(HEADER_SIZE + (int) position);
+            tail += length == SKIP_TO_END ? capacity - position : align(RECORD_HEADER_SIZE + length);
+        }
+    }
+
+    private void writeOffsets() {
+        // Tail first, so a reader never sees a head that is ahead of a stale tail by more than the capacity
+        buffer.putLong(TAIL_OFFSET, tail);
+        buffer.putLong(HEAD_OFFSET, head);
+    }
+
+    private long position(final long offset) {
+        return offset % capacity;
+    }
+
+    private static int align(final int size) {
+        return (size + 7) & ~7;
+    }
+
+    private static void restrictPermissions(final Path file) throws IOException {
+        try {
+            Files.setPosixFilePermissions(file,
+                EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE));
+        } catch (final UnsupportedOperationException ignore) {
+            // Non-POSIX filesystem (e.g., Windows) - best effort only
+        }
+    }
+
+    /**
+     * Record read from a ring.
+     *
+     * @param sequence number of the record, counting from one for the first record of the capture
+     * @param payload  record bytes
+     */
+    public record Entry(long sequence, byte[] payload) {
+    }
+}
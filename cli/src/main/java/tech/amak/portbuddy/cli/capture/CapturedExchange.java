@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.cli.capture;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HTTP request and response that went through a tunnel, in the compact binary form stored in a
+ * {@link CaptureRing}. Bodies are cut to a maximum size; their original sizes are kept.
+ *
+ * @param timestampMillis     time the request arrived, in epoch milliseconds
+ * @param durationNanos       time the local service took to answer
+ * @param target              local service the request went to, e.g. {@code http://localhost:3000}
+ * @param method              request method
+ * @param path                request path
+ * @param query               request query, or {@code null}
+ * @param requestHeaders      request headers
+ * @param requestBody         request body, possibly cut
+ * @param requestBodyLength   original request body size
+ * @param status              response status, {@code 502} if the local service could not be reached
+ * @param responseHeaders     response headers
+ * @param responseBody        response body, possibly cut
+ * @param responseBodyLength  original response body size
+ */
+public record CapturedExchange(long timestampMillis,
+                               long durationNanos,
+                               String target,
+                               String method,
+                               String path,
+                               String query,
+                               Map<String, List<String>> requestHeaders,
+                               byte[] requestBody,
+                               int requestBodyLength,
+                               int status,
+                               Map<String, List<String>> responseHeaders,
+                               byte[] responseBody,
+                               int responseBodyLength) {
+
+    /**
+     * Bodies are captured up to this size.
+     */
+    public static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private static final int VERSION = 1;
+
+    /**
+     * Returns a body cut to {@link #MAX_BODY_BYTES}, without copying it if it is small enough.
+     */
+    public static byte[] cut(final byte[] body) {
+        if (body == null) {
+            return new byte[0];
+        }
+        return body.length <= MAX_BODY_BYTES ? body : Arrays.copyOf(body, MAX_BODY_BYTES);
+    }
+
+    /**
+     * Encodes the exchange for a {@link CaptureRing}.
+     */
+    public byte[] encode() {
+        final var bytes = new ByteArrayOutputStream(256 + requestBody.length + responseBody.length);
+        try (final var out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeLong(timestampMillis);
+            out.writeLong(durationNanos);
+            writeString(out, target);
+            writeString(out, method);
+            writeString(out, path);
+            writeString(out, query);
+            writeHeaders(out, requestHeaders);
+            writeBytes(out, requestBody);
+            out.writeInt(requestBodyLength);
+            out.writeShort(status);
+            writeHeaders(out, responseHeaders);
+            writeBytes(out, responseBody);
+            out.writeInt(responseBodyLength);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes an exchange written by {@link #encode()}.
+     *
+     * @param payload encoded exchange
+     * @return the exchange
+     * @throws IllegalArgumentException if the payload is not a supported exchange
+     */
+    public static CapturedExchange decode(final byte[] payload) {
+        final var in = ByteBuffer.wrap(payload);
+        if (payload.length == 0 || in.get() != VERSION) {
+            throw new IllegalArgumentException("Unsupported capture record");
+        }
+        try {
+            return new CapturedExchange(in.getLong(), in.getLong(), readString(in), readString(in),
+                readString(in), readString(in), readHeaders(in), readBytes(in), in.getInt(), in.getShort(),
+                readHeaders(in), readBytes(in), in.getInt());
+        } catch (final BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("Corrupt capture record", e);
+        }
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBytes(final DataOutputStream out, final byte[] value) throws IOException {
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static void writeHeaders(final DataOutputStream out, final Map<String, List<String>> headers)
+        throws IOException {
+        if (headers == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(headers.size());
+        for (final var header : headers.entrySet()) {
+            writeString(out, header.getKey());
+            final var values = header.getValue() != null ? header.getValue() : List.<String>of();
+            out.writeInt(values.size());
+            for (final var value : values) {
+                writeString(out, value);
+            }
+        }
+    }
+
+    private static String readString(final ByteBuffer in) {
+        final var length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        final var value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static byte[] readBytes(final ByteBuffer in) {
+        final var value = new byte[in.getInt()];
+        in.get(value);
+        return value;
+    }
+
+    private static Map<String, List<String>> readHeaders(final ByteBuffer in) {
+        final var count = in.getInt();
+        final var headers = new LinkedHashMap<String, List<String>>();
+        for (var i = 0; i < count; i++) {
+            final var name = readString(in);
+            final var valueCount = in.getInt();
+            final var values = new ArrayList<String>(valueCount);
+            for (var j = 0; j < valueCount; j++) {
+                values.add(readString(in));
+            }
+            headers.put(name, values);
+        }
+        return headers;
+    }
+}
@@ -14,7 +14,6 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 
 import ch.qos.logback.classic.Level;
@@ -22,6 +21,7 @@ import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
 import lombok.extern.slf4j.Slf4j;
 import tech.amak.portbuddy.common.ClientConfig;
+import tech.amak.portbuddy.common.json.ApiCodec;
 
 @Slf4j
 public class ConfigurationService {
@@ -30,9 +30,10 @@ public class ConfigurationService {
     private static final String PORT_BUDDY_ENV_DEV = "dev";
     private static final String APP_DIR = ".port-buddy";
     private static final String TOKEN_FILE = "token";
+    private static final String CAPTURE_FILE = "capture.ring";
 
     private final String home = System.getProperty("user.home");
-    private final ObjectMapper yamlMapper = new ObjectMapper(new YAMLFactory());
+    private final YAMLFactory yamlFactory = new YAMLFactory();
     private final AtomicReference<ClientConfig> config = new AtomicReference<>();
 
     public static final ConfigurationService INSTANCE = new ConfigurationService();
@@ -73,7 +74,10 @@ public class ConfigurationService {
 
         try (final var configStream = ConfigurationService.class.getResourceAsStream(resourceName)) {
             if (configStream != null) {
-                final var clientConfig = yamlMapper.readValue(configStream, ClientConfig.class);
+                final ClientConfig clientConfig;
+                try (final var parser = yamlFactory.createParser(configStream)) {
+                    clientConfig = ApiCodec.readClientConfig(parser);
+                }
                 log.debug("Loaded config: {}", clientConfig);
                 config.set(clientConfig);
             } else {
@@ -99,6 +103,13 @@ public class ConfigurationService {
         return config.get();
     }
 
+    /**
+     * Returns the file traffic is captured to unless another one is given.
+     */
+    public Path getDefaultCaptureFile() {
+        return Path.of(home, APP_DIR, CAPTURE_FILE);
+    }
+
     public boolean isDev() {
         final var env = System.getenv(PORT_BUDDY_ENV);
         return PORT_BUDDY_ENV_DEV.equalsIgnoreCase(env);
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.cli.config;
+
+import static tech.amak.portbuddy.common.json.JsonStreams.readBoolean;
+import static tech.amak.portbuddy.common.json.JsonStreams.readString;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+import tech.amak.portbuddy.common.TunnelType;
+import tech.amak.portbuddy.common.json.JsonStreams;
+import tech.amak.portbuddy.common.tunnel.SocketProfile;
+
+/**
+ * Tunnels started together by {@code portbuddy up}, read from a YAML file such as:
+ * <pre>
+ * tunnels:
+ *   - name: web
+ *     target: 3000
+ *     domain: my-app
+ *   - name: db
+ *     type: tcp
+ *     target: localhost:5432
+ *     profile: bulk
+ * </pre>
+ * Targets take the same forms as on the command line, including comma-separated upstreams.
+ */
+public final class TunnelsFile {
+
+    /**
+     * File read when none is given, in the working directory.
+     */
+    public static final String DEFAULT_FILE = "portbuddy.yml";
+
+    private static final YAMLFactory YAML_FACTORY = new YAMLFactory();
+
+    private TunnelsFile() {
+    }
+
+    /**
+     * A tunnel of the file. Options not given are {@code null}.
+     *
+     * @param name            label shown in the console, may be {@code null}
+     * @param type            tunnel type, HTTP unless given
+     * @param target          local service as given on the command line
+     * @param domain          requested domain of an HTTP tunnel
+     * @param passcode        passcode of an HTTP tunnel
+     * @param portReservation port reservation of a TCP or UDP tunnel
+     * @param profile         socket profile of a TCP tunnel
+     * @param tlsSni          whether a TCP tunnel is routed by TLS server name
+     */
+    public record Tunnel(String name,
+                         TunnelType type,
+                         String target,
+                         String domain,
+                         String passcode,
+                         String portReservation,
+                         SocketProfile profile,
+                         boolean tlsSni) {
+    }
+
+    /**
+     * Reads the tunnels of a file.
+     *
+     * @throws IOException if the file cannot be read or a tunnel is invalid
+     */
+    public static List<Tunnel> read(final Path file) throws IOException {
+        try (final var in = Files.newInputStream(file);
+             final var parser = YAML_FACTORY.createParser(in)) {
+            final var first = parser.nextToken();
+            if (first == null) {
+                return List.of();
+            }
+            JsonStreams.expectObject(parser, first);
+            final var tunnels = new ArrayList<Tunnel>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final var name = parser.currentName();
+                final var token = parser.nextToken();
+                if (!"tunnels".equals(name) || token == JsonToken.VALUE_NULL) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if (token != JsonToken.START_ARRAY) {
+                    throw new JsonParseException(parser, "'tunnels' must be a list");
+                }
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    tunnels.add(readTunnel(parser));
+                }
+            }
+            return tunnels;
+        }
+    }
+
+    private static Tunnel readTunnel(final JsonParser parser) throws IOException {
+        JsonStreams.expectObject(parser, parser.currentToken());
+        String name = null;
+        String type = null;
+        String target = null;
+        String domain = null;
+        String passcode = null;
+        String portReservation = null;
+        String profile = null;
+        var tlsSni = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final var field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "name" -> name = readString(parser);
+                case "type" -> type = readString(parser);
+                case "target" -> target = readString(parser);
+                case "domain" -> domain = readString(parser);
+                case "passcode" -> passcode = readString(parser);
+                case "portReservation" -> portReservation = readString(parser);
+                case "profile" -> profile = readString(parser);
+                case "tlsSni" -> tlsSni = readBoolean(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        final var label = name != null ? "Tunnel '" + name + "'" : "A tunnel";
+        if (target == null || target.isBlank()) {
+            throw new JsonParseException(parser, label + " has no target");
+        }
+        try {
+            return new Tunnel(name, TunnelType.from(type), target.trim(), domain, passcode, portReservation,
+                profile != null ? SocketProfile.from(profile) : null, tlsSni);
+        } catch (final IllegalArgumentException e) {
+            throw new JsonParseException(parser, label + ": " + e.getMessage());
+        }
+    }
+}
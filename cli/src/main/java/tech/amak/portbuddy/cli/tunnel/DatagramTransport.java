@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.cli.tunnel;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.util.Base64;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import lombok.extern.slf4j.Slf4j;
+import tech.amak.portbuddy.common.tunnel.BinaryWsFrame;
+import tech.amak.portbuddy.common.tunnel.DatagramFrame;
+
+/**
+ * Client side of the net-proxy datagram transport, carrying the datagrams of a UDP tunnel over UDP instead
+ * of the tunnel WebSocket. The client registers with HELLO, retried every second until net-proxy answers
+ * and then repeated as a keepalive. Datagrams are only sent here while answers keep coming; otherwise, e.g.
+ * when UDP is blocked on the way, the caller falls back to the WebSocket.
+ */
+@Slf4j
+final class DatagramTransport {
+
+    private static final long HELLO_RETRY_MS = 1000;
+    private static final long KEEPALIVE_NANOS = TimeUnit.SECONDS.toNanos(15);
+    private static final long READY_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(45);
+
+    private final DatagramSocket socket;
+    private final long channelId;
+    private final byte[] key;
+    private final BiConsumer<String, byte[]> onData;
+    private final ScheduledFuture<?> helloTask;
+    private volatile long lastHelloOkNanos;
+    private long lastHelloSentNanos;
+    private long lastHelloTimestamp;
+
+    private DatagramTransport(final DatagramSocket socket,
+                              final long channelId,
+                              final byte[] key,
+                              final BiConsumer<String, byte[]> onData,
+                              final ScheduledExecutorService scheduler) {
+        this.socket = socket;
+        this.channelId = channelId;
+        this.key = key;
+        this.onData = onData;
+        this.helloTask = scheduler.scheduleWithFixedDelay(this::hello, 0, HELLO_RETRY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens the transport and starts registering with net-proxy.
+     *
+     * @param host      net-proxy host
+     * @param port      port of the datagram transport
+     * @param channelId channel id of the tunnel
+     * @param key       base64 key of the tunnel
+     * @param onData    receives datagrams of UDP flows by connection id
+     * @param scheduler scheduler sending HELLO
+     * @return the transport
+     * @throws IOException if the socket cannot be opened
+     */
+    static DatagramTransport open(final String host,
+                                  final int port,
+                                  final long channelId,
+                                  final String key,
+                                  final BiConsumer<String, byte[]> onData,
+                                  final ScheduledExecutorService scheduler) throws IOException {
+        final var socket = new DatagramSocket();
+        socket.connect(new InetSocketAddress(host, port));
+        final var transport = new DatagramTransport(socket, channelId, Base64.getDecoder().decode(key), onData,
+            scheduler);
+        Thread.ofPlatform().name("pb-datagram-transport").daemon().start(transport::receiveLoop);
+        return transport;
+    }
+
+    long channelId() {
+        return channelId;
+    }
+
+    /**
+     * Returns whether net-proxy answered recently, so datagrams sent here are expected to arrive.
+     */
+    boolean isReady() {
+        final var lastOk = lastHelloOkNanos;
+        return lastOk != 0 && System.nanoTime() - lastOk < READY_TIMEOUT_NANOS;
+    }
+
+    /**
+     * Sends a datagram of a UDP flow to net-proxy.
+     *
+     * @return {@code false} if the transport is not ready or the datagram does not fit in a packet, in which
+     *     case it should go over the WebSocket
+     */
+    boolean send(final String connectionId, final byte[] data, final int offset, final int length) {
+        if (!isReady()) {
+            return false;
+        }
+        final var packet = DatagramFrame.encodeData(channelId, key, connectionId, data, offset, length);
+        if (packet.length > DatagramFrame.MAX_PACKET_LENGTH) {
+            return false;
+        }
+        try {
+            socket.send(new DatagramPacket(packet, packet.length));
+            return true;
+        } catch (final IOException e) {
+            log.debug("Failed to send datagram to net-proxy: {}", e.toString());
+            return false;
+        }
+    }
+
+    void close() {
+        helloTask.cancel(false);
+        socket.close();
+    }
+
+    private synchronized void hello() {
+        final var now = System.nanoTime();
+        if (isReady() && now - lastHelloSentNanos < KEEPALIVE_NANOS) {
+            return;
+        }
+        // net-proxy only accepts increasing timestamps, so a HELLO replayed by someone else is ignored
+        lastHelloTimestamp = Math.max(lastHelloTimestamp + 1, System.currentTimeMillis());
+        final var packet = DatagramFrame.encodeHello(DatagramFrame.HELLO, channelId, key, lastHelloTimestamp);
+        try {
+            socket.send(new DatagramPacket(packet, packet.length));
+            lastHelloSentNanos = now;
+        } catch (final IOException e) {
+            log.debug("Failed to send datagram HELLO: {}", e.toString());
+        }
+    }
+
+    private void receiveLoop() {
+        final var buffer = new byte[DatagramFrame.MAX_PACKET_LENGTH];
+        while (!socket.isClosed()) {
+            try {
+                final var packet = new DatagramPacket(buffer, buffer.length);
+                socket.receive(packet);
+                final var decoded = DatagramFrame.decode(buffer, packet.getLength(), key);
+                if (decoded == null || decoded.channelId() != channelId) {
+                    continue;
+                }
+                if (decoded.type() == DatagramFrame.HELLO_OK) {
+                    if (lastHelloOkNanos == 0) {
+                        log.info("UDP tunnel datagrams now travel over UDP");
+                    }
+                    lastHelloOkNanos = System.nanoTime();
+                } else if (decoded.type() == DatagramFrame.DATA) {
+                    final var frame = BinaryWsFrame.decode(decoded.body());
+                    if (frame != null) {
+                        onData.accept(frame.connectionId(), frame.data());
+                    }
+                }
+            } catch (final IOException e) {
+                // Unreachable port errors are reported on connected sockets; keep going, HELLO retries
+                if (!socket.isClosed()) {
+                    log.debug("Datagram transport receive failed: {}", e.toString());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.cli.tunnel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.net.ssl.SSLSocketFactory;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+import tech.amak.portbuddy.common.json.TunnelCodec;
+import tech.amak.portbuddy.common.tunnel.DirectFrame;
+import tech.amak.portbuddy.common.tunnel.DirectHello;
+
+/**
+ * Net tunnel connection over the direct transport of net-proxy: a single plain or TLS TCP connection
+ * carrying the tunnel messages as length-prefixed frames, without the gateway and WebSocket framing in
+ * between. It is presented as an OkHttp {@link WebSocket} and reports to a {@link WebSocketListener}, so
+ * the tunnel client handles both transports the same way.
+ */
+@Slf4j
+final class DirectTransport implements WebSocket {
+
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Request request;
+    private final String host;
+    private final int port;
+    private final boolean tls;
+    private final DirectHello hello;
+    private final WebSocketListener listener;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile boolean closedLocally;
+    private volatile Socket socket;
+    private DataOutputStream out;
+
+    private DirectTransport(final String host,
+                            final int port,
+                            final boolean tls,
+                            final DirectHello hello,
+                            final WebSocketListener listener) {
+        this.host = host;
+        this.port = port;
+        this.tls = tls;
+        this.hello = hello;
+        this.listener = listener;
+        this.request = new Request.Builder().url((tls ? "https://" : "http://") + host + ":" + port + hello.path())
+            .build();
+    }
+
+    /**
+     * Connects in the background, the way OkHttp opens a WebSocket.
+     *
+     * @param host      net-proxy host
+     * @param port      port of the direct transport listener
+     * @param tls       whether the listener expects TLS
+     * @param path      path and query of the net tunnel WebSocket
+     * @param authToken bearer token
+     * @param listener  listener receiving the connection events and messages
+     * @return the connection
+     */
+    static DirectTransport open(final String host,
+                                final int port,
+                                final boolean tls,
+                                final String path,
+                                final String authToken,
+                                final WebSocketListener listener) {
+        final var transport = new DirectTransport(host, port, tls, new DirectHello(path, authToken), listener);
+        Thread.ofPlatform().name("pb-direct-transport").daemon().start(transport::run);
+        return transport;
+    }
+
+    private void run() {
+        try {
+            final var plain = new Socket();
+            plain.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            plain.setTcpNoDelay(true);
+            socket = tls
+                ? ((SSLSocketFactory) SSLSocketFactory.getDefault()).createSocket(plain, host, port, true)
+                : plain;
+            if (closed.get()) {
+                socket.close();
+                return;
+            }
+            synchronized (this) {
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+                final var payload = TunnelCodec.write(hello);
+                DirectFrame.write(out, DirectFrame.HELLO, payload, 0, payload.length);
+                out.flush();
+            }
+            listener.onOpen(this, new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(101)
+                .message("Switching Protocols")
+                .build());
+
+            final var in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+            DirectFrame frame;
+            while ((frame = DirectFrame.read(in)) != null) {
+                switch (frame.type()) {
+                    case DirectFrame.TEXT -> listener.onMessage(this,
+                        new String(frame.payload(), StandardCharsets.UTF_8));
+                    case DirectFrame.BINARY -> listener.onMessage(this, ByteString.of(frame.payload()));
+                    case DirectFrame.CLOSE -> {
+                        closeSocket();
+                        listener.onClosed(this, 1000, new String(frame.payload(), StandardCharsets.UTF_8));
+                        return;
+                    }
+                    default -> log.debug("Ignoring direct frame of type {}", frame.type());
+                }
+            }
+            throw new IOException("Direct transport connection closed by net-proxy");
+        } catch (final IOException | RuntimeException e) {
+            closeSocket();
+            if (closedLocally) {
+                listener.onClosed(this, 1000, "Closed by client");
+            } else {
+                listener.onFailure(this, e, null);
+            }
+        }
+    }
+
+    @Override
+    public Request request() {
+        return request;
+    }
+
+    @Override
+    public long queueSize() {
+        // Sends write straight to the socket
+        return 0;
+    }
+
+    @Override
+    public boolean send(final String text) {
+        final var bytes = text.getBytes(StandardCharsets.UTF_8);
+        return send(DirectFrame.TEXT, bytes);
+    }
+
+    @Override
+    public boolean send(final ByteString bytes) {
+        return send(DirectFrame.BINARY, bytes.toByteArray());
+    }
+
+    private synchronized boolean send(final byte type, final byte[] payload) {
+        if (closed.get() || out == null) {
+            return false;
+        }
+        try {
+            DirectFrame.write(out, type, payload, 0, payload.length);
+            out.flush();
+            return true;
+        } catch (final IOException e) {
+            log.debug("Direct transport send failed: {}", e.toString());
+            closeSocket();
+            return false;
+        }
+    }
+
+    @Override
+    public boolean close(final int code, final String reason) {
+        synchronized (this) {
+            if (closed.get()) {
+                return false;
+            }
+            closedLocally = true;
+            if (out != null) {
+                try {
+                    final var payload = reason == null ? new byte[0] : reason.getBytes(StandardCharsets.UTF_8);
+                    DirectFrame.write(out, DirectFrame.CLOSE, payload, 0, payload.length);
+                    out.flush();
+                } catch (final IOException e) {
+                    log.debug("Failed to send direct transport CLOSE: {}", e.toString());
+                }
+            }
+        }
+        closeSocket();
+        return true;
+    }
+
+    @Override
+    public void cancel() {
+        closeSocket();
+    }
+
+    private void closeSocket() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        final var current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (final IOException e) {
+                log.debug("Failed to close direct transport socket: {}", e.toString());
+            }
+        }
+    }
+}
@@ -4,24 +4,28 @@
 
 package tech.amak.portbuddy.cli.tunnel;
 
-import static tech.amak.portbuddy.cli.utils.JsonUtils.MAPPER;
-
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -33,32 +37,105 @@ import okhttp3.Response;
 import okhttp3.WebSocket;
 import okhttp3.WebSocketListener;
 import okio.ByteString;
+import tech.amak.portbuddy.cli.capture.CaptureRing;
+import tech.amak.portbuddy.cli.capture.CapturedExchange;
 import tech.amak.portbuddy.cli.config.ConfigurationService;
 import tech.amak.portbuddy.cli.ui.HttpLogSink;
 import tech.amak.portbuddy.cli.utils.HttpUtils;
+import tech.amak.portbuddy.common.json.TunnelCodec;
 import tech.amak.portbuddy.common.tunnel.ControlMessage;
 import tech.amak.portbuddy.common.tunnel.HttpTunnelMessage;
-import tech.amak.portbuddy.common.tunnel.MessageEnvelope;
 import tech.amak.portbuddy.common.tunnel.WsTunnelMessage;
 
+/**
+ * Serves one or more HTTP tunnels over a single control WebSocket. Requests of all tunnels share the
+ * connection, heartbeat and in-flight limit; each is served by the {@link Route} of the tunnel it names.
+ */
 @Slf4j
-@RequiredArgsConstructor
 public class HttpTunnelClient {
 
+    private static final String SHARED_TUNNELS_PARAM = "tunnels";
+    private static final String STANDBY_PARAM = "standby";
+
+    // OkHttp client used exclusively for the control WebSocket connection to the server
+    private static final OkHttpClient SHARED_HTTP = createHttpClient();
+    // Separate OkHttp client for calling the local target service (avoid any interference with WS client)
+    private static final OkHttpClient SHARED_LOCAL_HTTP = createLocalHttpClient();
+    private static final ScheduledExecutorService SHARED_SCHEDULER =
+        Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "port-buddy-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+
     private final String serverUrl; // e.g. https://portbuddy.dev
-    private final UUID tunnelId;
-    private final String localHost;
-    private final int localPort;
-    private final String localScheme; // http or https
     private final String authToken; // Bearer token for API auth
-    private final String publicBaseUrl; // e.g. https://abc123.portbuddy.dev
-    private final HttpLogSink httpLogSink;
+    private final List<Route> routes; // the first one names the connection
+    private final Map<String, Route> routesByTunnelId = new LinkedHashMap<>();
+    // Whether a second connection is kept open for the server to fail over to
+    private final boolean standby;
     private final boolean verbose;
 
-    // OkHttp client used exclusively for the control WebSocket connection to the server
-    private final OkHttpClient http = createHttpClient();
-    // Separate OkHttp client for calling the local target service (avoid any interference with WS client)
-    private final OkHttpClient localHttp = createLocalHttpClient();
+    private final OkHttpClient http = SHARED_HTTP;
+    private final OkHttpClient localHttp = SHARED_LOCAL_HTTP;
+
+    /**
+     * Local side of a tunnel served by the client.
+     *
+     * @param tunnelId      tunnel id
+     * @param upstreams     local services requests are balanced across
+     * @param localScheme   http or https
+     * @param publicBaseUrl e.g. https://abc123.portbuddy.dev
+     * @param httpLogSink   receives request logs and stats, may be {@code null}
+     * @param capture       null unless exchanges are captured
+     */
+    public record Route(UUID tunnelId,
+                        UpstreamPool upstreams,
+                        String localScheme,
+                        String publicBaseUrl,
+                        HttpLogSink httpLogSink,
+                        CaptureRing capture) {
+    }
+
+    public HttpTunnelClient(final String serverUrl,
+                            final UUID tunnelId,
+                            final UpstreamPool upstreams,
+                            final String localScheme,
+                            final String authToken,
+                            final String publicBaseUrl,
+                            final HttpLogSink httpLogSink,
+                            final CaptureRing capture,
+                            final boolean standby,
+                            final boolean verbose) {
+        this(serverUrl, authToken,
+            List.of(new Route(tunnelId, upstreams, localScheme, publicBaseUrl, httpLogSink, capture)), standby,
+            verbose);
+    }
+
+    /**
+     * Creates a client serving several tunnels of the same account over one connection.
+     *
+     * @param routes  tunnels to serve, at least one
+     * @param standby whether to keep a standby connection the server switches the tunnels to when the active
+     *                one drops, instead of failing requests until the client reconnects
+     */
+    public HttpTunnelClient(final String serverUrl,
+                            final String authToken,
+                            final List<Route> routes,
+                            final boolean standby,
+                            final boolean verbose) {
+        if (routes.isEmpty()) {
+            throw new IllegalArgumentException("No tunnels to serve");
+        }
+        this.serverUrl = serverUrl;
+        this.authToken = authToken;
+        this.routes = List.copyOf(routes);
+        this.standby = standby;
+        this.verbose = verbose;
+        for (final var route : routes) {
+            routesByTunnelId.put(route.tunnelId().toString(), route);
+        }
+    }
 
     private static OkHttpClient createHttpClient() {
         final var builder = new OkHttpClient.Builder()
@@ -90,22 +167,17 @@ public class HttpTunnelClient {
         return builder.build();
     }
 
-    private WebSocket webSocket;
-    private CountDownLatch closed = new CountDownLatch(1);
+    private final ControlConnection primary = new ControlConnection();
+    private final ControlConnection secondary = new ControlConnection();
     private final AtomicBoolean stop = new AtomicBoolean(false);
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
-        final var thread = new Thread(runnable, "port-buddy-heartbeat");
-        thread.setDaemon(true);
-        return thread;
-    });
-    private volatile ScheduledFuture<?> heartbeatTask;
-    private final ExecutorService requestExecutor = Executors.newFixedThreadPool(4, runnable -> {
-        final var thread = new Thread(runnable, "port-buddy-http-worker");
-        thread.setDaemon(true);
-        return thread;
-    });
+    private final ScheduledExecutorService scheduler = SHARED_SCHEDULER;
+    // Requests run on virtual threads so a few slow ones do not hold up the rest; the local service
+    // still sees no more than the configured number at once
+    private final RequestLimiter requestLimiter = new RequestLimiter(
+        ConfigurationService.INSTANCE.getConfig().getMaxInFlightRequests(), this::onRequestQueue);
 
     private final Map<String, WebSocket> localWebsocketMap = new ConcurrentHashMap<>();
+    private final List<ScheduledFuture<?>> healthChecks = new ArrayList<>();
 
     /**
      * Establishes and maintains a blocking WebSocket connection to the server.
@@ -119,49 +191,21 @@ public class HttpTunnelClient {
      * connection closure, or failures.
      * - Waits on the {@code closeLatch} to ensure blocking behavior until the
      * connection is terminated.
+     * - With a standby connection, keeps a second one open on a daemon thread.
      * Exceptions:
      * - Catches and handles {@link InterruptedException} if the wait operation
      * on the latch is interrupted. Restores the interrupted thread state.
      */
     public void runBlocking() {
-        var backoffMs = 1000L;
-        final var maxBackoffMs = 30000L;
-        while (!stop.get()) {
-            try {
-                closed = new CountDownLatch(1);
-                final var wsUrl = toWebSocketUrl(serverUrl, "/api/http-tunnel/" + tunnelId);
-                final var request = new Request.Builder().url(wsUrl);
-                if (authToken != null && !authToken.isBlank()) {
-                    request.addHeader("Authorization", "Bearer " + authToken);
-                }
-                webSocket = http.newWebSocket(request.build(), new Listener());
-
-                // Block until this connection is closed
-                closed.await();
-                if (stop.get()) {
-                    break;
-                }
-                // Reconnect with backoff
-                log.info("Tunnel disconnected; reconnecting in {} ms...", backoffMs);
-                Thread.sleep(backoffMs);
-                backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
-            } catch (final InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            } catch (final Exception e) {
-                log.warn("Tunnel loop error: {}", e.toString());
-                if (verbose) {
-                    e.printStackTrace(System.err);
-                }
-                try {
-                    Thread.sleep(backoffMs);
-                } catch (final InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-                backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
-            }
+        for (final var route : routes) {
+            healthChecks.add(route.upstreams().startHealthChecks(scheduler, up -> onUpstreamHealth(route, up)));
+        }
+        if (standby) {
+            final var thread = new Thread(secondary::run, "port-buddy-standby");
+            thread.setDaemon(true);
+            thread.start();
         }
+        primary.run();
     }
 
     /**
@@ -184,18 +228,151 @@ public class HttpTunnelClient {
     public void close() {
         try {
             stop.set(true);
+            requestLimiter.shutdownNow();
+            healthChecks.forEach(check -> check.cancel(false));
+            secondary.close();
+            primary.close();
+        } catch (final Exception ignore) {
+            log.debug("HTTP tunnel close error: {}", ignore.toString());
+        }
+    }
+
+    private String connectionPath() {
+        final var path = "/api/http-tunnel/" + routes.getFirst().tunnelId();
+        final var params = new ArrayList<String>();
+        if (routes.size() > 1) {
+            params.add(SHARED_TUNNELS_PARAM + "=" + routes.stream().skip(1)
+                .map(route -> route.tunnelId().toString())
+                .collect(Collectors.joining(",")));
+        }
+        if (standby) {
+            // Both connections ask for standby; the server serves the tunnels on whichever is open first
+            params.add(STANDBY_PARAM + "=true");
+        }
+        return params.isEmpty() ? path : path + "?" + String.join("&", params);
+    }
+
+    /**
+     * Sends a message to the server on an open control connection.
+     */
+    private void send(final String text) {
+        final var connection = primary.open != null ? primary.open : secondary.open;
+        if (connection != null) {
+            connection.send(text);
+        }
+    }
+
+    private void onUpstreamHealth(final Route route, final boolean up) {
+        if (up) {
+            log.info("Local service of tunnel {} is back up", route.tunnelId());
+        } else {
+            log.warn("Local service of tunnel {} is down; answering its requests with 503", route.tunnelId());
+        }
+        try {
+            send(upstreamReport(route, up));
+        } catch (final Exception e) {
+            log.debug("Failed to report upstream health: {}", e.toString());
+        }
+    }
+
+    /**
+     * Tells the server whether a tunnel has a local service to serve it, so it can answer for a dead one.
+     */
+    private static String upstreamReport(final Route route, final boolean up) throws IOException {
+        final var report = new ControlMessage();
+        report.setType(up ? ControlMessage.Type.UPSTREAM_UP : ControlMessage.Type.UPSTREAM_DOWN);
+        report.setTs(System.currentTimeMillis());
+        report.setTunnelId(route.tunnelId().toString());
+        return TunnelCodec.write(report);
+    }
+
+    /**
+     * A control WebSocket to the server, reconnected with backoff until the client exits.
+     */
+    private final class ControlConnection {
+
+        private volatile WebSocket webSocket;
+        // Set while the WebSocket is open
+        private volatile WebSocket open;
+        private CountDownLatch closed = new CountDownLatch(1);
+        private volatile ScheduledFuture<?> heartbeatTask;
+
+        void run() {
+            var backoffMs = 1000L;
+            final var maxBackoffMs = 30000L;
+            while (!stop.get()) {
+                try {
+                    closed = new CountDownLatch(1);
+                    final var wsUrl = toWebSocketUrl(serverUrl, connectionPath());
+                    final var request = new Request.Builder().url(wsUrl);
+                    if (authToken != null && !authToken.isBlank()) {
+                        request.addHeader("Authorization", "Bearer " + authToken);
+                    }
+                    webSocket = http.newWebSocket(request.build(), new Listener(this));
+
+                    // Block until this connection is closed
+                    closed.await();
+                    if (stop.get()) {
+                        break;
+                    }
+                    // Reconnect with backoff
+                    log.info("Tunnel disconnected; reconnecting in {} ms...", backoffMs);
+                    Thread.sleep(backoffMs);
+                    backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (final Exception e) {
+                    log.warn("Tunnel loop error: {}", e.toString());
+                    if (verbose) {
+                        e.printStackTrace(System.err);
+                    }
+                    try {
+                        Thread.sleep(backoffMs);
+                    } catch (final InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+                }
+            }
+        }
+
+        void close() {
+            cancelHeartbeat();
+            final var current = webSocket;
+            if (current != null) {
+                current.close(1000, "Client exit");
+                log.debug("Websocket closed: 1000 OK");
+            }
+        }
+
+        private void cancelHeartbeat() {
             final var task = heartbeatTask;
             if (task != null) {
                 task.cancel(true);
             }
-            requestExecutor.shutdownNow();
-            if (webSocket != null) {
-                webSocket.close(1000, "Client exit");
-                log.debug("Websocket closed: 1000 OK");
+        }
+    }
+
+    /**
+     * Returns the route of the tunnel a server message names; messages of servers that do not name one
+     * belong to the only tunnel of the connection.
+     */
+    private Route route(final String tunnelId) {
+        final var route = tunnelId != null ? routesByTunnelId.get(tunnelId) : null;
+        return route != null ? route : routes.getFirst();
+    }
+
+    private void onRequestQueue(final int inFlight, final int maxInFlight, final int queued, final long waitMillis) {
+        // The queue is shared, so every tunnel shows it
+        final var sinks = new LinkedHashSet<HttpLogSink>();
+        for (final var route : routes) {
+            if (route.httpLogSink() != null) {
+                sinks.add(route.httpLogSink());
             }
-        } catch (final Exception ignore) {
-            log.debug("HTTP tunnel close error: {}", ignore.toString());
         }
+        sinks.forEach(sink -> sink.onRequestQueue(inFlight, maxInFlight, queued, waitMillis));
     }
 
     private String toWebSocketUrl(final String base, final String path) {
@@ -210,23 +387,26 @@ public class HttpTunnelClient {
         return scheme + "://" + hostPort + path;
     }
 
+    @RequiredArgsConstructor
     private class Listener extends WebSocketListener {
+
+        private final ControlConnection connection;
+
         @Override
         public void onOpen(final WebSocket webSocket, final Response response) {
             log.debug("Tunnel connected to server");
+            connection.open = webSocket;
             // Start application-level heartbeat PINGs
             try {
-                if (heartbeatTask != null && !heartbeatTask.isCancelled()) {
-                    heartbeatTask.cancel(true);
-                }
+                connection.cancelHeartbeat();
                 final var config = ConfigurationService.INSTANCE.getConfig();
                 final var intervalSec = config.getHealthcheckIntervalSec();
-                heartbeatTask = scheduler.scheduleAtFixedRate(() -> {
+                connection.heartbeatTask = scheduler.scheduleAtFixedRate(() -> {
                     try {
                         final var ping = new ControlMessage();
                         ping.setType(ControlMessage.Type.PING);
                         ping.setTs(System.currentTimeMillis());
-                        HttpTunnelClient.this.webSocket.send(MAPPER.writeValueAsString(ping));
+                        webSocket.send(TunnelCodec.write(ping));
                     } catch (final Exception e) {
                         log.debug("Heartbeat send failed: {}", e.toString());
                     }
@@ -234,36 +414,64 @@ public class HttpTunnelClient {
             } catch (final Exception e) {
                 log.debug("Failed to start heartbeat: {}", e.toString());
             }
+            // Restate every tunnel's upstream state, the server may have kept one from an older session
+            for (final var route : routes) {
+                try {
+                    webSocket.send(upstreamReport(route, !route.upstreams().isDown()));
+                } catch (final Exception e) {
+                    log.debug("Failed to report upstream health: {}", e.toString());
+                }
+            }
         }
 
         @Override
         public void onMessage(final WebSocket webSocket, final String text) {
             try {
                 log.debug("Received WS message: {}", text);
-                final var env = MAPPER.readValue(text, MessageEnvelope.class);
-                if (env.getKind() != null && env.getKind().equals("CTRL")) {
+                final var kind = TunnelCodec.readKind(text);
+                if (TunnelCodec.KIND_CONTROL.equals(kind)) {
                     // Ignore control messages (e.g., PONG)
                     return;
                 }
-                if (env.getKind() != null && env.getKind().equals("WS")) {
-                    final var wsMsg = MAPPER.readValue(text, WsTunnelMessage.class);
-                    handleWsFromServer(wsMsg);
+                if (TunnelCodec.KIND_WS.equals(kind)) {
+                    final var wsMsg = TunnelCodec.readWs(text);
+                    handleWsFromServer(route(wsMsg.getTunnelId()), wsMsg);
                     return;
                 }
-                final var message = MAPPER.readValue(text, HttpTunnelMessage.class);
+                final var message = TunnelCodec.readHttp(text);
                 if (message.getType() == HttpTunnelMessage.Type.REQUEST) {
+                    final var receivedAt = System.nanoTime();
+                    final var route = route(message.getTunnelId());
+                    final var httpLogSink = route.httpLogSink();
+                    if (route.upstreams().isDown()) {
+                        // Answer right away instead of queueing behind a local service known to be down
+                        final var unavailable = buildErrorMessage(message.getId(), 503,
+                            "Service Unavailable: local service is down");
+                        unavailable.setTunnelId(message.getTunnelId());
+                        send(TunnelCodec.write(unavailable));
+                        if (httpLogSink != null) {
+                            httpLogSink.onHttpLog(message.getMethod(), displayUrl(route, message), 503);
+                        }
+                        return;
+                    }
                     // Offload request processing to a worker thread to avoid blocking the WS listener
-                    requestExecutor.submit(() -> {
+                    requestLimiter.execute(() -> {
                         try {
-                            final var resp = handleRequest(message);
-                            final var json = MAPPER.writeValueAsString(resp);
-                            HttpTunnelClient.this.webSocket.send(json);
+                            final var resp = handleRequest(route, message);
+                            resp.setTunnelId(message.getTunnelId());
+                            final var json = TunnelCodec.write(resp);
+                            send(json);
                             log.debug("Responded to WS request: {}", resp.getId());
+                            if (httpLogSink != null) {
+                                httpLogSink.onRequestCompleted(System.nanoTime() - receivedAt,
+                                    decodedLength(message.getBodyB64()), decodedLength(resp.getRespBodyB64()));
+                            }
                         } catch (final Exception ex) {
                             log.warn("Failed to handle tunneled request {}: {}", message.getId(), ex.toString());
                             try {
                                 final var error = buildErrorMessage(message.getId(), 502, "Proxy error");
-                                HttpTunnelClient.this.webSocket.send(MAPPER.writeValueAsString(error));
+                                error.setTunnelId(message.getTunnelId());
+                                send(TunnelCodec.write(error));
                             } catch (final Exception e) {
                                 log.error("Failed to send error response: {}", e.getMessage(), e);
                             }
@@ -280,37 +488,38 @@ public class HttpTunnelClient {
         @Override
         public void onClosed(final WebSocket webSocket, final int code, final String reason) {
             log.info("Tunnel closed: {} {}", code, reason);
-            final var task = heartbeatTask;
-            if (task != null) {
-                task.cancel(true);
-            }
-            closed.countDown();
+            connection.open = null;
+            connection.cancelHeartbeat();
+            connection.closed.countDown();
         }
 
         @Override
         public void onFailure(final WebSocket webSocket, final Throwable error, final Response response) {
             log.warn("Tunnel failure: {}", error.toString());
-            final var task = heartbeatTask;
-            if (task != null) {
-                task.cancel(true);
-            }
-            closed.countDown();
+            connection.open = null;
+            connection.cancelHeartbeat();
+            connection.closed.countDown();
         }
     }
 
-    private void handleWsFromServer(final WsTunnelMessage message) {
+    private void handleWsFromServer(final Route route, final WsTunnelMessage message) {
         final var connId = message.getConnectionId();
         switch (message.getWsType()) {
             case OPEN -> {
+                if (route.upstreams().isDown()) {
+                    refuseWebSocket(connId, message.getTunnelId());
+                    return;
+                }
                 // Connect to local target via WS
-                final var localWsScheme = "https".equalsIgnoreCase(localScheme) ? "wss" : "ws";
-                var url = localWsScheme + "://" + localHost + ":" + localPort
+                final var localWsScheme = "https".equalsIgnoreCase(route.localScheme()) ? "wss" : "ws";
+                final var upstream = route.upstreams().acquire();
+                var url = localWsScheme + "://" + upstream.host() + ":" + upstream.port()
                           + (message.getPath() != null ? message.getPath() : "/");
                 if (message.getQuery() != null && !message.getQuery().isBlank()) {
                     url += "?" + message.getQuery();
                 }
                 final var builder = new Request.Builder().url(url);
-                final var publicHost = URI.create(publicBaseUrl).getHost();
+                final var publicHost = URI.create(route.publicBaseUrl()).getHost();
                 if (publicHost != null) {
                     builder.header("Host", publicHost);
                 }
@@ -324,7 +533,8 @@ public class HttpTunnelClient {
                         }
                     }
                 }
-                final var local = http.newWebSocket(builder.build(), new LocalWsListener(connId));
+                final var listener = new LocalWsListener(connId, message.getTunnelId(), upstream);
+                final var local = http.newWebSocket(builder.build(), listener);
                 localWebsocketMap.put(connId, local);
             }
             case TEXT -> {
@@ -352,18 +562,42 @@ public class HttpTunnelClient {
         }
     }
 
+    /**
+     * Closes a browser WebSocket right away rather than connecting to a local service known to be down.
+     */
+    private void refuseWebSocket(final String connectionId, final String tunnelId) {
+        try {
+            final var message = new WsTunnelMessage();
+            message.setWsType(WsTunnelMessage.Type.CLOSE);
+            message.setConnectionId(connectionId);
+            message.setTunnelId(tunnelId);
+            // Try Again Later
+            message.setCloseCode(1013);
+            message.setCloseReason("Local service is down");
+            send(TunnelCodec.write(message));
+        } catch (final Exception e) {
+            log.debug("Failed to refuse local WS: {}", e.toString());
+        }
+    }
+
     @RequiredArgsConstructor
     private class LocalWsListener extends WebSocketListener {
 
         private final String connectionId;
+        private final String tunnelId; // as named by the server, echoed back
+        private final UpstreamPool.Upstream upstream;
+        private volatile boolean opened;
 
         @Override
         public void onOpen(final WebSocket webSocket, final Response response) {
+            opened = true;
+            upstream.reportSuccess();
             try {
                 final var ack = new WsTunnelMessage();
                 ack.setWsType(WsTunnelMessage.Type.OPEN_OK);
                 ack.setConnectionId(connectionId);
-                HttpTunnelClient.this.webSocket.send(MAPPER.writeValueAsString(ack));
+                ack.setTunnelId(tunnelId);
+                send(TunnelCodec.write(ack));
             } catch (final Exception ignore) {
                 log.error("Failed to send local WS open ack: {}", ignore.toString());
             }
@@ -375,8 +609,9 @@ public class HttpTunnelClient {
                 final var message = new WsTunnelMessage();
                 message.setWsType(WsTunnelMessage.Type.TEXT);
                 message.setConnectionId(connectionId);
+                message.setTunnelId(tunnelId);
                 message.setText(text);
-                HttpTunnelClient.this.webSocket.send(MAPPER.writeValueAsString(message));
+                send(TunnelCodec.write(message));
             } catch (final Exception e) {
                 log.debug("Failed to forward local text WS: {}", e.toString());
             }
@@ -388,8 +623,9 @@ public class HttpTunnelClient {
                 final var message = new WsTunnelMessage();
                 message.setWsType(WsTunnelMessage.Type.BINARY);
                 message.setConnectionId(connectionId);
+                message.setTunnelId(tunnelId);
                 message.setDataB64(Base64.getEncoder().encodeToString(bytes.toByteArray()));
-                HttpTunnelClient.this.webSocket.send(MAPPER.writeValueAsString(message));
+                send(TunnelCodec.write(message));
             } catch (final Exception e) {
                 log.debug("Failed to forward local binary WS: {}", e.toString());
             }
@@ -397,14 +633,16 @@ public class HttpTunnelClient {
 
         @Override
         public void onClosed(final WebSocket webSocket, final int code, final String reason) {
+            upstream.release();
             try {
                 localWebsocketMap.remove(connectionId);
                 final var message = new WsTunnelMessage();
                 message.setWsType(WsTunnelMessage.Type.CLOSE);
                 message.setConnectionId(connectionId);
+                message.setTunnelId(tunnelId);
                 message.setCloseCode(code);
                 message.setCloseReason(reason);
-                HttpTunnelClient.this.webSocket.send(MAPPER.writeValueAsString(message));
+                send(TunnelCodec.write(message));
             } catch (final Exception e) {
                 log.debug("Failed to notify close: {}", e.toString());
             }
@@ -412,20 +650,30 @@ public class HttpTunnelClient {
 
         @Override
         public void onFailure(final WebSocket webSocket, final Throwable error, final Response response) {
+            if (!opened && isConnectFailure(error)) {
+                upstream.reportFailure();
+            }
             onClosed(webSocket, 1011, error.toString());
         }
     }
 
-    private HttpTunnelMessage handleRequest(final HttpTunnelMessage requestMessage) {
+    private HttpTunnelMessage handleRequest(final Route route, final HttpTunnelMessage requestMessage) {
+        final var localScheme = route.localScheme();
+        final var publicBaseUrl = route.publicBaseUrl();
+        final var httpLogSink = route.httpLogSink();
+        final var upstreams = route.upstreams();
+        final var arrivedAt = System.currentTimeMillis();
         final var method = requestMessage.getMethod();
-        var url = localScheme + "://" + localHost + ":" + localPort + requestMessage.getPath();
+        final var requestBody = requestMessage.getBodyB64() != null
+            ? Base64.getDecoder().decode(requestMessage.getBodyB64())
+            : null;
+        var pathAndQuery = requestMessage.getPath();
         if (requestMessage.getQuery() != null && !requestMessage.getQuery().isBlank()) {
-            url += "?" + requestMessage.getQuery();
+            pathAndQuery += "?" + requestMessage.getQuery();
         }
 
         final var targetRequest = new Request.Builder()
-            .url(url)
-            .method(method, buildBody(method, requestMessage.getBodyB64(), requestMessage.getBodyContentType()));
+            .method(method, buildBody(method, requestBody, requestMessage.getBodyContentType()));
 
         final var publicHost = URI.create(publicBaseUrl).getHost();
         if (publicHost != null) {
@@ -454,55 +702,80 @@ public class HttpTunnelClient {
             }
         }
 
-        try (final var targetResponse = localHttp.newCall(targetRequest.build()).execute()) {
-            final var successMessage = new HttpTunnelMessage();
-            successMessage.setId(requestMessage.getId());
-            successMessage.setType(HttpTunnelMessage.Type.RESPONSE);
-            successMessage.setStatus(targetResponse.code());
-            successMessage.setRespHeaders(extractHeaders(targetResponse));
-            final var body = targetResponse.body();
-            if (body != null) {
-                final var bytes = body.bytes();
-                if (bytes.length > 0) {
+        final var tried = new HashSet<UpstreamPool.Upstream>();
+        while (true) {
+            final var upstream = upstreams.acquire(tried);
+            targetRequest.url(localScheme + "://" + upstream.host() + ":" + upstream.port() + pathAndQuery);
+            final var upstreamStart = System.nanoTime();
+            try (final var targetResponse = localHttp.newCall(targetRequest.build()).execute()) {
+                final var successMessage = new HttpTunnelMessage();
+                successMessage.setId(requestMessage.getId());
+                successMessage.setType(HttpTunnelMessage.Type.RESPONSE);
+                successMessage.setStatus(targetResponse.code());
+                successMessage.setRespHeaders(extractHeaders(targetResponse));
+                final var body = targetResponse.body();
+                final var bytes = body != null ? body.bytes() : null;
+                if (bytes != null && bytes.length > 0) {
                     successMessage.setRespBodyB64(Base64.getEncoder().encodeToString(bytes));
                 }
-            }
-            // Log to UI sink
-            try {
+                final var upstreamNanos = System.nanoTime() - upstreamStart;
                 if (httpLogSink != null) {
-                    var displayUrl = publicBaseUrl;
-                    if (requestMessage.getPath() != null) {
-                        displayUrl += requestMessage.getPath();
-                    }
-                    if (requestMessage.getQuery() != null && !requestMessage.getQuery().isBlank()) {
-                        displayUrl += "?" + requestMessage.getQuery();
-                    }
-                    httpLogSink.onHttpLog(method, displayUrl, targetResponse.code());
+                    httpLogSink.onUpstreamLatency(upstreamNanos);
                 }
-            } catch (final Exception ignore) {
-                log.debug("HTTP log sink failed: {}", ignore.toString());
-            }
-            return successMessage;
-        } catch (final Exception e) {
-            final var errorMessage = buildErrorMessage(requestMessage.getId(), 502, "Bad Gateway: " + e.getMessage());
-            try {
-                if (httpLogSink != null) {
-                    var displayUrl = publicBaseUrl;
-                    if (requestMessage.getPath() != null) {
-                        displayUrl += requestMessage.getPath();
+                capture(route, requestMessage, requestBody, upstream, arrivedAt, upstreamNanos, successMessage, bytes);
+                // Log to UI sink
+                try {
+                    if (httpLogSink != null) {
+                        httpLogSink.onHttpLog(method, displayUrl(route, requestMessage), targetResponse.code());
                     }
-                    if (requestMessage.getQuery() != null && !requestMessage.getQuery().isBlank()) {
-                        displayUrl += "?" + requestMessage.getQuery();
+                } catch (final Exception ignore) {
+                    log.debug("HTTP log sink failed: {}", ignore.toString());
+                }
+                upstream.reportSuccess();
+                return successMessage;
+            } catch (final Exception e) {
+                // Only an upstream that cannot be connected to is ejected; timeouts and resets may be the request
+                final var connectFailure = isConnectFailure(e);
+                if (connectFailure) {
+                    upstream.reportFailure();
+                }
+                if (connectFailure && tried.add(upstream) && tried.size() < upstreams.size()) {
+                    // The request never reached this upstream, so another one can take it
+                    continue;
+                }
+                final var errorMessage =
+                    buildErrorMessage(requestMessage.getId(), 502, "Bad Gateway: " + e.getMessage());
+                capture(route, requestMessage, requestBody, upstream, arrivedAt, System.nanoTime() - upstreamStart,
+                    errorMessage, null);
+                try {
+                    if (httpLogSink != null) {
+                        httpLogSink.onHttpLog(method, displayUrl(route, requestMessage), 502);
                     }
-                    httpLogSink.onHttpLog(method, displayUrl, 502);
+                } catch (final Exception ignore) {
+                    log.debug("HTTP log sink failed: {}", ignore.toString());
                 }
-            } catch (final Exception ignore) {
-                log.debug("HTTP log sink failed: {}", ignore.toString());
+                return errorMessage;
+            } finally {
+                upstream.release();
             }
-            return errorMessage;
         }
     }
 
+    private static boolean isConnectFailure(final Throwable error) {
+        return error instanceof ConnectException || error instanceof NoRouteToHostException;
+    }
+
+    private static String displayUrl(final Route route, final HttpTunnelMessage requestMessage) {
+        var displayUrl = route.publicBaseUrl();
+        if (requestMessage.getPath() != null) {
+            displayUrl += requestMessage.getPath();
+        }
+        if (requestMessage.getQuery() != null && !requestMessage.getQuery().isBlank()) {
+            displayUrl += "?" + requestMessage.getQuery();
+        }
+        return displayUrl;
+    }
+
     private static HttpTunnelMessage buildErrorMessage(final String id, final int status, final String message) {
         final var error = new HttpTunnelMessage();
         error.setId(id);
@@ -515,14 +788,49 @@ public class HttpTunnelClient {
         return error;
     }
 
-    private RequestBody buildBody(final String method, final String bodyB64, final String contentType) {
+    /**
+     * Appends an exchange to the capture ring, if capturing; cheap enough to stay on the request path.
+     */
+    private void capture(final Route route,
+                         final HttpTunnelMessage request,
+                         final byte[] requestBody,
+                         final UpstreamPool.Upstream upstream,
+                         final long arrivedAt,
+                         final long durationNanos,
+                         final HttpTunnelMessage response,
+                         final byte[] responseBody) {
+        final var capture = route.capture();
+        if (capture == null) {
+            return;
+        }
+        try {
+            final var exchange = new CapturedExchange(arrivedAt, durationNanos,
+                route.localScheme() + "://" + upstream.host() + ":" + upstream.port(),
+                request.getMethod(), request.getPath(), request.getQuery(), request.getHeaders(),
+                CapturedExchange.cut(requestBody), requestBody != null ? requestBody.length : 0,
+                response.getStatus(), response.getRespHeaders(),
+                CapturedExchange.cut(responseBody), responseBody != null ? responseBody.length : 0);
+            capture.append(exchange.encode());
+        } catch (final RuntimeException e) {
+            log.debug("Failed to capture exchange {}: {}", request.getId(), e.toString());
+        }
+    }
+
+    private static long decodedLength(final String base64) {
+        if (base64 == null || base64.isEmpty()) {
+            return 0;
+        }
+        final var padding = base64.endsWith("==") ? 2 : base64.endsWith("=") ? 1 : 0;
+        return base64.length() / 4L * 3 - padding;
+    }
+
+    private RequestBody buildBody(final String method, final byte[] bytes, final String contentType) {
         // Methods that usually don't have body
-        if (bodyB64 == null) {
+        if (bytes == null) {
             return methodSupportsBody(method)
                 ? RequestBody.create(new byte[0], contentType != null ? MediaType.parse(contentType) : null)
                 : null;
         }
-        final var bytes = Base64.getDecoder().decode(bodyB64);
         final var mediaType = contentType != null && !contentType.isBlank()
             ? MediaType.parse(contentType)
             : MediaType.parse("application/octet-stream");
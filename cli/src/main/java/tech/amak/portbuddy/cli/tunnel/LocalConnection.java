@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.cli.tunnel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local TCP connection of a public connection, served by a {@link LocalSelectorLoop}. Writes may come from
+ * any thread and never block: data is written straight to the socket when possible, and the rest, including
+ * everything written before the connect completes, is queued and flushed by the loop.
+ */
+@Slf4j
+final class LocalConnection {
+
+    @Getter
+    private final String connectionId;
+    @Getter
+    private final SocketChannel channel;
+    private final LocalSelectorLoop loop;
+    private final Queue<ByteBuffer> pendingWrites = new ArrayDeque<>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private long pendingBytes;
+    private boolean connected;
+    // The fields below are only accessed on the loop thread
+    SelectionKey key;
+    final int readLimit;
+
+    LocalConnection(final String connectionId,
+                    final SocketChannel channel,
+                    final LocalSelectorLoop loop,
+                    final int readLimit) {
+        this.connectionId = connectionId;
+        this.channel = channel;
+        this.loop = loop;
+        this.readLimit = readLimit;
+    }
+
+    /**
+     * Writes data to the connection. The connection is closed if too much data is already queued.
+     *
+     * @param data bytes to write; the array must not be modified afterwards
+     */
+    void write(final byte[] data) {
+        final var buffer = ByteBuffer.wrap(data);
+        var failed = false;
+        synchronized (this) {
+            if (closed.get()) {
+                return;
+            }
+            try {
+                final var queued = !pendingWrites.isEmpty();
+                if (connected && !queued) {
+                    channel.write(buffer);
+                    if (!buffer.hasRemaining()) {
+                        return;
+                    }
+                }
+                pendingWrites.add(buffer);
+                pendingBytes += buffer.remaining();
+                failed = pendingBytes > loop.maxPendingWrite();
+                if (failed) {
+                    log.info("Local connection {} is not reading, closing it", connectionId);
+                } else if (queued || !connected) {
+                    // The loop flushes once the socket is connected or writable again
+                    return;
+                }
+            } catch (final IOException e) {
+                log.debug("Failed to write to local connection {}: {}", connectionId, e.toString());
+                failed = true;
+            }
+        }
+        if (failed) {
+            loop.execute(this::closeByPeer);
+            return;
+        }
+        loop.execute(() -> {
+            if (key != null && key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        });
+    }
+
+    /**
+     * Closes the connection without notifying the handler.
+     */
+    void close() {
+        closeChannel();
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+
+    synchronized boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Closes the connection and notifies the handler if it is still connecting, e.g. after a connect timeout.
+     */
+    void abortPendingConnect() {
+        loop.execute(() -> {
+            if (!isConnected()) {
+                closeByPeer();
+            }
+        });
+    }
+
+    /**
+     * Closes the connection because the local service closed it or it failed, and notifies the handler once.
+     */
+    void closeByPeer() {
+        if (closeChannel()) {
+            loop.handler().onClosed(connectionId);
+        }
+    }
+
+    private boolean closeChannel() {
+        if (!closed.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            channel.close();
+        } catch (final IOException e) {
+            log.debug("Failed to close local connection {}: {}", connectionId, e.toString());
+        }
+        synchronized (this) {
+            pendingWrites.clear();
+            pendingBytes = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Completes the connect; called on the loop thread once the socket is connectable.
+     */
+    void finishConnect() throws IOException {
+        if (!channel.finishConnect()) {
+            return;
+        }
+        synchronized (this) {
+            connected = true;
+            key.interestOps(SelectionKey.OP_READ | (pendingWrites.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+        }
+        loop.handler().onConnected(connectionId);
+    }
+
+    void setReading(final boolean reading) {
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        final var ops = key.interestOps();
+        key.interestOps(reading ? ops | SelectionKey.OP_READ : ops & ~SelectionKey.OP_READ);
+    }
+
+    /**
+     * Flushes queued data; called on the loop thread when the socket is writable.
+     */
+    synchronized void flush() throws IOException {
+        while (!pendingWrites.isEmpty()) {
+            final var head = pendingWrites.peek();
+            pendingBytes -= channel.write(head);
+            if (head.hasRemaining()) {
+                return;
+            }
+            pendingWrites.poll();
+        }
+        if (key.isValid()) {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.cli.tunnel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local UDP socket of a public UDP flow, served by a {@link LocalSelectorLoop}. The socket is connected to
+ * the local service, so replies are attributed to the flow by the socket they arrive on.
+ */
+@Slf4j
+final class LocalDatagramFlow {
+
+    @Getter
+    private final String connectionId;
+    @Getter
+    private final DatagramChannel channel;
+
+    LocalDatagramFlow(final String connectionId, final DatagramChannel channel) {
+        this.connectionId = connectionId;
+        this.channel = channel;
+    }
+
+    /**
+     * Sends a datagram to the local service without blocking; it is dropped if the socket buffer is full.
+     */
+    void send(final byte[] data) {
+        try {
+            if (channel.write(ByteBuffer.wrap(data)) == 0) {
+                log.debug("Dropping datagram for local UDP flow {}: socket buffer full", connectionId);
+            }
+        } catch (final IOException e) {
+            log.debug("Failed to send datagram to local UDP flow {}: {}", connectionId, e.toString());
+        }
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (final IOException e) {
+            log.debug("Failed to close local UDP flow {}: {}", connectionId, e.toString());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.cli.tunnel;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tech.amak.portbuddy.common.tunnel.SocketProfile;
+
+/**
+ * Non-blocking engine carrying the local side of a net tunnel. A few selector threads serve all local TCP
+ * connections and UDP flows, each connection with its own write queue, so a slow local socket only holds up
+ * its own connection and thousands of idle connections cost no threads.
+ */
+final class LocalForwardingEngine {
+
+    // Read size of local connections unless their socket profile asks for another
+    private static final int DEFAULT_READ_SIZE = 16 * 1024;
+    private static final int MAX_DATAGRAM_SIZE = 65_535;
+    // Tunnel send queue above which local reads pause, and below which they resume
+    private static final long HIGH_WATERMARK = 1024 * 1024;
+    private static final long LOW_WATERMARK = 256 * 1024;
+    // Data queued for a local connection that does not read, including data sent before it connected
+    private static final long MAX_PENDING_WRITE = 8 * 1024 * 1024;
+
+    private final LocalSelectorLoop[] loops;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+
+    /**
+     * Constructs the engine and starts its selector threads.
+     *
+     * @param handler callbacks of the tunnel
+     * @throws IOException if a selector cannot be opened
+     */
+    LocalForwardingEngine(final LocalTrafficHandler handler) throws IOException {
+        final var threads = Math.clamp(Runtime.getRuntime().availableProcessors() / 2, 1, 4);
+        final var readBufferSize = Math.max(MAX_DATAGRAM_SIZE, SocketProfile.maxReadBufferSize());
+        this.loops = new LocalSelectorLoop[threads];
+        for (var i = 0; i < threads; i++) {
+            loops[i] = new LocalSelectorLoop("pb-net-local-" + i, handler, readBufferSize, DEFAULT_READ_SIZE,
+                HIGH_WATERMARK, LOW_WATERMARK, MAX_PENDING_WRITE);
+            loops[i].start();
+        }
+    }
+
+    /**
+     * Starts connecting to the local service; {@link LocalTrafficHandler#onConnected} or
+     * {@link LocalTrafficHandler#onClosed} follows. Data may be written to the connection right away.
+     *
+     * @param connectionId connection id of the public connection
+     * @param address      local service address
+     * @param profile      socket profile of the tunnel
+     * @return the connection
+     * @throws IOException if the socket cannot be opened
+     */
+    LocalConnection connect(final String connectionId,
+                            final InetSocketAddress address,
+                            final SocketProfile profile) throws IOException {
+        final var channel = SocketChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, profile.isTcpNoDelay());
+            channel.setOption(StandardSocketOptions.SO_KEEPALIVE, profile.isKeepAlive());
+            if (profile.getSocketBufferSize() > 0) {
+                // Set before connecting so the receive window can scale to it
+                channel.setOption(StandardSocketOptions.SO_SNDBUF, profile.getSocketBufferSize());
+                channel.setOption(StandardSocketOptions.SO_RCVBUF, profile.getSocketBufferSize());
+            }
+        } catch (final IOException e) {
+            channel.close();
+            throw e;
+        }
+        final var loop = next();
+        final var connection = new LocalConnection(connectionId, channel, loop, profile.getReadBufferSize());
+        loop.connect(connection, address);
+        return connection;
+    }
+
+    /**
+     * Opens a local UDP socket for a public UDP flow, connected to the local service.
+     *
+     * @param connectionId connection id of the flow
+     * @param address      local service address
+     * @return the flow
+     * @throws IOException if the socket cannot be opened
+     */
+    LocalDatagramFlow openDatagramFlow(final String connectionId, final InetSocketAddress address)
+        throws IOException {
+        final var channel = DatagramChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.connect(address);
+        } catch (final IOException e) {
+            channel.close();
+            throw e;
+        }
+        final var flow = new LocalDatagramFlow(connectionId, channel);
+        next().register(flow);
+        return flow;
+    }
+
+    void shutdown() {
+        for (final var loop : loops) {
+            loop.shutdown();
+        }
+    }
+
+    private LocalSelectorLoop next() {
+        return loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.cli.tunnel;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Single selector thread serving a subset of local connections and UDP flows through one shared read
+ * buffer. Registration and interest changes requested from other threads are queued as tasks and applied
+ * on the loop thread. Connections are not read while the tunnel is backed up; they are re-checked on a
+ * short poll interval.
+ */
+@Slf4j
+final class LocalSelectorLoop implements Runnable {
+
+    private static final long PAUSED_POLL_MILLIS = 10;
+
+    private final Selector selector;
+    private final Thread thread;
+    private final LocalTrafficHandler handler;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<LocalConnection> paused = new HashSet<>();
+    private final ByteBuffer readBuffer;
+    private final int defaultReadSize;
+    private final long highWatermark;
+    private final long lowWatermark;
+    private final long maxPendingWrite;
+    private volatile boolean running = true;
+
+    LocalSelectorLoop(final String name,
+                      final LocalTrafficHandler handler,
+                      final int readBufferSize,
+                      final int defaultReadSize,
+                      final long highWatermark,
+                      final long lowWatermark,
+                      final long maxPendingWrite) throws IOException {
+        this.selector = Selector.open();
+        this.handler = handler;
+        this.readBuffer = ByteBuffer.allocate(readBufferSize);
+        this.defaultReadSize = defaultReadSize;
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+        this.maxPendingWrite = maxPendingWrite;
+        this.thread = Thread.ofPlatform().name(name).daemon().unstarted(this);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    LocalTrafficHandler handler() {
+        return handler;
+    }
+
+    long maxPendingWrite() {
+        return maxPendingWrite;
+    }
+
+    /**
+     * Runs the task on the loop thread.
+     */
+    void execute(final Runnable task) {
+        tasks.add(task);
+        if (Thread.currentThread() != thread) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Registers a connection and starts connecting it; the channel must be non-blocking.
+     */
+    void connect(final LocalConnection connection, final SocketAddress address) {
+        execute(() -> {
+            try {
+                connection.key = connection.getChannel().register(selector, SelectionKey.OP_CONNECT, connection);
+                if (connection.getChannel().connect(address)) {
+                    connection.finishConnect();
+                }
+            } catch (final IOException | RuntimeException e) {
+                log.debug("Failed to connect local connection {}: {}", connection.getConnectionId(), e.toString());
+                connection.closeByPeer();
+            }
+        });
+    }
+
+    /**
+     * Registers a UDP flow for reading; the channel must be non-blocking.
+     */
+    void register(final LocalDatagramFlow flow) {
+        execute(() -> {
+            try {
+                flow.getChannel().register(selector, SelectionKey.OP_READ, flow);
+            } catch (final IOException e) {
+                log.debug("Failed to register local UDP flow {}: {}", flow.getConnectionId(), e.toString());
+                flow.close();
+                handler.onClosed(flow.getConnectionId());
+            }
+        });
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select(paused.isEmpty() ? 0 : PAUSED_POLL_MILLIS);
+                runTasks();
+                final var selected = selector.selectedKeys();
+                for (final var key : selected) {
+                    handle(key);
+                }
+                selected.clear();
+                resumeDrained();
+            }
+        } catch (final ClosedSelectorException | IOException e) {
+            log.warn("Local selector loop {} failed: {}", thread.getName(), e.toString());
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (final Exception e) {
+                log.warn("Local selector task failed: {}", e.toString());
+            }
+        }
+    }
+
+    private void handle(final SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.attachment() instanceof LocalDatagramFlow flow) {
+            receive(flow);
+            return;
+        }
+        final var connection = (LocalConnection) key.attachment();
+        try {
+            if (key.isConnectable()) {
+                connection.finishConnect();
+                return;
+            }
+            if (key.isWritable()) {
+                connection.flush();
+            }
+            if (key.isValid() && key.isReadable()) {
+                read(connection);
+            }
+        } catch (final IOException | RuntimeException e) {
+            log.debug("Local connection {} failed: {}", connection.getConnectionId(), e.toString());
+            connection.closeByPeer();
+        }
+    }
+
+    private void read(final LocalConnection connection) throws IOException {
+        if (handler.outboundBacklog() > highWatermark) {
+            pause(connection);
+            return;
+        }
+        readBuffer.clear();
+        readBuffer.limit(connection.readLimit > 0 ? connection.readLimit : defaultReadSize);
+        final var read = connection.getChannel().read(readBuffer);
+        if (read < 0) {
+            connection.closeByPeer();
+            return;
+        }
+        if (read > 0) {
+            handler.onData(connection.getConnectionId(), readBuffer.array(), 0, read);
+        }
+        if (handler.outboundBacklog() > highWatermark) {
+            pause(connection);
+        }
+    }
+
+    private void receive(final LocalDatagramFlow flow) {
+        try {
+            readBuffer.clear();
+            if (flow.getChannel().receive(readBuffer) == null) {
+                return;
+            }
+            // Datagrams may be lost anyway, so they are dropped rather than queued while the tunnel is backed up
+            if (handler.outboundBacklog() <= highWatermark) {
+                handler.onData(flow.getConnectionId(), readBuffer.array(), 0, readBuffer.position());
+            }
+        } catch (final IOException e) {
+            // E.g. the local service is not listening; the flow stays usable
+            log.debug("Local UDP flow {} receive failed: {}", flow.getConnectionId(), e.toString());
+        }
+    }
+
+    private void pause(final LocalConnection connection) {
+        connection.setReading(false);
+        paused.add(connection);
+    }
+
+    private void resumeDrained() {
+        if (paused.isEmpty() || handler.outboundBacklog() >= lowWatermark) {
+            return;
+        }
+        for (final var connection : paused) {
+            if (!connection.isClosed()) {
+                connection.setReading(true);
+            }
+        }
+        paused.clear();
+    }
+
+    private void closeAll() {
+        for (final var key : selector.keys()) {
+            if (key.attachment() instanceof LocalConnection connection) {
+                connection.close();
+            } else if (key.attachment() instanceof LocalDatagramFlow flow) {
+                flow.close();
+            }
+        }
+        try {
+            selector.close();
+        } catch (final IOException e) {
+            log.debug("Failed to close selector: {}", e.toString());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.cli.tunnel;
+
+/**
+ * Callbacks of the local connections and UDP flows served by a {@link LocalForwardingEngine}. All of them
+ * run on selector threads and must not block.
+ */
+interface LocalTrafficHandler {
+
+    /**
+     * Called once a local TCP connection is established.
+     */
+    void onConnected(String connectionId);
+
+    /**
+     * Called with data read from a local TCP connection or a datagram received on a local UDP flow.
+     *
+     * @param data   bytes holding the data; only valid during the call
+     * @param offset offset of the data
+     * @param length length of the data
+     */
+    void onData(String connectionId, byte[] data, int offset, int length);
+
+    /**
+     * Called once when a local TCP connection failed to connect, was closed by the local service, failed, or
+     * was closed because it did not keep up with writes.
+     */
+    void onClosed(String connectionId);
+
+    /**
+     * Returns the amount of data waiting to be sent to net-proxy. Reads from local connections pause while
+     * it is above the high watermark and datagrams are dropped.
+     */
+    long outboundBacklog();
+}
@@ -4,14 +4,8 @@
 
 package tech.amak.portbuddy.cli.tunnel;
 
-import static tech.amak.portbuddy.cli.utils.JsonUtils.MAPPER;
-
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
+import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.net.Socket;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
@@ -24,6 +18,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -39,15 +34,33 @@ import tech.amak.portbuddy.cli.config.ConfigurationService;
 import tech.amak.portbuddy.cli.ui.NetTrafficSink;
 import tech.amak.portbuddy.cli.utils.HttpUtils;
 import tech.amak.portbuddy.common.TunnelType;
+import tech.amak.portbuddy.common.json.TunnelCodec;
 import tech.amak.portbuddy.common.tunnel.BinaryWsFrame;
 import tech.amak.portbuddy.common.tunnel.ControlMessage;
-import tech.amak.portbuddy.common.tunnel.MessageEnvelope;
+import tech.amak.portbuddy.common.tunnel.SocketProfile;
 import tech.amak.portbuddy.common.tunnel.WsTunnelMessage;
 
 @Slf4j
 @RequiredArgsConstructor
 public class NetTunnelClient {
 
+    /**
+     * How long data from local connections waits for the tunnel to reconnect before they are closed. net-proxy
+     * keeps the public side of the connections open for a grace period after an unexpected disconnect.
+     */
+    private static final long RESUME_TIMEOUT_MS = 60_000;
+    private static final long RESUME_POLL_MS = 50;
+    private static final int LOCAL_CONNECT_TIMEOUT_MS = 5000;
+
+    // Shared by all net tunnels of the process, which need one connection pool and heartbeat thread between them
+    private static final OkHttpClient SHARED_HTTP = HttpUtils.createClient();
+    private static final ScheduledExecutorService SHARED_SCHEDULER =
+        Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "pb-net-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+
     private final String proxyHost;
     private final int proxyHttpPort;
     /**
@@ -55,9 +68,31 @@ public class NetTunnelClient {
      */
     private final boolean secure;
     private final UUID tunnelId;
-    private final String localHost;
-    private final int localPort;
+    // Local services connections and UDP flows are balanced across
+    private final UpstreamPool upstreams;
     private final TunnelType tunnelType;
+    /**
+     * Whether the local service speaks TLS and is exposed on the shared TLS port of net-proxy, routed by the
+     * server name of the ClientHello, instead of on a public port of its own.
+     */
+    private final boolean sniRouting;
+    /**
+     * Whether to connect straight to the direct transport listener of net-proxy instead of opening a WebSocket
+     * through the gateway.
+     */
+    private final boolean directTransport;
+    /**
+     * Whether a UDP tunnel may carry its datagrams over the datagram transport of net-proxy when offered,
+     * falling back to the WebSocket while UDP does not get through.
+     */
+    private final boolean datagramTransport;
+    /**
+     * Whether to keep a standby WebSocket next to the active one, which net-proxy hands the tunnel to when the
+     * active one drops, so public connections do not wait for a reconnect.
+     */
+    private final boolean standby;
+    // Socket options and read size of local TCP connections, also applied by net-proxy to public ones
+    private final SocketProfile socketProfile;
     // Expected public connection details returned by the server during expose REST call
     private final String expectedPublicHost;
     private final int expectedPublicPort;
@@ -65,20 +100,22 @@ public class NetTunnelClient {
     private final NetTrafficSink trafficSink;
     private final boolean verbose;
 
-    private final OkHttpClient http = HttpUtils.createClient();
-    private final OkHttpClient rest = HttpUtils.createClient();
-    private WebSocket webSocket;
-
-    private final Map<String, LocalTcp> locals = new ConcurrentHashMap<>();
-    private final Map<String, LocalUdp> udpLocals = new ConcurrentHashMap<>();
-    private CountDownLatch closed = new CountDownLatch(1);
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
-        final var thread = new Thread(runnable, "pb-net-heartbeat");
-        thread.setDaemon(true);
-        return thread;
-    });
+    private final OkHttpClient http = SHARED_HTTP;
+    private final OkHttpClient rest = SHARED_HTTP;
+    private final Connection primary = new Connection();
+    private final Connection secondary = new Connection();
+    // Set while a WebSocket serving the tunnel is open; local connections wait for one to come back after a drop
+    private volatile WebSocket connected;
+    private volatile DatagramTransport datagram;
+
+    private volatile LocalForwardingEngine engine;
+    private final Map<String, LocalConnection> locals = new ConcurrentHashMap<>();
+    private final Map<String, UpstreamPool.Upstream> localUpstreams = new ConcurrentHashMap<>();
+    private final Map<String, LocalDatagramFlow> udpLocals = new ConcurrentHashMap<>();
+    private volatile long disconnectedAt;
+    private final ScheduledExecutorService scheduler = SHARED_SCHEDULER;
     private volatile ScheduledFuture<?> heartbeatTask;
-    private volatile ScheduledFuture<?> wsHeartbeatTask;
+    private volatile ScheduledFuture<?> healthCheck;
     private final AtomicBoolean closedReported = new AtomicBoolean(false);
     private final AtomicBoolean stop = new AtomicBoolean(false);
     private final AtomicBoolean warnedAboutReassignment = new AtomicBoolean(false);
@@ -96,51 +133,39 @@ public class NetTunnelClient {
      * - Handles interruptions by setting the thread's interrupt status.
      */
     public void runBlocking() {
-        var backoffMs = 1000L;
-        final var maxBackoffMs = 30000L;
-        while (!stop.get()) {
-            try {
-                closed = new CountDownLatch(1);
-                final var scheme = secure ? "https://" : "http://";
-                final var publicHostParam = (expectedPublicHost == null || expectedPublicHost.isBlank())
-                    ? ""
-                    : "&public-host=" + URLEncoder.encode(expectedPublicHost, StandardCharsets.UTF_8);
-                final var path = "/api/net-tunnel/" + tunnelId
-                                 + "?type=" + tunnelType.name().toLowerCase()
-                                 + "&port=" + expectedPublicPort
-                                 + publicHostParam;
-                final var url = toWebSocketUrl(scheme + proxyHost + ":" + proxyHttpPort, path);
-                final var request = new Request.Builder().url(url);
-                if (authToken != null && !authToken.isBlank()) {
-                    request.addHeader("Authorization", "Bearer " + authToken);
-                }
-                webSocket = http.newWebSocket(request.build(), new Listener());
+        try {
+            engine = new LocalForwardingEngine(new LocalHandler());
+        } catch (final IOException e) {
+            log.error("Failed to start local forwarding: {}", e.toString());
+            return;
+        }
+        if (tunnelType == TunnelType.TCP) {
+            // A UDP service cannot be probed with a connect
+            healthCheck = upstreams.startHealthChecks(scheduler, this::onUpstreamHealth);
+        }
+        if (standby) {
+            final var thread = new Thread(this::runStandby, "pb-net-standby");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        primary.run();
+    }
 
-                // Block until this connection is closed
-                closed.await();
-                if (stop.get()) {
-                    break;
-                }
-                // Reconnect with backoff
-                log.info("Net tunnel disconnected; reconnecting in {} ms...", backoffMs);
-                Thread.sleep(backoffMs);
-                backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
-            } catch (final InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            } catch (final Exception e) {
-                log.warn("Net tunnel loop error: {}", e.toString());
-                if (verbose) {
-                    e.printStackTrace(System.err);
-                }
-                try {
-                    Thread.sleep(backoffMs);
-                } catch (final InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    break;
+    /**
+     * Keeps the standby WebSocket connected while the tunnel is served by the active one. It only connects next
+     * to an open one, so net-proxy never takes it for the client of a tunnel it has no session for.
+     */
+    private void runStandby() {
+        try {
+            while (!stop.get()) {
+                if (connected == null) {
+                    Thread.sleep(RESUME_POLL_MS);
+                    continue;
                 }
-                backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+                secondary.run();
             }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -163,12 +188,19 @@ public class NetTunnelClient {
             if (task != null) {
                 task.cancel(true);
             }
-            final var wsTask = wsHeartbeatTask;
-            if (wsTask != null) {
-                wsTask.cancel(true);
+            final var check = healthCheck;
+            if (check != null) {
+                check.cancel(false);
             }
-            if (webSocket != null) {
-                webSocket.close(1000, "Client exit");
+            primary.close();
+            secondary.close();
+            final var currentDatagram = datagram;
+            if (currentDatagram != null) {
+                currentDatagram.close();
+            }
+            final var currentEngine = engine;
+            if (currentEngine != null) {
+                currentEngine.shutdown();
             }
             reportClosedSafe();
         } catch (final Exception ignore) {
@@ -176,23 +208,15 @@ public class NetTunnelClient {
         }
     }
 
-    private void close(final LocalTcp localTcp) {
-        if (localTcp != null) {
-            try {
-                localTcp.sock.close();
-            } catch (final Exception e) {
-                log.debug("Failed to close TCP: {}", e.toString());
-            }
+    private void close(final LocalConnection local) {
+        if (local != null) {
+            local.close();
         }
     }
 
-    private void close(final LocalUdp localUdp) {
-        if (localUdp != null) {
-            try {
-                localUdp.sock.close();
-            } catch (final Exception e) {
-                log.debug("Failed to close UDP local: {}", e.toString());
-            }
+    private void close(final LocalDatagramFlow flow) {
+        if (flow != null) {
+            flow.close();
         }
     }
 
@@ -209,9 +233,133 @@ public class NetTunnelClient {
         return uri + path;
     }
 
+    private String connectionPath() {
+        final var publicHostParam = (expectedPublicHost == null || expectedPublicHost.isBlank())
+            ? ""
+            : "&public-host=" + URLEncoder.encode(expectedPublicHost, StandardCharsets.UTF_8);
+        return "/api/net-tunnel/" + tunnelId
+               + "?type=" + tunnelType.name().toLowerCase()
+               + "&port=" + expectedPublicPort
+               + (sniRouting ? "&routing=sni" : "")
+               + "&profile=" + socketProfile.name().toLowerCase()
+               + publicHostParam
+               // net-proxy attaches it as the active session when the tunnel has none
+               + (standby ? "&standby=true" : "");
+    }
+
+    /**
+     * One WebSocket to net-proxy, reconnected with backoff until the client exits.
+     */
+    private final class Connection {
+
+        private volatile WebSocket webSocket;
+        // Set while the WebSocket is open
+        private volatile WebSocket open;
+        private CountDownLatch closed = new CountDownLatch(1);
+        private volatile ScheduledFuture<?> wsHeartbeatTask;
+        private final AtomicBoolean opened = new AtomicBoolean(false);
+
+        /**
+         * Connects and blocks until the client exits; a standby connection returns once the tunnel is down.
+         */
+        void run() {
+            var backoffMs = 1000L;
+            final var maxBackoffMs = 30000L;
+            while (!stop.get()) {
+                try {
+                    closed = new CountDownLatch(1);
+                    final var scheme = secure ? "https://" : "http://";
+                    final var path = connectionPath();
+                    if (directTransport) {
+                        final var config = ConfigurationService.INSTANCE.getConfig();
+                        webSocket = DirectTransport.open(expectedPublicHost, config.getDirectTransportPort(),
+                            config.isDirectTransportTls(), path, authToken, new Listener(this));
+                    } else {
+                        final var url = toWebSocketUrl(scheme + proxyHost + ":" + proxyHttpPort, path);
+                        final var request = new Request.Builder().url(url);
+                        if (authToken != null && !authToken.isBlank()) {
+                            request.addHeader("Authorization", "Bearer " + authToken);
+                        }
+                        webSocket = http.newWebSocket(request.build(), new Listener(this));
+                    }
+
+                    // Block until this connection is closed
+                    closed.await();
+                    if (stop.get() || this == secondary && connected == null) {
+                        break;
+                    }
+                    if (opened.getAndSet(false)) {
+                        // The connection was up, so this is a fresh drop rather than a failing server
+                        backoffMs = 1000L;
+                    }
+                    // Reconnect with backoff
+                    log.info("Net tunnel disconnected; reconnecting in {} ms...", backoffMs);
+                    Thread.sleep(backoffMs);
+                    backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (final Exception e) {
+                    log.warn("Net tunnel loop error: {}", e.toString());
+                    if (verbose) {
+                        e.printStackTrace(System.err);
+                    }
+                    try {
+                        Thread.sleep(backoffMs);
+                    } catch (final InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+                }
+            }
+        }
+
+        void close() {
+            cancelWsHeartbeat();
+            final var current = webSocket;
+            if (current != null) {
+                current.close(1000, "Client exit");
+            }
+        }
+
+        private void cancelWsHeartbeat() {
+            final var wsTask = wsHeartbeatTask;
+            if (wsTask != null) {
+                wsTask.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Makes an opened WebSocket the one serving the tunnel unless another one already does.
+     *
+     * @return {@code true} if the tunnel was down until now
+     */
+    private synchronized boolean connected(final WebSocket webSocket) {
+        if (connected != null) {
+            return false;
+        }
+        connected = webSocket;
+        return true;
+    }
+
+    @RequiredArgsConstructor
     private class Listener extends WebSocketListener {
+
+        private final Connection connection;
+
         @Override
         public void onOpen(final WebSocket webSocket, final Response response) {
+            connection.open = webSocket;
+            connection.opened.set(true);
+            startWsHeartbeat(webSocket);
+            if (!connected(webSocket)) {
+                log.debug("Standby tunnel connection open");
+                return;
+            }
+            // net-proxy forgets the reported state with the old session, so restate it either way
+            reportUpstream(!upstreams.isDown());
             // Report CONNECTED and start heartbeats
             try {
                 postStatus("/api/tunnels/" + tunnelId + "/connected");
@@ -235,21 +383,20 @@ public class NetTunnelClient {
             } catch (final Exception e) {
                 log.debug("Failed to start NET heartbeat: {}", e.toString());
             }
+        }
 
-            // Start WS application-level heartbeat (PING/PONG)
+        private void startWsHeartbeat(final WebSocket webSocket) {
+            // WS application-level heartbeat (PING/PONG)
             try {
-                final var existingWs = wsHeartbeatTask;
-                if (existingWs != null && !existingWs.isCancelled()) {
-                    existingWs.cancel(true);
-                }
+                connection.cancelWsHeartbeat();
                 final var config = ConfigurationService.INSTANCE.getConfig();
                 final var intervalSec = Math.max(1, config.getHealthcheckIntervalSec());
-                wsHeartbeatTask = scheduler.scheduleAtFixedRate(() -> {
+                connection.wsHeartbeatTask = scheduler.scheduleAtFixedRate(() -> {
                     try {
                         final var ping = new ControlMessage();
                         ping.setType(ControlMessage.Type.PING);
                         ping.setTs(System.currentTimeMillis());
-                        NetTunnelClient.this.webSocket.send(MAPPER.writeValueAsString(ping));
+                        webSocket.send(TunnelCodec.write(ping));
                     } catch (final Exception e) {
                         log.debug("WS heartbeat send failed: {}", e.toString());
                     }
@@ -262,13 +409,13 @@ public class NetTunnelClient {
         @Override
         public void onMessage(final WebSocket webSocket, final String text) {
             try {
-                final var env = MAPPER.readValue(text, MessageEnvelope.class);
-                if (env.getKind() != null && env.getKind().equals("CTRL")) {
+                final var kind = TunnelCodec.readKind(text);
+                if (TunnelCodec.KIND_CONTROL.equals(kind)) {
                     // Ignore CTRL (e.g., PONG) messages
                     return;
                 }
-                if (env.getKind() != null && env.getKind().equals("WS")) {
-                    final var msg = MAPPER.readValue(text, WsTunnelMessage.class);
+                if (TunnelCodec.KIND_WS.equals(kind)) {
+                    final var msg = TunnelCodec.readWs(text);
                     handleControl(msg);
                     return;
                 }
@@ -288,43 +435,14 @@ public class NetTunnelClient {
                 if (tunnelType == TunnelType.TCP) {
                     final var local = locals.get(decoded.connectionId());
                     if (local != null) {
-                        try {
-                            local.out.write(decoded.data());
-                            local.out.flush();
-                            if (trafficSink != null) {
-                                trafficSink.onBytesIn(decoded.data().length);
-                            }
-                        } catch (final Exception e) {
-                            log.debug("Write to local TCP failed: {}", e.toString());
-                        }
-                    }
-                } else if (tunnelType == TunnelType.UDP) {
-                    // For UDP, forward the datagram to local UDP server using per-connection socket
-                    final var connId = decoded.connectionId();
-                    var localUdp = udpLocals.get(connId);
-                    if (localUdp == null) {
-                        try {
-                            final var sock = new DatagramSocket();
-                            localUdp = new LocalUdp(connId, sock);
-                            udpLocals.put(connId, localUdp);
-                            // start receive loop for this connection
-                            final var localUdpRef = localUdp;
-                            new Thread(() -> pumpUdpLocalToProxy(localUdpRef)).start();
-                        } catch (final Exception e) {
-                            log.debug("Failed to create local UDP socket: {}", e.toString());
-                            return;
-                        }
-                    }
-                    try {
-                        final var packet = new DatagramPacket(decoded.data(), decoded.data().length,
-                            new InetSocketAddress(localHost, localPort));
-                        localUdp.sock.send(packet);
+                        // Never blocks; a local connection that does not keep up is closed on its own
+                        local.write(decoded.data());
                         if (trafficSink != null) {
                             trafficSink.onBytesIn(decoded.data().length);
                         }
-                    } catch (final Exception e) {
-                        log.debug("Write to local UDP failed: {}", e.toString());
                     }
+                } else if (tunnelType == TunnelType.UDP) {
+                    forwardToLocalUdp(decoded.connectionId(), decoded.data());
                 }
             } catch (final Exception e) {
                 log.debug("Failed to handle binary WS frame: {}", e.toString());
@@ -334,16 +452,29 @@ public class NetTunnelClient {
         @Override
         public void onClosed(final WebSocket webSocket, final int code, final String reason) {
             log.info("Tunnel closed: {} {}", code, reason);
+            lost(webSocket);
+        }
+
+        @Override
+        public void onFailure(final WebSocket webSocket, final Throwable throwable, final Response response) {
+            log.warn("Tunnel failure: {}", throwable.toString());
+            lost(webSocket);
+        }
+
+        private void lost(final WebSocket webSocket) {
+            connection.open = null;
+            connection.cancelWsHeartbeat();
+            disconnected(webSocket);
+            connection.closed.countDown();
+            if (connected != null) {
+                // The other connection still serves the tunnel
+                return;
+            }
             final var task = heartbeatTask;
             if (task != null) {
                 task.cancel(true);
             }
-            final var wsTask = wsHeartbeatTask;
-            if (wsTask != null) {
-                wsTask.cancel(true);
-            }
             reportClosedSafe();
-            closed.countDown();
             // Close UDP sockets
             if (tunnelType == TunnelType.UDP) {
                 for (final var entry : udpLocals.entrySet()) {
@@ -352,27 +483,56 @@ public class NetTunnelClient {
                 udpLocals.clear();
             }
         }
+    }
 
-        @Override
-        public void onFailure(final WebSocket webSocket, final Throwable throwable, final Response response) {
-            log.warn("Tunnel failure: {}", throwable.toString());
-            final var task = heartbeatTask;
-            if (task != null) {
-                task.cancel(true);
+    private synchronized void disconnected(final WebSocket webSocket) {
+        if (connected == webSocket) {
+            // net-proxy hands the tunnel to the standby connection right away
+            final var other = primary.open != null ? primary.open : secondary.open;
+            if (other != null) {
+                connected = other;
+                log.info("Net tunnel failed over to its standby connection");
+                reportUpstream(!upstreams.isDown());
+                return;
             }
-            final var wsTask = wsHeartbeatTask;
-            if (wsTask != null) {
-                wsTask.cancel(true);
+            connected = null;
+            disconnectedAt = System.nanoTime();
+            scheduler.schedule(this::closeLocalsIfNotResumed, RESUME_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Closes local connections once the tunnel stayed down for longer than net-proxy keeps their public side.
+     */
+    private void closeLocalsIfNotResumed() {
+        final var downNanos = System.nanoTime() - disconnectedAt;
+        if (connected != null || downNanos < TimeUnit.MILLISECONDS.toNanos(RESUME_TIMEOUT_MS)) {
+            return;
+        }
+        locals.values().forEach(LocalConnection::close);
+        locals.clear();
+        localUpstreams.keySet().forEach(connectionId -> releaseUpstream(connectionId, true));
+    }
+
+    /**
+     * Sends a message to net-proxy, waiting for the tunnel to reconnect while it is down.
+     *
+     * @param send sends the message on an open WebSocket, returning {@code false} if it was not accepted
+     * @return {@code false} if the tunnel did not reconnect in time or the client is exiting
+     */
+    private boolean sendToProxy(final Predicate<WebSocket> send) throws InterruptedException {
+        final var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RESUME_TIMEOUT_MS);
+        while (!stop.get()) {
+            final var current = connected;
+            if (current != null && send.test(current)) {
+                return true;
             }
-            reportClosedSafe();
-            closed.countDown();
-            if (tunnelType == TunnelType.UDP) {
-                for (final var entry : udpLocals.entrySet()) {
-                    close(entry.getValue());
-                }
-                udpLocals.clear();
+            if (System.nanoTime() - deadline > 0) {
+                return false;
             }
+            Thread.sleep(RESUME_POLL_MS);
         }
+        return false;
     }
 
     private void reportClosedSafe() {
@@ -389,9 +549,21 @@ public class NetTunnelClient {
         final var connId = message.getConnectionId();
         switch (message.getWsType()) {
             case EXPOSED -> {
+                if (trafficSink != null) {
+                    trafficSink.onBandwidthLimits(message.getBandwidthLimit(), message.getAccountBandwidthLimit());
+                }
                 final var actualHost = message.getPublicHost();
                 final var actualPort = message.getPublicPort();
-                if (actualHost != null && actualPort != null) {
+                if (tunnelType == TunnelType.UDP && datagramTransport && message.getDatagramPort() != null
+                    && message.getDatagramChannelId() != null && message.getDatagramKey() != null) {
+                    openDatagramTransport(message);
+                }
+                if (sniRouting && actualHost != null && actualPort != null) {
+                    if (warnedAboutReassignment.compareAndSet(false, true)) {
+                        System.out.printf("TLS clients connect to %s:%d using this host name%n",
+                            actualHost, actualPort);
+                    }
+                } else if (actualHost != null && actualPort != null) {
                     final var hostDiffers = expectedPublicHost != null && !expectedPublicHost.equals(actualHost);
                     final var portDiffers = expectedPublicPort != actualPort;
                     if ((hostDiffers || portDiffers) && warnedAboutReassignment.compareAndSet(false, true)) {
@@ -406,25 +578,20 @@ public class NetTunnelClient {
                 }
             }
             case OPEN -> {
-                if (tunnelType == TunnelType.TCP) {
-                    // Establish local TCP
-                    final var socket = new Socket();
-                    socket.connect(new InetSocketAddress(localHost, localPort), 5000);
-                    final var local = new LocalTcp(connId, socket);
-                    locals.put(connId, local);
-                    // Ack
-                    final var ack = new WsTunnelMessage();
-                    ack.setWsType(WsTunnelMessage.Type.OPEN_OK);
-                    ack.setConnectionId(connId);
-                    webSocket.send(MAPPER.writeValueAsString(ack));
-                    // Start reader thread from local TCP to proxy WS
-                    new Thread(() -> pumpLocalToProxy(local)).start();
+                final var existing = tunnelType == TunnelType.TCP ? locals.get(connId) : null;
+                if (existing != null) {
+                    // OPEN repeated after a reconnect because the ack may have been lost; ack again once connected
+                    if (existing.isConnected()) {
+                        sendOpenOk(connId);
+                    }
+                } else if (tunnelType == TunnelType.TCP) {
+                    openLocal(connId);
                 } else {
                     // UDP does not use OPEN for per-flow; ignore or acknowledge for compatibility
                     final var ack = new WsTunnelMessage();
                     ack.setWsType(WsTunnelMessage.Type.OPEN_OK);
                     ack.setConnectionId(connId);
-                    webSocket.send(MAPPER.writeValueAsString(ack));
+                    send(TunnelCodec.write(ack));
                 }
             }
             case BINARY -> {
@@ -434,8 +601,7 @@ public class NetTunnelClient {
                     if (local != null && message.getDataB64() != null) {
                         try {
                             final var bytes = Base64.getDecoder().decode(message.getDataB64());
-                            local.out.write(bytes);
-                            local.out.flush();
+                            local.write(bytes);
                             if (trafficSink != null) {
                                 trafficSink.onBytesIn(bytes.length);
                             }
@@ -446,27 +612,14 @@ public class NetTunnelClient {
                 } else if (tunnelType == TunnelType.UDP) {
                     // Legacy TEXT BINARY for UDP: forward to local as datagram
                     if (message.getDataB64() != null) {
-                        var localUdp = udpLocals.get(connId);
-                        if (localUdp == null) {
-                            final var sock = new DatagramSocket();
-                            localUdp = new LocalUdp(connId, sock);
-                            udpLocals.put(connId, localUdp);
-                            final var localUdpRef = localUdp;
-                            new Thread(() -> pumpUdpLocalToProxy(localUdpRef)).start();
-                        }
-                        final var bytes = Base64.getDecoder().decode(message.getDataB64());
-                        final var packet = new DatagramPacket(bytes, bytes.length,
-                            new InetSocketAddress(localHost, localPort));
-                        localUdp.sock.send(packet);
-                        if (trafficSink != null) {
-                            trafficSink.onBytesIn(bytes.length);
-                        }
+                        forwardToLocalUdp(connId, Base64.getDecoder().decode(message.getDataB64()));
                     }
                 }
             }
             case CLOSE -> {
                 if (tunnelType == TunnelType.TCP) {
                     close(locals.remove(connId));
+                    releaseUpstream(connId, true);
                 } else {
                     close(udpLocals.remove(connId));
                 }
@@ -476,78 +629,207 @@ public class NetTunnelClient {
         }
     }
 
-    private void pumpLocalToProxy(final LocalTcp local) {
-        final var buffer = new byte[8192];
+    private void openDatagramTransport(final WsTunnelMessage message) {
+        final var existing = datagram;
+        if (existing != null && existing.channelId() == message.getDatagramChannelId()) {
+            return;
+        }
+        if (existing != null) {
+            existing.close();
+        }
         try {
-            while (true) {
-                final var byteCount = local.in.read(buffer);
-                if (byteCount == -1) {
-                    break;
-                }
-                final var frame = BinaryWsFrame.encodeToArray(local.connectionId, buffer, 0, byteCount);
-                webSocket.send(ByteString.of(frame));
-                if (trafficSink != null) {
-                    trafficSink.onBytesOut(byteCount);
-                }
-            }
+            datagram = DatagramTransport.open(expectedPublicHost, message.getDatagramPort(),
+                message.getDatagramChannelId(), message.getDatagramKey(), this::forwardToLocalUdp, scheduler);
         } catch (final Exception e) {
-            // ignore
-        } finally {
+            datagram = null;
+            log.debug("Failed to open datagram transport, staying on WebSocket: {}", e.toString());
+        }
+    }
+
+    /**
+     * Forwards a datagram to the local UDP server using the socket of its flow.
+     */
+    private void forwardToLocalUdp(final String connId, final byte[] data) {
+        var flow = udpLocals.get(connId);
+        if (flow == null) {
             try {
-                final var message = new WsTunnelMessage();
-                message.setWsType(WsTunnelMessage.Type.CLOSE);
-                message.setConnectionId(local.connectionId);
-                webSocket.send(MAPPER.writeValueAsString(message));
-            } catch (final Exception ignore) {
-                log.error("Failed to send local WS close: {}", ignore.toString());
+                // A flow stays with the upstream it starts on; UDP gives no signal of upstream health
+                final var upstream = upstreams.acquire();
+                upstream.release();
+                flow = engine.openDatagramFlow(connId, new InetSocketAddress(upstream.host(), upstream.port()));
+                udpLocals.put(connId, flow);
+            } catch (final Exception e) {
+                log.debug("Failed to create local UDP socket: {}", e.toString());
+                return;
             }
-            close(local);
-            locals.remove(local.connectionId);
+        }
+        flow.send(data);
+        if (trafficSink != null) {
+            trafficSink.onBytesIn(data.length);
         }
     }
 
-    private static class LocalTcp {
-        final String connectionId;
-        final Socket sock;
-        final InputStream in;
-        final OutputStream out;
+    /**
+     * Starts connecting a public connection to the local service. Data arriving meanwhile is queued by the
+     * local connection; OPEN_OK follows once it is connected, CLOSE if it cannot connect in time or the local
+     * service is down.
+     */
+    private void openLocal(final String connId) {
+        if (upstreams.isDown()) {
+            // Refuse at once instead of trying a local service known to be down
+            sendCloseAsync(connId);
+            return;
+        }
+        final var upstream = upstreams.acquire();
+        final LocalConnection local;
+        try {
+            local = engine.connect(connId, new InetSocketAddress(upstream.host(), upstream.port()), socketProfile);
+        } catch (final IOException e) {
+            log.debug("Failed to open local TCP socket: {}", e.toString());
+            upstream.release();
+            sendCloseAsync(connId);
+            return;
+        }
+        locals.put(connId, local);
+        localUpstreams.put(connId, upstream);
+        if (local.isClosed()) {
+            // Failed before it was registered
+            locals.remove(connId, local);
+            releaseUpstream(connId, local.isConnected());
+        }
+        scheduler.schedule(local::abortPendingConnect, LOCAL_CONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
 
-        LocalTcp(final String connectionId, final Socket sock) throws Exception {
-            this.connectionId = connectionId;
-            this.sock = sock;
-            this.in = sock.getInputStream();
-            this.out = sock.getOutputStream();
+    private void onUpstreamHealth(final boolean up) {
+        if (up) {
+            log.info("Local service of net tunnel {} is back up", tunnelId);
+        } else {
+            log.warn("Local service of net tunnel {} is down; refusing its connections", tunnelId);
         }
+        reportUpstream(up);
     }
 
-    private static class LocalUdp {
-        final String connectionId;
-        final DatagramSocket sock;
+    /**
+     * Tells net-proxy whether the tunnel has a local service, so it can refuse public connections meanwhile.
+     */
+    private void reportUpstream(final boolean up) {
+        try {
+            final var report = new ControlMessage();
+            report.setType(up ? ControlMessage.Type.UPSTREAM_UP : ControlMessage.Type.UPSTREAM_DOWN);
+            report.setTs(System.currentTimeMillis());
+            send(TunnelCodec.write(report));
+        } catch (final Exception e) {
+            log.debug("Failed to report upstream health: {}", e.toString());
+        }
+    }
+
+    private void sendOpenOk(final String connectionId) throws Exception {
+        final var ack = new WsTunnelMessage();
+        ack.setWsType(WsTunnelMessage.Type.OPEN_OK);
+        ack.setConnectionId(connectionId);
+        send(TunnelCodec.write(ack));
+    }
 
-        LocalUdp(final String connectionId, final DatagramSocket sock) {
-            this.connectionId = connectionId;
-            this.sock = sock;
+    private void send(final String text) {
+        final var current = connected;
+        if (current != null) {
+            current.send(text);
         }
     }
 
-    private void pumpUdpLocalToProxy(final LocalUdp local) {
-        final var buffer = new byte[65535];
+    private void sendClose(final String connectionId) {
         try {
-            while (!local.sock.isClosed()) {
-                final var packet = new DatagramPacket(buffer, buffer.length);
-                local.sock.receive(packet);
-                final var frame = BinaryWsFrame
-                    .encodeToArray(local.connectionId, packet.getData(), packet.getOffset(), packet.getLength());
-                webSocket.send(ByteString.of(frame));
-                if (trafficSink != null) {
-                    trafficSink.onBytesOut(packet.getLength());
+            final var message = new WsTunnelMessage();
+            message.setWsType(WsTunnelMessage.Type.CLOSE);
+            message.setConnectionId(connectionId);
+            final var text = TunnelCodec.write(message);
+            sendToProxy(ws -> ws.send(text));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final Exception ignore) {
+            log.error("Failed to send local WS close: {}", ignore.toString());
+        }
+    }
+
+    /**
+     * Ends a local connection on its upstream; one that closed before it connected counts as a failure.
+     */
+    private void releaseUpstream(final String connectionId, final boolean connected) {
+        final var upstream = localUpstreams.remove(connectionId);
+        if (upstream != null) {
+            if (!connected) {
+                upstream.reportFailure();
+            }
+            upstream.release();
+        }
+    }
+
+    private void sendCloseAsync(final String connectionId) {
+        // May wait for the tunnel to reconnect, so never on a selector or WebSocket thread
+        Thread.startVirtualThread(() -> sendClose(connectionId));
+    }
+
+    /**
+     * Bridges local connections and UDP flows to the tunnel WebSocket.
+     */
+    private class LocalHandler implements LocalTrafficHandler {
+
+        @Override
+        public void onConnected(final String connectionId) {
+            final var upstream = localUpstreams.get(connectionId);
+            if (upstream != null) {
+                upstream.reportSuccess();
+            }
+            try {
+                sendOpenOk(connectionId);
+            } catch (final Exception e) {
+                log.debug("Failed to send OPEN_OK: {}", e.toString());
+            }
+        }
+
+        @Override
+        public void onData(final String connectionId, final byte[] data, final int offset, final int length) {
+            final var current = datagram;
+            if (tunnelType == TunnelType.UDP && current != null && current.send(connectionId, data, offset, length)) {
+                countOut(length);
+                return;
+            }
+            final var frame = ByteString.of(BinaryWsFrame.encodeToArray(connectionId, data, offset, length));
+            final var ws = connected;
+            if (ws != null && ws.send(frame)) {
+                countOut(length);
+            } else if (tunnelType == TunnelType.TCP) {
+                // The tunnel dropped between the backlog check and the send; the stream cannot continue with a gap
+                close(locals.remove(connectionId));
+                releaseUpstream(connectionId, true);
+                sendCloseAsync(connectionId);
+            }
+        }
+
+        @Override
+        public void onClosed(final String connectionId) {
+            if (tunnelType == TunnelType.TCP) {
+                final var local = locals.remove(connectionId);
+                if (local != null) {
+                    releaseUpstream(connectionId, local.isConnected());
                 }
+                sendCloseAsync(connectionId);
+            } else {
+                udpLocals.remove(connectionId);
+            }
+        }
+
+        @Override
+        public long outboundBacklog() {
+            // Local connections are not read while the tunnel is down; net-proxy keeps the public side meanwhile
+            final var ws = connected;
+            return ws == null ? Long.MAX_VALUE : ws.queueSize();
+        }
+
+        private void countOut(final int length) {
+            if (trafficSink != null) {
+                trafficSink.onBytesOut(length);
             }
-        } catch (final Exception e) {
-            // ignore normal close
-        } finally {
-            close(local);
-            udpLocals.remove(local.connectionId);
         }
     }
 
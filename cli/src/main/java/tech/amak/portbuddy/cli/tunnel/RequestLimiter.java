@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.cli.tunnel;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tunneled HTTP requests, each on its own virtual thread, with at most a given number calling the local
+ * service at once. Requests beyond the limit wait in arrival order; a waiting request costs a parked virtual
+ * thread only. Every change of the in-flight and queued counts is reported to a listener.
+ */
+final class RequestLimiter {
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("port-buddy-http-request-", 0).factory());
+    private final int maxInFlight;
+    private final Semaphore permits;
+    private final Listener listener;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /**
+     * Constructs a limiter.
+     *
+     * @param maxInFlight maximum number of requests handled at once
+     * @param listener    listener of queue changes
+     */
+    RequestLimiter(final int maxInFlight, final Listener listener) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.permits = new Semaphore(this.maxInFlight, true);
+        this.listener = listener;
+    }
+
+    /**
+     * Runs the request once fewer than the maximum number of requests are in flight.
+     *
+     * @param request request handling, including sending the response
+     * @throws java.util.concurrent.RejectedExecutionException if the limiter was shut down
+     */
+    void execute(final Runnable request) {
+        final var enqueuedAt = System.nanoTime();
+        queued.incrementAndGet();
+        report(-1);
+        executor.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (final InterruptedException e) {
+                queued.decrementAndGet();
+                report(-1);
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queued.decrementAndGet();
+            inFlight.incrementAndGet();
+            report(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - enqueuedAt));
+            try {
+                request.run();
+            } finally {
+                inFlight.decrementAndGet();
+                permits.release();
+                report(-1);
+            }
+        });
+    }
+
+    void shutdownNow() {
+        executor.shutdownNow();
+    }
+
+    private void report(final long waitMillis) {
+        listener.onRequestQueue(inFlight.get(), maxInFlight, queued.get(), waitMillis);
+    }
+
+    /**
+     * Listener of request queue changes.
+     */
+    @FunctionalInterface
+    interface Listener {
+
+        /**
+         * Reports the request queue.
+         *
+         * @param inFlight    requests being handled
+         * @param maxInFlight maximum number of requests handled at once
+         * @param queued      requests waiting for one of them to complete
+         * @param waitMillis  time the request that just started spent queued, or {@code -1} if none started
+         */
+        void onRequestQueue(int inFlight, int maxInFlight, int queued, long waitMillis);
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.cli.tunnel;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local services a tunnel forwards to. Each request or connection goes to the available upstream with the
+ * fewest outstanding ones, ties taking turns. Health is tracked passively: an upstream that fails several
+ * times in a row is ejected for a backoff that doubles with every further failure, and is taken back by
+ * the first success. When every upstream is ejected the one that comes back soonest is still used, so a
+ * single upstream behaves as before.
+ * <p>
+ * With {@link #startHealthChecks} running, ejected upstreams are also probed actively and taken back as soon
+ * as they accept a connection, and callers may check {@link #isDown()} to fail fast rather than wait on a
+ * local service that is known to be down.
+ */
+@Slf4j
+public final class UpstreamPool {
+
+    private static final int FAILURES_TO_EJECT = 3;
+    private static final long MIN_EJECT_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final long MAX_EJECT_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long HEALTH_CHECK_INTERVAL_MS = 2000;
+    private static final int HEALTH_CHECK_TIMEOUT_MS = 1000;
+
+    private final List<Upstream> upstreams;
+    private final AtomicInteger nextStart = new AtomicInteger();
+    private volatile boolean reportedDown;
+
+    /**
+     * Constructs a pool of upstreams.
+     *
+     * @param upstreams host and port of each upstream; at least one
+     */
+    public UpstreamPool(final List<Upstream> upstreams) {
+        if (upstreams.isEmpty()) {
+            throw new IllegalArgumentException("At least one upstream is required");
+        }
+        this.upstreams = List.copyOf(upstreams);
+    }
+
+    public int size() {
+        return upstreams.size();
+    }
+
+    public List<Upstream> upstreams() {
+        return upstreams;
+    }
+
+    /**
+     * Picks an upstream and counts it as outstanding until {@link Upstream#release()}.
+     */
+    public Upstream acquire() {
+        return acquire(Set.of());
+    }
+
+    /**
+     * Picks an upstream other than the given ones, e.g. those a request already failed to reach, and counts
+     * it as outstanding until {@link Upstream#release()}.
+     *
+     * @param excluded upstreams not to pick unless no other is left
+     * @return the upstream
+     */
+    public Upstream acquire(final Collection<Upstream> excluded) {
+        final var now = System.nanoTime();
+        final var count = upstreams.size();
+        final var start = Math.floorMod(nextStart.getAndIncrement(), count);
+        Upstream best = null;
+        Upstream soonest = null;
+        for (var i = 0; i < count; i++) {
+            final var upstream = upstreams.get((start + i) % count);
+            if (excluded.contains(upstream)) {
+                continue;
+            }
+            if (!upstream.isAvailable(now)) {
+                if (soonest == null || upstream.ejectedUntil - soonest.ejectedUntil < 0) {
+                    soonest = upstream;
+                }
+            } else if (best == null || upstream.outstanding.get() < best.outstanding.get()) {
+                best = upstream;
+            }
+        }
+        var chosen = best != null ? best : soonest;
+        if (chosen == null) {
+            chosen = upstreams.get(start);
+        }
+        chosen.outstanding.incrementAndGet();
+        return chosen;
+    }
+
+    /**
+     * Whether every upstream is ejected and none has served anything since, so a request or connection would
+     * most likely fail. Only health checks take the pool back once callers stop trying it.
+     */
+    public boolean isDown() {
+        for (final var upstream : upstreams) {
+            if (!upstream.ejected) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Starts probing ejected upstreams with a TCP connect every few seconds. One that accepts is taken back;
+     * one whose backoff ran out without accepting is ejected again, so requests are not used to find out.
+     *
+     * @param scheduler runs the checks; probes themselves run on virtual threads
+     * @param listener  told when the pool goes down or comes back
+     * @return the checks, to cancel when the tunnel closes
+     */
+    ScheduledFuture<?> startHealthChecks(final ScheduledExecutorService scheduler,
+                                                final HealthListener listener) {
+        return scheduler.scheduleWithFixedDelay(() -> {
+            for (final var upstream : upstreams) {
+                if (upstream.ejected) {
+                    Thread.startVirtualThread(() -> probe(upstream));
+                }
+            }
+            final var down = isDown();
+            if (down != reportedDown) {
+                reportedDown = down;
+                listener.onHealthChanged(!down);
+            }
+        }, HEALTH_CHECK_INTERVAL_MS, HEALTH_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private static void probe(final Upstream upstream) {
+        try (final var socket = new Socket()) {
+            socket.connect(new InetSocketAddress(upstream.host, upstream.port), HEALTH_CHECK_TIMEOUT_MS);
+            upstream.reportSuccess();
+        } catch (final IOException e) {
+            upstream.reportFailure();
+        }
+    }
+
+    /**
+     * Receives changes of the health of a pool.
+     */
+    @FunctionalInterface
+    interface HealthListener {
+
+        /**
+         * Called from the health checks when the pool goes down or comes back.
+         *
+         * @param up {@code true} if an upstream accepts connections again, {@code false} if none does
+         */
+        void onHealthChanged(boolean up);
+    }
+
+    /**
+     * Local service of a pool with its load and health.
+     */
+    public static final class Upstream {
+
+        private final String host;
+        private final int port;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private int consecutiveFailures;
+        private int ejections;
+        private volatile boolean ejected;
+        private volatile long ejectedUntil;
+
+        public Upstream(final String host, final int port) {
+            this.host = host;
+            this.port = port;
+        }
+
+        public String host() {
+            return host;
+        }
+
+        public int port() {
+            return port;
+        }
+
+        public int outstanding() {
+            return outstanding.get();
+        }
+
+        /**
+         * Ends a request or connection counted by {@link UpstreamPool#acquire()}.
+         */
+        public void release() {
+            outstanding.decrementAndGet();
+        }
+
+        /**
+         * Records a request or connection the upstream served, taking it back if it was ejected.
+         */
+        public synchronized void reportSuccess() {
+            consecutiveFailures = 0;
+            ejections = 0;
+            if (ejected) {
+                ejected = false;
+                log.info("Upstream {} recovered", this);
+            }
+        }
+
+        /**
+         * Records a request or connection the upstream could not serve, ejecting it after several in a row.
+         */
+        public synchronized void reportFailure() {
+            consecutiveFailures++;
+            final var now = System.nanoTime();
+            if (consecutiveFailures < FAILURES_TO_EJECT || (ejected && now - ejectedUntil < 0)) {
+                return;
+            }
+            final var backoff = Math.min(MAX_EJECT_NANOS, MIN_EJECT_NANOS << Math.min(ejections, 16));
+            ejections++;
+            ejectedUntil = now + backoff;
+            ejected = true;
+            log.warn("Upstream {} failed {} times in a row, ejecting it for {} ms", this, consecutiveFailures,
+                TimeUnit.NANOSECONDS.toMillis(backoff));
+        }
+
+        boolean isAvailable(final long nowNanos) {
+            return !ejected || nowNanos - ejectedUntil >= 0;
+        }
+
+        @Override
+        public String toString() {
+            return host + ":" + port;
+        }
+    }
+}
@@ -4,11 +4,15 @@
 
 package tech.amak.portbuddy.cli.ui;
 
+import static tech.amak.portbuddy.cli.utils.JsonUtils.MAPPER;
+
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -19,7 +23,6 @@ import org.jline.terminal.TerminalBuilder;
 import org.jline.utils.InfoCmp;
 
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import tech.amak.portbuddy.cli.config.ConfigurationService;
@@ -28,21 +31,54 @@ import tech.amak.portbuddy.common.TunnelType;
 import tech.amak.portbuddy.common.dto.auth.RegisterRequest;
 
 @Slf4j
-@RequiredArgsConstructor
 public class ConsoleUi implements HttpLogSink, NetTrafficSink {
 
     public record HttpLog(String method, String url, int status) {
     }
 
-    private final TunnelType tunnelType;
-    private final String localDetails;
-    private final String publicDetails;
+    /**
+     * A tunnel shown by the console.
+     */
+    public record Forwarding(TunnelType tunnelType, String localDetails, String publicDetails) {
+    }
+
+    /**
+     * Statistics of a tunnel session as exported on exit. Latencies are in milliseconds, rates are means
+     * over the whole session.
+     */
+    public record StatsReport(String tunnelType,
+                              String local,
+                              String publicUrl,
+                              double uptimeSeconds,
+                              long requests,
+                              LatencyHistogram.Snapshot upstreamLatency,
+                              LatencyHistogram.Snapshot tunnelLatency,
+                              long bytesIn,
+                              long bytesOut,
+                              double requestsPerSecond,
+                              double bytesInPerSecond,
+                              double bytesOutPerSecond) {
+    }
+
+    private final List<Forwarding> forwardings;
+    private final String mode;
+    private final boolean http;
+    private final boolean net;
 
     private Terminal terminal;
     private PrintWriter out;
     private final Deque<HttpLog> httpLogs = new ArrayDeque<>();
-    private final AtomicLong inBytes = new AtomicLong();
-    private final AtomicLong outBytes = new AtomicLong();
+    private final long startedAt = System.nanoTime();
+    // Time the local service took per request, and per request in total from arrival over the tunnel
+    private final LatencyHistogram upstreamLatency = new LatencyHistogram();
+    private final LatencyHistogram tunnelLatency = new LatencyHistogram();
+    private final RateMeter requests = new RateMeter();
+    private final RateMeter inBytes = new RateMeter();
+    private final RateMeter outBytes = new RateMeter();
+    private volatile String bandwidthLimits;
+    private volatile String requestQueue;
+    private volatile long lastWaitMillis;
+    private final AtomicLong maxWaitMillis = new AtomicLong();
     private final AtomicBoolean running = new AtomicBoolean(false);
     private final CountDownLatch exit = new CountDownLatch(1);
     private final ClientConfig config = ConfigurationService.INSTANCE.getConfig();
@@ -53,6 +89,21 @@ public class ConsoleUi implements HttpLogSink, NetTrafficSink {
     @Setter
     private Runnable onExit;
 
+    public ConsoleUi(final TunnelType tunnelType, final String localDetails, final String publicDetails) {
+        this(List.of(new Forwarding(tunnelType, localDetails, publicDetails)));
+    }
+
+    /**
+     * Creates a console for tunnels served by one process. Their traffic is shown and counted together.
+     */
+    public ConsoleUi(final List<Forwarding> forwardings) {
+        this.forwardings = List.copyOf(forwardings);
+        final var types = forwardings.stream().map(Forwarding::tunnelType).distinct().toList();
+        this.mode = types.size() == 1 ? types.getFirst().name().toLowerCase() : "mixed";
+        this.http = types.contains(TunnelType.HTTP);
+        this.net = types.stream().anyMatch(type -> type != TunnelType.HTTP);
+    }
+
     /**
      * Prompts the user for registration details using the console.
      * When no API key is initialized, the user should only be asked for the email address.
@@ -123,10 +174,17 @@ public class ConsoleUi implements HttpLogSink, NetTrafficSink {
 
         clear();
 
-        out.printf("Port Buddy - Mode: %s%n", tunnelType.name().toLowerCase());
+        out.printf("Port Buddy - Mode: %s%n", mode);
         out.println();
-        out.printf("Local:  %s%n", localDetails);
-        out.printf("Public: %s%n", publicDetails);
+        if (forwardings.size() == 1) {
+            out.printf("Local:  %s%n", forwardings.getFirst().localDetails());
+            out.printf("Public: %s%n", forwardings.getFirst().publicDetails());
+        } else {
+            for (final var forwarding : forwardings) {
+                out.printf("%-4s %s -> %s%n", forwarding.tunnelType().name().toLowerCase(),
+                    forwarding.publicDetails(), forwarding.localDetails());
+            }
+        }
         out.println();
         out.println("Press Ctrl+C to exit");
         out.flush();
@@ -194,21 +252,101 @@ public class ConsoleUi implements HttpLogSink, NetTrafficSink {
         }
     }
 
+    @Override
+    public void onRequestQueue(final int inFlight, final int maxInFlight, final int queued, final long waitMillis) {
+        if (waitMillis >= 0) {
+            lastWaitMillis = waitMillis;
+            maxWaitMillis.accumulateAndGet(waitMillis, Math::max);
+        }
+        requestQueue = "Requests: %d/%d in flight | %d queued | queue wait %d ms (max %d ms)"
+            .formatted(inFlight, maxInFlight, queued, lastWaitMillis, maxWaitMillis.get());
+    }
+
+    @Override
+    public void onUpstreamLatency(final long nanos) {
+        upstreamLatency.record(nanos);
+    }
+
+    @Override
+    public void onRequestCompleted(final long nanos, final long requestBytes, final long responseBytes) {
+        tunnelLatency.record(nanos);
+        requests.add(1);
+        inBytes.add(Math.max(0, requestBytes));
+        outBytes.add(Math.max(0, responseBytes));
+    }
+
     @Override
     public void onBytesIn(final long bytes) {
-        inBytes.addAndGet(Math.max(0, bytes));
+        inBytes.add(Math.max(0, bytes));
     }
 
     @Override
     public void onBytesOut(final long bytes) {
-        outBytes.addAndGet(Math.max(0, bytes));
+        outBytes.add(Math.max(0, bytes));
+    }
+
+    /**
+     * Returns the statistics recorded so far.
+     */
+    public StatsReport stats() {
+        final var uptimeSeconds = Math.max(1e-3, (System.nanoTime() - startedAt) / 1e9);
+        final var local = String.join(", ", forwardings.stream().map(Forwarding::localDetails).toList());
+        final var publicUrl = String.join(", ", forwardings.stream().map(Forwarding::publicDetails).toList());
+        return new StatsReport(mode, local, publicUrl, uptimeSeconds,
+            requests.total(), upstreamLatency.snapshot(), tunnelLatency.snapshot(),
+            inBytes.total(), outBytes.total(),
+            requests.total() / uptimeSeconds, inBytes.total() / uptimeSeconds, outBytes.total() / uptimeSeconds);
+    }
+
+    /**
+     * Writes the statistics recorded so far to a JSON file.
+     *
+     * @param file file to write, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void exportStats(final Path file) throws IOException {
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), stats());
+    }
+
+    @Override
+    public void onBandwidthLimits(final Long tunnelLimit, final Long accountLimit) {
+        if (tunnelLimit == null && accountLimit == null) {
+            bandwidthLimits = null;
+            return;
+        }
+        bandwidthLimits = "Bandwidth limit: %s per direction (account: %s)"
+            .formatted(formatRate(tunnelLimit), formatRate(accountLimit));
+    }
+
+    private static String formatLatency(final String label, final LatencyHistogram.Snapshot snapshot) {
+        return "%s p50 %.1f ms | p90 %.1f ms | p99 %.1f ms | max %.1f ms"
+            .formatted(label, snapshot.p50(), snapshot.p90(), snapshot.p99(), snapshot.max());
+    }
+
+    private static String formatBytes(final double bytes) {
+        if (bytes < 1024) {
+            return "%.0f B".formatted(bytes);
+        }
+        if (bytes < 1024 * 1024) {
+            return "%.2f KB".formatted(bytes / 1024.0);
+        }
+        return "%.2f MB".formatted(bytes / (1024.0 * 1024.0));
+    }
+
+    private static String formatRate(final Long bytesPerSecond) {
+        if (bytesPerSecond == null) {
+            return "unlimited";
+        }
+        return "%.2f MB/s".formatted(bytesPerSecond / (1024.0 * 1024.0));
     }
 
     private void renderLoop() {
         final var frameDelay = Duration.ofMillis(config.getConsoleFrameDelayMs());
         while (running.get()) {
             try {
-                terminal.puts(InfoCmp.Capability.cursor_address, 9, 0);
+                // Below the header printed by start()
+                final var headerLines = forwardings.size() == 1 ? 9 : 7 + forwardings.size();
+                terminal.puts(InfoCmp.Capability.cursor_address, headerLines, 0);
                 terminal.flush();
                 render();
 
@@ -231,7 +369,21 @@ public class ConsoleUi implements HttpLogSink, NetTrafficSink {
     }
 
     private void render() {
-        if (tunnelType == TunnelType.HTTP) {
+        if (http) {
+            final var queue = requestQueue;
+            if (queue != null) {
+                terminal.puts(InfoCmp.Capability.clr_eol);
+                out.println(queue);
+            }
+            if (tunnelLatency.count() > 0) {
+                terminal.puts(InfoCmp.Capability.clr_eol);
+                out.println(formatLatency("Local service:", upstreamLatency.snapshot()));
+                terminal.puts(InfoCmp.Capability.clr_eol);
+                out.println(formatLatency("Total:        ", tunnelLatency.snapshot()));
+                terminal.puts(InfoCmp.Capability.clr_eol);
+                out.printf("Rate: %.1f req/s | IN %s/s | OUT %s/s%n", requests.ratePerSecond(),
+                    formatBytes(inBytes.ratePerSecond()), formatBytes(outBytes.ratePerSecond()));
+            }
 
             synchronized (httpLogs) {
                 if (httpLogs.isEmpty()) {
@@ -244,10 +396,19 @@ public class ConsoleUi implements HttpLogSink, NetTrafficSink {
                     });
                 }
             }
-        } else {
-            final var inKb = inBytes.get() / 1024.0;
-            final var outKb = outBytes.get() / 1024.0;
+        }
+        if (net) {
+            final var inKb = inBytes.total() / 1024.0;
+            final var outKb = outBytes.total() / 1024.0;
+            terminal.puts(InfoCmp.Capability.clr_eol);
             out.printf("TCP traffic: IN %.2f KB | OUT %.2f KB%n", inKb, outKb);
+            terminal.puts(InfoCmp.Capability.clr_eol);
+            out.printf("Rate: IN %s/s | OUT %s/s%n",
+                formatBytes(inBytes.ratePerSecond()), formatBytes(outBytes.ratePerSecond()));
+            final var limits = bandwidthLimits;
+            if (limits != null) {
+                out.println(limits);
+            }
         }
 
         out.flush();
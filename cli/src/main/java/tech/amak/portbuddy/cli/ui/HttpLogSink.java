@@ -6,4 +6,34 @@ package tech.amak.portbuddy.cli.ui;
 
 public interface HttpLogSink {
     void onHttpLog(final String method, final String url, final int status);
+
+    /**
+     * Reports the queue of tunneled requests waiting for the local service.
+     *
+     * @param inFlight    requests being handled
+     * @param maxInFlight maximum number of requests handled at once
+     * @param queued      requests waiting for one of them to complete
+     * @param waitMillis  time the request that just started spent queued, or {@code -1} if none started
+     */
+    default void onRequestQueue(final int inFlight, final int maxInFlight, final int queued, final long waitMillis) {
+    }
+
+    /**
+     * Reports how long the local service took to answer a request, including reading its response body.
+     *
+     * @param nanos time from sending the request to the local service until its response was read
+     */
+    default void onUpstreamLatency(final long nanos) {
+    }
+
+    /**
+     * Reports a request handled through the tunnel.
+     *
+     * @param nanos         time from the request arriving over the tunnel until its response was sent back,
+     *                      including queueing and the local service
+     * @param requestBytes  request body size
+     * @param responseBytes response body size
+     */
+    default void onRequestCompleted(final long nanos, final long requestBytes, final long responseBytes) {
+    }
 }
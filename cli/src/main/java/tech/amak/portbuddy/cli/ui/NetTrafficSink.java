@@ -9,4 +9,13 @@ public interface NetTrafficSink {
     void onBytesIn(final long bytes);
 
     void onBytesOut(final long bytes);
+
+    /**
+     * Reports the bandwidth limits applied by net-proxy, in bytes per second and direction.
+     *
+     * @param tunnelLimit  limit of this tunnel, or {@code null} if unlimited
+     * @param accountLimit limit shared by all tunnels of the account, or {@code null} if unlimited
+     */
+    default void onBandwidthLimits(final Long tunnelLimit, final Long accountLimit) {
+    }
 }
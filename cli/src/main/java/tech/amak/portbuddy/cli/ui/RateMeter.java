@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.cli.ui;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Rolling per-second rate over the last few seconds. Amounts are added to the slot of the current second;
+ * a slot is reset by the first amount of a new second that reuses it. The rate leaves out the second in
+ * progress so it does not dip every time a new second starts.
+ */
+public final class RateMeter {
+
+    private static final int WINDOW_SECONDS = 5;
+    private static final int SLOTS = WINDOW_SECONDS + 1;
+
+    private final long originNanos = System.nanoTime();
+    private final AtomicLongArray amounts = new AtomicLongArray(SLOTS);
+    private final AtomicLongArray seconds = new AtomicLongArray(SLOTS);
+    private final AtomicLong total = new AtomicLong();
+
+    public RateMeter() {
+        for (var i = 0; i < SLOTS; i++) {
+            seconds.set(i, -1);
+        }
+    }
+
+    public void add(final long amount) {
+        final var second = currentSecond();
+        final var slot = (int) (second % SLOTS);
+        final var slotSecond = seconds.get(slot);
+        if (slotSecond != second && seconds.compareAndSet(slot, slotSecond, second)) {
+            // Amounts of another thread racing with the reset may be lost; acceptable for a display rate
+            amounts.set(slot, 0);
+        }
+        amounts.addAndGet(slot, amount);
+        total.addAndGet(amount);
+    }
+
+    public long total() {
+        return total.get();
+    }
+
+    /**
+     * Returns the mean amount per second over the completed seconds of the window.
+     */
+    public double ratePerSecond() {
+        final var now = currentSecond();
+        final var window = Math.min(WINDOW_SECONDS, now);
+        if (window == 0) {
+            return 0;
+        }
+        var sum = 0L;
+        for (var i = 0; i < SLOTS; i++) {
+            final var second = seconds.get(i);
+            if (second < now && now - second <= window) {
+                sum += amounts.get(i);
+            }
+        }
+        return (double) sum / window;
+    }
+
+    private long currentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - originNanos);
+    }
+}
@@ -29,4 +29,14 @@ public class ClientConfig {
 
     @JsonProperty("healthcheckIntervalSec")
     private int healthcheckIntervalSec = 5;
+
+    // Tunneled HTTP requests handled at once; more wait in a queue
+    @JsonProperty("maxInFlightRequests")
+    private int maxInFlightRequests = 64;
+
+    @JsonProperty("directTransportPort")
+    private int directTransportPort = 8072;
+
+    @JsonProperty("directTransportTls")
+    private boolean directTransportTls = true;
 }
@@ -0,0 +1,16 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.common.dto;
+
+import tech.amak.portbuddy.common.Plan;
+
+/**
+ * Subscription plan of the account owning an ingress subdomain or custom domain.
+ * Used by the gateway to derive edge rate limits.
+ */
+public record IngressPlanResponse(
+    Plan plan
+) {
+}
@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.common.dto;
+
+import java.util.UUID;
+
+import tech.amak.portbuddy.common.Plan;
+
+/**
+ * Account and subscription plan owning a tunnel.
+ * Used by net-proxy to derive per-tunnel and per-account bandwidth limits.
+ */
+public record TunnelPlanResponse(
+    UUID accountId,
+    Plan plan
+) {
+}
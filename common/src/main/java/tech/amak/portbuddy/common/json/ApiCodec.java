@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.common.json;
+
+import static tech.amak.portbuddy.common.json.JsonStreams.readBoolean;
+import static tech.amak.portbuddy.common.json.JsonStreams.readInteger;
+import static tech.amak.portbuddy.common.json.JsonStreams.readString;
+import static tech.amak.portbuddy.common.json.JsonStreams.writeField;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import tech.amak.portbuddy.common.ClientConfig;
+import tech.amak.portbuddy.common.dto.ExposeRequest;
+import tech.amak.portbuddy.common.dto.ExposeResponse;
+import tech.amak.portbuddy.common.dto.auth.TokenExchangeRequest;
+import tech.amak.portbuddy.common.dto.auth.TokenExchangeResponse;
+
+/**
+ * Reflection-free JSON codec for the API calls and configuration the CLI goes through on every start.
+ */
+public final class ApiCodec {
+
+    private ApiCodec() {
+    }
+
+    /**
+     * Encodes a request to expose a local service.
+     */
+    public static String write(final ExposeRequest request) throws IOException {
+        return JsonStreams.writeString(generator -> {
+            generator.writeStartObject();
+            writeField(generator, "tunnelType", request.tunnelType());
+            writeField(generator, "scheme", request.scheme());
+            writeField(generator, "host", request.host());
+            generator.writeNumberField("port", request.port());
+            writeField(generator, "domain", request.domain());
+            writeField(generator, "portReservation", request.portReservation());
+            writeField(generator, "passcode", request.passcode());
+            generator.writeEndObject();
+        });
+    }
+
+    /**
+     * Decodes the public exposure details of a tunnel.
+     */
+    public static ExposeResponse readExposeResponse(final String json) throws IOException {
+        String source = null;
+        String publicUrl = null;
+        String publicHost = null;
+        Integer publicPort = null;
+        UUID tunnelId = null;
+        String subdomain = null;
+        try (final var parser = JsonStreams.openObject(json)) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final var name = parser.currentName();
+                parser.nextToken();
+                switch (name) {
+                    case "source" -> source = readString(parser);
+                    case "publicUrl" -> publicUrl = readString(parser);
+                    case "publicHost" -> publicHost = readString(parser);
+                    case "publicPort" -> publicPort = readInteger(parser);
+                    case "tunnelId" -> tunnelId = readUuid(parser);
+                    case "subdomain" -> subdomain = readString(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return new ExposeResponse(source, publicUrl, publicHost, publicPort, tunnelId, subdomain);
+    }
+
+    /**
+     * Encodes a request to exchange an API token for a JWT.
+     */
+    public static String write(final TokenExchangeRequest request) throws IOException {
+        return JsonStreams.writeString(generator -> {
+            generator.writeStartObject();
+            writeField(generator, "apiToken", request.getApiToken());
+            writeField(generator, "cliClientVersion", request.getCliClientVersion());
+            generator.writeEndObject();
+        });
+    }
+
+    /**
+     * Decodes the JWT issued for an API token.
+     */
+    public static TokenExchangeResponse readTokenExchangeResponse(final String json) throws IOException {
+        final var response = new TokenExchangeResponse();
+        try (final var parser = JsonStreams.openObject(json)) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final var name = parser.currentName();
+                parser.nextToken();
+                switch (name) {
+                    case "accessToken" -> response.setAccessToken(readString(parser));
+                    case "tokenType" -> response.setTokenType(readString(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Reads a client configuration. The parser may be of any format with a streaming parser, e.g. YAML; an
+     * empty document yields the defaults.
+     */
+    public static ClientConfig readClientConfig(final JsonParser parser) throws IOException {
+        final var config = new ClientConfig();
+        final var first = parser.nextToken();
+        if (first == null) {
+            return config;
+        }
+        JsonStreams.expectObject(parser, first);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final var name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "apiToken" -> config.setApiToken(readString(parser));
+                case "serverUrl" -> config.setServerUrl(readString(parser));
+                case "logLinesCount" -> config.setLogLinesCount(readInt(parser, config.getLogLinesCount()));
+                case "logEnabled" -> config.setLogEnabled(readBoolean(parser));
+                case "consoleFrameDelay" ->
+                    config.setConsoleFrameDelayMs(readInt(parser, config.getConsoleFrameDelayMs()));
+                case "healthcheckIntervalSec" ->
+                    config.setHealthcheckIntervalSec(readInt(parser, config.getHealthcheckIntervalSec()));
+                case "maxInFlightRequests" ->
+                    config.setMaxInFlightRequests(readInt(parser, config.getMaxInFlightRequests()));
+                case "directTransportPort" ->
+                    config.setDirectTransportPort(readInt(parser, config.getDirectTransportPort()));
+                case "directTransportTls" -> config.setDirectTransportTls(readBoolean(parser));
+                default -> parser.skipChildren();
+            }
+        }
+        return config;
+    }
+
+    private static int readInt(final JsonParser parser, final int defaultValue) throws IOException {
+        final var value = readInteger(parser);
+        return value != null ? value : defaultValue;
+    }
+
+    private static UUID readUuid(final JsonParser parser) throws IOException {
+        final var value = readString(parser);
+        try {
+            return value != null ? UUID.fromString(value) : null;
+        } catch (final IllegalArgumentException e) {
+            throw new JsonParseException(parser, "Invalid UUID '" + value + "'");
+        }
+    }
+}
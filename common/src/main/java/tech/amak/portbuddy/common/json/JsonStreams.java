@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.common.json;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Helpers for the hand-written codecs, which read and write DTOs with the Jackson streaming API instead of
+ * data binding. Streaming needs no reflection, so the codecs cost nothing to set up and need no metadata in
+ * a native image. Like the data-binding defaults, readers skip unknown fields and writers leave out
+ * {@code null} values.
+ */
+public final class JsonStreams {
+
+    /**
+     * Shared factory; it is thread-safe once configured.
+     */
+    public static final JsonFactory FACTORY = new JsonFactory();
+
+    private JsonStreams() {
+    }
+
+    /**
+     * Writer of a single JSON value.
+     */
+    @FunctionalInterface
+    public interface Writer {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    /**
+     * Writes a JSON value into a string.
+     */
+    public static String writeString(final Writer writer) throws IOException {
+        final var out = new StringWriter(256);
+        try (final var generator = FACTORY.createGenerator(out)) {
+            writer.write(generator);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Creates a parser positioned on the start of the top-level object of a JSON document.
+     *
+     * @throws JsonParseException if the document is not an object
+     */
+    public static JsonParser openObject(final String json) throws IOException {
+        final var parser = FACTORY.createParser(json);
+        try {
+            expectObject(parser, parser.nextToken());
+            return parser;
+        } catch (final IOException e) {
+            parser.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Fails unless the token starts an object.
+     */
+    public static void expectObject(final JsonParser parser, final JsonToken token) throws IOException {
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected an object but found " + token);
+        }
+    }
+
+    /**
+     * Writes a string field unless the value is {@code null}.
+     */
+    public static void writeField(final JsonGenerator generator, final String name, final String value)
+        throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, value);
+        }
+    }
+
+    /**
+     * Writes a number field unless the value is {@code null}.
+     */
+    public static void writeField(final JsonGenerator generator, final String name, final Number value)
+        throws IOException {
+        if (value instanceof Long longValue) {
+            generator.writeNumberField(name, longValue);
+        } else if (value != null) {
+            generator.writeNumberField(name, value.intValue());
+        }
+    }
+
+    /**
+     * Writes an enum field by its name unless the value is {@code null}.
+     */
+    public static void writeField(final JsonGenerator generator, final String name, final Enum<?> value)
+        throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, value.name());
+        }
+    }
+
+    /**
+     * Writes a map of strings unless it is {@code null}. Entries with a {@code null} name are left out.
+     */
+    public static void writeStringMap(final JsonGenerator generator,
+                                      final String name,
+                                      final Map<String, String> map) throws IOException {
+        if (map == null) {
+            return;
+        }
+        generator.writeObjectFieldStart(name);
+        for (final var entry : map.entrySet()) {
+            if (entry.getKey() != null) {
+                generator.writeFieldName(entry.getKey());
+                generator.writeString(entry.getValue());
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes a map of string lists, such as HTTP headers, unless it is {@code null}. Entries with a
+     * {@code null} name are left out.
+     */
+    public static void writeMultiMap(final JsonGenerator generator,
+                                     final String name,
+                                     final Map<String, List<String>> map) throws IOException {
+        if (map == null) {
+            return;
+        }
+        generator.writeObjectFieldStart(name);
+        for (final var entry : map.entrySet()) {
+            if (entry.getKey() == null) {
+                continue;
+            }
+            generator.writeArrayFieldStart(entry.getKey());
+            if (entry.getValue() != null) {
+                for (final var value : entry.getValue()) {
+                    generator.writeString(value);
+                }
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Reads the current value as a string; {@code null} for a JSON {@code null}.
+     */
+    public static String readString(final JsonParser parser) throws IOException {
+        final var token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!token.isScalarValue()) {
+            throw new JsonParseException(parser, "Expected a string but found " + token);
+        }
+        return parser.getText();
+    }
+
+    /**
+     * Reads the current value as an integer; {@code null} for a JSON {@code null}.
+     */
+    public static Integer readInteger(final JsonParser parser) throws IOException {
+        final var token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getIntValue();
+        }
+        return (int) parseNumber(parser);
+    }
+
+    /**
+     * Reads the current value as a long; {@code null} for a JSON {@code null}.
+     */
+    public static Long readLong(final JsonParser parser) throws IOException {
+        final var token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        return parseNumber(parser);
+    }
+
+    /**
+     * Reads the current value as a boolean, accepting {@code "true"} and {@code "false"} strings.
+     */
+    public static boolean readBoolean(final JsonParser parser) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_TRUE -> true;
+            case VALUE_FALSE, VALUE_NULL -> false;
+            case VALUE_STRING -> Boolean.parseBoolean(parser.getText().trim());
+            default -> throw new JsonParseException(parser, "Expected a boolean but found " + parser.currentToken());
+        };
+    }
+
+    /**
+     * Reads the current value as one of the given enum constants, matched by name; {@code null} for a JSON
+     * {@code null}. Taking the constants keeps the lookup free of reflection.
+     *
+     * @throws JsonParseException if no constant has that name
+     */
+    public static <E extends Enum<E>> E readEnum(final JsonParser parser, final E[] values) throws IOException {
+        final var name = readString(parser);
+        if (name == null) {
+            return null;
+        }
+        for (final var value : values) {
+            if (value.name().equals(name)) {
+                return value;
+            }
+        }
+        throw new JsonParseException(parser, "Unknown value '" + name + "'");
+    }
+
+    /**
+     * Reads the current object as a map of strings.
+     */
+    public static Map<String, String> readStringMap(final JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expectObject(parser, parser.currentToken());
+        final var map = new LinkedHashMap<String, String>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final var name = parser.currentName();
+            parser.nextToken();
+            map.put(name, readString(parser));
+        }
+        return map;
+    }
+
+    /**
+     * Reads the current object as a map of string lists. A single string is taken as a list of one.
+     */
+    public static Map<String, List<String>> readMultiMap(final JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expectObject(parser, parser.currentToken());
+        final var map = new LinkedHashMap<String, List<String>>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final var name = parser.currentName();
+            final var token = parser.nextToken();
+            if (token == JsonToken.VALUE_NULL) {
+                map.put(name, null);
+                continue;
+            }
+            final var values = new ArrayList<String>(1);
+            if (token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    values.add(readString(parser));
+                }
+            } else {
+                values.add(readString(parser));
+            }
+            map.put(name, values);
+        }
+        return map;
+    }
+
+    private static long parseNumber(final JsonParser parser) throws IOException {
+        // Quoted numbers, as YAML and some clients produce them
+        try {
+            return Long.parseLong(readString(parser).trim());
+        } catch (final NumberFormatException e) {
+            throw new JsonParseException(parser, "Expected a number but found '" + parser.getText() + "'");
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.common.json;
+
+import static tech.amak.portbuddy.common.json.JsonStreams.readEnum;
+import static tech.amak.portbuddy.common.json.JsonStreams.readInteger;
+import static tech.amak.portbuddy.common.json.JsonStreams.readLong;
+import static tech.amak.portbuddy.common.json.JsonStreams.readMultiMap;
+import static tech.amak.portbuddy.common.json.JsonStreams.readString;
+import static tech.amak.portbuddy.common.json.JsonStreams.readStringMap;
+import static tech.amak.portbuddy.common.json.JsonStreams.writeField;
+import static tech.amak.portbuddy.common.json.JsonStreams.writeMultiMap;
+import static tech.amak.portbuddy.common.json.JsonStreams.writeStringMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonToken;
+
+import tech.amak.portbuddy.common.tunnel.ControlMessage;
+import tech.amak.portbuddy.common.tunnel.DirectHello;
+import tech.amak.portbuddy.common.tunnel.HttpTunnelMessage;
+import tech.amak.portbuddy.common.tunnel.WsTunnelMessage;
+
+/**
+ * Reflection-free JSON codec for the messages exchanged over a tunnel WebSocket. The output is what data
+ * binding produces for the same objects, so either side may use either.
+ */
+public final class TunnelCodec {
+
+    /**
+     * {@code kind} of {@link ControlMessage}s.
+     */
+    public static final String KIND_CONTROL = "CTRL";
+
+    /**
+     * {@code kind} of {@link WsTunnelMessage}s.
+     */
+    public static final String KIND_WS = "WS";
+
+    private TunnelCodec() {
+    }
+
+    /**
+     * Returns the {@code kind} of a message without reading the rest of it: {@link #KIND_CONTROL},
+     * {@link #KIND_WS} or {@code null} for an {@link HttpTunnelMessage}.
+     */
+    public static String readKind(final String json) throws IOException {
+        try (final var parser = JsonStreams.openObject(json)) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final var name = parser.currentName();
+                parser.nextToken();
+                if ("kind".equals(name)) {
+                    return readString(parser);
+                }
+                parser.skipChildren();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Encodes an HTTP tunnel message.
+     */
+    public static String write(final HttpTunnelMessage message) throws IOException {
+        return JsonStreams.writeString(generator -> {
+            generator.writeStartObject();
+            writeField(generator, "id", message.getId());
+            writeField(generator, "tunnelId", message.getTunnelId());
+            writeField(generator, "type", message.getType());
+            writeField(generator, "method", message.getMethod());
+            writeField(generator, "path", message.getPath());
+            writeField(generator, "query", message.getQuery());
+            writeMultiMap(generator, "headers", message.getHeaders());
+            writeField(generator, "bodyB64", message.getBodyB64());
+            writeField(generator, "bodyContentType", message.getBodyContentType());
+            writeField(generator, "status", message.getStatus());
+            writeMultiMap(generator, "respHeaders", message.getRespHeaders());
+            writeField(generator, "respBodyB64", message.getRespBodyB64());
+            generator.writeEndObject();
+        });
+    }
+
+    /**
+     * Decodes an HTTP tunnel message.
+     */
+    public static HttpTunnelMessage readHttp(final String json) throws IOException {
+        final var message = new HttpTunnelMessage();
+        try (final var parser = JsonStreams.openObject(json)) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final var name = parser.currentName();
+                parser.nextToken();
+                switch (name) {
+                    case "id" -> message.setId(readString(parser));
+                    case "tunnelId" -> message.setTunnelId(readString(parser));
+                    case "type" -> message.setType(readEnum(parser, HttpTunnelMessage.Type.values()));
+                    case "method" -> message.setMethod(readString(parser));
+                    case "path" -> message.setPath(readString(parser));
+                    case "query" -> message.setQuery(readString(parser));
+                    case "headers" -> message.setHeaders(readMultiMap(parser));
+                    case "bodyB64" -> message.setBodyB64(readString(parser));
+                    case "bodyContentType" -> message.setBodyContentType(readString(parser));
+                    case "status" -> message.setStatus(readInteger(parser));
+                    case "respHeaders" -> message.setRespHeaders(readMultiMap(parser));
+                    case "respBodyB64" -> message.setRespBodyB64(readString(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return message;
+    }
+
+    /**
+     * Encodes a WebSocket tunnel message.
+     */
+    public static String write(final WsTunnelMessage message) throws IOException {
+        return JsonStreams.writeString(generator -> {
+            generator.writeStartObject();
+            writeField(generator, "kind", message.getKind());
+            writeField(generator, "connectionId", message.getConnectionId());
+            writeField(generator, "tunnelId", message.getTunnelId());
+            writeField(generator, "id", message.getId());
+            writeField(generator, "wsType", message.getWsType());
+            writeField(generator, "path", message.getPath());
+            writeField(generator, "query", message.getQuery());
+            writeStringMap(generator, "headers", message.getHeaders());
+            writeField(generator, "text", message.getText());
+            writeField(generator, "dataB64", message.getDataB64());
+            writeField(generator, "closeCode", message.getCloseCode());
+            writeField(generator, "closeReason", message.getCloseReason());
+            writeField(generator, "publicHost", message.getPublicHost());
+            writeField(generator, "publicPort", message.getPublicPort());
+            writeField(generator, "bandwidthLimit", message.getBandwidthLimit());
+            writeField(generator, "accountBandwidthLimit", message.getAccountBandwidthLimit());
+            writeField(generator, "datagramPort", message.getDatagramPort());
+            writeField(generator, "datagramChannelId", message.getDatagramChannelId());
+            writeField(generator, "datagramKey", message.getDatagramKey());
+            generator.writeEndObject();
+        });
+    }
+
+    /**
+     * Decodes a WebSocket tunnel message.
+     */
+    public static WsTunnelMessage readWs(final String json) throws IOException {
+        final var message = new WsTunnelMessage();
+        try (final var parser = JsonStreams.openObject(json)) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final var name = parser.currentName();
+                parser.nextToken();
+                switch (name) {
+                    case "connectionId" -> message.setConnectionId(readString(parser));
+                    case "tunnelId" -> message.setTunnelId(readString(parser));
+                    case "id" -> message.setId(readString(parser));
+                    case "wsType" -> message.setWsType(readEnum(parser, WsTunnelMessage.Type.values()));
+                    case "path" -> message.setPath(readString(parser));
+                    case "query" -> message.setQuery(readString(parser));
+                    case "headers" -> message.setHeaders(readStringMap(parser));
+                    case "text" -> message.setText(readString(parser));
+                    case "dataB64" -> message.setDataB64(readString(parser));
+                    case "closeCode" -> message.setCloseCode(readInteger(parser));
+                    case "closeReason" -> message.setCloseReason(readString(parser));
+                    case "publicHost" -> message.setPublicHost(readString(parser));
+                    case "publicPort" -> message.setPublicPort(readInteger(parser));
+                    case "bandwidthLimit" -> message.setBandwidthLimit(readLong(parser));
+                    case "accountBandwidthLimit" -> message.setAccountBandwidthLimit(readLong(parser));
+                    case "datagramPort" -> message.setDatagramPort(readInteger(parser));
+                    case "datagramChannelId" -> message.setDatagramChannelId(readLong(parser));
+                    case "datagramKey" -> message.setDatagramKey(readString(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return message;
+    }
+
+    /**
+     * Encodes a control message.
+     */
+    public static String write(final ControlMessage message) throws IOException {
+        return JsonStreams.writeString(generator -> {
+            generator.writeStartObject();
+            writeField(generator, "kind", message.getKind());
+            writeField(generator, "type", message.getType());
+            writeField(generator, "ts", message.getTs());
+            writeField(generator, "tunnelId", message.getTunnelId());
+            generator.writeEndObject();
+        });
+    }
+
+    /**
+     * Decodes a control message.
+     */
+    public static ControlMessage readControl(final String json) throws IOException {
+        final var message = new ControlMessage();
+        try (final var parser = JsonStreams.openObject(json)) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final var name = parser.currentName();
+                parser.nextToken();
+                switch (name) {
+                    case "type" -> message.setType(readEnum(parser, ControlMessage.Type.values()));
+                    case "ts" -> message.setTs(readLong(parser));
+                    case "tunnelId" -> message.setTunnelId(readString(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return message;
+    }
+
+    /**
+     * Encodes the payload of a direct transport HELLO frame.
+     */
+    public static byte[] write(final DirectHello hello) throws IOException {
+        final var out = new ByteArrayOutputStream(256);
+        try (final var generator = JsonStreams.FACTORY.createGenerator(out)) {
+            generator.writeStartObject();
+            writeField(generator, "path", hello.path());
+            writeField(generator, "token", hello.token());
+            generator.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+}
@@ -28,8 +28,22 @@ public class ControlMessage {
     @JsonProperty("ts")
     private Long ts;
 
+    /**
+     * Tunnel an upstream report is about, on a connection serving several; {@code null} for its first one.
+     */
+    @JsonProperty("tunnelId")
+    private String tunnelId;
+
     public enum Type {
         PING,
-        PONG
+        PONG,
+        /**
+         * Sent by the client when none of the local services of a tunnel accepts connections.
+         */
+        UPSTREAM_DOWN,
+        /**
+         * Sent by the client when a local service of a tunnel accepts connections again.
+         */
+        UPSTREAM_UP
     }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.common.tunnel;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Packet of the datagram transport that carries UDP tunnel traffic between the CLI and net-proxy outside the
+ * tunnel WebSocket, keeping datagram boundaries and loss semantics. Packets are authenticated with a key the
+ * client receives over the WebSocket. Packet format (big-endian):
+ * - 1 byte: packet type
+ * - 8 bytes: datagram channel id of the tunnel
+ * - N bytes: body; the client timestamp in milliseconds for HELLO and HELLO_OK, a {@link BinaryWsFrame}
+ *   for DATA
+ * - 16 bytes: HMAC-SHA256 of the preceding bytes, truncated
+ */
+public final class DatagramFrame {
+
+    /**
+     * Sent by the client to register its address; repeated to keep NAT bindings open.
+     */
+    public static final byte HELLO = 1;
+    public static final byte HELLO_OK = 2;
+    public static final byte DATA = 3;
+
+    public static final int HEADER_LENGTH = 9;
+    public static final int MAC_LENGTH = 16;
+    /**
+     * Largest UDP payload over IPv4; bigger packets are sent over the WebSocket instead.
+     */
+    public static final int MAX_PACKET_LENGTH = 65_507;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final ThreadLocal<Mac> MACS = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(MAC_ALGORITHM);
+        } catch (final GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private DatagramFrame() {
+    }
+
+    /**
+     * Encodes an authenticated packet.
+     *
+     * @param type      packet type
+     * @param channelId datagram channel id of the tunnel
+     * @param key       key of the tunnel
+     * @param body      bytes holding the body
+     * @param offset    offset of the body
+     * @param length    length of the body
+     * @return the packet
+     */
+    public static byte[] encode(final byte type,
+                                final long channelId,
+                                final byte[] key,
+                                final byte[] body,
+                                final int offset,
+                                final int length) {
+        final var packet = new byte[HEADER_LENGTH + length + MAC_LENGTH];
+        final var buffer = ByteBuffer.wrap(packet);
+        buffer.put(type);
+        buffer.putLong(channelId);
+        buffer.put(body, offset, length);
+        buffer.put(mac(key, packet, HEADER_LENGTH + length), 0, MAC_LENGTH);
+        return packet;
+    }
+
+    /**
+     * Encodes a DATA packet carrying a datagram of a UDP flow.
+     */
+    public static byte[] encodeData(final long channelId,
+                                    final byte[] key,
+                                    final String connectionId,
+                                    final byte[] data,
+                                    final int offset,
+                                    final int length) {
+        final var body = BinaryWsFrame.encodeToArray(connectionId, data, offset, length);
+        return encode(DATA, channelId, key, body, 0, body.length);
+    }
+
+    /**
+     * Encodes a HELLO or HELLO_OK packet.
+     */
+    public static byte[] encodeHello(final byte type, final long channelId, final byte[] key, final long timestamp) {
+        final var body = ByteBuffer.allocate(Long.BYTES).putLong(timestamp).array();
+        return encode(type, channelId, key, body, 0, body.length);
+    }
+
+    /**
+     * Returns the datagram channel id of a packet, used to look up its key before verifying it.
+     *
+     * @return the channel id, or {@code null} if the packet is too short
+     */
+    public static Long channelId(final byte[] packet, final int length) {
+        if (length < HEADER_LENGTH + MAC_LENGTH) {
+            return null;
+        }
+        return ByteBuffer.wrap(packet, 1, Long.BYTES).getLong();
+    }
+
+    /**
+     * Verifies and decodes a packet.
+     *
+     * @param packet bytes holding the packet from offset 0
+     * @param length length of the packet
+     * @param key    key of the tunnel the packet claims to belong to
+     * @return the decoded packet, or {@code null} if it is malformed or not authentic
+     */
+    public static Decoded decode(final byte[] packet, final int length, final byte[] key) {
+        if (length < HEADER_LENGTH + MAC_LENGTH) {
+            return null;
+        }
+        final var signedLength = length - MAC_LENGTH;
+        final var expected = Arrays.copyOf(mac(key, packet, signedLength), MAC_LENGTH);
+        final var actual = Arrays.copyOfRange(packet, signedLength, length);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return null;
+        }
+        final var buffer = ByteBuffer.wrap(packet, 0, signedLength);
+        final var type = buffer.get();
+        final var channelId = buffer.getLong();
+        final var body = new byte[buffer.remaining()];
+        buffer.get(body);
+        return new Decoded(type, channelId, body);
+    }
+
+    private static byte[] mac(final byte[] key, final byte[] data, final int length) {
+        final var mac = MACS.get();
+        try {
+            mac.init(new SecretKeySpec(key, MAC_ALGORITHM));
+        } catch (final GeneralSecurityException e) {
+            throw new IllegalArgumentException("Invalid datagram key", e);
+        }
+        mac.update(data, 0, length);
+        return mac.doFinal();
+    }
+
+    /**
+     * An authentic packet.
+     *
+     * @param type      packet type
+     * @param channelId datagram channel id of the tunnel
+     * @param body      packet body
+     */
+    public record Decoded(byte type, long channelId, byte[] body) {
+
+        /**
+         * Returns the client timestamp of a HELLO or HELLO_OK packet, or {@code -1} if the body is malformed.
+         */
+        public long timestamp() {
+            return body.length == Long.BYTES ? ByteBuffer.wrap(body).getLong() : -1;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.common.tunnel;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Frame of the direct transport between the CLI and net-proxy, which carries the messages of the net tunnel
+ * WebSocket over a plain or TLS TCP connection without WebSocket framing or the gateway in between.
+ * Frame format (big-endian):
+ * - 1 byte: frame type
+ * - 4 bytes: payload length (L)
+ * - L bytes: payload; a {@link DirectHello} for HELLO, a JSON message for TEXT, a {@link BinaryWsFrame}
+ *   for BINARY and an optional UTF-8 reason for CLOSE
+ *
+ * @param type    frame type
+ * @param payload frame payload
+ */
+public record DirectFrame(byte type, byte[] payload) {
+
+    /**
+     * First frame sent by the client, authenticating and describing the tunnel.
+     */
+    public static final byte HELLO = 1;
+    public static final byte TEXT = 2;
+    public static final byte BINARY = 3;
+    /**
+     * Sent before closing the connection on purpose; a connection closed without it is considered dropped.
+     */
+    public static final byte CLOSE = 4;
+
+    public static final int MAX_PAYLOAD_LENGTH = 16 * 1024 * 1024;
+
+    /**
+     * Writes a frame without flushing the stream.
+     *
+     * @param out     stream to write to
+     * @param type    frame type
+     * @param payload bytes holding the payload
+     * @param offset  offset of the payload
+     * @param length  length of the payload
+     * @throws IOException on IO errors
+     */
+    public static void write(final DataOutputStream out,
+                             final byte type,
+                             final byte[] payload,
+                             final int offset,
+                             final int length) throws IOException {
+        out.writeByte(type);
+        out.writeInt(length);
+        out.write(payload, offset, length);
+    }
+
+    /**
+     * Reads the next frame.
+     *
+     * @param in stream to read from
+     * @return the frame, or {@code null} if the stream ended between frames
+     * @throws IOException on IO errors, a truncated frame or an oversized payload
+     */
+    public static DirectFrame read(final DataInputStream in) throws IOException {
+        final var type = in.read();
+        if (type < 0) {
+            return null;
+        }
+        final var length = in.readInt();
+        if (length < 0 || length > MAX_PAYLOAD_LENGTH) {
+            throw new IOException("Invalid direct frame length: " + length);
+        }
+        final var payload = new byte[length];
+        try {
+            in.readFully(payload);
+        } catch (final EOFException e) {
+            throw new IOException("Truncated direct frame", e);
+        }
+        return new DirectFrame((byte) type, payload);
+    }
+}
@@ -0,0 +1,18 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.common.tunnel;
+
+/**
+ * Payload of the HELLO frame opening a direct transport connection.
+ *
+ * @param path  path and query the net tunnel WebSocket would be opened with,
+ *              e.g. {@code /api/net-tunnel/<tunnelId>?type=tcp&port=5432}
+ * @param token bearer token authenticating the client
+ */
+public record DirectHello(
+    String path,
+    String token
+) {
+}
@@ -26,6 +26,13 @@ public class HttpTunnelMessage {
     @JsonProperty("id")
     private String id;
 
+    /**
+     * Tunnel the message belongs to, set by the server; a client serving several tunnels over one
+     * connection routes requests by it and echoes it in responses. Absent from older servers.
+     */
+    @JsonProperty("tunnelId")
+    private String tunnelId;
+
     /**
      * Message type.
      */
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.common.tunnel;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Socket tuning of a TCP tunnel, applied the same way to public connections on net-proxy and local
+ * connections on the CLI.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum SocketProfile {
+
+    /**
+     * Latency first, e.g. for SSH or databases: Nagle's algorithm is off so small writes leave at once, and
+     * socket buffers and read sizes stay at their defaults. Keepalive detects peers gone while a session idles.
+     */
+    INTERACTIVE(true, true, 0, 0),
+    /**
+     * Throughput first, e.g. for backups or file transfers: writes are coalesced, and large socket buffers
+     * and reads keep a long fat pipe full with fewer, bigger frames. Keepalive detects peers gone while a
+     * transfer waits on the other side.
+     */
+    BULK(false, true, 4 * 1024 * 1024, 128 * 1024);
+
+    private final boolean tcpNoDelay;
+    /**
+     * Whether the operating system probes idle connections, so a vanished peer does not hold the tunnel's
+     * connection open forever.
+     */
+    private final boolean keepAlive;
+    /**
+     * Send and receive buffer size of the socket; {@code 0} keeps the operating system default.
+     */
+    private final int socketBufferSize;
+    /**
+     * Maximum bytes read from the socket at once and forwarded as one frame; {@code 0} keeps the default of
+     * the side reading.
+     */
+    private final int readBufferSize;
+
+    /**
+     * Returns the largest read size of all profiles.
+     */
+    public static int maxReadBufferSize() {
+        var max = 0;
+        for (final var profile : values()) {
+            max = Math.max(max, profile.readBufferSize);
+        }
+        return max;
+    }
+
+    /**
+     * Converts a profile name to its profile.
+     *
+     * @param profile the profile name, case-insensitive; {@code null} selects {@link #INTERACTIVE}
+     * @return the profile
+     * @throws IllegalArgumentException if the name does not match any profile
+     */
+    public static SocketProfile from(final String profile) {
+        if (profile == null) {
+            return INTERACTIVE;
+        }
+        return switch (profile.toLowerCase()) {
+            case "interactive" -> INTERACTIVE;
+            case "bulk" -> BULK;
+            default -> throw new IllegalArgumentException("Unknown socket profile: " + profile);
+        };
+    }
+}
@@ -30,6 +30,12 @@ public class WsTunnelMessage {
     @JsonProperty("connectionId")
     private String connectionId;
 
+    /**
+     * Tunnel the connection belongs to; see {@link HttpTunnelMessage#getTunnelId()}.
+     */
+    @JsonProperty("tunnelId")
+    private String tunnelId;
+
     /**
      * Optional request/response id alignment if needed.
      */
@@ -83,4 +89,21 @@ public class WsTunnelMessage {
 
     @JsonProperty("publicPort")
     private Integer publicPort;
+
+    // Bandwidth limits in bytes per second and direction for EXPOSED message
+    @JsonProperty("bandwidthLimit")
+    private Long bandwidthLimit;
+
+    @JsonProperty("accountBandwidthLimit")
+    private Long accountBandwidthLimit;
+
+    // Datagram transport offered for UDP tunnels in EXPOSED message; see DatagramFrame
+    @JsonProperty("datagramPort")
+    private Integer datagramPort;
+
+    @JsonProperty("datagramChannelId")
+    private Long datagramChannelId;
+
+    @JsonProperty("datagramKey")
+    private String datagramKey;
 }
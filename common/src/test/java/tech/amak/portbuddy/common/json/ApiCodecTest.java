@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.common.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import tech.amak.portbuddy.common.ClientConfig;
+import tech.amak.portbuddy.common.TunnelType;
+import tech.amak.portbuddy.common.dto.ExposeRequest;
+import tech.amak.portbuddy.common.dto.ExposeResponse;
+import tech.amak.portbuddy.common.dto.auth.TokenExchangeRequest;
+import tech.amak.portbuddy.common.dto.auth.TokenExchangeResponse;
+
+class ApiCodecTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void shouldEncodeExposeRequestLikeDataBinding() throws Exception {
+        // Given
+        final var request = new ExposeRequest(TunnelType.TCP, null, "localhost", 5432, null, "tcp.example.com:40001",
+            null);
+
+        // When
+        final var json = ApiCodec.write(request);
+
+        // Then
+        assertEquals(request, mapper.readValue(json, ExposeRequest.class));
+        assertEquals(mapper.readValue(mapper.writeValueAsString(request), ExposeRequest.class),
+            mapper.readValue(json, ExposeRequest.class));
+        assertFalse(json.contains("null"));
+        assertFalse(json.contains("scheme"));
+    }
+
+    @Test
+    void shouldRoundTripExposeResponseLikeDataBinding() throws Exception {
+        // Given
+        final var response = new ExposeResponse("http://localhost:3000", "https://abc.example.com", "abc.example.com",
+            443, UUID.randomUUID(), "abc");
+        final var json = mapper.writeValueAsString(response);
+
+        // When
+        final var read = ApiCodec.readExposeResponse(json);
+
+        // Then
+        assertEquals(response, read);
+    }
+
+    @Test
+    void shouldReadExposeResponseWithQuotedNumbersAndNulls() throws Exception {
+        // Given
+        final var json = "{\"publicHost\":\"tcp.example.com\",\"publicPort\":\"40001\",\"publicUrl\":null,"
+            + "\"tunnelId\":null,\"extra\":[1,2]}";
+
+        // When
+        final var read = ApiCodec.readExposeResponse(json);
+
+        // Then
+        assertEquals(mapper.readValue(json.replace(",\"extra\":[1,2]", ""), ExposeResponse.class), read);
+        assertEquals(40_001, read.publicPort());
+        assertNull(read.publicUrl());
+        assertNull(read.tunnelId());
+    }
+
+    @Test
+    void shouldRejectInvalidTunnelId() {
+        // Given
+        final var json = "{\"tunnelId\":\"not-a-uuid\"}";
+
+        // When / Then
+        assertThrows(JsonParseException.class, () -> ApiCodec.readExposeResponse(json));
+    }
+
+    @Test
+    void shouldEncodeTokenExchangeRequestLikeDataBinding() throws Exception {
+        // Given
+        final var request = new TokenExchangeRequest("api-token", null);
+
+        // When
+        final var json = ApiCodec.write(request);
+
+        // Then
+        assertEquals("{\"apiToken\":\"api-token\"}", json);
+        assertEquals(mapper.writeValueAsString(request), json);
+    }
+
+    @Test
+    void shouldReadTokenExchangeResponseLikeDataBinding() throws Exception {
+        // Given
+        final var response = new TokenExchangeResponse("jwt", "Bearer");
+        final var json = mapper.writeValueAsString(response);
+
+        // When
+        final var read = ApiCodec.readTokenExchangeResponse(json);
+
+        // Then
+        assertEquals(response, read);
+    }
+
+    @Test
+    void shouldReadClientConfigLikeDataBinding() throws Exception {
+        // Given
+        final var json = "{\"apiToken\":\"token\",\"logLinesCount\":\"30\",\"logEnabled\":true,"
+            + "\"consoleFrameDelay\":100,\"maxInFlightRequests\":\"8\",\"directTransportTls\":false,"
+            + "\"unknown\":{\"nested\":true}}";
+
+        // When
+        final var config = readClientConfig(json);
+
+        // Then
+        final var expected = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .readValue(json, ClientConfig.class);
+        assertEquals(expected, config);
+        assertEquals(30, config.getLogLinesCount());
+        assertEquals(8, config.getMaxInFlightRequests());
+        assertTrue(config.isLogEnabled());
+    }
+
+    @Test
+    void shouldKeepClientConfigDefaults() throws Exception {
+        // Given
+        final var json = "{\"serverUrl\":\"https://example.com\",\"logLinesCount\":null}";
+
+        // When
+        final var config = readClientConfig(json);
+
+        // Then
+        assertEquals("https://example.com", config.getServerUrl());
+        assertEquals(new ClientConfig().getLogLinesCount(), config.getLogLinesCount());
+        assertEquals(new ClientConfig().getDirectTransportPort(), config.getDirectTransportPort());
+        assertEquals(new ClientConfig(), readClientConfig(""));
+    }
+
+    @Test
+    void shouldRejectClientConfigThatIsNotAnObject() {
+        // When / Then
+        assertThrows(JsonParseException.class, () -> readClientConfig("[1]"));
+    }
+
+    private static ClientConfig readClientConfig(final String json) throws Exception {
+        try (var parser = new JsonFactory().createParser(json)) {
+            return ApiCodec.readClientConfig(parser);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.common.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import tech.amak.portbuddy.common.tunnel.ControlMessage;
+import tech.amak.portbuddy.common.tunnel.DirectHello;
+import tech.amak.portbuddy.common.tunnel.HttpTunnelMessage;
+import tech.amak.portbuddy.common.tunnel.WsTunnelMessage;
+
+class TunnelCodecTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void shouldRoundTripHttpMessageLikeDataBinding() throws Exception {
+        // Given
+        final var message = new HttpTunnelMessage();
+        message.setId("req-1");
+        message.setTunnelId("tunnel-1");
+        message.setType(HttpTunnelMessage.Type.RESPONSE);
+        message.setStatus(201);
+        message.setRespHeaders(headers());
+        message.setRespBodyB64("aGVsbG8=");
+
+        // When
+        final var json = TunnelCodec.write(message);
+
+        // Then
+        assertEquals(mapper.readTree(mapper.writeValueAsString(message)), mapper.readTree(json));
+        assertEquals(message, TunnelCodec.readHttp(json));
+        assertEquals(message, TunnelCodec.readHttp(mapper.writeValueAsString(message)));
+    }
+
+    @Test
+    void shouldRoundTripWsMessageLikeDataBinding() throws Exception {
+        // Given
+        final var message = new WsTunnelMessage();
+        message.setWsType(WsTunnelMessage.Type.EXPOSED);
+        message.setConnectionId("conn-1");
+        message.setHeaders(Map.of("Sec-WebSocket-Protocol", "chat"));
+        message.setPublicHost("tcp.example.com");
+        message.setPublicPort(40_001);
+        message.setBandwidthLimit(10L * 1024 * 1024 * 1024);
+        message.setDatagramChannelId(Long.MAX_VALUE);
+
+        // When
+        final var json = TunnelCodec.write(message);
+
+        // Then
+        assertEquals(mapper.readTree(mapper.writeValueAsString(message)), mapper.readTree(json));
+        assertEquals(message, TunnelCodec.readWs(json));
+        assertEquals(TunnelCodec.KIND_WS, TunnelCodec.readKind(json));
+    }
+
+    @Test
+    void shouldRoundTripControlMessageLikeDataBinding() throws Exception {
+        // Given
+        final var message = new ControlMessage();
+        message.setType(ControlMessage.Type.UPSTREAM_DOWN);
+        message.setTs(1_767_225_600_000L);
+        message.setTunnelId("tunnel-2");
+
+        // When
+        final var json = TunnelCodec.write(message);
+
+        // Then
+        assertEquals(mapper.readTree(mapper.writeValueAsString(message)), mapper.readTree(json));
+        assertEquals(message, TunnelCodec.readControl(json));
+        assertEquals(TunnelCodec.KIND_CONTROL, TunnelCodec.readKind(json));
+    }
+
+    @Test
+    void shouldLeaveOutNullFields() throws Exception {
+        // Given
+        final var message = new WsTunnelMessage();
+        message.setWsType(WsTunnelMessage.Type.CLOSE);
+
+        // When
+        final var json = TunnelCodec.write(message);
+
+        // Then
+        assertEquals("{\"kind\":\"WS\",\"wsType\":\"CLOSE\"}", json);
+        assertEquals(mapper.writeValueAsString(message), json);
+        assertNull(TunnelCodec.readKind(TunnelCodec.write(new HttpTunnelMessage())));
+    }
+
+    @Test
+    void shouldReadQuotedNumbersAndNulls() throws Exception {
+        // Given
+        final var json = "{\"kind\":\"WS\",\"wsType\":\"EXPOSED\",\"publicPort\":\"40001\","
+            + "\"bandwidthLimit\":\" 1048576 \",\"closeCode\":null,\"datagramKey\":null}";
+
+        // When
+        final var message = TunnelCodec.readWs(json);
+
+        // Then
+        assertEquals(40_001, message.getPublicPort());
+        assertEquals(1_048_576L, message.getBandwidthLimit());
+        assertNull(message.getCloseCode());
+        assertNull(message.getDatagramKey());
+        assertEquals(mapper.readValue(json, WsTunnelMessage.class), message);
+    }
+
+    @Test
+    void shouldRejectMalformedNumbers() {
+        // Given
+        final var json = "{\"kind\":\"WS\",\"publicPort\":\"port\"}";
+
+        // When / Then
+        assertThrows(JsonParseException.class, () -> TunnelCodec.readWs(json));
+    }
+
+    @Test
+    void shouldRejectUnknownEnumConstantsLikeDataBinding() {
+        // Given
+        final var json = "{\"kind\":\"CTRL\",\"type\":\"RESTART\"}";
+
+        // When / Then
+        assertThrows(JsonParseException.class, () -> TunnelCodec.readControl(json));
+        assertThrows(Exception.class, () -> mapper.readValue(json, ControlMessage.class));
+    }
+
+    @Test
+    void shouldSkipUnknownFields() throws Exception {
+        // Given
+        final var json = "{\"kind\":\"CTRL\",\"type\":\"PING\",\"extra\":{\"nested\":[1,{\"a\":2}]},\"ts\":5}";
+
+        // When
+        final var message = TunnelCodec.readControl(json);
+
+        // Then
+        assertEquals(ControlMessage.Type.PING, message.getType());
+        assertEquals(5L, message.getTs());
+    }
+
+    @Test
+    void shouldRoundTripNestedHeaderMaps() throws Exception {
+        // Given
+        final var message = new HttpTunnelMessage();
+        message.setType(HttpTunnelMessage.Type.REQUEST);
+        message.setMethod("GET");
+        final var headers = headers();
+        headers.put("X-Empty", List.of());
+        headers.put("X-Null", null);
+        message.setHeaders(headers);
+
+        // When
+        final var json = TunnelCodec.write(message);
+        final var read = TunnelCodec.readHttp(json);
+
+        // Then
+        assertEquals(mapper.readTree(mapper.writeValueAsString(message)).get("headers").get("Set-Cookie"),
+            mapper.readTree(json).get("headers").get("Set-Cookie"));
+        assertEquals(List.of("a=1", "b=2"), read.getHeaders().get("Set-Cookie"));
+        assertEquals(List.of(), read.getHeaders().get("X-Empty"));
+        assertEquals(List.of(), read.getHeaders().get("X-Null"));
+        assertEquals(List.of("Accept", "Set-Cookie", "X-Empty", "X-Null"),
+            List.copyOf(read.getHeaders().keySet()));
+    }
+
+    @Test
+    void shouldReadSingleHeaderValueAsList() throws Exception {
+        // Given
+        final var json = "{\"type\":\"REQUEST\",\"headers\":{\"Accept\":\"*/*\",\"Via\":null}}";
+
+        // When
+        final var message = TunnelCodec.readHttp(json);
+
+        // Then
+        assertEquals(List.of("*/*"), message.getHeaders().get("Accept"));
+        assertNull(message.getHeaders().get("Via"));
+        assertFalse(message.getHeaders().isEmpty());
+    }
+
+    @Test
+    void shouldEncodeDirectHelloLikeDataBinding() throws Exception {
+        // Given
+        final var hello = new DirectHello("/api/net-tunnel/abc?type=tcp&port=5432", "jwt");
+
+        // When
+        final var payload = TunnelCodec.write(hello);
+
+        // Then
+        assertEquals(hello, mapper.readValue(payload, DirectHello.class));
+        assertEquals(Arrays.toString(mapper.writeValueAsBytes(hello)), Arrays.toString(payload));
+    }
+
+    private static Map<String, List<String>> headers() {
+        final var headers = new LinkedHashMap<String, List<String>>();
+        headers.put("Accept", List.of("text/html"));
+        headers.put("Set-Cookie", List.of("a=1", "b=2"));
+        return headers;
+    }
+}
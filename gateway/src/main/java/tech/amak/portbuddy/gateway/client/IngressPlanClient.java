@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.gateway.client;
+
+import java.time.Duration;
+
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import tech.amak.portbuddy.common.Plan;
+import tech.amak.portbuddy.common.dto.IngressPlanResponse;
+
+@Service
+@Slf4j
+public class IngressPlanClient {
+
+    private final WebClient webClient;
+
+    /**
+     * Constructs an instance of IngressPlanClient with a load-balanced WebClient configured
+     * to interact with the port-buddy-server.
+     *
+     * @param loadBalancedWebClientBuilder the WebClient.Builder instance used to configure
+     *                                     the load-balanced WebClient
+     */
+    public IngressPlanClient(final WebClient.Builder loadBalancedWebClientBuilder) {
+        this.webClient = loadBalancedWebClientBuilder
+            .baseUrl("lb://port-buddy-server")
+            .build();
+    }
+
+    /**
+     * Resolves the plan of the account owning a subdomain or custom domain.
+     *
+     * @param target       subdomain or custom domain
+     * @param customDomain whether the target is a custom domain
+     * @return plan mono, empty if the domain is unknown or the server is unavailable
+     */
+    public Mono<Plan> getPlan(final String target, final boolean customDomain) {
+        final var path = customDomain ? "/ingress/plan-custom/{domain}" : "/ingress/plan/{subdomain}";
+        return webClient.get()
+            .uri(path, target)
+            .retrieve()
+            .bodyToMono(IngressPlanResponse.class)
+            .timeout(Duration.ofSeconds(2))
+            .mapNotNull(IngressPlanResponse::plan)
+            .onErrorResume(e -> {
+                log.debug("Failed to resolve plan for [{}]: {}", target, e.getMessage());
+                return Mono.empty();
+            });
+    }
+}
@@ -4,9 +4,14 @@
 
 package tech.amak.portbuddy.gateway.config;
 
+import java.time.Duration;
+import java.util.Map;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.core.io.Resource;
 
+import tech.amak.portbuddy.common.Plan;
+
 @ConfigurationProperties(prefix = "app")
 public record AppProperties(
     int httpPort,
@@ -14,12 +19,86 @@ public record AppProperties(
     String url,
     String serverErrorPage,
     Jwt jwt,
-    Ssl ssl
+    Ssl ssl,
+    RateLimit rateLimit
 ) {
 
     public record Ssl(
         boolean enabled,
-        Certificate fallback
+        Certificate fallback,
+        SessionResumption sessionResumption,
+        OcspStapling ocspStapling
+    ) {
+    }
+
+    /**
+     * TLS session resumption settings shared by all dynamically built server contexts.
+     *
+     * @param enabled          whether session cache and ticket key settings are applied
+     * @param ticketKeysFile   local source of session ticket keys, one base64 encoded 48-byte key per line;
+     *                         the first key encrypts new tickets, the rest are accepted for decryption only
+     * @param reloadInterval   how often the ticket keys source is re-read to pick up rotated keys
+     * @param sessionCacheSize maximum number of server-side cached sessions per context
+     * @param sessionTimeout   lifetime of cached sessions and issued tickets
+     */
+    public record SessionResumption(
+        boolean enabled,
+        Resource ticketKeysFile,
+        Duration reloadInterval,
+        long sessionCacheSize,
+        Duration sessionTimeout
+    ) {
+    }
+
+    /**
+     * OCSP stapling settings for certificates served by dynamically built server contexts.
+     *
+     * @param enabled         whether OCSP responses are fetched and stapled into handshakes
+     * @param checkInterval   how often cached responses are checked for refresh
+     * @param refreshBefore   how long before a response's next update it is refreshed in the background
+     * @param refreshInterval refresh period for responses that do not declare a next update
+     * @param fetchTimeout    timeout of a single request to the OCSP responder
+     */
+    public record OcspStapling(
+        boolean enabled,
+        Duration checkInterval,
+        Duration refreshBefore,
+        Duration refreshInterval,
+        Duration fetchTimeout
+    ) {
+    }
+
+    /**
+     * Edge rate limiting of ingress traffic, applied before requests are routed to the server tier.
+     *
+     * @param enabled      whether ingress requests are rate limited
+     * @param plans        per-tunnel limits by the plan of the account owning the tunnel
+     * @param defaultLimit per-tunnel limit used while the plan is being resolved or when it is unknown
+     * @param perClientIp  limit for a single client IP within one tunnel
+     * @param maxKeys      maximum number of tracked buckets of each kind; least recently used ones are evicted
+     * @param idleTimeout  buckets not used for this long are evicted
+     * @param planCacheTtl how long a resolved tunnel plan is cached
+     */
+    public record RateLimit(
+        boolean enabled,
+        Map<Plan, Limit> plans,
+        Limit defaultLimit,
+        Limit perClientIp,
+        long maxKeys,
+        Duration idleTimeout,
+        Duration planCacheTtl
+    ) {
+    }
+
+    /**
+     * Token bucket limit.
+     *
+     * @param requestsPerSecond sustained rate; zero or negative disables the limit
+     * @param burst             number of requests that may be served at once above the sustained rate
+     */
+    public record Limit(
+        long requestsPerSecond,
+        long burst
     ) {
     }
 
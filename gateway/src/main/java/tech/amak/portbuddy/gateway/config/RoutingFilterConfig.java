@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.gateway.config;
+
+import java.util.List;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import reactor.netty.http.client.HttpClient;
+import tech.amak.portbuddy.gateway.filter.H2cNettyRoutingFilter;
+
+/**
+ * Replaces the default Netty routing filter (disabled via
+ * {@code spring.cloud.gateway.server.webflux.global-filter.netty-routing.enabled=false})
+ * with {@link H2cNettyRoutingFilter}, which enables h2c upstream connections per route.
+ */
+@Configuration
+public class RoutingFilterConfig {
+
+    @Bean
+    public NettyRoutingFilter h2cNettyRoutingFilter(final HttpClient httpClient,
+                                                    final ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                                                    final HttpClientProperties properties) {
+        return new H2cNettyRoutingFilter(httpClient, headersFilters, properties);
+    }
+}
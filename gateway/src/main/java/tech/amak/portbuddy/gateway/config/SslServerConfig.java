@@ -15,7 +15,6 @@ import org.springframework.http.server.reactive.HttpHandler;
 import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
 
 import io.netty.handler.codec.http.HttpHeaderNames;
-import io.netty.handler.ssl.SniHandler;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
@@ -23,6 +22,7 @@ import lombok.extern.slf4j.Slf4j;
 import reactor.netty.DisposableServer;
 import reactor.netty.http.server.HttpServer;
 import tech.amak.portbuddy.gateway.ssl.DynamicSslProvider;
+import tech.amak.portbuddy.gateway.ssl.OcspStaplingSniHandler;
 import tech.amak.portbuddy.gateway.ssl.SniSslContextMapping;
 
 @Configuration
@@ -48,8 +48,10 @@ public class SslServerConfig {
             if (properties.ssl().enabled()) {
                 // We use doOnChannelInit to configure the pipeline at the transport level.
                 // This ensures SniHandler is added before any data is read and enables dynamic SSL via SNI.
+                // The handler also staples cached OCSP responses for the selected certificate.
                 server = server.doOnChannelInit((observer, channel, remoteAddress) -> {
-                    channel.pipeline().addFirst("sni-handler", new SniHandler(new SniSslContextMapping(sslProvider)));
+                    channel.pipeline().addFirst("sni-handler", new OcspStaplingSniHandler(
+                        new SniSslContextMapping(sslProvider), sslProvider::getOcspResponse));
                 });
             }
 
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.gateway.filter;
+
+import java.util.List;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.web.server.ServerWebExchange;
+
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+
+/**
+ * Netty routing filter that talks HTTP/2 cleartext (h2c, prior knowledge) to the upstream for routes
+ * carrying the {@value #H2C_METADATA} metadata flag. Concurrent requests for such routes are multiplexed
+ * over a few pooled connections per upstream instance instead of holding one HTTP/1.1 connection each.
+ * All other routes, including WebSocket upgrades, keep using the shared HTTP/1.1 client.
+ */
+public class H2cNettyRoutingFilter extends NettyRoutingFilter {
+
+    public static final String H2C_METADATA = "h2c";
+
+    /**
+     * Constructs the routing filter.
+     *
+     * @param httpClient             gateway HTTP client
+     * @param headersFiltersProvider headers filters provider
+     * @param properties             gateway HTTP client properties
+     */
+    public H2cNettyRoutingFilter(final HttpClient httpClient,
+                                 final ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider,
+                                 final HttpClientProperties properties) {
+        super(httpClient, headersFiltersProvider, properties);
+    }
+
+    @Override
+    protected HttpClient getHttpClient(final Route route, final ServerWebExchange exchange) {
+        final var httpClient = super.getHttpClient(route, exchange);
+        return isH2c(route) ? httpClient.protocol(HttpProtocol.H2C) : httpClient;
+    }
+
+    private static boolean isH2c(final Route route) {
+        final var value = route.getMetadata().get(H2C_METADATA);
+        return value != null && Boolean.parseBoolean(value.toString());
+    }
+}
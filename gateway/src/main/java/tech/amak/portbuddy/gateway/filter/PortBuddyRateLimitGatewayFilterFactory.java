@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.gateway.filter;
+
+import static org.springframework.cloud.gateway.support.GatewayToStringStyler.filterToStringCreator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import reactor.core.publisher.Mono;
+import tech.amak.portbuddy.gateway.ratelimit.EdgeRateLimiter;
+
+/**
+ * Rejects ingress requests over the tunnel or client IP limit with {@code 429 Too Many Requests} before
+ * they are routed upstream. The tunnel is taken from the {@code subdomain} URI variable of the route,
+ * falling back to the Host header for custom domains.
+ */
+@Component
+public class PortBuddyRateLimitGatewayFilterFactory
+    extends AbstractGatewayFilterFactory<PortBuddyRateLimitGatewayFilterFactory.Config> {
+
+    private final EdgeRateLimiter rateLimiter;
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param rateLimiter edge rate limiter
+     */
+    public PortBuddyRateLimitGatewayFilterFactory(final EdgeRateLimiter rateLimiter) {
+        super(Config.class);
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public GatewayFilter apply(final Config config) {
+        return new GatewayFilter() {
+            @Override
+            public Mono<Void> filter(final ServerWebExchange exchange, final GatewayFilterChain chain) {
+                if (!rateLimiter.isEnabled()) {
+                    return chain.filter(exchange);
+                }
+
+                final var request = exchange.getRequest();
+                final var subdomain = ServerWebExchangeUtils.getUriTemplateVariables(exchange).get("subdomain");
+                final var target = subdomain != null ? subdomain : stripPort(request.getHeaders().getFirst("Host"));
+                if (target == null) {
+                    return chain.filter(exchange);
+                }
+
+                final var remoteAddress = request.getRemoteAddress();
+                final var clientIp = remoteAddress == null || remoteAddress.getAddress() == null
+                    ? null
+                    : remoteAddress.getAddress().getHostAddress();
+
+                final var wait = rateLimiter.tryAcquire(target, subdomain == null, clientIp);
+                if (wait == 0) {
+                    return chain.filter(exchange);
+                }
+
+                // Retry-After is in whole seconds, rounded up
+                final var retryAfter = TimeUnit.NANOSECONDS.toSeconds(wait - 1) + 1;
+                final var response = exchange.getResponse();
+                response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+                return response.setComplete();
+            }
+
+            @Override
+            public String toString() {
+                return filterToStringCreator(PortBuddyRateLimitGatewayFilterFactory.this).toString();
+            }
+        };
+    }
+
+    private static String stripPort(final String host) {
+        if (host == null) {
+            return null;
+        }
+        final var colonIdx = host.indexOf(':');
+        return colonIdx > 0 ? host.substring(0, colonIdx) : host;
+    }
+
+    /**
+     * The filter has no per-route settings; limits are configured under {@code app.rate-limit}.
+     */
+    public static class Config {
+    }
+}
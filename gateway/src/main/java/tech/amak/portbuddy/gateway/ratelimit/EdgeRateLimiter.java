@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.gateway.ratelimit;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import tech.amak.portbuddy.common.Plan;
+import tech.amak.portbuddy.gateway.client.IngressPlanClient;
+import tech.amak.portbuddy.gateway.config.AppProperties;
+
+/**
+ * Rate limits ingress requests per tunnel and per client IP within a tunnel. Tunnel limits follow the plan
+ * of the owning account; plans are resolved from the server asynchronously and cached, and the default
+ * limit applies until the plan is known, so the request path never waits on the lookup.
+ */
+@Service
+public class EdgeRateLimiter {
+
+    private static final long DEFAULT_MAX_KEYS = 100_000;
+    private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(10);
+    private static final Duration DEFAULT_PLAN_CACHE_TTL = Duration.ofMinutes(1);
+
+    private final AppProperties.RateLimit config;
+    private final Map<Plan, AppProperties.Limit> plans;
+    private final TokenBuckets tunnelBuckets;
+    private final TokenBuckets clientBuckets;
+    private final AsyncLoadingCache<String, Optional<Plan>> tunnelPlans;
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param properties application properties holding the rate limit settings
+     * @param planClient client resolving tunnel plans from the server
+     */
+    @Autowired
+    public EdgeRateLimiter(final AppProperties properties, final IngressPlanClient planClient) {
+        this(properties, planClient, System::nanoTime);
+    }
+
+    EdgeRateLimiter(final AppProperties properties,
+                    final IngressPlanClient planClient,
+                    final LongSupplier nanoClock) {
+        this.config = properties.rateLimit();
+        this.plans = config == null || config.plans() == null ? Map.of() : Map.copyOf(config.plans());
+
+        final var maxKeys = config != null && config.maxKeys() > 0 ? config.maxKeys() : DEFAULT_MAX_KEYS;
+        final var idleTimeout = config != null && config.idleTimeout() != null
+            ? config.idleTimeout()
+            : DEFAULT_IDLE_TIMEOUT;
+        final var planCacheTtl = config != null && config.planCacheTtl() != null
+            ? config.planCacheTtl()
+            : DEFAULT_PLAN_CACHE_TTL;
+
+        this.tunnelBuckets = new TokenBuckets(maxKeys, idleTimeout, nanoClock);
+        this.clientBuckets = new TokenBuckets(maxKeys, idleTimeout, nanoClock);
+        this.tunnelPlans = Caffeine.newBuilder()
+            .maximumSize(maxKeys)
+            .expireAfterWrite(planCacheTtl)
+            .buildAsync((key, executor) -> planClient
+                .getPlan(key.substring(2), key.startsWith("c:"))
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .toFuture());
+    }
+
+    /**
+     * Whether ingress requests are rate limited at all.
+     *
+     * @return true if enabled
+     */
+    public boolean isEnabled() {
+        return config != null && config.enabled();
+    }
+
+    /**
+     * Takes a token for a request from the client bucket and then from the tunnel bucket.
+     *
+     * @param target       subdomain or custom domain of the tunnel
+     * @param customDomain whether the target is a custom domain
+     * @param clientIp     client IP address, may be {@code null} if unknown
+     * @return {@code 0} if the request is allowed, otherwise nanoseconds until it could be retried
+     */
+    public long tryAcquire(final String target, final boolean customDomain, final String clientIp) {
+        if (!isEnabled()) {
+            return 0;
+        }
+        final var tunnelKey = (customDomain ? "c:" : "s:") + target;
+
+        if (clientIp != null) {
+            final var wait = clientBuckets.tryAcquire(tunnelKey + '|' + clientIp, config.perClientIp());
+            if (wait > 0) {
+                return wait;
+            }
+        }
+        return tunnelBuckets.tryAcquire(tunnelKey, limitFor(tunnelKey));
+    }
+
+    private AppProperties.Limit limitFor(final String tunnelKey) {
+        final var plan = tunnelPlans.get(tunnelKey);
+        if (plan.isDone() && !plan.isCompletedExceptionally()) {
+            final var resolved = plan.join();
+            if (resolved.isPresent()) {
+                return plans.getOrDefault(resolved.get(), config.defaultLimit());
+            }
+        }
+        return config.defaultLimit();
+    }
+}
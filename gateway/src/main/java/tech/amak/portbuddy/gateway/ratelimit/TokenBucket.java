@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.gateway.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import tech.amak.portbuddy.gateway.config.AppProperties;
+
+/**
+ * Lock-free token bucket implemented as a generic cell rate algorithm: the whole state is a single
+ * theoretical arrival time updated with compare-and-set, so concurrent requests never block each other
+ * and a bucket costs a few dozen bytes.
+ */
+final class TokenBucket {
+
+    private final AppProperties.Limit limit;
+    private final long emissionIntervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    TokenBucket(final AppProperties.Limit limit, final long nowNanos) {
+        this.limit = limit;
+        this.emissionIntervalNanos = Math.max(1, TimeUnit.SECONDS.toNanos(1) / limit.requestsPerSecond());
+        this.toleranceNanos = emissionIntervalNanos * Math.max(1, limit.burst());
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @param nowNanos current monotonic time in nanoseconds
+     * @return {@code 0} if the token was taken, otherwise nanoseconds until the next token is available
+     */
+    long tryAcquire(final long nowNanos) {
+        while (true) {
+            final var current = theoreticalArrival.get();
+            final var next = Math.max(current, nowNanos) + emissionIntervalNanos;
+            final var excess = next - nowNanos - toleranceNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    boolean hasLimit(final AppProperties.Limit other) {
+        return limit.equals(other);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.gateway.ratelimit;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import tech.amak.portbuddy.gateway.config.AppProperties;
+
+/**
+ * Bounded set of token buckets by key. Buckets that stay idle are evicted, and the least recently used
+ * ones are dropped once the maximum size is reached, so memory stays flat regardless of how many distinct
+ * keys are seen. An evicted bucket simply starts full again on its next use.
+ */
+final class TokenBuckets {
+
+    private final Cache<String, TokenBucket> buckets;
+    private final LongSupplier nanoClock;
+
+    TokenBuckets(final long maxKeys, final Duration idleTimeout, final LongSupplier nanoClock) {
+        this.buckets = Caffeine.newBuilder()
+            .maximumSize(maxKeys)
+            .expireAfterAccess(idleTimeout)
+            .build();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Takes a token from the bucket of the key, creating the bucket on first use. A bucket is replaced
+     * when the limit for its key changed, e.g. after a plan upgrade.
+     *
+     * @param key   bucket key
+     * @param limit limit of the bucket
+     * @return {@code 0} if the token was taken, otherwise nanoseconds until the next token is available
+     */
+    long tryAcquire(final String key, final AppProperties.Limit limit) {
+        if (limit == null || limit.requestsPerSecond() <= 0) {
+            return 0;
+        }
+        final var now = nanoClock.getAsLong();
+        var bucket = buckets.getIfPresent(key);
+        if (bucket == null) {
+            bucket = buckets.get(key, k -> new TokenBucket(limit, now));
+        } else if (!bucket.hasLimit(limit)) {
+            bucket = new TokenBucket(limit, now);
+            buckets.put(key, bucket);
+        }
+        return bucket.tryAcquire(now);
+    }
+
+    long size() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+}
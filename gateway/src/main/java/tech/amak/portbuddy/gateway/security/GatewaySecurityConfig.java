@@ -33,6 +33,8 @@ public class GatewaySecurityConfig {
                     "/api/auth/token-exchange", "/api/auth/login", "/api/auth/register",
                     "/api/auth/password-reset/**", "/api/webhooks/stripe"
                     ).permitAll()
+                // Internal endpoints are for service-to-service calls only and never routed from outside
+                .pathMatchers("/api/internal/**").denyAll()
                 // Secure API endpoints
                 .pathMatchers("/api/**").authenticated()
                 // Everything else is allowed (e.g., subdomain ingress and public tunnels)
@@ -9,6 +9,8 @@ import java.io.FileInputStream;
 import java.io.SequenceInputStream;
 import java.time.Duration;
 
+import javax.net.ssl.SSLException;
+
 import org.springframework.stereotype.Service;
 
 import com.github.benmanes.caffeine.cache.AsyncCache;
@@ -29,6 +31,8 @@ public class DynamicSslProvider {
 
     private final AppProperties properties;
     private final SslServiceClient sslServiceClient;
+    private final SessionTicketKeyManager sessionTicketKeyManager;
+    private final OcspStaplingService ocspStaplingService;
     private final AsyncCache<String, SslContext> sslContextCache;
     private final String baseDomain;
     @Getter
@@ -37,12 +41,19 @@ public class DynamicSslProvider {
     /**
      * Constructs a new instance of the DynamicSslProvider.
      *
-     * @param sslServiceClient an instance of SslServiceClient used to communicate with the SSL service
-     * @param properties       an instance of AppProperties containing configuration values
+     * @param sslServiceClient        an instance of SslServiceClient used to communicate with the SSL service
+     * @param properties              an instance of AppProperties containing configuration values
+     * @param sessionTicketKeyManager applies session resumption settings to built SSL contexts
+     * @param ocspStaplingService     provides OCSP responses stapled for built SSL contexts
      */
-    public DynamicSslProvider(final SslServiceClient sslServiceClient, final AppProperties properties) {
+    public DynamicSslProvider(final SslServiceClient sslServiceClient,
+                              final AppProperties properties,
+                              final SessionTicketKeyManager sessionTicketKeyManager,
+                              final OcspStaplingService ocspStaplingService) {
         this.sslServiceClient = sslServiceClient;
         this.properties = properties;
+        this.sessionTicketKeyManager = sessionTicketKeyManager;
+        this.ocspStaplingService = ocspStaplingService;
         this.baseDomain = properties.domain();
         this.sslContextCache = Caffeine.newBuilder()
             .maximumSize(1000)
@@ -58,7 +69,7 @@ public class DynamicSslProvider {
             if (fallback == null || !fallback.enabled()) {
                 log.info("Fallback certificate is disabled. Generating a temporary self-signed certificate.");
                 final var ssc = new SelfSignedCertificate();
-                return SslContextBuilder.forServer(ssc.certificate(), ssc.privateKey()).build();
+                return sessionTicketKeyManager.build(SslContextBuilder.forServer(ssc.certificate(), ssc.privateKey()));
             }
 
             log.info("Loading fallback certificate from: {} and {}",
@@ -66,13 +77,13 @@ public class DynamicSslProvider {
 
             try (var certStream = fallback.keyCertChainFile().getInputStream();
                  var keyStream = fallback.keyFile().getInputStream()) {
-                return SslContextBuilder.forServer(certStream, keyStream).build();
+                return sessionTicketKeyManager.build(SslContextBuilder.forServer(certStream, keyStream));
             }
         } catch (final Exception e) {
             log.error("Failed to create fallback SSL context", e);
             try {
                 final var ssc = new SelfSignedCertificate();
-                return SslContextBuilder.forServer(ssc.certificate(), ssc.privateKey()).build();
+                return sessionTicketKeyManager.build(SslContextBuilder.forServer(ssc.certificate(), ssc.privateKey()));
             } catch (final Exception ex) {
                 log.error("Failed to create even a temporary self-signed certificate", ex);
                 return null;
@@ -111,10 +122,10 @@ public class DynamicSslProvider {
 
                 try {
                     if (cert.fullChainPath() != null) {
-                        return SslContextBuilder.forServer(
+                        return buildSslContext(SslContextBuilder.forServer(
                             new File(cert.fullChainPath()),
                             new File(cert.privateKeyPath())
-                        ).build();
+                        ), cert.fullChainPath());
                     }
 
                     if (cert.chainPath() != null && !cert.chainPath().isBlank()) {
@@ -124,14 +135,15 @@ public class DynamicSslProvider {
                              var chainIs = new FileInputStream(cert.chainPath());
                              var fullChainIs = new SequenceInputStream(certIs, chainIs);
                              var keyIs = new FileInputStream(cert.privateKeyPath())) {
-                            return SslContextBuilder.forServer(fullChainIs, keyIs).build();
+                            return buildSslContext(SslContextBuilder.forServer(fullChainIs, keyIs),
+                                cert.certificatePath(), cert.chainPath());
                         }
                     }
 
-                    return SslContextBuilder.forServer(
+                    return buildSslContext(SslContextBuilder.forServer(
                         new File(cert.certificatePath()),
                         new File(cert.privateKeyPath())
-                    ).build();
+                    ), cert.certificatePath());
                 } catch (final Exception e) {
                     log.error("Failed to create SslContext for {}. Using fallback.", finalLookupDomain, e);
                     return fallbackSslContext;
@@ -143,4 +155,21 @@ public class DynamicSslProvider {
                 return Mono.just(fallbackSslContext);
             });
     }
+
+    /**
+     * Returns the OCSP response to staple into a handshake served with the given context.
+     *
+     * @param sslContext context selected via SNI
+     * @return DER encoded OCSP response or {@code null} if none is available
+     */
+    public byte[] getOcspResponse(final SslContext sslContext) {
+        return ocspStaplingService.getStapledResponse(sslContext);
+    }
+
+    private SslContext buildSslContext(final SslContextBuilder builder, final String... chainFiles)
+        throws SSLException {
+        final var sslContext = sessionTicketKeyManager.build(ocspStaplingService.configure(builder));
+        ocspStaplingService.register(sslContext, chainFiles);
+        return sslContext;
+    }
 }
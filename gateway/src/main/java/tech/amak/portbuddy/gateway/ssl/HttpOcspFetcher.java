@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.gateway.ssl;
+
+import java.io.IOException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+
+import org.bouncycastle.asn1.ASN1IA5String;
+import org.bouncycastle.asn1.x509.AccessDescription;
+import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.OCSPReqBuilder;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Fetches OCSP responses over HTTP from the responder listed in the certificate's
+ * Authority Information Access extension.
+ */
+@Component
+@Slf4j
+public class HttpOcspFetcher implements OcspFetcher {
+
+    private static final MediaType OCSP_REQUEST = MediaType.parseMediaType("application/ocsp-request");
+    private static final MediaType OCSP_RESPONSE = MediaType.parseMediaType("application/ocsp-response");
+
+    private final WebClient webClient = WebClient.builder().build();
+
+    @Override
+    public Mono<OcspResponse> fetch(final X509Certificate certificate, final X509Certificate issuer) {
+        final String responderUrl;
+        final CertificateID certificateId;
+        final byte[] request;
+        try {
+            responderUrl = findResponderUrl(certificate);
+            if (responderUrl == null) {
+                log.debug("No OCSP responder declared for {}", certificate.getSubjectX500Principal());
+                return Mono.empty();
+            }
+            certificateId = new CertificateID(
+                new JcaDigestCalculatorProviderBuilder().build().get(CertificateID.HASH_SHA1),
+                new JcaX509CertificateHolder(issuer),
+                certificate.getSerialNumber());
+            request = new OCSPReqBuilder().addRequest(certificateId).build().getEncoded();
+        } catch (final IOException | CertificateEncodingException | OperatorCreationException | OCSPException e) {
+            return Mono.error(e);
+        }
+
+        return webClient.post()
+            .uri(responderUrl)
+            .contentType(OCSP_REQUEST)
+            .accept(OCSP_RESPONSE)
+            .bodyValue(request)
+            .retrieve()
+            .bodyToMono(byte[].class)
+            .map(body -> parseResponse(body, certificateId));
+    }
+
+    private static OcspResponse parseResponse(final byte[] body, final CertificateID certificateId) {
+        try {
+            final var response = new OCSPResp(body);
+            if (response.getStatus() != OCSPResp.SUCCESSFUL) {
+                throw new IllegalStateException("OCSP responder returned status " + response.getStatus());
+            }
+            final var basic = (BasicOCSPResp) response.getResponseObject();
+            for (final var single : basic.getResponses()) {
+                if (single.getCertID().equals(certificateId)) {
+                    final var nextUpdate = single.getNextUpdate();
+                    return new OcspResponse(body, nextUpdate == null ? null : nextUpdate.toInstant());
+                }
+            }
+            throw new IllegalStateException(
+                "OCSP response does not cover certificate " + certificateId.getSerialNumber());
+        } catch (final IOException | OCSPException e) {
+            throw new IllegalStateException("Malformed OCSP response", e);
+        }
+    }
+
+    private static String findResponderUrl(final X509Certificate certificate) throws CertificateEncodingException {
+        final var access = AuthorityInformationAccess.fromExtensions(
+            new JcaX509CertificateHolder(certificate).getExtensions());
+        if (access == null) {
+            return null;
+        }
+        for (final var description : access.getAccessDescriptions()) {
+            final var location = description.getAccessLocation();
+            if (AccessDescription.id_ad_ocsp.equals(description.getAccessMethod())
+                && location.getTagNo() == GeneralName.uniformResourceIdentifier) {
+                return ASN1IA5String.getInstance(location.getName()).getString();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.gateway.ssl;
+
+import java.security.cert.X509Certificate;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Obtains OCSP responses for server certificates. The default implementation queries the responder
+ * declared in the certificate; tests can plug in a stub.
+ */
+@FunctionalInterface
+public interface OcspFetcher {
+
+    /**
+     * Fetches the OCSP response for a certificate.
+     *
+     * @param certificate certificate to check
+     * @param issuer      issuer of the certificate
+     * @return response, or empty if the certificate does not support OCSP
+     */
+    Mono<OcspResponse> fetch(X509Certificate certificate, X509Certificate issuer);
+}
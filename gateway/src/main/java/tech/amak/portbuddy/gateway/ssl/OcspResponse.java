@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.gateway.ssl;
+
+import java.time.Instant;
+
+/**
+ * OCSP response ready to be stapled into a TLS handshake.
+ *
+ * @param encoded    DER encoded OCSPResponse structure
+ * @param nextUpdate time after which the response must not be served, or {@code null} if not declared
+ */
+public record OcspResponse(byte[] encoded, Instant nextUpdate) {
+
+    /**
+     * Checks whether the response may still be stapled.
+     *
+     * @param now current time
+     * @return {@code true} if the response has not passed its next update
+     */
+    public boolean isValidAt(final Instant now) {
+        return nextUpdate == null || now.isBefore(nextUpdate);
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.gateway.ssl;
+
+import java.io.FileInputStream;
+import java.security.MessageDigest;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import tech.amak.portbuddy.gateway.config.AppProperties;
+
+/**
+ * Keeps OCSP responses for served certificates and provides them for stapling into TLS handshakes.
+ * Responses are cached per certificate (shared by all contexts built for it) and refreshed in the
+ * background before their next update, so handshakes never wait for the OCSP responder.
+ * Stapling requires the OpenSSL provider at runtime; without it, contexts are built unchanged.
+ */
+@Service
+@Slf4j
+public class OcspStaplingService {
+
+    private static final Duration DEFAULT_CHECK_INTERVAL = Duration.ofMinutes(1);
+    private static final Duration DEFAULT_REFRESH_BEFORE = Duration.ofHours(24);
+    private static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofHours(12);
+    private static final Duration DEFAULT_FETCH_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration MAX_RETRY_BACKOFF = Duration.ofHours(1);
+
+    private final AppProperties.OcspStapling config;
+    private final OcspFetcher fetcher;
+    private final Clock clock;
+    private final boolean supported;
+    private final Cache<String, Entry> entries = Caffeine.newBuilder()
+        .maximumSize(1000)
+        .expireAfterAccess(Duration.ofHours(2))
+        .build();
+    private final Cache<SslContext, Entry> entriesByContext = Caffeine.newBuilder()
+        .weakKeys()
+        .build();
+    private Disposable refreshTask;
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param properties application properties holding the OCSP stapling settings
+     * @param fetcher    fetcher used to obtain OCSP responses
+     */
+    @Autowired
+    public OcspStaplingService(final AppProperties properties, final OcspFetcher fetcher) {
+        this(properties, fetcher, Clock.systemUTC(), OpenSsl.isOcspSupported());
+    }
+
+    OcspStaplingService(final AppProperties properties,
+                        final OcspFetcher fetcher,
+                        final Clock clock,
+                        final boolean supported) {
+        final var ssl = properties.ssl();
+        this.config = ssl == null ? null : ssl.ocspStapling();
+        this.fetcher = fetcher;
+        this.clock = clock;
+        this.supported = supported;
+        if (config != null && config.enabled() && !supported) {
+            log.warn("OCSP stapling is enabled but the OpenSSL provider does not support it; "
+                + "certificates are served without stapled responses", OpenSsl.unavailabilityCause());
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        if (!isActive()) {
+            return;
+        }
+        refreshTask = Flux.interval(orDefault(config.checkInterval(), DEFAULT_CHECK_INTERVAL),
+                Schedulers.boundedElastic())
+            .subscribe(tick -> refreshDue());
+    }
+
+    @PreDestroy
+    void stop() {
+        if (refreshTask != null) {
+            refreshTask.dispose();
+        }
+    }
+
+    /**
+     * Enables OCSP stapling on the builder when it is configured and supported by the runtime.
+     *
+     * @param builder server context builder
+     * @return the same builder
+     */
+    public SslContextBuilder configure(final SslContextBuilder builder) {
+        if (isActive()) {
+            builder.sslProvider(SslProvider.OPENSSL).enableOcsp(true);
+        }
+        return builder;
+    }
+
+    /**
+     * Associates a built context with its certificate chain and schedules the first OCSP fetch
+     * if the certificate is not cached yet.
+     *
+     * @param context    built server context
+     * @param chainFiles PEM files holding the leaf certificate followed by its issuers
+     */
+    public void register(final SslContext context, final String... chainFiles) {
+        if (!isActive()) {
+            return;
+        }
+
+        final List<X509Certificate> chain;
+        final String key;
+        try {
+            chain = readChain(chainFiles);
+            if (chain.size() < 2) {
+                log.debug("Certificate chain has no issuer, OCSP stapling skipped");
+                return;
+            }
+            key = fingerprint(chain.getFirst());
+        } catch (final Exception e) {
+            log.warn("Failed to read certificate chain for OCSP stapling: {}", e.getMessage());
+            return;
+        }
+
+        final var entry = entries.get(key, k -> new Entry(chain.getFirst(), chain.get(1)));
+        entriesByContext.put(context, entry);
+        if (entry.response == null) {
+            refresh(entry);
+        }
+    }
+
+    /**
+     * Returns the OCSP response to staple for a context, if one is cached and still valid.
+     *
+     * @param context server context selected for the handshake
+     * @return DER encoded OCSP response or {@code null}
+     */
+    public byte[] getStapledResponse(final SslContext context) {
+        final var entry = entriesByContext.getIfPresent(context);
+        if (entry == null) {
+            return null;
+        }
+        final var response = entry.response;
+        return response != null && response.isValidAt(clock.instant()) ? response.encoded() : null;
+    }
+
+    /**
+     * Refreshes every cached response that is missing or close to its next update.
+     */
+    void refreshDue() {
+        final var now = clock.instant();
+        entries.asMap().values().forEach(entry -> {
+            if (!now.isBefore(entry.refreshAt)) {
+                refresh(entry);
+            }
+        });
+    }
+
+    private void refresh(final Entry entry) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        // Certificates without an OCSP responder are re-checked at the regular interval; errors retry with backoff.
+        entry.refreshAt = clock.instant().plus(orDefault(config.refreshInterval(), DEFAULT_REFRESH_INTERVAL));
+        fetcher.fetch(entry.certificate, entry.issuer)
+            .timeout(orDefault(config.fetchTimeout(), DEFAULT_FETCH_TIMEOUT))
+            .doFinally(signal -> entry.refreshing.set(false))
+            .subscribe(
+                response -> {
+                    entry.response = response;
+                    entry.failures = 0;
+                    entry.refreshAt = nextRefresh(response);
+                    log.debug("OCSP response for {} refreshed, next update {}",
+                        entry.certificate.getSubjectX500Principal(), response.nextUpdate());
+                },
+                error -> {
+                    final var backoff = retryBackoff(++entry.failures);
+                    entry.refreshAt = clock.instant().plus(backoff);
+                    log.warn("Failed to fetch OCSP response for {} (attempt {}), retrying in {}: {}",
+                        entry.certificate.getSubjectX500Principal(), entry.failures, backoff, error.getMessage());
+                });
+    }
+
+    private Instant nextRefresh(final OcspResponse response) {
+        final var now = clock.instant();
+        if (response.nextUpdate() == null) {
+            return now.plus(orDefault(config.refreshInterval(), DEFAULT_REFRESH_INTERVAL));
+        }
+        final var refreshBefore = orDefault(config.refreshBefore(), DEFAULT_REFRESH_BEFORE);
+        final var refreshAt = response.nextUpdate().minus(refreshBefore);
+        return refreshAt.isBefore(now) ? now : refreshAt;
+    }
+
+    private Duration retryBackoff(final int failures) {
+        final var base = orDefault(config.checkInterval(), DEFAULT_CHECK_INTERVAL);
+        final var backoff = base.multipliedBy(1L << Math.min(failures - 1, 16));
+        return backoff.compareTo(MAX_RETRY_BACKOFF) > 0 ? MAX_RETRY_BACKOFF : backoff;
+    }
+
+    private boolean isActive() {
+        return config != null && config.enabled() && supported;
+    }
+
+    private static List<X509Certificate> readChain(final String... files) throws Exception {
+        final var factory = CertificateFactory.getInstance("X.509");
+        final var chain = new ArrayList<X509Certificate>();
+        for (final var file : files) {
+            if (file == null || file.isBlank()) {
+                continue;
+            }
+            try (var in = new FileInputStream(file)) {
+                for (final var certificate : factory.generateCertificates(in)) {
+                    chain.add((X509Certificate) certificate);
+                }
+            }
+        }
+        return chain;
+    }
+
+    private static String fingerprint(final X509Certificate certificate) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(certificate.getEncoded()));
+    }
+
+    private static Duration orDefault(final Duration value, final Duration defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+
+    private static final class Entry {
+
+        private final X509Certificate certificate;
+        private final X509Certificate issuer;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile OcspResponse response;
+        private volatile Instant refreshAt = Instant.MIN;
+        private volatile int failures;
+
+        private Entry(final X509Certificate certificate, final X509Certificate issuer) {
+            this.certificate = certificate;
+            this.issuer = issuer;
+        }
+    }
+}
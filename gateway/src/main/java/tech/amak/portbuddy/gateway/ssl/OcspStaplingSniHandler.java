@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.gateway.ssl;
+
+import java.util.function.Function;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.ssl.ReferenceCountedOpenSslEngine;
+import io.netty.handler.ssl.SniHandler;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.util.AsyncMapping;
+
+/**
+ * SNI handler that staples the cached OCSP response of the selected context into the handshake.
+ * The response must be set on the engine before the handshake starts, which is why stapling happens
+ * when the SSL handler is created rather than later in the pipeline.
+ */
+public class OcspStaplingSniHandler extends SniHandler {
+
+    private final Function<SslContext, byte[]> ocspResponses;
+
+    /**
+     * Constructs the handler.
+     *
+     * @param mapping       hostname to context mapping
+     * @param ocspResponses lookup of the OCSP response to staple for a context, returning {@code null} if none
+     */
+    public OcspStaplingSniHandler(final AsyncMapping<String, SslContext> mapping,
+                                  final Function<SslContext, byte[]> ocspResponses) {
+        super(mapping);
+        this.ocspResponses = ocspResponses;
+    }
+
+    @Override
+    protected SslHandler newSslHandler(final SslContext context, final ByteBufAllocator allocator) {
+        final var handler = super.newSslHandler(context, allocator);
+        if (handler.engine() instanceof ReferenceCountedOpenSslEngine engine) {
+            final var response = ocspResponses.apply(context);
+            if (response != null) {
+                engine.setOcspResponse(response);
+            }
+        }
+        return handler;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.gateway.ssl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import javax.net.ssl.SSLException;
+
+import org.springframework.stereotype.Component;
+
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.OpenSslSessionContext;
+import io.netty.handler.ssl.OpenSslSessionTicketKey;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import tech.amak.portbuddy.gateway.config.AppProperties;
+
+/**
+ * Manages TLS session resumption for the server contexts built by {@link DynamicSslProvider}.
+ * Session ticket keys are read from a local source that is shared by all gateway instances
+ * (for example a mounted secret), so a ticket issued by one node can be resumed on any other.
+ * The source is re-read periodically and rotated keys are pushed into every live context.
+ * Ticket keys can only be applied when the OpenSSL provider (bundled through netty-tcnative) is
+ * available at runtime; with the JDK provider only the session cache settings take effect, which
+ * is logged at startup.
+ */
+@Component
+@Slf4j
+public class SessionTicketKeyManager {
+
+    private static final int KEY_PART_SIZE = 16;
+    private static final int TICKET_KEY_SIZE = 3 * KEY_PART_SIZE;
+
+    private final AppProperties.SessionResumption config;
+    private final Set<SslContext> contexts = Collections.synchronizedSet(
+        Collections.newSetFromMap(new WeakHashMap<>()));
+    private volatile List<TicketKey> ticketKeys = List.of();
+    private Disposable reloadTask;
+
+    /**
+     * Constructs a new instance and performs the initial ticket keys load so that contexts
+     * built during startup already carry the shared keys.
+     *
+     * @param properties application properties holding the session resumption settings
+     */
+    public SessionTicketKeyManager(final AppProperties properties) {
+        final var ssl = properties.ssl();
+        this.config = ssl == null ? null : ssl.sessionResumption();
+        if (isEnabled()) {
+            reload();
+            if (config.ticketKeysFile() != null && !OpenSsl.isAvailable()) {
+                log.warn("OpenSSL is not available; TLS session ticket keys from {} are not applied and "
+                    + "sessions cannot resume across gateway instances", config.ticketKeysFile(),
+                    OpenSsl.unavailabilityCause());
+            }
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        if (!isEnabled() || config.ticketKeysFile() == null || config.reloadInterval() == null) {
+            return;
+        }
+        reloadTask = Flux.interval(config.reloadInterval(), Schedulers.boundedElastic())
+            .subscribe(tick -> reload());
+    }
+
+    @PreDestroy
+    void stop() {
+        if (reloadTask != null) {
+            reloadTask.dispose();
+        }
+    }
+
+    /**
+     * Builds the server context, applying session cache settings and the current ticket keys.
+     *
+     * @param builder server context builder with certificate and key already set
+     * @return built SslContext registered for future ticket key rotations
+     * @throws SSLException if the context cannot be built
+     */
+    public SslContext build(final SslContextBuilder builder) throws SSLException {
+        if (!isEnabled()) {
+            return builder.build();
+        }
+
+        if (OpenSsl.isAvailable()) {
+            builder.sslProvider(SslProvider.OPENSSL);
+        }
+        if (config.sessionCacheSize() > 0) {
+            builder.sessionCacheSize(config.sessionCacheSize());
+        }
+        if (config.sessionTimeout() != null) {
+            builder.sessionTimeout(config.sessionTimeout().toSeconds());
+        }
+
+        final var context = builder.build();
+        applyTicketKeys(context, ticketKeys);
+        contexts.add(context);
+        return context;
+    }
+
+    /**
+     * Re-reads the ticket keys source and applies the keys to all live contexts when they changed.
+     */
+    void reload() {
+        final List<TicketKey> loaded;
+        try {
+            loaded = loadTicketKeys();
+        } catch (final Exception e) {
+            log.error("Failed to load TLS session ticket keys from {}. Keeping current keys.",
+                config.ticketKeysFile(), e);
+            return;
+        }
+
+        if (ticketKeys.equals(loaded)) {
+            return;
+        }
+
+        ticketKeys = loaded;
+        final List<SslContext> snapshot;
+        synchronized (contexts) {
+            snapshot = new ArrayList<>(contexts);
+        }
+        snapshot.forEach(context -> applyTicketKeys(context, loaded));
+        log.info("Applied {} TLS session ticket key(s) to {} SSL context(s)", loaded.size(), snapshot.size());
+    }
+
+    List<TicketKey> getTicketKeys() {
+        return ticketKeys;
+    }
+
+    private boolean isEnabled() {
+        return config != null && config.enabled();
+    }
+
+    private List<TicketKey> loadTicketKeys() throws IOException {
+        final var resource = config.ticketKeysFile();
+        if (resource == null || !resource.exists()) {
+            return List.of();
+        }
+
+        final var keys = new ArrayList<TicketKey>();
+        try (var reader = new BufferedReader(new InputStreamReader(resource.getInputStream(),
+            StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final var trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                keys.add(parseTicketKey(trimmed));
+            }
+        }
+        return List.copyOf(keys);
+    }
+
+    private static TicketKey parseTicketKey(final String encoded) {
+        final var raw = Base64.getDecoder().decode(encoded);
+        if (raw.length != TICKET_KEY_SIZE) {
+            throw new IllegalArgumentException("Session ticket key must be "
+                + TICKET_KEY_SIZE + " bytes, got " + raw.length);
+        }
+        final var nameEnd = KEY_PART_SIZE;
+        final var hmacEnd = nameEnd + KEY_PART_SIZE;
+        return new TicketKey(
+            Arrays.copyOfRange(raw, 0, nameEnd),
+            Arrays.copyOfRange(raw, nameEnd, hmacEnd),
+            Arrays.copyOfRange(raw, hmacEnd, raw.length));
+    }
+
+    private static void applyTicketKeys(final SslContext context, final List<TicketKey> keys) {
+        if (keys.isEmpty() || !OpenSsl.isAvailable()
+            || !(context.sessionContext() instanceof OpenSslSessionContext sessionContext)) {
+            return;
+        }
+        sessionContext.setTicketKeys(keys.stream()
+            .map(key -> new OpenSslSessionTicketKey(key.name(), key.hmacKey(), key.aesKey()))
+            .toArray(OpenSslSessionTicketKey[]::new));
+    }
+
+    /**
+     * Raw session ticket key material: 16-byte key name, 16-byte HMAC secret and 16-byte AES key.
+     */
+    record TicketKey(byte[] name, byte[] hmacKey, byte[] aesKey) {
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof TicketKey key
+                && Arrays.equals(name, key.name)
+                && Arrays.equals(hmacKey, key.hmacKey)
+                && Arrays.equals(aesKey, key.aesKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Arrays.hashCode(name) + Arrays.hashCode(hmacKey)) + Arrays.hashCode(aesKey);
+        }
+
+        @Override
+        public String toString() {
+            return "TicketKey[name=" + Base64.getEncoder().encodeToString(name) + "]";
+        }
+    }
+}
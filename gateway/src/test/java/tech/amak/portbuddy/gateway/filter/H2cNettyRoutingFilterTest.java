@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.gateway.filter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.Mockito.mock;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+
+class H2cNettyRoutingFilterTest {
+
+    private final H2cNettyRoutingFilter filter = new H2cNettyRoutingFilter(
+        HttpClient.create(), mock(ObjectProvider.class), new HttpClientProperties());
+    private final MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/"));
+
+    @Test
+    void shouldUseH2cForFlaggedRoutes() {
+        // Given
+        final var route = route(Map.of(H2cNettyRoutingFilter.H2C_METADATA, "true"));
+
+        // When
+        final var httpClient = filter.getHttpClient(route, exchange);
+
+        // Then
+        assertArrayEquals(new HttpProtocol[] {HttpProtocol.H2C}, httpClient.configuration().protocols());
+    }
+
+    @Test
+    void shouldKeepHttp11ForOtherRoutes() {
+        // Given
+        final var disabled = route(Map.of(H2cNettyRoutingFilter.H2C_METADATA, "false"));
+        final var plain = route(Map.of());
+
+        // Then
+        assertArrayEquals(new HttpProtocol[] {HttpProtocol.HTTP11},
+            filter.getHttpClient(disabled, exchange).configuration().protocols());
+        assertArrayEquals(new HttpProtocol[] {HttpProtocol.HTTP11},
+            filter.getHttpClient(plain, exchange).configuration().protocols());
+    }
+
+    private static Route route(final Map<String, Object> metadata) {
+        return Route.async()
+            .id("ingress")
+            .uri("http://localhost:8090")
+            .predicate(exchange -> true)
+            .metadata(metadata)
+            .build();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.gateway.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import reactor.core.publisher.Mono;
+import tech.amak.portbuddy.gateway.ratelimit.EdgeRateLimiter;
+
+class PortBuddyRateLimitGatewayFilterFactoryTest {
+
+    private final EdgeRateLimiter rateLimiter = mock(EdgeRateLimiter.class);
+    private final GatewayFilterChain chain = mock(GatewayFilterChain.class);
+    private final PortBuddyRateLimitGatewayFilterFactory factory =
+        new PortBuddyRateLimitGatewayFilterFactory(rateLimiter);
+
+    @Test
+    void shouldRejectSubdomainRequestOverLimit() {
+        // Given
+        when(rateLimiter.isEnabled()).thenReturn(true);
+        when(rateLimiter.tryAcquire("demo", false, "10.0.0.1")).thenReturn(TimeUnit.MILLISECONDS.toNanos(1500));
+        final var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/")
+            .header(HttpHeaders.HOST, "demo.portbuddy.dev")
+            .remoteAddress(new InetSocketAddress("10.0.0.1", 50000)));
+        ServerWebExchangeUtils.putUriTemplateVariables(exchange, Map.of("subdomain", "demo"));
+
+        // When
+        factory.apply(new PortBuddyRateLimitGatewayFilterFactory.Config()).filter(exchange, chain).block();
+
+        // Then
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exchange.getResponse().getStatusCode());
+        assertEquals("2", exchange.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        verify(chain, never()).filter(any());
+    }
+
+    @Test
+    void shouldPassCustomDomainRequestWithinLimit() {
+        // Given
+        when(rateLimiter.isEnabled()).thenReturn(true);
+        when(rateLimiter.tryAcquire("shop.example.com", true, "10.0.0.1")).thenReturn(0L);
+        when(chain.filter(any())).thenReturn(Mono.empty());
+        final var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/")
+            .header(HttpHeaders.HOST, "shop.example.com:443")
+            .remoteAddress(new InetSocketAddress("10.0.0.1", 50000)));
+
+        // When
+        factory.apply(new PortBuddyRateLimitGatewayFilterFactory.Config()).filter(exchange, chain).block();
+
+        // Then
+        verify(chain).filter(exchange);
+        assertNull(exchange.getResponse().getStatusCode());
+        assertTrue(exchange.getResponse().getHeaders().isEmpty());
+    }
+}
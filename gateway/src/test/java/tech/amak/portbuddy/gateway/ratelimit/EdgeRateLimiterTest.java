@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.gateway.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+import tech.amak.portbuddy.common.Plan;
+import tech.amak.portbuddy.gateway.client.IngressPlanClient;
+import tech.amak.portbuddy.gateway.config.AppProperties;
+
+class EdgeRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+    private IngressPlanClient planClient;
+
+    @BeforeEach
+    void setUp() {
+        planClient = mock(IngressPlanClient.class);
+        when(planClient.getPlan(anyString(), anyBoolean())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    void shouldAllowBurstThenRejectWithRetryDelay() {
+        // Given
+        final var limiter = limiter(new AppProperties.Limit(10, 3), new AppProperties.Limit(0, 0));
+
+        // When
+        for (var i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("demo", false, "10.0.0.1"));
+        }
+        final var wait = limiter.tryAcquire("demo", false, "10.0.0.1");
+
+        // Then
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), wait);
+
+        // When
+        now.addAndGet(wait);
+
+        // Then
+        assertEquals(0, limiter.tryAcquire("demo", false, "10.0.0.1"));
+    }
+
+    @Test
+    void shouldLimitClientIpWithinTunnel() {
+        // Given
+        final var limiter = limiter(new AppProperties.Limit(1000, 1000), new AppProperties.Limit(1, 1));
+
+        // When
+        final var first = limiter.tryAcquire("demo", false, "10.0.0.1");
+        final var second = limiter.tryAcquire("demo", false, "10.0.0.1");
+        final var otherClient = limiter.tryAcquire("demo", false, "10.0.0.2");
+        final var otherTunnel = limiter.tryAcquire("other", false, "10.0.0.1");
+
+        // Then
+        assertEquals(0, first);
+        assertTrue(second > 0);
+        assertEquals(0, otherClient);
+        assertEquals(0, otherTunnel);
+    }
+
+    @Test
+    void shouldApplyPlanLimitOnceResolved() {
+        // Given
+        when(planClient.getPlan("shop.example.com", true)).thenReturn(Mono.just(Plan.TEAM));
+        final var limiter = limiter(new AppProperties.Limit(1, 1), new AppProperties.Limit(0, 0));
+
+        // When
+        final var first = limiter.tryAcquire("shop.example.com", true, null);
+        final var second = limiter.tryAcquire("shop.example.com", true, null);
+        final var third = limiter.tryAcquire("shop.example.com", true, null);
+
+        // Then
+        assertEquals(0, first);
+        assertEquals(0, second);
+        assertEquals(0, third);
+    }
+
+    @Test
+    void shouldAllowEverythingWhenDisabled() {
+        // Given
+        final var properties = mock(AppProperties.class);
+        when(properties.rateLimit()).thenReturn(new AppProperties.RateLimit(
+            false, Map.of(), new AppProperties.Limit(1, 1), null, 10, null, null));
+        final var limiter = new EdgeRateLimiter(properties, planClient, now::get);
+
+        // Then
+        for (var i = 0; i < 10; i++) {
+            assertEquals(0, limiter.tryAcquire("demo", false, "10.0.0.1"));
+        }
+    }
+
+    private EdgeRateLimiter limiter(final AppProperties.Limit defaultLimit, final AppProperties.Limit perClientIp) {
+        final var properties = mock(AppProperties.class);
+        when(properties.rateLimit()).thenReturn(new AppProperties.RateLimit(
+            true,
+            Map.of(Plan.TEAM, new AppProperties.Limit(100, 100)),
+            defaultLimit,
+            perClientIp,
+            1000,
+            Duration.ofMinutes(10),
+            Duration.ofMinutes(1)));
+        return new EdgeRateLimiter(properties, planClient, now::get);
+    }
+}
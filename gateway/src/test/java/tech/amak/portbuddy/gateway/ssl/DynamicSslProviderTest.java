@@ -38,7 +38,8 @@ class DynamicSslProviderTest {
         when(properties.domain()).thenReturn("portbuddy.dev");
         when(properties.ssl()).thenReturn(sslProperties);
         when(sslProperties.fallback()).thenReturn(null);
-        sslProvider = new DynamicSslProvider(sslServiceClient, properties);
+        sslProvider = new DynamicSslProvider(sslServiceClient, properties, new SessionTicketKeyManager(properties),
+            new OcspStaplingService(properties, (certificate, issuer) -> Mono.empty()));
     }
 
     @Test
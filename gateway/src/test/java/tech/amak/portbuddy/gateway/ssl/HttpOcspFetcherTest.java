@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.gateway.ssl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.RespID;
+import org.bouncycastle.cert.ocsp.jcajce.JcaBasicOCSPRespBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+class HttpOcspFetcherTest {
+
+    private final HttpOcspFetcher fetcher = new HttpOcspFetcher();
+    private DisposableServer responder;
+
+    @AfterEach
+    void tearDown() {
+        if (responder != null) {
+            responder.disposeNow();
+        }
+    }
+
+    @Test
+    void shouldFetchResponseFromStubResponder() throws Exception {
+        // Given
+        final var nextUpdate = Instant.now().plus(Duration.ofDays(3)).truncatedTo(ChronoUnit.SECONDS);
+        final var certificates = new TestCertificates[1];
+        responder = HttpServer.create()
+            .host("127.0.0.1")
+            .port(0)
+            .route(routes -> routes.post("/ocsp", (request, response) -> request.receive().aggregate().asByteArray()
+                .map(body -> respond(certificates[0], body, nextUpdate))
+                .flatMap(bytes -> response.header("Content-Type", "application/ocsp-response")
+                    .sendByteArray(Mono.just(bytes)).then())))
+            .bindNow();
+        certificates[0] = TestCertificates.create("http://127.0.0.1:%d/ocsp".formatted(responder.port()));
+
+        // When
+        final var result = fetcher.fetch(certificates[0].leaf, certificates[0].ca).block(Duration.ofSeconds(10));
+
+        // Then
+        assertNotNull(result);
+        assertEquals(nextUpdate, result.nextUpdate());
+        assertEquals(OCSPResp.SUCCESSFUL, new OCSPResp(result.encoded()).getStatus());
+    }
+
+    @Test
+    void shouldReturnEmptyWithoutResponderUrl() throws Exception {
+        // Given
+        final var certificates = TestCertificates.create("http://127.0.0.1/ocsp");
+
+        // When - the CA certificate carries no Authority Information Access extension
+        final var result = fetcher.fetch(certificates.ca, certificates.ca).block(Duration.ofSeconds(5));
+
+        // Then
+        assertNull(result);
+    }
+
+    private static byte[] respond(final TestCertificates certificates, final byte[] body, final Instant nextUpdate) {
+        try {
+            final var request = new OCSPReq(body);
+            final var builder = new JcaBasicOCSPRespBuilder(certificates.caKeys.getPublic(),
+                new JcaDigestCalculatorProviderBuilder().build().get(RespID.HASH_SHA1));
+            for (final var single : request.getRequestList()) {
+                builder.addResponse(single.getCertID(), CertificateStatus.GOOD, new Date(), Date.from(nextUpdate),
+                    null);
+            }
+            final BasicOCSPResp basic = builder.build(
+                new JcaContentSignerBuilder("SHA256withRSA").build(certificates.caKeys.getPrivate()),
+                new X509CertificateHolder[] {new JcaX509CertificateHolder(certificates.ca)},
+                new Date());
+            return new OCSPRespBuilder().build(OCSPRespBuilder.SUCCESSFUL, basic).getEncoded();
+        } catch (final Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.gateway.ssl;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import reactor.core.publisher.Mono;
+import tech.amak.portbuddy.gateway.config.AppProperties;
+
+class OcspStaplingServiceTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-10T10:00:00Z");
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger fetches = new AtomicInteger();
+    private MutableClock clock;
+    private String chainFile;
+    private SslContext context;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        clock = new MutableClock(NOW);
+        chainFile = TestCertificates.create("http://127.0.0.1/ocsp")
+            .writeFullChain(tempDir.resolve("fullchain.pem")).toString();
+        final var ssc = new SelfSignedCertificate();
+        context = SslContextBuilder.forServer(ssc.certificate(), ssc.privateKey()).build();
+    }
+
+    @Test
+    void shouldStapleFetchedResponse() {
+        // Given
+        final var service = service((certificate, issuer) -> {
+            fetches.incrementAndGet();
+            return Mono.just(new OcspResponse(new byte[] {1, 2, 3}, NOW.plus(Duration.ofDays(7))));
+        });
+
+        // When
+        service.register(context, chainFile);
+
+        // Then
+        assertEquals(1, fetches.get());
+        assertArrayEquals(new byte[] {1, 2, 3}, service.getStapledResponse(context));
+    }
+
+    @Test
+    void shouldShareResponseBetweenContextsOfSameCertificate() throws Exception {
+        // Given
+        final var service = service((certificate, issuer) -> {
+            fetches.incrementAndGet();
+            return Mono.just(new OcspResponse(new byte[] {7}, NOW.plus(Duration.ofDays(7))));
+        });
+        final var ssc = new SelfSignedCertificate();
+        final var other = SslContextBuilder.forServer(ssc.certificate(), ssc.privateKey()).build();
+
+        // When
+        service.register(context, chainFile);
+        service.register(other, chainFile);
+
+        // Then
+        assertEquals(1, fetches.get());
+        assertArrayEquals(new byte[] {7}, service.getStapledResponse(other));
+    }
+
+    @Test
+    void shouldRefreshBeforeNextUpdateAndStopStaplingExpiredResponse() {
+        // Given
+        final var service = service((certificate, issuer) -> {
+            final var fetch = fetches.incrementAndGet();
+            return fetch == 1
+                ? Mono.just(new OcspResponse(new byte[] {1}, NOW.plus(Duration.ofHours(30))))
+                : Mono.error(new IllegalStateException("responder down"));
+        });
+        service.register(context, chainFile);
+
+        // When - not yet within refresh window
+        clock.advance(Duration.ofHours(1));
+        service.refreshDue();
+
+        // Then
+        assertEquals(1, fetches.get());
+
+        // When - within refresh window, responder fails, cached response is still served
+        clock.advance(Duration.ofHours(6));
+        service.refreshDue();
+
+        // Then
+        assertEquals(2, fetches.get());
+        assertArrayEquals(new byte[] {1}, service.getStapledResponse(context));
+
+        // When - response expired
+        clock.advance(Duration.ofDays(1));
+
+        // Then
+        assertNull(service.getStapledResponse(context));
+    }
+
+    @Test
+    void shouldBackOffAfterFailedFetches() {
+        // Given
+        final var service = service((certificate, issuer) -> {
+            fetches.incrementAndGet();
+            return Mono.error(new IllegalStateException("responder down"));
+        });
+        service.register(context, chainFile);
+
+        // When - first retry after one check interval
+        clock.advance(Duration.ofMinutes(1));
+        service.refreshDue();
+
+        // Then
+        assertEquals(2, fetches.get());
+
+        // When - second retry waits two check intervals
+        clock.advance(Duration.ofMinutes(1));
+        service.refreshDue();
+
+        // Then
+        assertEquals(2, fetches.get());
+
+        // When
+        clock.advance(Duration.ofMinutes(1));
+        service.refreshDue();
+
+        // Then
+        assertEquals(3, fetches.get());
+
+        // When - backoff is capped at one hour
+        clock.advance(Duration.ofHours(2));
+        service.refreshDue();
+        clock.advance(Duration.ofHours(1));
+        service.refreshDue();
+
+        // Then
+        assertEquals(5, fetches.get());
+    }
+
+    @Test
+    void shouldNotStapleWhenDisabled() {
+        // Given
+        final var properties = mock(AppProperties.class);
+        final var ssl = mock(AppProperties.Ssl.class);
+        when(properties.ssl()).thenReturn(ssl);
+        final var service = new OcspStaplingService(properties, (certificate, issuer) -> {
+            fetches.incrementAndGet();
+            return Mono.empty();
+        }, clock, true);
+
+        // When
+        service.register(context, chainFile);
+
+        // Then
+        assertEquals(0, fetches.get());
+        assertNull(service.getStapledResponse(context));
+    }
+
+    private OcspStaplingService service(final OcspFetcher fetcher) {
+        final var properties = mock(AppProperties.class);
+        final var ssl = mock(AppProperties.Ssl.class);
+        when(properties.ssl()).thenReturn(ssl);
+        when(ssl.ocspStapling()).thenReturn(new AppProperties.OcspStapling(true, Duration.ofMinutes(1),
+            Duration.ofHours(24), Duration.ofHours(12), Duration.ofSeconds(5)));
+        return new OcspStaplingService(properties, fetcher, clock, true);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(final Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(final Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.gateway.ssl;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.io.FileSystemResource;
+
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.OpenSslSessionContext;
+import io.netty.handler.ssl.OpenSslSessionTicketKey;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import tech.amak.portbuddy.gateway.config.AppProperties;
+
+class SessionTicketKeyManagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldLoadAndRotateTicketKeys() throws Exception {
+        // Given
+        final var keysFile = tempDir.resolve("ticket-keys");
+        final var first = key((byte) 1);
+        final var second = key((byte) 2);
+        Files.writeString(keysFile, "# shared keys\n" + encode(first) + "\n");
+        final var manager = new SessionTicketKeyManager(properties(keysFile));
+
+        // Then
+        assertEquals(1, manager.getTicketKeys().size());
+        assertArrayEquals(Arrays.copyOfRange(first, 0, 16), manager.getTicketKeys().get(0).name());
+        assertArrayEquals(Arrays.copyOfRange(first, 32, 48), manager.getTicketKeys().get(0).aesKey());
+
+        // When
+        Files.writeString(keysFile, encode(second) + "\n" + encode(first) + "\n");
+        manager.reload();
+
+        // Then
+        assertEquals(2, manager.getTicketKeys().size());
+        assertArrayEquals(Arrays.copyOfRange(second, 0, 16), manager.getTicketKeys().get(0).name());
+    }
+
+    @Test
+    void shouldKeepCurrentKeysWhenSourceIsInvalid() throws Exception {
+        // Given
+        final var keysFile = tempDir.resolve("ticket-keys");
+        Files.writeString(keysFile, encode(key((byte) 1)));
+        final var manager = new SessionTicketKeyManager(properties(keysFile));
+
+        // When
+        Files.writeString(keysFile, Base64.getEncoder().encodeToString(new byte[12]));
+        manager.reload();
+
+        // Then
+        assertEquals(1, manager.getTicketKeys().size());
+    }
+
+    @Test
+    void shouldBuildContextWithSessionSettings() throws Exception {
+        // Given
+        final var keysFile = tempDir.resolve("ticket-keys");
+        Files.writeString(keysFile, encode(key((byte) 1)));
+        final var manager = new SessionTicketKeyManager(properties(keysFile));
+        final var ssc = new SelfSignedCertificate();
+
+        // When
+        final var context = manager.build(SslContextBuilder.forServer(ssc.certificate(), ssc.privateKey()));
+
+        // Then
+        assertNotNull(context);
+        assertEquals(1000, context.sessionCacheSize());
+        assertEquals(Duration.ofHours(1).toSeconds(), context.sessionTimeout());
+    }
+
+    @Test
+    void shouldBuildOpenSslContextWhenKeysAreConfigured() throws Exception {
+        // Given
+        final var keysFile = tempDir.resolve("ticket-keys");
+        Files.writeString(keysFile, encode(key((byte) 1)));
+        final var manager = new SessionTicketKeyManager(properties(keysFile));
+        final var ssc = new SelfSignedCertificate();
+
+        // When
+        final var context = manager.build(SslContextBuilder.forServer(ssc.certificate(), ssc.privateKey()));
+
+        // Then
+        assertTrue(OpenSsl.isAvailable(), "OpenSSL must ship with the gateway");
+        assertInstanceOf(OpenSslSessionContext.class, context.sessionContext());
+    }
+
+    @Test
+    void shouldPushTicketKeysIntoOpenSslSessionContext() throws Exception {
+        // Given
+        final var keysFile = tempDir.resolve("ticket-keys");
+        final var first = key((byte) 1);
+        final var second = key((byte) 2);
+        Files.writeString(keysFile, encode(first));
+        final var manager = new SessionTicketKeyManager(properties(keysFile));
+        final var sessionContext = mock(OpenSslSessionContext.class);
+        final var context = mock(SslContext.class);
+        when(context.sessionContext()).thenReturn(sessionContext);
+        final var builder = mock(SslContextBuilder.class);
+        when(builder.build()).thenReturn(context);
+
+        // When
+        manager.build(builder);
+
+        // Then
+        final var applied = ArgumentCaptor.forClass(OpenSslSessionTicketKey[].class);
+        verify(sessionContext).setTicketKeys(applied.capture());
+        assertTicketKeys(applied.getValue(), first);
+
+        // When
+        Files.writeString(keysFile, encode(second) + "\n" + encode(first) + "\n");
+        manager.reload();
+
+        // Then
+        verify(sessionContext, times(2)).setTicketKeys(applied.capture());
+        assertTicketKeys(applied.getValue(), second, first);
+    }
+
+    private static void assertTicketKeys(final OpenSslSessionTicketKey[] actual, final byte[]... expected) {
+        assertEquals(expected.length, actual.length);
+        for (var i = 0; i < expected.length; i++) {
+            assertArrayEquals(Arrays.copyOfRange(expected[i], 0, 16), actual[i].name());
+            assertArrayEquals(Arrays.copyOfRange(expected[i], 16, 32), actual[i].hmacKey());
+            assertArrayEquals(Arrays.copyOfRange(expected[i], 32, 48), actual[i].aesKey());
+        }
+    }
+
+    private static AppProperties properties(final Path keysFile) {
+        final var properties = mock(AppProperties.class);
+        final var ssl = mock(AppProperties.Ssl.class);
+        when(properties.ssl()).thenReturn(ssl);
+        when(ssl.sessionResumption()).thenReturn(new AppProperties.SessionResumption(
+            true, new FileSystemResource(keysFile), Duration.ofMinutes(1), 1000, Duration.ofHours(1)));
+        return properties;
+    }
+
+    private static byte[] key(final byte seed) {
+        final var key = new byte[48];
+        for (var i = 0; i < key.length; i++) {
+            key[i] = (byte) (seed + i);
+        }
+        return key;
+    }
+
+    private static String encode(final byte[] key) {
+        return Base64.getEncoder().encodeToString(key);
+    }
+}
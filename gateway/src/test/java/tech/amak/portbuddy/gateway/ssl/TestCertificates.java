@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.gateway.ssl;
+
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AccessDescription;
+import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+/**
+ * Test CA and leaf certificates for OCSP stapling tests.
+ */
+final class TestCertificates {
+
+    final KeyPair caKeys;
+    final X509Certificate ca;
+    final X509Certificate leaf;
+
+    private TestCertificates(final KeyPair caKeys, final X509Certificate ca, final X509Certificate leaf) {
+        this.caKeys = caKeys;
+        this.ca = ca;
+        this.leaf = leaf;
+    }
+
+    /**
+     * Creates a CA and a leaf certificate issued by it.
+     *
+     * @param ocspUrl OCSP responder URL placed in the leaf's Authority Information Access extension
+     * @return generated certificates
+     */
+    static TestCertificates create(final String ocspUrl) throws Exception {
+        final var generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        final var caKeys = generator.generateKeyPair();
+        final var leafKeys = generator.generateKeyPair();
+        final var caName = new X500Name("CN=Test CA");
+        final var now = Instant.now();
+        final var notBefore = Date.from(now.minus(Duration.ofDays(1)));
+        final var notAfter = Date.from(now.plus(Duration.ofDays(30)));
+        final var signer = new JcaContentSignerBuilder("SHA256withRSA").build(caKeys.getPrivate());
+        final var converter = new JcaX509CertificateConverter();
+
+        final var ca = converter.getCertificate(new JcaX509v3CertificateBuilder(caName, BigInteger.ONE,
+            notBefore, notAfter, caName, caKeys.getPublic())
+            .addExtension(Extension.basicConstraints, true, new BasicConstraints(true))
+            .build(signer));
+
+        final var leaf = converter.getCertificate(new JcaX509v3CertificateBuilder(caName, BigInteger.TWO,
+            notBefore, notAfter, new X500Name("CN=test.portbuddy.dev"), leafKeys.getPublic())
+            .addExtension(Extension.authorityInfoAccess, false, new AuthorityInformationAccess(
+                new AccessDescription(AccessDescription.id_ad_ocsp,
+                    new GeneralName(GeneralName.uniformResourceIdentifier, ocspUrl))))
+            .build(signer));
+
+        return new TestCertificates(caKeys, ca, leaf);
+    }
+
+    /**
+     * Writes the leaf followed by the CA certificate as a PEM full chain file.
+     *
+     * @param file target file
+     * @return the file
+     */
+    Path writeFullChain(final Path file) throws Exception {
+        Files.writeString(file, pem(leaf) + pem(ca));
+        return file;
+    }
+
+    private static String pem(final X509Certificate certificate) throws CertificateEncodingException {
+        return "-----BEGIN CERTIFICATE-----\n"
+            + Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(certificate.getEncoded())
+            + "\n-----END CERTIFICATE-----\n";
+    }
+}
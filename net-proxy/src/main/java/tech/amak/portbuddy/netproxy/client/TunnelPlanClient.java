@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.netproxy.client;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import tech.amak.portbuddy.common.dto.TunnelPlanResponse;
+
+/**
+ * Resolves the account and subscription plan owning a tunnel from the server. Lookups run off the
+ * calling thread and resolved plans are cached for a while, so reconnects of a tunnel do not reach
+ * the server again; failed lookups are not cached.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TunnelPlanClient {
+
+    private static final String PLAN_URL = "http://port-buddy-server/api/internal/tunnels/{tunnelId}/plan";
+    private static final Duration PLAN_TTL = Duration.ofMinutes(5);
+
+    private final RestTemplate loadBalancedRestTemplate;
+    private final Executor lookups = Executors.newVirtualThreadPerTaskExecutor();
+    private final AsyncCache<UUID, Optional<TunnelPlanResponse>> plans = Caffeine.newBuilder()
+        .maximumSize(10_000)
+        .expireAfterWrite(PLAN_TTL)
+        .buildAsync();
+
+    /**
+     * Looks up the plan of a tunnel.
+     *
+     * @param tunnelId tunnel identifier
+     * @return future completed with the account and plan, or empty if the tunnel is unknown or the server
+     *     could not be reached
+     */
+    public CompletableFuture<Optional<TunnelPlanResponse>> getPlan(final UUID tunnelId) {
+        return plans.get(tunnelId, (id, executor) -> CompletableFuture.supplyAsync(() -> fetch(id), lookups))
+            .exceptionally(e -> {
+                log.warn("Failed to resolve plan of tunnel {}: {}", tunnelId, e.toString());
+                return Optional.empty();
+            });
+    }
+
+    private Optional<TunnelPlanResponse> fetch(final UUID tunnelId) {
+        try {
+            return Optional.ofNullable(
+                loadBalancedRestTemplate.getForObject(PLAN_URL, TunnelPlanResponse.class, tunnelId));
+        } catch (final HttpClientErrorException.NotFound e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -5,21 +5,166 @@
 package tech.amak.portbuddy.netproxy.config;
 
 import java.time.Duration;
+import java.util.Map;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.util.unit.DataSize;
 
+import tech.amak.portbuddy.common.Plan;
+
 @ConfigurationProperties(prefix = "app")
 public record AppProperties(
     String publicHost,
     WebSocket webSocket,
+    Tcp tcp,
+    Udp udp,
+    Reconnect reconnect,
+    Bandwidth bandwidth,
+    Sni sni,
+    Direct direct,
+    Datagram datagram,
     Jwt jwt
 ) {
 
+    /**
+     * Settings of the tunnel WebSocket sessions between net-proxy and the CLI.
+     *
+     * @param maxTextMessageSize   maximum size of an incoming text message
+     * @param maxBinaryMessageSize maximum size of an incoming binary message
+     * @param sessionIdleTimeout   idle timeout of a session
+     * @param sendTimeLimit        how long a single send may block before the session is closed
+     * @param sendBufferSizeLimit  maximum amount of outbound data queued per session before it is closed
+     *                             as a slow consumer
+     */
     public record WebSocket(
         DataSize maxTextMessageSize,
         DataSize maxBinaryMessageSize,
-        Duration sessionIdleTimeout
+        Duration sessionIdleTimeout,
+        Duration sendTimeLimit,
+        DataSize sendBufferSizeLimit
+    ) {
+    }
+
+    /**
+     * Settings of the selector-based engine forwarding public TCP connections.
+     *
+     * @param selectorThreads number of selector threads; defaults to the number of available processors
+     * @param readBufferSize  size of the read buffer shared by all connections of a selector thread
+     * @param highWatermark   outbound WebSocket backlog of a tunnel above which reads from its public
+     *                        connections are paused
+     * @param lowWatermark    backlog below which paused reads are resumed
+     * @param maxPendingWrite maximum amount of data queued for a slow public connection before it is closed
+     * @param optimisticOpen  start reading public connections right after sending OPEN instead of waiting
+     *                        for OPEN_OK, so their first bytes reach the client together with OPEN
+     */
+    public record Tcp(
+        int selectorThreads,
+        DataSize readBufferSize,
+        DataSize highWatermark,
+        DataSize lowWatermark,
+        DataSize maxPendingWrite,
+        boolean optimisticOpen
+    ) {
+    }
+
+    /**
+     * Settings of UDP tunnels.
+     *
+     * @param receiveThreads  number of sockets, each with its own receive thread, bound to the public port of
+     *                        a tunnel with {@code SO_REUSEPORT}; falls back to one where the option is
+     *                        not supported
+     * @param maxFlows        maximum number of concurrent remote addresses per tunnel
+     * @param flowIdleTimeout flows without traffic for this long are dropped and closed on the client
+     */
+    public record Udp(
+        int receiveThreads,
+        int maxFlows,
+        Duration flowIdleTimeout
+    ) {
+    }
+
+    /**
+     * Settings of tunnels whose client connection dropped unexpectedly.
+     *
+     * @param gracePeriod how long the public listener and connections are kept open waiting for the client
+     *                    to reconnect with the same tunnel id; zero closes the tunnel immediately
+     * @param maxBuffered maximum amount of data from public connections buffered while the client is away;
+     *                    TCP reads are paused and UDP datagrams are dropped above it
+     */
+    public record Reconnect(
+        Duration gracePeriod,
+        DataSize maxBuffered
+    ) {
+    }
+
+    /**
+     * Bandwidth shaping of net tunnels, applied separately to each direction.
+     *
+     * @param enabled      whether tunnels are shaped
+     * @param plans        limits by subscription plan of the account owning a tunnel
+     * @param defaultLimit limits of tunnels whose plan is unknown or not configured
+     */
+    public record Bandwidth(
+        boolean enabled,
+        Map<Plan, BandwidthLimit> plans,
+        BandwidthLimit defaultLimit
+    ) {
+    }
+
+    /**
+     * Token bucket rates of a plan, in bytes per second.
+     *
+     * @param tunnelRate  rate of a single tunnel; unset or zero disables the limit
+     * @param accountRate rate shared by all tunnels of an account on this node; unset or zero disables it
+     * @param burst       amount of data that may be moved at once above the rate
+     */
+    public record BandwidthLimit(
+        DataSize tunnelRate,
+        DataSize accountRate,
+        DataSize burst
+    ) {
+    }
+
+    /**
+     * Shared TLS listener routing connections to TCP tunnels by the server name of their ClientHello, so
+     * tunnels exposed this way do not need a public port each. TLS is passed through, not terminated.
+     *
+     * @param enabled whether the shared listener is started
+     * @param port    public port of the shared listener
+     * @param domain  parent domain of tunnel host names; a wildcard DNS record must point it at this node
+     */
+    public record Sni(
+        boolean enabled,
+        int port,
+        String domain
+    ) {
+    }
+
+    /**
+     * Direct transport carrying net tunnels between the CLI and net-proxy over a plain TCP connection,
+     * bypassing the gateway and WebSocket framing.
+     *
+     * @param enabled   whether the direct transport listener is started
+     * @param port      public port of the listener
+     * @param sslBundle name of the SSL bundle securing the listener with TLS; plain TCP when unset
+     */
+    public record Direct(
+        boolean enabled,
+        int port,
+        String sslBundle
+    ) {
+    }
+
+    /**
+     * Datagram transport carrying UDP tunnel traffic between the CLI and net-proxy over UDP; clients that
+     * cannot reach it keep using the tunnel WebSocket.
+     *
+     * @param enabled whether the datagram transport is offered to UDP tunnels
+     * @param port    public UDP port shared by all tunnels
+     */
+    public record Datagram(
+        boolean enabled,
+        int port
     ) {
     }
 
@@ -12,6 +12,7 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
 
 import lombok.RequiredArgsConstructor;
+import tech.amak.portbuddy.netproxy.security.TunnelOwnerHandshakeInterceptor;
 import tech.amak.portbuddy.netproxy.tunnel.NetTunnelWebSocketHandler;
 
 @Configuration
@@ -20,11 +21,14 @@ import tech.amak.portbuddy.netproxy.tunnel.NetTunnelWebSocketHandler;
 public class WebSocketConfig implements WebSocketConfigurer {
 
     private final NetTunnelWebSocketHandler tcpHandler;
+    private final TunnelOwnerHandshakeInterceptor ownerInterceptor;
     private final AppProperties properties;
 
     @Override
     public void registerWebSocketHandlers(final WebSocketHandlerRegistry registry) {
-        registry.addHandler(tcpHandler, "/api/net-tunnel/{tunnelId}").setAllowedOrigins("*");
+        registry.addHandler(tcpHandler, "/api/net-tunnel/{tunnelId}")
+            .addInterceptors(ownerInterceptor)
+            .setAllowedOrigins("*");
     }
 
     /**
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.netproxy.security;
+
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import tech.amak.portbuddy.common.utils.IdUtils;
+import tech.amak.portbuddy.netproxy.tunnel.NetTunnelRegistry;
+
+/**
+ * Rejects net tunnel WebSocket handshakes, active or standby, of clients whose token was issued for another
+ * account than the one owning the tunnel. The check runs on the request thread of the upgrade, so an owner
+ * lookup never holds a WebSocket thread; once resolved, the owner is known for the lifetime of the tunnel.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TunnelOwnerHandshakeInterceptor implements HandshakeInterceptor {
+
+    private final NetTunnelRegistry registry;
+
+    @Override
+    public boolean beforeHandshake(final ServerHttpRequest request,
+                                   final ServerHttpResponse response,
+                                   final WebSocketHandler wsHandler,
+                                   final Map<String, Object> attributes) {
+        final var tunnelId = IdUtils.extractTunnelId(request.getURI());
+        if (registry.isOwnedBy(tunnelId, request.getPrincipal())) {
+            return true;
+        }
+        log.info("Rejected net tunnel WS for {}: tunnel is not owned by the token's account", tunnelId);
+        response.setStatusCode(HttpStatus.FORBIDDEN);
+        return false;
+    }
+
+    @Override
+    public void afterHandshake(final ServerHttpRequest request,
+                               final ServerHttpResponse response,
+                               final WebSocketHandler wsHandler,
+                               final Exception exception) {
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.netproxy.tunnel;
+
+/**
+ * Shapes the traffic of a tunnel or account to a rate, separately in each direction.
+ */
+final class BandwidthShaper {
+
+    private final ByteTokenBucket toClient;
+    private final ByteTokenBucket toPublic;
+
+    BandwidthShaper(final long bytesPerSecond, final long burstBytes) {
+        this.toClient = new ByteTokenBucket(bytesPerSecond, burstBytes);
+        this.toPublic = new ByteTokenBucket(bytesPerSecond, burstBytes);
+    }
+
+    long bytesPerSecond() {
+        return toClient.bytesPerSecond();
+    }
+
+    /**
+     * Accounts for data read from the public side and forwarded to the client.
+     *
+     * @return nanoseconds to wait before forwarding more data
+     */
+    long acquireToClient(final long bytes, final long nowNanos) {
+        return toClient.acquire(bytes, nowNanos);
+    }
+
+    /**
+     * Accounts for data received from the client and written to the public side.
+     *
+     * @return nanoseconds to wait before forwarding more data
+     */
+    long acquireToPublic(final long bytes, final long nowNanos) {
+        return toPublic.acquire(bytes, nowNanos);
+    }
+
+    /**
+     * Admits a datagram received from the client if the rate towards the public side allows it.
+     *
+     * @return {@code false} if the datagram should be dropped
+     */
+    boolean tryToPublic(final long bytes, final long nowNanos) {
+        return toPublic.tryAcquire(bytes, nowNanos);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.netproxy.tunnel;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket metering bytes, implemented as a generic cell rate algorithm over a single
+ * theoretical arrival time. Data is always admitted; the caller is told how long to hold off before moving
+ * more, so a transfer settles at the rate after an initial burst.
+ */
+final class ByteTokenBucket {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final long bytesPerSecond;
+    private final long burstNanos;
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+    ByteTokenBucket(final long bytesPerSecond, final long burstBytes) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.burstNanos = toNanos(Math.max(0, burstBytes));
+    }
+
+    long bytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Accounts for bytes that are about to be moved.
+     *
+     * @param bytes    number of bytes
+     * @param nowNanos current monotonic time
+     * @return nanoseconds to wait before moving more data, zero if still within the burst
+     */
+    long acquire(final long bytes, final long nowNanos) {
+        final var cost = toNanos(bytes);
+        while (true) {
+            final var current = theoreticalArrival.get();
+            final var start = current == Long.MIN_VALUE || current - nowNanos < 0 ? nowNanos : current;
+            final var next = start + cost;
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return Math.max(0, next - nowNanos - burstNanos);
+            }
+        }
+    }
+
+    /**
+     * Admits bytes only if they fit in the burst, without holding off; used to police datagrams, which are
+     * dropped rather than delayed.
+     *
+     * @param bytes    number of bytes
+     * @param nowNanos current monotonic time
+     * @return {@code true} if the bytes were admitted and accounted for
+     */
+    boolean tryAcquire(final long bytes, final long nowNanos) {
+        final var cost = toNanos(bytes);
+        while (true) {
+            final var current = theoreticalArrival.get();
+            final var start = current == Long.MIN_VALUE || current - nowNanos < 0 ? nowNanos : current;
+            if (start - nowNanos > burstNanos) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(current, start + cost)) {
+                return true;
+            }
+        }
+    }
+
+    private long toNanos(final long bytes) {
+        return bytes * NANOS_PER_SECOND / bytesPerSecond;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.netproxy.tunnel;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Extracts the server name indication from the first bytes of a TLS connection without terminating TLS.
+ * The ClientHello may span several TLS records; their fragments are joined before parsing.
+ */
+final class ClientHelloParser {
+
+    private static final int RECORD_HEADER_LENGTH = 5;
+    private static final int CONTENT_TYPE_HANDSHAKE = 0x16;
+    private static final int HANDSHAKE_TYPE_CLIENT_HELLO = 0x01;
+    private static final int EXTENSION_SERVER_NAME = 0x0000;
+    private static final int NAME_TYPE_HOST_NAME = 0x00;
+
+    /**
+     * Parse outcome.
+     *
+     * @param complete   whether enough data was seen to decide; {@code false} means more bytes are needed
+     * @param serverName host name requested by the client, or {@code null} if absent or not TLS
+     */
+    record Result(boolean complete, String serverName) {
+        static final Result INCOMPLETE = new Result(false, null);
+        static final Result NO_SERVER_NAME = new Result(true, null);
+    }
+
+    private ClientHelloParser() {
+    }
+
+    static Result parse(final byte[] data, final int length) {
+        // Join handshake fragments of consecutive records
+        final var handshake = new byte[length];
+        var handshakeLength = 0;
+        var offset = 0;
+        while (true) {
+            if (offset + RECORD_HEADER_LENGTH > length) {
+                return Result.INCOMPLETE;
+            }
+            if ((data[offset] & 0xFF) != CONTENT_TYPE_HANDSHAKE) {
+                return Result.NO_SERVER_NAME;
+            }
+            final var recordLength = readUnsignedShort(data, offset + 3);
+            final var fragmentStart = offset + RECORD_HEADER_LENGTH;
+            final var available = Math.min(recordLength, length - fragmentStart);
+            System.arraycopy(data, fragmentStart, handshake, handshakeLength, available);
+            handshakeLength += available;
+            if (handshakeLength >= 4) {
+                if ((handshake[0] & 0xFF) != HANDSHAKE_TYPE_CLIENT_HELLO) {
+                    return Result.NO_SERVER_NAME;
+                }
+                final var messageLength = 4 + readUnsignedMedium(handshake, 1);
+                if (handshakeLength >= messageLength) {
+                    return parseClientHello(handshake, 4, messageLength);
+                }
+            }
+            if (available < recordLength) {
+                return Result.INCOMPLETE;
+            }
+            offset = fragmentStart + recordLength;
+        }
+    }
+
+    private static Result parseClientHello(final byte[] hello, final int start, final int end) {
+        try {
+            // Legacy version and random
+            var position = start + 2 + 32;
+            // Session id
+            position += 1 + (hello[position] & 0xFF);
+            // Cipher suites
+            position += 2 + readUnsignedShort(hello, position);
+            // Compression methods
+            position += 1 + (hello[position] & 0xFF);
+            if (position + 2 > end) {
+                return Result.NO_SERVER_NAME;
+            }
+            final var extensionsEnd = Math.min(end, position + 2 + readUnsignedShort(hello, position));
+            position += 2;
+            while (position + 4 <= extensionsEnd) {
+                final var type = readUnsignedShort(hello, position);
+                final var extensionLength = readUnsignedShort(hello, position + 2);
+                position += 4;
+                if (type == EXTENSION_SERVER_NAME) {
+                    return parseServerName(hello, position, Math.min(extensionsEnd, position + extensionLength));
+                }
+                position += extensionLength;
+            }
+            return Result.NO_SERVER_NAME;
+        } catch (final ArrayIndexOutOfBoundsException e) {
+            // Malformed lengths
+            return Result.NO_SERVER_NAME;
+        }
+    }
+
+    private static Result parseServerName(final byte[] hello, final int start, final int end) {
+        final var listEnd = Math.min(end, start + 2 + readUnsignedShort(hello, start));
+        var position = start + 2;
+        while (position + 3 <= listEnd) {
+            final var nameType = hello[position] & 0xFF;
+            final var nameLength = readUnsignedShort(hello, position + 1);
+            position += 3;
+            if (nameType == NAME_TYPE_HOST_NAME && position + nameLength <= listEnd) {
+                return new Result(true, new String(hello, position, nameLength, StandardCharsets.US_ASCII));
+            }
+            position += nameLength;
+        }
+        return Result.NO_SERVER_NAME;
+    }
+
+    private static int readUnsignedShort(final byte[] data, final int offset) {
+        return (data[offset] & 0xFF) << 8 | data[offset + 1] & 0xFF;
+    }
+
+    private static int readUnsignedMedium(final byte[] data, final int offset) {
+        return (data[offset] & 0xFF) << 16 | (data[offset + 1] & 0xFF) << 8 | data[offset + 2] & 0xFF;
+    }
+}
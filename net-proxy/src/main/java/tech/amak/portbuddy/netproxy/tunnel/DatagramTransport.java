@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.netproxy.tunnel;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+import tech.amak.portbuddy.common.tunnel.BinaryWsFrame;
+import tech.amak.portbuddy.common.tunnel.DatagramFrame;
+
+/**
+ * Shared UDP socket carrying the datagrams of UDP tunnels to and from their clients outside the tunnel
+ * WebSocket, so a lost packet only loses that datagram instead of stalling every flow behind it. Each tunnel
+ * gets a channel id and a key, handed to its client over the WebSocket. The client registers its address
+ * with an authenticated HELLO and repeats it to keep NAT bindings open; while it does, datagrams towards it
+ * are sent here, otherwise they keep going over the WebSocket.
+ */
+@Slf4j
+final class DatagramTransport {
+
+    // Clients repeat HELLO every 15 seconds; a quiet peer gets its datagrams over the WebSocket again
+    private static final long PEER_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(45);
+    private static final int KEY_LENGTH = 32;
+
+    private final DatagramChannel channel;
+    private final int port;
+    private final DataHandler handler;
+    private final Map<Long, Peer> byChannelId = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+
+    private DatagramTransport(final DatagramChannel channel, final int port, final DataHandler handler) {
+        this.channel = channel;
+        this.port = port;
+        this.handler = handler;
+    }
+
+    /**
+     * Binds the shared socket and starts its receive thread.
+     *
+     * @param port    port to bind
+     * @param handler receives authentic datagrams from clients
+     * @return the transport
+     * @throws IOException if the port cannot be bound
+     */
+    static DatagramTransport open(final int port, final DataHandler handler) throws IOException {
+        final var channel = DatagramChannel.open().bind(new InetSocketAddress(port));
+        final var transport = new DatagramTransport(channel, port, handler);
+        Thread.ofPlatform().name("net-datagram-transport").daemon().start(transport::receiveLoop);
+        return transport;
+    }
+
+    int port() {
+        return port;
+    }
+
+    /**
+     * Creates the channel id and key of a tunnel.
+     */
+    Peer register(final UUID tunnelId) {
+        final var key = new byte[KEY_LENGTH];
+        random.nextBytes(key);
+        while (true) {
+            final var peer = new Peer(tunnelId, random.nextLong(), key);
+            if (byChannelId.putIfAbsent(peer.channelId, peer) == null) {
+                return peer;
+            }
+        }
+    }
+
+    void unregister(final Peer peer) {
+        byChannelId.remove(peer.channelId, peer);
+    }
+
+    /**
+     * Sends a datagram of a UDP flow to the client.
+     *
+     * @return {@code false} if the client has no live registration or the datagram does not fit in a
+     *     packet, in which case it should go over the WebSocket
+     */
+    boolean send(final Peer peer,
+                 final String connectionId,
+                 final byte[] data,
+                 final int offset,
+                 final int length) {
+        final var address = peer.address;
+        if (address == null || System.nanoTime() - peer.lastSeenNanos > PEER_TIMEOUT_NANOS) {
+            return false;
+        }
+        final var packet = DatagramFrame.encodeData(peer.channelId, peer.key, connectionId, data, offset, length);
+        if (packet.length > DatagramFrame.MAX_PACKET_LENGTH) {
+            return false;
+        }
+        try {
+            channel.send(ByteBuffer.wrap(packet), address);
+            return true;
+        } catch (final IOException e) {
+            log.debug("Failed to send datagram to client {}: {}", address, e.toString());
+            return false;
+        }
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (final IOException e) {
+            log.debug("Failed to close datagram transport: {}", e.toString());
+        }
+        byChannelId.clear();
+    }
+
+    private void receiveLoop() {
+        final var buffer = ByteBuffer.allocate(DatagramFrame.MAX_PACKET_LENGTH);
+        while (channel.isOpen()) {
+            try {
+                buffer.clear();
+                final var from = (InetSocketAddress) channel.receive(buffer);
+                receive(from, buffer.array(), buffer.position());
+            } catch (final IOException e) {
+                if (channel.isOpen()) {
+                    log.warn("Datagram transport receive failed: {}", e.toString());
+                }
+            } catch (final RuntimeException e) {
+                log.debug("Failed to handle client datagram: {}", e.toString());
+            }
+        }
+    }
+
+    private void receive(final InetSocketAddress from, final byte[] packet, final int length) throws IOException {
+        final var channelId = DatagramFrame.channelId(packet, length);
+        final var peer = channelId == null ? null : byChannelId.get(channelId);
+        if (peer == null) {
+            return;
+        }
+        final var decoded = DatagramFrame.decode(packet, length, peer.key);
+        if (decoded == null) {
+            log.debug("Dropping unauthenticated datagram from {}", from);
+            return;
+        }
+        if (decoded.type() == DatagramFrame.HELLO) {
+            final var timestamp = decoded.timestamp();
+            synchronized (peer) {
+                // A HELLO captured on the path and replayed from another address must not redirect the tunnel
+                if (timestamp <= peer.lastHelloTimestamp) {
+                    return;
+                }
+                peer.lastHelloTimestamp = timestamp;
+                peer.address = from;
+                peer.lastSeenNanos = System.nanoTime();
+            }
+            final var ok = DatagramFrame.encodeHello(DatagramFrame.HELLO_OK, peer.channelId, peer.key, timestamp);
+            channel.send(ByteBuffer.wrap(ok), from);
+        } else if (decoded.type() == DatagramFrame.DATA && from.equals(peer.address)) {
+            peer.lastSeenNanos = System.nanoTime();
+            final var frame = BinaryWsFrame.decode(decoded.body());
+            if (frame != null) {
+                handler.onData(peer.tunnelId, frame.connectionId(), frame.data());
+            }
+        }
+    }
+
+    /**
+     * Receives datagrams of UDP flows sent by clients.
+     */
+    @FunctionalInterface
+    interface DataHandler {
+        void onData(UUID tunnelId, String connectionId, byte[] data);
+    }
+
+    /**
+     * Datagram transport state of a tunnel.
+     */
+    static final class Peer {
+
+        final UUID tunnelId;
+        final long channelId;
+        final byte[] key;
+        volatile InetSocketAddress address;
+        volatile long lastSeenNanos;
+        private long lastHelloTimestamp = Long.MIN_VALUE;
+
+        private Peer(final UUID tunnelId, final long channelId, final byte[] key) {
+            this.tunnelId = tunnelId;
+            this.channelId = channelId;
+            this.key = key;
+        }
+
+        String encodedKey() {
+            return Base64.getEncoder().encodeToString(key);
+        }
+    }
+}
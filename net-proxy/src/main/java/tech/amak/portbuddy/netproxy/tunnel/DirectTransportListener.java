@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.netproxy.tunnel;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import tech.amak.portbuddy.common.tunnel.DirectFrame;
+import tech.amak.portbuddy.common.tunnel.DirectHello;
+import tech.amak.portbuddy.common.utils.IdUtils;
+import tech.amak.portbuddy.netproxy.config.AppProperties;
+
+/**
+ * Listener of the direct transport. Clients connect straight to net-proxy over plain or TLS TCP instead of
+ * through the gateway, authenticate with the same JWT in a HELLO frame and then exchange the net tunnel
+ * WebSocket messages as length-prefixed frames. The HELLO is rejected unless the token belongs to the
+ * account owning the tunnel. Each connection is served by the regular {@link NetTunnelWebSocketHandler}
+ * through a {@link DirectTunnelSession}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DirectTransportListener {
+
+    private static final Duration HELLO_TIMEOUT = Duration.ofSeconds(10);
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final AppProperties properties;
+    private final NetTunnelWebSocketHandler handler;
+    private final NetTunnelRegistry registry;
+    private final JwtDecoder jwtDecoder;
+    private final ObjectMapper mapper;
+    private final SslBundles sslBundles;
+    private final ExecutorService connectionThreads = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile ServerSocket serverSocket;
+
+    @PostConstruct
+    void start() throws IOException {
+        final var direct = properties.direct();
+        if (direct == null || !direct.enabled()) {
+            return;
+        }
+        serverSocket = StringUtils.hasText(direct.sslBundle())
+            ? sslBundles.getBundle(direct.sslBundle()).createSslContext().getServerSocketFactory()
+                .createServerSocket(direct.port())
+            : new ServerSocket(direct.port());
+        Thread.ofPlatform().name("direct-transport-acceptor").daemon().start(this::acceptLoop);
+        log.info("Direct transport listening on port {} (TLS: {})", direct.port(),
+            StringUtils.hasText(direct.sslBundle()));
+    }
+
+    @PreDestroy
+    void stop() {
+        final var socket = serverSocket;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (final IOException e) {
+                log.debug("Failed to close direct transport listener: {}", e.toString());
+            }
+        }
+        connectionThreads.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        final var listener = serverSocket;
+        while (!listener.isClosed()) {
+            try {
+                final var socket = listener.accept();
+                socket.setTcpNoDelay(true);
+                connectionThreads.execute(() -> serve(socket));
+            } catch (final IOException e) {
+                if (!listener.isClosed()) {
+                    log.warn("Failed to accept direct transport connection: {}", e.toString());
+                }
+            }
+        }
+    }
+
+    void serve(final Socket socket) {
+        DirectTunnelSession session = null;
+        var status = CloseStatus.NO_CLOSE_FRAME;
+        try (socket) {
+            socket.setSoTimeout((int) HELLO_TIMEOUT.toMillis());
+            final var in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), READ_BUFFER_SIZE));
+            final var first = DirectFrame.read(in);
+            if (first == null || first.type() != DirectFrame.HELLO) {
+                log.debug("Direct transport connection from {} did not start with HELLO",
+                    socket.getRemoteSocketAddress());
+                return;
+            }
+            final var hello = mapper.readValue(first.payload(), DirectHello.class);
+            final JwtAuthenticationToken principal;
+            try {
+                principal = new JwtAuthenticationToken(jwtDecoder.decode(hello.token()));
+            } catch (final JwtException e) {
+                log.info("Rejected direct transport connection from {}: {}",
+                    socket.getRemoteSocketAddress(), e.getMessage());
+                return;
+            }
+            final var uri = URI.create("direct://net-proxy" + hello.path());
+            final var tunnelId = IdUtils.extractTunnelId(uri);
+            if (!registry.isOwnedBy(tunnelId, principal)) {
+                log.info("Rejected direct transport connection from {}: tunnel {} is not owned by the token's account",
+                    socket.getRemoteSocketAddress(), tunnelId);
+                return;
+            }
+            socket.setSoTimeout(0);
+
+            session = new DirectTunnelSession(socket, uri, principal);
+            handler.afterConnectionEstablished(session);
+            DirectFrame frame;
+            while (session.isOpen() && (frame = DirectFrame.read(in)) != null) {
+                if (frame.type() == DirectFrame.TEXT) {
+                    handler.handleMessage(session, new TextMessage(frame.payload()));
+                } else if (frame.type() == DirectFrame.BINARY) {
+                    handler.handleMessage(session, new BinaryMessage(frame.payload()));
+                } else if (frame.type() == DirectFrame.CLOSE) {
+                    status = CloseStatus.NORMAL;
+                    break;
+                }
+            }
+        } catch (final Exception e) {
+            log.debug("Direct transport connection failed: {}", e.toString());
+        } finally {
+            if (session != null) {
+                final var localStatus = session.closeStatus();
+                handler.afterConnectionClosed(session, localStatus != null ? localStatus : status);
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.netproxy.tunnel;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import tech.amak.portbuddy.common.tunnel.DirectFrame;
+
+/**
+ * Direct transport connection presented as a {@link WebSocketSession}, so net tunnels are served by the
+ * same handler and registry whichever transport the client chose. Text and binary messages map to TEXT and
+ * BINARY frames; sends must be serialized by the caller, as with any WebSocket session.
+ */
+final class DirectTunnelSession implements WebSocketSession {
+
+    private final String id = UUID.randomUUID().toString();
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final URI uri;
+    private final Principal principal;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private final AtomicReference<CloseStatus> closeStatus = new AtomicReference<>();
+    private int textMessageSizeLimit = DirectFrame.MAX_PAYLOAD_LENGTH;
+    private int binaryMessageSizeLimit = DirectFrame.MAX_PAYLOAD_LENGTH;
+
+    DirectTunnelSession(final Socket socket, final URI uri, final Principal principal) throws IOException {
+        this.socket = socket;
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+        this.uri = uri;
+        this.principal = principal;
+    }
+
+    /**
+     * Returns the status the session was closed with locally, or {@code null} if it was not.
+     */
+    CloseStatus closeStatus() {
+        return closeStatus.get();
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public URI getUri() {
+        return uri;
+    }
+
+    @Override
+    public HttpHeaders getHandshakeHeaders() {
+        return HttpHeaders.EMPTY;
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public Principal getPrincipal() {
+        return principal;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return (InetSocketAddress) socket.getLocalSocketAddress();
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return (InetSocketAddress) socket.getRemoteSocketAddress();
+    }
+
+    @Override
+    public String getAcceptedProtocol() {
+        return null;
+    }
+
+    @Override
+    public void setTextMessageSizeLimit(final int messageSizeLimit) {
+        this.textMessageSizeLimit = messageSizeLimit;
+    }
+
+    @Override
+    public int getTextMessageSizeLimit() {
+        return textMessageSizeLimit;
+    }
+
+    @Override
+    public void setBinaryMessageSizeLimit(final int messageSizeLimit) {
+        this.binaryMessageSizeLimit = messageSizeLimit;
+    }
+
+    @Override
+    public int getBinaryMessageSizeLimit() {
+        return binaryMessageSizeLimit;
+    }
+
+    @Override
+    public List<WebSocketExtension> getExtensions() {
+        return List.of();
+    }
+
+    @Override
+    public void sendMessage(final WebSocketMessage<?> message) throws IOException {
+        if (!isOpen()) {
+            throw new IOException("Direct session " + id + " is closed");
+        }
+        switch (message) {
+            case TextMessage text -> {
+                final var bytes = text.getPayload().getBytes(StandardCharsets.UTF_8);
+                DirectFrame.write(out, DirectFrame.TEXT, bytes, 0, bytes.length);
+            }
+            case BinaryMessage binary -> {
+                final var payload = binary.getPayload();
+                if (payload.hasArray()) {
+                    DirectFrame.write(out, DirectFrame.BINARY, payload.array(),
+                        payload.arrayOffset() + payload.position(), payload.remaining());
+                } else {
+                    final var bytes = new byte[payload.remaining()];
+                    payload.duplicate().get(bytes);
+                    DirectFrame.write(out, DirectFrame.BINARY, bytes, 0, bytes.length);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unsupported message type: " + message.getClass());
+        }
+        out.flush();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return closeStatus.get() == null && !socket.isClosed();
+    }
+
+    @Override
+    public void close() throws IOException {
+        close(CloseStatus.NORMAL);
+    }
+
+    @Override
+    public void close(final CloseStatus status) throws IOException {
+        if (closeStatus.compareAndSet(null, status)) {
+            socket.close();
+        }
+    }
+}
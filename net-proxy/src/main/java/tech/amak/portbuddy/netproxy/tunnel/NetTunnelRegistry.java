@@ -5,41 +5,124 @@
 package tech.amak.portbuddy.netproxy.tunnel;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.apache.tomcat.websocket.WsSession;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import tech.amak.portbuddy.common.TunnelType;
+import tech.amak.portbuddy.common.dto.TunnelPlanResponse;
 import tech.amak.portbuddy.common.tunnel.BinaryWsFrame;
+import tech.amak.portbuddy.common.tunnel.SocketProfile;
 import tech.amak.portbuddy.common.tunnel.WsTunnelMessage;
+import tech.amak.portbuddy.netproxy.client.TunnelPlanClient;
+import tech.amak.portbuddy.netproxy.config.AppProperties;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class NetTunnelRegistry {
 
+    private static final Duration DEFAULT_SEND_TIME_LIMIT = Duration.ofSeconds(10);
+    private static final long DEFAULT_SEND_BUFFER_SIZE_LIMIT = 16 * 1024 * 1024;
+    private static final int DEFAULT_SEND_BATCH_SIZE = 64;
+    private static final int DEFAULT_UDP_MAX_FLOWS = 10_000;
+    private static final Duration DEFAULT_UDP_FLOW_IDLE_TIMEOUT = Duration.ofMinutes(2);
+    private static final Duration DEFAULT_RECONNECT_GRACE_PERIOD = Duration.ofSeconds(30);
+    private static final long DEFAULT_RECONNECT_MAX_BUFFERED = 4 * 1024 * 1024;
+    private static final Duration OWNER_LOOKUP_TIMEOUT = Duration.ofSeconds(5);
+    // Claim holding the account a client token was issued for
+    private static final String ACCOUNT_ID_CLAIM = "aid";
+
     private final Map<UUID, Tunnel> byTunnelId = new ConcurrentHashMap<>();
+    private final Map<UUID, BandwidthShaper> accountShapers = new ConcurrentHashMap<>();
+    private final Map<String, Tunnel> bySniHost = new ConcurrentHashMap<>();
     private final ExecutorService ioPool = Executors.newCachedThreadPool();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("net-tunnel-scheduler").daemon().factory());
+    // Drains the outbound queues of client sessions, so selector threads never wait on a slow client
+    private final ExecutorService writerExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     private final ObjectMapper mapper;
+    private final TcpForwardingEngine tcpEngine;
+    private final AppProperties properties;
+    private final TunnelPlanClient planClient;
+    private volatile ServerSocketChannel sniChannel;
+    private volatile DatagramTransport datagramTransport;
+
+    @PostConstruct
+    void start() throws IOException {
+        scheduler.scheduleWithFixedDelay(this::expireUdpFlows, 5, 5, TimeUnit.SECONDS);
+        final var sni = properties.sni();
+        if (sni != null && sni.enabled()) {
+            sniChannel = ServerSocketChannel.open().bind(new InetSocketAddress(sni.port()));
+            tcpEngine.listen(sniChannel, new SniRoutingHandler(this::routeByServerName));
+            log.info("Routing TLS connections by server name on port {}", sni.port());
+        }
+        final var datagram = properties.datagram();
+        if (datagram != null && datagram.enabled()) {
+            datagramTransport = DatagramTransport.open(datagram.port(), this::onClientDatagram);
+            log.info("Carrying UDP tunnel datagrams on port {}", datagram.port());
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+        writerExecutor.shutdownNow();
+        final var channel = sniChannel;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                log.debug("Failed to close SNI ServerSocketChannel: {}", e.toString());
+            }
+        }
+        final var transport = datagramTransport;
+        if (transport != null) {
+            transport.close();
+        }
+    }
 
     /**
      * Exposes a network tunnel for either TCP or UDP based on tunnelType parameter.
@@ -63,59 +146,509 @@ public class NetTunnelRegistry {
      */
     private ExposedPort exposeTcp(final UUID tunnelId, final Integer desiredPort) throws IOException {
         final var tunnel = byTunnelId.computeIfAbsent(tunnelId, Tunnel::new);
-        if (tunnel.serverSocket != null && !tunnel.serverSocket.isClosed()) {
-            return new ExposedPort(tunnel.serverSocket.getLocalPort());
+        if (tunnel.serverChannel != null && tunnel.serverChannel.isOpen()) {
+            return new ExposedPort(localPort(tunnel.serverChannel));
         }
-        final ServerSocket serverSocket;
+        final ServerSocketChannel serverChannel;
         if (desiredPort != null && desiredPort > 0) {
-            ServerSocket sock;
+            ServerSocketChannel channel;
             try {
-                sock = new ServerSocket(desiredPort);
+                channel = ServerSocketChannel.open().bind(new InetSocketAddress(desiredPort));
             } catch (final IOException bindEx) {
                 // Requested port is busy; fallback to a random available port
                 log.info("TCP port {} is busy. Falling back to a random port.", desiredPort);
-                sock = new ServerSocket(0);
+                channel = ServerSocketChannel.open().bind(new InetSocketAddress(0));
             }
-            serverSocket = sock;
+            serverChannel = channel;
         } else {
-            serverSocket = new ServerSocket(0);
+            serverChannel = ServerSocketChannel.open().bind(new InetSocketAddress(0));
+        }
+        tunnel.serverChannel = serverChannel;
+        tcpEngine.listen(serverChannel, tcpHandler(tunnel));
+        return new ExposedPort(localPort(serverChannel));
+    }
+
+    /**
+     * Exposes a TCP tunnel behind the shared TLS listener instead of a port of its own. The tunnel gets a
+     * host name under the configured domain; TLS connections naming it in their ClientHello are routed to it.
+     *
+     * @param tunnelId tunnel identifier
+     * @return shared port and host name of the tunnel
+     * @throws IOException on IO errors
+     */
+    public ExposedPort exposeSni(final UUID tunnelId) throws IOException {
+        final var channel = sniChannel;
+        if (channel == null) {
+            throw new IllegalStateException("TLS SNI routing is not enabled");
+        }
+        final var tunnel = byTunnelId.computeIfAbsent(tunnelId, Tunnel::new);
+        if (tunnel.sniHost == null) {
+            final var label = tunnelId.toString().replace("-", "");
+            final var domain = properties.sni().domain().toLowerCase(Locale.ROOT);
+            var host = label.substring(0, 12) + "." + domain;
+            if (bySniHost.putIfAbsent(host, tunnel) != null) {
+                // Short label taken by another tunnel; the full id is unique
+                host = label + "." + domain;
+                bySniHost.put(host, tunnel);
+            }
+            tcpHandler(tunnel);
+            tunnel.sniHost = host;
+        }
+        final var exposed = new ExposedPort(localPort(channel));
+        exposed.setHost(tunnel.sniHost);
+        return exposed;
+    }
+
+    private TcpConnectionHandler routeByServerName(final String serverName) {
+        final var tunnel = bySniHost.get(serverName);
+        return tunnel == null ? null : tunnel.tcpHandler;
+    }
+
+    private TcpConnectionHandler tcpHandler(final Tunnel tunnel) {
+        if (tunnel.tcpHandler == null) {
+            tunnel.tcpHandler = new TunnelTcpHandler(tunnel);
         }
-        tunnel.serverSocket = serverSocket;
-        ioPool.execute(() -> acceptLoop(tunnel));
-        return new ExposedPort(serverSocket.getLocalPort());
+        return tunnel.tcpHandler;
+    }
+
+    private static int localPort(final ServerSocketChannel channel) throws IOException {
+        return ((InetSocketAddress) channel.getLocalAddress()).getPort();
     }
 
     /**
-     * Expose UDP by binding a datagram socket and starting a receive loop that forwards
-     * datagrams over the control WebSocket using binary frames.
+     * Expose UDP by binding one or more datagram channels to the public port and starting receive loops
+     * that forward datagrams over the control WebSocket using binary frames. With several receive threads,
+     * every channel is bound with {@code SO_REUSEPORT} and the kernel spreads remote addresses across them.
      */
     private ExposedPort exposeUdp(final UUID tunnelId, final Integer desiredPort) throws IOException {
         final var tunnel = byTunnelId.computeIfAbsent(tunnelId, Tunnel::new);
-        if (tunnel.udpSocket != null && !tunnel.udpSocket.isClosed()) {
-            return new ExposedPort(tunnel.udpSocket.getLocalPort());
+        final var existing = tunnel.udpChannels;
+        if (!existing.isEmpty() && existing.getFirst().isOpen()) {
+            return new ExposedPort(localPort(existing.getFirst()));
         }
-        final DatagramSocket socket;
+        final var udp = properties.udp();
+        final var requestedThreads = udp != null && udp.receiveThreads() > 0 ? udp.receiveThreads() : 1;
+
+        DatagramChannel first;
         if (desiredPort != null && desiredPort > 0) {
-            DatagramSocket sock;
             try {
-                sock = new DatagramSocket(desiredPort);
+                first = openUdpChannel(desiredPort, requestedThreads > 1);
             } catch (final IOException bindEx) {
                 // Requested port is busy; fallback to a random available port
                 log.info("UDP port {} is busy. Falling back to a random port.", desiredPort);
-                sock = new DatagramSocket(0);
+                first = openUdpChannel(0, requestedThreads > 1);
             }
-            socket = sock;
         } else {
-            socket = new DatagramSocket(0);
+            first = openUdpChannel(0, requestedThreads > 1);
+        }
+        final var port = localPort(first);
+        final var channels = new ArrayList<DatagramChannel>();
+        channels.add(first);
+        if (requestedThreads > 1 && first.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+            for (var i = 1; i < requestedThreads; i++) {
+                channels.add(openUdpChannel(port, true));
+            }
+        }
+
+        final var maxFlows = udp != null && udp.maxFlows() > 0 ? udp.maxFlows() : DEFAULT_UDP_MAX_FLOWS;
+        tunnel.udpFlows = new UdpFlowTable(maxFlows);
+        tunnel.udpChannels = List.copyOf(channels);
+        final var transport = datagramTransport;
+        if (transport != null && tunnel.datagramPeer == null) {
+            tunnel.datagramPeer = transport.register(tunnelId);
+        }
+        for (final var channel : channels) {
+            ioPool.execute(() -> udpReceiveLoop(tunnel, channel));
+        }
+        return new ExposedPort(port);
+    }
+
+    /**
+     * Returns the datagram transport details of a UDP tunnel, to be handed to its client.
+     *
+     * @param tunnelId tunnel identifier
+     * @return the details, or {@code null} if the transport is disabled or the tunnel is not a UDP tunnel
+     */
+    public DatagramOffer datagramOffer(final UUID tunnelId) {
+        final var transport = datagramTransport;
+        final var tunnel = byTunnelId.get(tunnelId);
+        final var peer = tunnel == null ? null : tunnel.datagramPeer;
+        if (transport == null || peer == null) {
+            return null;
+        }
+        return new DatagramOffer(transport.port(), peer.channelId, peer.encodedKey());
+    }
+
+    private static DatagramChannel openUdpChannel(final int port, final boolean reusePort) throws IOException {
+        final var channel = DatagramChannel.open();
+        try {
+            if (reusePort && channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            return channel.bind(new InetSocketAddress(port));
+        } catch (final IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static int localPort(final DatagramChannel channel) throws IOException {
+        return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Checks that a tunnel belongs to the account a client authenticated as. The owner is taken from the
+     * tunnel when this node already knows it and looked up from the server otherwise; a tunnel whose owner
+     * cannot be resolved in time is treated as foreign. A resolved owner is kept with the tunnel, so clients
+     * reconnecting or attaching a standby session while it lives are checked without a lookup. The lookup
+     * blocks, so this must not be called on a WebSocket or selector thread.
+     *
+     * @param tunnelId  tunnel identifier
+     * @param principal authenticated client
+     * @return whether the client may serve the tunnel
+     */
+    public boolean isOwnedBy(final UUID tunnelId, final Principal principal) {
+        final var claim = principal instanceof JwtAuthenticationToken token
+            ? token.getToken().getClaimAsString(ACCOUNT_ID_CLAIM)
+            : null;
+        if (tunnelId == null || claim == null) {
+            return false;
+        }
+        final UUID accountId;
+        try {
+            accountId = UUID.fromString(claim);
+        } catch (final IllegalArgumentException e) {
+            return false;
+        }
+        final var tunnel = byTunnelId.get(tunnelId);
+        final var known = tunnel == null ? null : tunnel.accountId;
+        if (known != null) {
+            return known.equals(accountId);
+        }
+        try {
+            final var owner = planClient.getPlan(tunnelId)
+                .get(OWNER_LOOKUP_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+                .map(TunnelPlanResponse::accountId)
+                .orElse(null);
+            if (owner == null) {
+                return false;
+            }
+            byTunnelId.computeIfAbsent(tunnelId, Tunnel::new).accountId = owner;
+            return owner.equals(accountId);
+        } catch (final ExecutionException | TimeoutException e) {
+            log.warn("Failed to resolve owner of tunnel {}: {}", tunnelId, e.toString());
+            return false;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Applies the bandwidth limits of the plan owning a tunnel. The plan is looked up from the server once
+     * per tunnel without waiting for it: the default limits apply until it is resolved, and keep applying
+     * when it cannot be.
+     *
+     * @param tunnelId tunnel identifier
+     * @return limits applied to the tunnel, to be reported to the client
+     */
+    public BandwidthLimits applyBandwidthLimits(final UUID tunnelId) {
+        final var bandwidth = properties.bandwidth();
+        final var tunnel = byTunnelId.computeIfAbsent(tunnelId, Tunnel::new);
+        if (bandwidth == null || !bandwidth.enabled()) {
+            return new BandwidthLimits(null, null);
+        }
+        if (!tunnel.bandwidthApplied) {
+            tunnel.bandwidthApplied = true;
+            final var plan = planClient.getPlan(tunnelId);
+            if (!plan.isDone()) {
+                applyLimit(tunnel, bandwidth.defaultLimit(), null);
+            }
+            plan.thenAccept(response -> {
+                // The tunnel may have been closed while its plan was looked up
+                if (byTunnelId.get(tunnelId) != tunnel) {
+                    return;
+                }
+                final var limit = response
+                    .map(found -> bandwidth.plans() == null ? null : bandwidth.plans().get(found.plan()))
+                    .orElse(null);
+                applyLimit(tunnel, limit != null ? limit : bandwidth.defaultLimit(),
+                    response.map(TunnelPlanResponse::accountId).orElse(null));
+            });
+        }
+        final var shaper = tunnel.shaper;
+        final var accountShaper = tunnel.accountShaper;
+        return new BandwidthLimits(
+            shaper == null ? null : shaper.bytesPerSecond(),
+            accountShaper == null ? null : accountShaper.bytesPerSecond());
+    }
+
+    private void applyLimit(final Tunnel tunnel, final AppProperties.BandwidthLimit limit, final UUID accountId) {
+        if (limit == null) {
+            return;
+        }
+        final var burst = limit.burst() == null ? 0 : limit.burst().toBytes();
+        tunnel.shaper = newShaper(limit.tunnelRate(), burst);
+        if (accountId == null) {
+            return;
+        }
+        final var accountRate = limit.accountRate();
+        tunnel.accountId = accountId;
+        tunnel.accountShaper = accountRate == null || accountRate.toBytes() <= 0
+            ? null
+            : accountShapers.compute(accountId, (id, existing) ->
+                existing != null && existing.bytesPerSecond() == accountRate.toBytes()
+                    ? existing
+                    : newShaper(accountRate, burst));
+    }
+
+    private static BandwidthShaper newShaper(final DataSize rate, final long burst) {
+        return rate == null || rate.toBytes() <= 0 ? null : new BandwidthShaper(rate.toBytes(), burst);
+    }
+
+    private static long shapeToClient(final Tunnel tunnel, final int bytes) {
+        final var now = System.nanoTime();
+        final var shaper = tunnel.shaper;
+        final var accountShaper = tunnel.accountShaper;
+        final var delay = shaper == null ? 0 : shaper.acquireToClient(bytes, now);
+        return accountShaper == null ? delay : Math.max(delay, accountShaper.acquireToClient(bytes, now));
+    }
+
+    /**
+     * Stops reading frames from the client session while the tunnel is over its bandwidth towards the public
+     * side, which pushes back on the client through the WebSocket. Container sessions are suspended and
+     * resumed by the scheduler, so no container thread is held; a direct transport session is read by its
+     * own virtual thread, which simply waits. While a session is suspended, frames it still delivers only
+     * push its resume later.
+     */
+    private void shapeToPublic(final Tunnel tunnel, final WebSocketSession session, final int bytes) {
+        final var now = System.nanoTime();
+        final var shaper = tunnel.shaper;
+        final var accountShaper = tunnel.accountShaper;
+        var delay = shaper == null ? 0 : shaper.acquireToPublic(bytes, now);
+        if (accountShaper != null) {
+            delay = Math.max(delay, accountShaper.acquireToPublic(bytes, now));
+        }
+        if (delay <= 0) {
+            return;
+        }
+        final var wsSession = session instanceof NativeWebSocketSession nativeSession
+            ? nativeSession.getNativeSession(WsSession.class)
+            : null;
+        if (wsSession == null) {
+            sleep(delay);
+            return;
+        }
+        final var resumeAt = now + delay;
+        synchronized (tunnel.readSuspension) {
+            if (tunnel.suspendedSession == wsSession) {
+                if (resumeAt - tunnel.resumeReadsAt > 0) {
+                    tunnel.resumeReadsAt = resumeAt;
+                }
+                return;
+            }
+            tunnel.suspendedSession = wsSession;
+            tunnel.resumeReadsAt = resumeAt;
+            wsSession.suspend();
+        }
+        scheduler.schedule(() -> resumeWhenDue(tunnel, wsSession), delay, TimeUnit.NANOSECONDS);
+    }
+
+    private void resumeWhenDue(final Tunnel tunnel, final WsSession session) {
+        final long remaining;
+        synchronized (tunnel.readSuspension) {
+            final var current = tunnel.suspendedSession == session;
+            remaining = current ? tunnel.resumeReadsAt - System.nanoTime() : 0;
+            if (remaining <= 0) {
+                if (current) {
+                    tunnel.suspendedSession = null;
+                }
+                resume(session);
+                return;
+            }
+        }
+        scheduler.schedule(() -> resumeWhenDue(tunnel, session), remaining, TimeUnit.NANOSECONDS);
+    }
+
+    private static void resume(final WsSession session) {
+        try {
+            session.resume();
+        } catch (final RuntimeException e) {
+            log.debug("Failed to resume reading client session {}: {}", session.getId(), e.toString());
         }
-        tunnel.udpSocket = socket;
-        ioPool.execute(() -> udpReceiveLoop(tunnel));
-        return new ExposedPort(socket.getLocalPort());
     }
 
+    private static void sleep(final long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(Duration.ofNanos(nanos));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sets the socket profile applied to public connections accepted from now on.
+     *
+     * @param tunnelId tunnel identifier
+     * @param profile  socket profile chosen by the client
+     */
+    public void setSocketProfile(final UUID tunnelId, final SocketProfile profile) {
+        byTunnelId.computeIfAbsent(tunnelId, Tunnel::new).socketProfile = profile;
+    }
+
+    /**
+     * Records whether the client of a tunnel has a local service to connect public connections to. While it
+     * has none, public connections are closed as soon as they are accepted instead of waiting on an OPEN the
+     * client would refuse. A report received on the standby session is kept until that session takes over.
+     *
+     * @param tunnelId tunnel identifier
+     * @param session  client WebSocket session the report came on
+     * @param down     whether the local service is down
+     */
+    public void setUpstreamDown(final UUID tunnelId, final WebSocketSession session, final boolean down) {
+        final var tunnel = byTunnelId.get(tunnelId);
+        final var standby = tunnel == null ? null : tunnel.standby;
+        if (standby != null && standby.session() == session) {
+            tunnel.standbyUpstreamDown = down;
+            return;
+        }
+        if (tunnel != null && tunnel.upstreamDown != down) {
+            tunnel.upstreamDown = down;
+            log.info("Local service of net tunnel {} is {}", tunnelId, down ? "down" : "back up");
+        }
+    }
+
+    /**
+     * Attaches the client WebSocket session to a tunnel. Messages are queued on a writer that sends them on
+     * a virtual thread, so forwarding threads never wait on the client; its queued bytes are the tunnel's
+     * outbound backlog used to pause reads from public connections. If the tunnel was suspended waiting for
+     * its client to reconnect, messages buffered in the meantime are sent first and the tunnel resumes.
+     *
+     * @param tunnelId tunnel identifier
+     * @param session  client WebSocket session
+     */
     public void attachSession(final UUID tunnelId, final WebSocketSession session) {
         final var tunnel = byTunnelId.computeIfAbsent(tunnelId, Tunnel::new);
-        tunnel.session = session;
+        final var writer = newWriter(session);
+        final var lock = tunnel.sessionLock.writeLock();
+        lock.lock();
+        try {
+            final var expiry = tunnel.graceExpiry;
+            if (expiry != null) {
+                expiry.cancel(false);
+                tunnel.graceExpiry = null;
+                log.info("Net tunnel {} resumed with {} buffered messages", tunnelId, tunnel.buffered.size());
+            }
+            WebSocketMessage<?> message;
+            while ((message = tunnel.buffered.poll()) != null) {
+                writer.send(message);
+            }
+            if (expiry != null) {
+                // OPEN may have been lost with the previous session; the client acks repeated ones again
+                for (final var connectionId : tunnel.awaitingOpenOk) {
+                    writer.send(openMessage(connectionId));
+                }
+            }
+        } catch (final IOException e) {
+            log.debug("Failed to send buffered messages to client: {}", e.toString());
+        } finally {
+            tunnel.buffered.clear();
+            tunnel.bufferedBytes.set(0);
+            tunnel.session = writer;
+            // The client restates its upstream state on every new session
+            tunnel.upstreamDown = false;
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Attaches a standby client WebSocket session to a tunnel that has an active session. Nothing but
+     * replies to its heartbeats is sent on it until the active session drops; it then takes over without
+     * the reconnect grace period.
+     *
+     * @param tunnelId tunnel identifier
+     * @param session  standby client WebSocket session
+     * @return {@code false} if the tunnel has no active session, so the session must be attached as one
+     */
+    public boolean attachStandby(final UUID tunnelId, final WebSocketSession session) {
+        final var tunnel = byTunnelId.get(tunnelId);
+        if (tunnel == null) {
+            return false;
+        }
+        final var lock = tunnel.sessionLock.writeLock();
+        lock.lock();
+        try {
+            if (tunnel.session == null) {
+                return false;
+            }
+            tunnel.standby = newWriter(session);
+            tunnel.standbyUpstreamDown = false;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Detaches a standby session from a tunnel.
+     *
+     * @return {@code true} if the session was the standby session of the tunnel
+     */
+    public boolean detachStandby(final UUID tunnelId, final WebSocketSession session) {
+        final var tunnel = byTunnelId.get(tunnelId);
+        if (tunnel == null) {
+            return false;
+        }
+        final var lock = tunnel.sessionLock.writeLock();
+        lock.lock();
+        try {
+            final var standby = tunnel.standby;
+            if (standby == null || standby.session() != session) {
+                return false;
+            }
+            tunnel.standby = null;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private TunnelSessionWriter newWriter(final WebSocketSession session) {
+        final var webSocket = properties.webSocket();
+        final var sendTimeLimit = webSocket != null && webSocket.sendTimeLimit() != null
+            ? webSocket.sendTimeLimit()
+            : DEFAULT_SEND_TIME_LIMIT;
+        final var sendBufferSizeLimit = webSocket != null && webSocket.sendBufferSizeLimit() != null
+            ? webSocket.sendBufferSizeLimit().toBytes()
+            : DEFAULT_SEND_BUFFER_SIZE_LIMIT;
+        return new TunnelSessionWriter(session, writerExecutor, sendBufferSizeLimit, sendTimeLimit,
+            DEFAULT_SEND_BATCH_SIZE);
+    }
+
+    /**
+     * Queues a message on the session of the tunnel, ordered with data forwarded from public connections.
+     * Falls back to sending on the given session when it is not attached to the tunnel.
+     *
+     * @param tunnelId tunnel identifier
+     * @param session  client WebSocket session
+     * @param message  message to send
+     * @throws IOException if sending fails
+     */
+    public void sendMessage(final UUID tunnelId, final WebSocketSession session, final TextMessage message)
+        throws IOException {
+        final var tunnel = tunnelId == null ? null : byTunnelId.get(tunnelId);
+        final var attached = tunnel == null ? null : tunnel.session;
+        final var standby = tunnel == null ? null : tunnel.standby;
+        if (attached != null && attached.session() == session) {
+            attached.send(message);
+        } else if (standby != null && standby.session() == session) {
+            standby.send(message);
+        } else {
+            session.sendMessage(message);
+        }
     }
 
     /**
@@ -126,18 +659,139 @@ public class NetTunnelRegistry {
      */
     public void detachSession(final WebSocketSession session) {
         for (final var tunnel : byTunnelId.values()) {
-            if (tunnel.session == session) {
-                tunnel.session = null;
+            if (detach(tunnel, session)) {
                 break;
             }
         }
     }
 
+    private static boolean detach(final Tunnel tunnel, final WebSocketSession session) {
+        final var lock = tunnel.sessionLock.writeLock();
+        lock.lock();
+        try {
+            final var standby = tunnel.standby;
+            if (standby != null && standby.session() == session) {
+                tunnel.standby = null;
+                return true;
+            }
+            final var current = tunnel.session;
+            if (current == null || current.session() != session) {
+                return false;
+            }
+            tunnel.session = null;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Keeps a tunnel whose client connection dropped unexpectedly open for the reconnect grace period.
+     * The public listener and connections stay open and data read from them is buffered up to a bound;
+     * the tunnel is closed if the client does not reattach with the same tunnel id in time.
+     *
+     * @param tunnelId identifier of the tunnel
+     * @param session  WebSocket session that was closed
+     */
+    public void suspendTunnel(final UUID tunnelId, final WebSocketSession session) {
+        final var tunnel = byTunnelId.get(tunnelId);
+        if (tunnel == null || failOver(tunnel, session)) {
+            return;
+        }
+        final var reconnect = properties.reconnect();
+        final var gracePeriod = reconnect != null && reconnect.gracePeriod() != null
+            ? reconnect.gracePeriod()
+            : DEFAULT_RECONNECT_GRACE_PERIOD;
+        if (!gracePeriod.isPositive()) {
+            if (detach(tunnel, session)) {
+                closeTunnel(tunnelId);
+            }
+            return;
+        }
+        final var lock = tunnel.sessionLock.writeLock();
+        lock.lock();
+        try {
+            final var current = tunnel.session;
+            if (current == null || current.session() != session) {
+                // The client already reconnected on another session
+                return;
+            }
+            tunnel.session = null;
+            tunnel.graceExpiry = scheduler.schedule(() -> expireGracePeriod(tunnel),
+                gracePeriod.toMillis(), TimeUnit.MILLISECONDS);
+        } finally {
+            lock.unlock();
+        }
+        log.info("Net tunnel {} lost its client; keeping it open for {}", tunnelId, gracePeriod);
+    }
+
+    /**
+     * Hands a tunnel whose active session dropped to its standby session, if open.
+     *
+     * @return {@code true} if the standby took over
+     */
+    private boolean failOver(final Tunnel tunnel, final WebSocketSession session) {
+        final var lock = tunnel.sessionLock.writeLock();
+        lock.lock();
+        try {
+            final var current = tunnel.session;
+            final var standby = tunnel.standby;
+            if (current == null || current.session() != session || standby == null) {
+                return false;
+            }
+            tunnel.standby = null;
+            if (!standby.isOpen()) {
+                return false;
+            }
+            tunnel.session = standby;
+            tunnel.upstreamDown = tunnel.standbyUpstreamDown;
+            // OPEN may have been lost with the previous session; the client acks repeated ones again
+            for (final var connectionId : tunnel.awaitingOpenOk) {
+                standby.send(openMessage(connectionId));
+            }
+        } catch (final IOException e) {
+            log.debug("Failed to repeat OPEN on standby session: {}", e.toString());
+        } finally {
+            lock.unlock();
+        }
+        log.info("Net tunnel {} failed over to its standby session", tunnel.tunnelId);
+        return true;
+    }
+
+    private void expireGracePeriod(final Tunnel tunnel) {
+        final var lock = tunnel.sessionLock.writeLock();
+        lock.lock();
+        try {
+            if (tunnel.session != null) {
+                return;
+            }
+            tunnel.graceExpiry = null;
+        } finally {
+            lock.unlock();
+        }
+        log.info("Net tunnel {} was not resumed in time, closing it", tunnel.tunnelId);
+        closeTunnel(tunnel.tunnelId);
+    }
+
+    /**
+     * Closes a tunnel whose client closed the session serving it on purpose. A session that no longer serves
+     * the tunnel, e.g. one the client already replaced by reconnecting, is only detached.
+     *
+     * @param tunnelId identifier of the tunnel
+     * @param session  WebSocket session that was closed
+     */
+    public void closeTunnel(final UUID tunnelId, final WebSocketSession session) {
+        final var tunnel = byTunnelId.get(tunnelId);
+        if (tunnel != null && detach(tunnel, session)) {
+            closeTunnel(tunnelId);
+        }
+    }
+
     /**
      * Closes and removes the entire tunnel identified by the given tunnelId.
-     * This will immediately close the TCP ServerSocket (if any), all accepted TCP
-     * connections, and the UDP DatagramSocket (if any). Any associated WebSocket
-     * session reference is cleared. The tunnel entry is removed from the registry.
+     * This will immediately close the TCP ServerSocketChannel (if any), all accepted TCP
+     * connections, and the UDP DatagramChannels (if any). Any associated WebSocket
+     * session reference and buffered data are cleared. The tunnel entry is removed from the registry.
      *
      * @param tunnelId identifier of the tunnel to close
      */
@@ -146,117 +800,147 @@ public class NetTunnelRegistry {
         if (tunnel == null) {
             return;
         }
-        // Close TCP acceptor first so accept loops break
-        final var server = tunnel.serverSocket;
+        // Close TCP acceptor first so no new connections are accepted
+        final var server = tunnel.serverChannel;
         if (server != null) {
             try {
                 server.close();
             } catch (final Exception e) {
-                log.debug("Failed to close ServerSocket: {}", e.toString());
+                log.debug("Failed to close ServerSocketChannel: {}", e.toString());
             }
         }
-        // Close all live TCP connections
-        for (final var entry : tunnel.connections.entrySet()) {
-            final var connection = entry.getValue();
-            try {
-                connection.socket.close();
-            } catch (final Exception e) {
-                log.debug("Failed to close connection {}: {}", entry.getKey(), e.toString());
-            }
+        final var sniHost = tunnel.sniHost;
+        if (sniHost != null) {
+            bySniHost.remove(sniHost, tunnel);
         }
+        // Close all live TCP connections
+        tunnel.connections.values().forEach(TcpConnection::close);
         tunnel.connections.clear();
-        // Close UDP socket
-        final var udp = tunnel.udpSocket;
-        if (udp != null) {
+        tunnel.awaitingOpenOk.clear();
+        // Close UDP channels
+        for (final var channel : tunnel.udpChannels) {
             try {
-                udp.close();
+                channel.close();
             } catch (final Exception e) {
-                log.debug("Failed to close DatagramSocket: {}", e.toString());
+                log.debug("Failed to close DatagramChannel: {}", e.toString());
             }
         }
-        tunnel.udpRemotes.clear();
+        final var flows = tunnel.udpFlows;
+        if (flows != null) {
+            flows.clear();
+        }
+        final var peer = tunnel.datagramPeer;
+        final var transport = datagramTransport;
+        if (peer != null && transport != null) {
+            transport.unregister(peer);
+        }
+        final var expiry = tunnel.graceExpiry;
+        if (expiry != null) {
+            expiry.cancel(false);
+        }
+        tunnel.buffered.clear();
+        tunnel.bufferedBytes.set(0);
         tunnel.session = null;
-    }
-
-    private void acceptLoop(final Tunnel tunnel) {
-        try {
-            while (!tunnel.serverSocket.isClosed()) {
-                final var socket = tunnel.serverSocket.accept();
-                final var connId = UUID.randomUUID().toString();
-                final var connection = new Connection(connId, socket);
-                tunnel.connections.put(connId, connection);
-                sendOpen(tunnel, connId);
-                // Wait for client OPEN_OK before starting to pump data from public socket
-            }
-        } catch (final Exception e) {
-            log.info("Accept loop ended for tunnel {}: {}", tunnel.tunnelId, e.toString());
+        tunnel.standby = null;
+        // Drop the account's shaper once its last tunnel on this node is gone
+        final var accountId = tunnel.accountId;
+        if (accountId != null) {
+            accountShapers.computeIfPresent(accountId, (id, shaper) ->
+                byTunnelId.values().stream().anyMatch(other -> id.equals(other.accountId)) ? shaper : null);
         }
     }
 
-    private void pumpFromPublic(final Tunnel tunnel, final Connection connection) {
-        final var buffer = new byte[8192];
+    private void udpReceiveLoop(final Tunnel tunnel, final DatagramChannel channel) {
+        final var buffer = ByteBuffer.allocate(65535);
+        final var flows = tunnel.udpFlows;
         try {
-            while (true) {
-                final var next = connection.in.read(buffer);
-                if (next == -1) {
-                    break;
+            while (channel.isOpen()) {
+                buffer.clear();
+                final var remote = channel.receive(buffer);
+                final var flow = flows.receivedFrom(remote, channel, System.nanoTime());
+                if (flow == null) {
+                    log.debug("UDP flow limit reached for tunnel {}, dropping datagram from {}",
+                        tunnel.tunnelId, remote);
+                    continue;
                 }
-                sendBinaryToClient(tunnel, connection.connectionId, buffer, 0, next);
-            }
-        } catch (final Exception ignore) {
-            log.error("Failed to read from public socket: {}", ignore.toString());
-        } finally {
-            log.info("Public socket closed for tunnel {}: {}", tunnel.tunnelId, connection.connectionId);
-            try {
-                connection.socket.close();
-            } catch (final Exception ignore) {
-                log.error("Failed to close public socket: {}", ignore.toString());
+                final var peer = tunnel.datagramPeer;
+                final var transport = datagramTransport;
+                if (peer == null || transport == null
+                    || !transport.send(peer, flow.id, buffer.array(), 0, buffer.position())) {
+                    sendBinaryToClient(tunnel, flow.id, buffer.array(), 0, buffer.position());
+                }
+                // Datagrams arriving while over the bandwidth are dropped by the kernel once its buffer fills
+                sleep(shapeToClient(tunnel, buffer.position()));
             }
-            tunnel.connections.remove(connection.connectionId);
-            final var message = new WsTunnelMessage();
-            message.setWsType(WsTunnelMessage.Type.CLOSE);
-            message.setConnectionId(connection.connectionId);
-            sendToClient(tunnel, message);
+        } catch (final Exception e) {
+            log.info("UDP receive loop ended for tunnel {}: {}", tunnel.tunnelId, e.toString());
         }
     }
 
-    private void udpReceiveLoop(final Tunnel tunnel) {
-        final var buffer = new byte[65535];
-        try {
-            while (tunnel.udpSocket != null && !tunnel.udpSocket.isClosed()) {
-                final var packet = new DatagramPacket(buffer, buffer.length);
-                tunnel.udpSocket.receive(packet);
-                final var remote = new InetSocketAddress(packet.getAddress(), packet.getPort());
-                final var connectionId = remote.getHostString() + ":" + remote.getPort();
-                tunnel.udpRemotes.putIfAbsent(connectionId, remote);
-                sendBinaryToClient(tunnel, connectionId, packet.getData(), packet.getOffset(), packet.getLength());
+    /**
+     * Drops UDP flows that stayed idle longer than the configured timeout and tells the client to close
+     * its local sockets for them.
+     */
+    void expireUdpFlows() {
+        final var udp = properties.udp();
+        final var idleTimeout = udp != null && udp.flowIdleTimeout() != null
+            ? udp.flowIdleTimeout()
+            : DEFAULT_UDP_FLOW_IDLE_TIMEOUT;
+        final var now = System.nanoTime();
+        for (final var tunnel : byTunnelId.values()) {
+            final var flows = tunnel.udpFlows;
+            if (flows == null) {
+                continue;
+            }
+            for (final var flow : flows.expire(now, idleTimeout.toNanos())) {
+                final var message = new WsTunnelMessage();
+                message.setWsType(WsTunnelMessage.Type.CLOSE);
+                message.setConnectionId(flow.id);
+                sendToClient(tunnel, message);
             }
-        } catch (final Exception e) {
-            log.info("UDP receive loop ended for tunnel {}: {}", tunnel.tunnelId, e.toString());
         }
     }
 
     /**
-     * Called when client acknowledges an OPEN with OPEN_OK. Starts pumping data
-     * from the public socket to the client over WebSocket for the given connection.
+     * Called when client acknowledges an OPEN with OPEN_OK. Starts reading data
+     * from the public socket and forwarding it to the client over WebSocket.
      */
     public void onClientOpenOk(final UUID tunnelId, final String connectionId) {
         final var tunnel = byTunnelId.get(tunnelId);
         if (tunnel == null) {
             return;
         }
+        tunnel.awaitingOpenOk.remove(connectionId);
         final var connection = tunnel.connections.get(connectionId);
         if (connection == null) {
             return;
         }
-        ioPool.execute(() -> pumpFromPublic(tunnel, connection));
+        connection.startReading(forwardHandedOver(tunnel, connection));
+    }
+
+    /**
+     * Forwards bytes read from a connection before it was routed to the tunnel, e.g. the ClientHello of an
+     * SNI routed connection.
+     *
+     * @return nanoseconds to wait before reading from the connection, as after data read by the tunnel
+     */
+    private long forwardHandedOver(final Tunnel tunnel, final TcpConnection connection) {
+        final var data = connection.takeHandedOver();
+        if (data == null) {
+            return 0;
+        }
+        sendBinaryToClient(tunnel, connection.getId(), data, 0, data.length);
+        return shapeToClient(tunnel, data.length);
     }
 
     /**
      * Backward compatibility handler for older clients that still send TEXT frames
      * with base64-encoded payload inside {@link WsTunnelMessage} of type BINARY.
      */
-    public void onClientBinary(final UUID tunnelId, final String connectionId, final String dataB64) {
+    public void onClientBinary(final UUID tunnelId,
+                               final WebSocketSession session,
+                               final String connectionId,
+                               final String dataB64) {
         final var tunnel = byTunnelId.get(tunnelId);
         if (tunnel == null) {
             return;
@@ -265,35 +949,28 @@ public class NetTunnelRegistry {
         if (connection == null) {
             return;
         }
-        try {
-            connection.out.write(Base64.getDecoder().decode(dataB64));
-            connection.out.flush();
-        } catch (final IOException e) {
-            log.debug("Failed to write to public socket: {}", e.toString());
-        }
+        final var data = Base64.getDecoder().decode(dataB64);
+        shapeToPublic(tunnel, session, data.length);
+        connection.write(data);
     }
 
     /**
      * Handles incoming binary WebSocket frames from the client. Data is routed directly
      * to the corresponding public TCP socket without base64 encoding.
      */
-    public void onClientBinaryBytes(final UUID tunnelId, final String connectionId, final byte[] data) {
+    public void onClientBinaryBytes(final UUID tunnelId,
+                                    final WebSocketSession session,
+                                    final String connectionId,
+                                    final byte[] data) {
         final var tunnel = byTunnelId.get(tunnelId);
         if (tunnel == null) {
             return;
         }
+        shapeToPublic(tunnel, session, data.length);
         // If UDP is active on this tunnel, route as a datagram
-        if (tunnel.udpSocket != null) {
-            final var remote = tunnel.udpRemotes.get(connectionId);
-            if (remote == null) {
-                return;
-            }
-            try {
-                final var packet = new DatagramPacket(data, 0, data.length, remote);
-                tunnel.udpSocket.send(packet);
-            } catch (final IOException e) {
-                log.debug("Failed to send UDP packet: {}", e.toString());
-            }
+        final var flows = tunnel.udpFlows;
+        if (flows != null) {
+            sendToFlow(flows, connectionId, data);
             return;
         }
 
@@ -302,11 +979,38 @@ public class NetTunnelRegistry {
         if (connection == null) {
             return;
         }
+        connection.write(data);
+    }
+
+    /**
+     * Handles a datagram the client sent over the datagram transport. It is shared by all tunnels, so
+     * datagrams over the bandwidth are dropped instead of holding it back.
+     */
+    private void onClientDatagram(final UUID tunnelId, final String connectionId, final byte[] data) {
+        final var tunnel = byTunnelId.get(tunnelId);
+        final var flows = tunnel == null ? null : tunnel.udpFlows;
+        if (flows == null) {
+            return;
+        }
+        final var now = System.nanoTime();
+        final var shaper = tunnel.shaper;
+        final var accountShaper = tunnel.accountShaper;
+        if ((shaper != null && !shaper.tryToPublic(data.length, now))
+            || (accountShaper != null && !accountShaper.tryToPublic(data.length, now))) {
+            return;
+        }
+        sendToFlow(flows, connectionId, data);
+    }
+
+    private static void sendToFlow(final UdpFlowTable flows, final String connectionId, final byte[] data) {
+        final var flow = flows.touch(connectionId, System.nanoTime());
+        if (flow == null) {
+            return;
+        }
         try {
-            connection.out.write(data);
-            connection.out.flush();
+            flow.channel.send(ByteBuffer.wrap(data), flow.remote);
         } catch (final IOException e) {
-            log.debug("Failed to write to public socket: {}", e.toString());
+            log.debug("Failed to send UDP packet: {}", e.toString());
         }
     }
 
@@ -322,33 +1026,37 @@ public class NetTunnelRegistry {
         if (tunnel == null) {
             return;
         }
-        if (tunnel.udpSocket != null) {
-            // Just remove mapping; no need to close the UDP socket itself
-            tunnel.udpRemotes.remove(connectionId);
+        final var flows = tunnel.udpFlows;
+        if (flows != null) {
+            // Just remove the flow; no need to close the UDP channel itself
+            flows.remove(connectionId);
         } else {
+            tunnel.awaitingOpenOk.remove(connectionId);
             final var connection = tunnel.connections.remove(connectionId);
             if (connection != null) {
-                try {
-                    connection.socket.close();
-                } catch (final IOException ignore) {
-                    log.error("Failed to close public socket: {}", ignore.toString());
-                }
+                connection.close();
             }
         }
     }
 
     private void sendOpen(final Tunnel tunnel, final String connId) {
+        try {
+            send(tunnel, openMessage(connId), false);
+        } catch (final IOException e) {
+            log.debug("Failed to send OPEN to client: {}", e.toString());
+        }
+    }
+
+    private TextMessage openMessage(final String connId) throws IOException {
         final var message = new WsTunnelMessage();
         message.setWsType(WsTunnelMessage.Type.OPEN);
         message.setConnectionId(connId);
-        sendToClient(tunnel, message);
+        return new TextMessage(mapper.writeValueAsString(message));
     }
 
     private void sendToClient(final Tunnel tunnel, final WsTunnelMessage message) {
         try {
-            if (tunnel.session != null && tunnel.session.isOpen()) {
-                tunnel.session.sendMessage(new TextMessage(mapper.writeValueAsString(message)));
-            }
+            send(tunnel, new TextMessage(mapper.writeValueAsString(message)), false);
         } catch (final IOException e) {
             log.debug("Failed to send to client: {}", e.toString());
         }
@@ -359,46 +1067,165 @@ public class NetTunnelRegistry {
                                     final byte[] bytes,
                                     final int offset,
                                     final int length) {
+        final var payload = BinaryWsFrame.encodeToByteBuffer(connectionId, bytes, offset, length);
+        // Datagrams may be lost anyway, so they are dropped rather than queued beyond the bound
+        send(tunnel, new BinaryMessage(payload), tunnel.udpFlows != null);
+    }
+
+    /**
+     * Queues a message for the client, or buffers it while the tunnel is waiting for its client to reconnect.
+     * Stream data is always buffered; its amount is bounded by pausing reads from public connections.
+     */
+    private void send(final Tunnel tunnel, final WebSocketMessage<?> message, final boolean droppable) {
+        final var lock = tunnel.sessionLock.readLock();
+        lock.lock();
         try {
-            if (tunnel.session != null && tunnel.session.isOpen()) {
-                final var payload = BinaryWsFrame.encodeToByteBuffer(connectionId, bytes, offset, length);
-                tunnel.session.sendMessage(new BinaryMessage(payload));
+            final var session = tunnel.session;
+            if (session != null) {
+                if (droppable) {
+                    session.offer(message);
+                } else {
+                    session.send(message);
+                }
+            } else if (tunnel.graceExpiry != null) {
+                final var size = message.getPayloadLength();
+                if (droppable && tunnel.bufferedBytes.get() + size > maxBuffered()) {
+                    return;
+                }
+                tunnel.bufferedBytes.addAndGet(size);
+                tunnel.buffered.add(message);
             }
-        } catch (final IOException e) {
-            log.debug("Failed to send binary to client: {}", e.toString());
+        } finally {
+            lock.unlock();
         }
     }
 
+    private long maxBuffered() {
+        final var reconnect = properties.reconnect();
+        return reconnect != null && reconnect.maxBuffered() != null
+            ? reconnect.maxBuffered().toBytes()
+            : DEFAULT_RECONNECT_MAX_BUFFERED;
+    }
+
     @Data
     public static class ExposedPort {
         private final int port;
+        // Host name of tunnels behind the shared TLS listener
+        private String host;
+    }
+
+    /**
+     * Bandwidth limits of a tunnel in bytes per second and direction; {@code null} when unlimited.
+     *
+     * @param tunnelLimit  limit of the tunnel
+     * @param accountLimit limit shared by all tunnels of the account on this node
+     */
+    public record BandwidthLimits(Long tunnelLimit, Long accountLimit) {
+    }
+
+    /**
+     * Datagram transport details of a UDP tunnel.
+     *
+     * @param port      port of the datagram transport
+     * @param channelId channel id identifying the tunnel in packets
+     * @param key       base64 key authenticating packets of the tunnel
+     */
+    public record DatagramOffer(int port, long channelId, String key) {
+    }
+
+    /**
+     * Bridges public TCP connections of a tunnel to its client WebSocket session.
+     */
+    private final class TunnelTcpHandler implements TcpConnectionHandler {
+
+        private final Tunnel tunnel;
+
+        private TunnelTcpHandler(final Tunnel tunnel) {
+            this.tunnel = tunnel;
+        }
+
+        @Override
+        public void onAccepted(final TcpConnection connection) {
+            if (tunnel.upstreamDown) {
+                connection.close();
+                return;
+            }
+            connection.applyProfile(tunnel.socketProfile);
+            tunnel.connections.put(connection.getId(), connection);
+            tunnel.awaitingOpenOk.add(connection.getId());
+            sendOpen(tunnel, connection.getId());
+            // Optimistically, data follows OPEN on the same session and the client buffers it until its local
+            // connect completes; otherwise wait for client OPEN_OK before reading from the public connection
+            final var tcp = properties.tcp();
+            if (tcp != null && tcp.optimisticOpen()) {
+                connection.startReading(forwardHandedOver(tunnel, connection));
+            }
+        }
+
+        @Override
+        public long onData(final TcpConnection connection, final byte[] data, final int offset, final int length) {
+            sendBinaryToClient(tunnel, connection.getId(), data, offset, length);
+            return shapeToClient(tunnel, length);
+        }
+
+        @Override
+        public void onClosed(final TcpConnection connection) {
+            log.info("Public socket closed for tunnel {}: {}", tunnel.tunnelId, connection.getId());
+            tunnel.awaitingOpenOk.remove(connection.getId());
+            if (tunnel.connections.remove(connection.getId()) == null) {
+                return;
+            }
+            final var message = new WsTunnelMessage();
+            message.setWsType(WsTunnelMessage.Type.CLOSE);
+            message.setConnectionId(connection.getId());
+            sendToClient(tunnel, message);
+        }
+
+        @Override
+        public long outboundBacklog() {
+            final var session = tunnel.session;
+            if (session != null) {
+                return session.queuedBytes();
+            }
+            // Keep reads paused while the client is away and the buffer is full
+            return tunnel.bufferedBytes.get() >= maxBuffered() ? Long.MAX_VALUE : 0;
+        }
     }
 
     @Data
     private static class Tunnel {
         private final UUID tunnelId;
-        private volatile WebSocketSession session;
-        private volatile ServerSocket serverSocket;
-        private final Map<String, Connection> connections = new ConcurrentHashMap<>();
-        private volatile DatagramSocket udpSocket;
-        private final Map<String, InetSocketAddress> udpRemotes = new ConcurrentHashMap<>();
+        private volatile TunnelSessionWriter session;
+        // Client session that takes over when the active one drops
+        private volatile TunnelSessionWriter standby;
+        private volatile ServerSocketChannel serverChannel;
+        private volatile TcpConnectionHandler tcpHandler;
+        private volatile String sniHost;
+        private volatile SocketProfile socketProfile = SocketProfile.INTERACTIVE;
+        // Reported by the client while none of its local services accepts connections
+        private volatile boolean upstreamDown;
+        // Reported on the standby session, applied once it takes over
+        private volatile boolean standbyUpstreamDown;
+        private final Map<String, TcpConnection> connections = new ConcurrentHashMap<>();
+        private volatile List<DatagramChannel> udpChannels = List.of();
+        private volatile UdpFlowTable udpFlows;
+        private volatile DatagramTransport.Peer datagramPeer;
+        private final ReadWriteLock sessionLock = new ReentrantReadWriteLock();
+        private final Queue<WebSocketMessage<?>> buffered = new ConcurrentLinkedQueue<>();
+        private final AtomicLong bufferedBytes = new AtomicLong();
+        private final Set<String> awaitingOpenOk = ConcurrentHashMap.newKeySet();
+        private volatile ScheduledFuture<?> graceExpiry;
+        private volatile boolean bandwidthApplied;
+        private volatile UUID accountId;
+        private volatile BandwidthShaper shaper;
+        private volatile BandwidthShaper accountShaper;
+        // Client session whose reads are suspended for shaping, and when they resume; guarded by readSuspension
+        private final Object readSuspension = new Object();
+        private WsSession suspendedSession;
+        private long resumeReadsAt;
 
         Tunnel(final UUID tunnelId) {
             this.tunnelId = tunnelId;
         }
     }
-
-    private static class Connection {
-        final String connectionId;
-        final Socket socket;
-        final java.io.InputStream in;
-        final java.io.OutputStream out;
-
-        Connection(final String connectionId, final Socket socket) throws IOException {
-            this.connectionId = connectionId;
-            this.socket = socket;
-            this.in = socket.getInputStream();
-            this.out = socket.getOutputStream();
-        }
-    }
 }
@@ -24,6 +24,7 @@ import tech.amak.portbuddy.common.TunnelType;
 import tech.amak.portbuddy.common.tunnel.BinaryWsFrame;
 import tech.amak.portbuddy.common.tunnel.ControlMessage;
 import tech.amak.portbuddy.common.tunnel.MessageEnvelope;
+import tech.amak.portbuddy.common.tunnel.SocketProfile;
 import tech.amak.portbuddy.common.tunnel.WsTunnelMessage;
 import tech.amak.portbuddy.common.utils.IdUtils;
 import tech.amak.portbuddy.netproxy.config.AppProperties;
@@ -48,6 +49,7 @@ public class NetTunnelWebSocketHandler extends AbstractWebSocketHandler {
         final var params = parseQueryParams(session.getUri());
         final var typeStr = params.get("type");
         final var portStr = params.get("port");
+        final var sniRouting = "sni".equalsIgnoreCase(params.get("routing"));
         if (typeStr == null || portStr == null) {
             session.close(CloseStatus.BAD_DATA);
             return;
@@ -60,23 +62,34 @@ public class NetTunnelWebSocketHandler extends AbstractWebSocketHandler {
             return;
         }
         final Integer desiredPort;
+        final SocketProfile socketProfile;
         try {
             desiredPort = Integer.parseInt(portStr);
+            socketProfile = SocketProfile.from(params.get("profile"));
         } catch (final Exception ignore) {
             session.close(CloseStatus.BAD_DATA);
             return;
         }
+        // A standby connection takes over the exposed tunnel when the active one drops; like the active one, its
+        // ownership of the tunnel was checked during the handshake
+        if (Boolean.parseBoolean(params.get("standby")) && registry.attachStandby(tunnelId, session)) {
+            log.info("Net tunnel WS established: {} (standby)", tunnelId);
+            return;
+        }
+        registry.setSocketProfile(tunnelId, socketProfile);
 
         // Prepare exposure and then attach the session
         final NetTunnelRegistry.ExposedPort exposedPort;
         try {
-            exposedPort = registry.expose(tunnelId, tunnelType, desiredPort);
+            exposedPort = sniRouting && tunnelType == TunnelType.TCP
+                ? registry.exposeSni(tunnelId)
+                : registry.expose(tunnelId, tunnelType, desiredPort);
         } catch (final Exception e) {
             log.warn("Failed to expose {} on {}: {}", tunnelType, desiredPort, e.toString());
             session.close(CloseStatus.SERVER_ERROR);
             return;
         }
-        // TODO: validate Authorization header/JWT
+        final var bandwidthLimits = registry.applyBandwidthLimits(tunnelId);
         registry.attachSession(tunnelId, session);
         log.info("Net tunnel WS established: {} type={} port={}", tunnelId, tunnelType, desiredPort);
 
@@ -84,9 +97,17 @@ public class NetTunnelWebSocketHandler extends AbstractWebSocketHandler {
         try {
             final var info = new WsTunnelMessage();
             info.setWsType(WsTunnelMessage.Type.EXPOSED);
-            info.setPublicHost(properties.publicHost());
+            info.setPublicHost(exposedPort.getHost() != null ? exposedPort.getHost() : properties.publicHost());
             info.setPublicPort(exposedPort.getPort());
-            session.sendMessage(new TextMessage(mapper.writeValueAsString(info)));
+            info.setBandwidthLimit(bandwidthLimits.tunnelLimit());
+            info.setAccountBandwidthLimit(bandwidthLimits.accountLimit());
+            final var datagram = registry.datagramOffer(tunnelId);
+            if (datagram != null) {
+                info.setDatagramPort(datagram.port());
+                info.setDatagramChannelId(datagram.channelId());
+                info.setDatagramKey(datagram.key());
+            }
+            registry.sendMessage(tunnelId, session, new TextMessage(mapper.writeValueAsString(info)));
         } catch (final Exception e) {
             log.debug("Failed to send EXPOSED info: {}", e.toString());
         }
@@ -104,7 +125,11 @@ public class NetTunnelWebSocketHandler extends AbstractWebSocketHandler {
                 final var pong = new ControlMessage();
                 pong.setType(ControlMessage.Type.PONG);
                 pong.setTs(System.currentTimeMillis());
-                session.sendMessage(new TextMessage(mapper.writeValueAsString(pong)));
+                registry.sendMessage(tunnelId, session, new TextMessage(mapper.writeValueAsString(pong)));
+            } else if (ctrl.getType() == ControlMessage.Type.UPSTREAM_DOWN) {
+                registry.setUpstreamDown(tunnelId, session, true);
+            } else if (ctrl.getType() == ControlMessage.Type.UPSTREAM_UP) {
+                registry.setUpstreamDown(tunnelId, session, false);
             }
             return;
         }
@@ -114,7 +139,7 @@ public class NetTunnelWebSocketHandler extends AbstractWebSocketHandler {
                 case OPEN_OK -> registry.onClientOpenOk(tunnelId, message.getConnectionId());
                 case BINARY -> {
                     // Backward compatibility: accept base64 text payloads
-                    registry.onClientBinary(tunnelId, message.getConnectionId(), message.getDataB64());
+                    registry.onClientBinary(tunnelId, session, message.getConnectionId(), message.getDataB64());
                 }
                 case CLOSE -> registry.onClientClose(tunnelId, message.getConnectionId());
                 default -> log.debug("Ignoring WS control type: {}", message.getWsType());
@@ -131,16 +156,20 @@ public class NetTunnelWebSocketHandler extends AbstractWebSocketHandler {
         if (decoded == null) {
             return;
         }
-        registry.onClientBinaryBytes(tunnelId, decoded.connectionId(), decoded.data());
+        registry.onClientBinaryBytes(tunnelId, session, decoded.connectionId(), decoded.data());
     }
 
     @Override
     public void afterConnectionClosed(final WebSocketSession session, final CloseStatus status) {
-        // Detach session and close exposed sockets for this tunnel immediately
+        // A client exiting closes its tunnel right away; otherwise keep it for a while so it can reconnect
         try {
             final var tunnelId = extractTunnelId(session);
-            if (tunnelId != null) {
-                registry.closeTunnel(tunnelId);
+            if (tunnelId != null && registry.detachStandby(tunnelId, session)) {
+                log.info("Net tunnel {} standby WS closed", tunnelId);
+            } else if (tunnelId != null && CloseStatus.NORMAL.equalsCode(status)) {
+                registry.closeTunnel(tunnelId, session);
+            } else if (tunnelId != null) {
+                registry.suspendTunnel(tunnelId, session);
             }
         } catch (final Exception e) {
             log.debug("Failed to close tunnel on WS close: {}", e.toString());
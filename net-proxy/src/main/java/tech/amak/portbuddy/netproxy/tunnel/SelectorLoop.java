@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.netproxy.tunnel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import lombok.extern.slf4j.Slf4j;
+import tech.amak.portbuddy.common.tunnel.SocketProfile;
+
+/**
+ * Single selector thread serving a subset of listening and accepted channels. Channel registration and
+ * interest changes requested from other threads are queued as tasks and applied on the loop thread.
+ * Connections whose tunnel is backed up or over its bandwidth have reads paused and are re-checked on a
+ * short poll interval.
+ */
+@Slf4j
+final class SelectorLoop implements Runnable {
+
+    private static final long PAUSED_POLL_MILLIS = 10;
+
+    private final TcpForwardingEngine engine;
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<TcpConnection> paused = new HashSet<>();
+    private final ByteBuffer readBuffer;
+    private final int readBufferSize;
+    private final long highWatermark;
+    private final long lowWatermark;
+    private final long maxPendingWrite;
+    private volatile boolean running = true;
+
+    SelectorLoop(final TcpForwardingEngine engine,
+                 final String name,
+                 final int readBufferSize,
+                 final long highWatermark,
+                 final long lowWatermark,
+                 final long maxPendingWrite) throws IOException {
+        this.engine = engine;
+        this.selector = Selector.open();
+        // Connections of some socket profiles read more at once than the configured default
+        this.readBuffer = ByteBuffer.allocate(Math.max(readBufferSize, SocketProfile.maxReadBufferSize()));
+        this.readBufferSize = readBufferSize;
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+        this.maxPendingWrite = maxPendingWrite;
+        this.thread = Thread.ofPlatform().name(name).daemon().unstarted(this);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Runs the task on the loop thread.
+     */
+    void execute(final Runnable task) {
+        tasks.add(task);
+        if (Thread.currentThread() != thread) {
+            selector.wakeup();
+        }
+    }
+
+    void listen(final ServerSocketChannel serverChannel, final TcpConnectionHandler handler) {
+        execute(() -> {
+            try {
+                serverChannel.configureBlocking(false);
+                serverChannel.register(selector, SelectionKey.OP_ACCEPT, handler);
+            } catch (final IOException e) {
+                log.warn("Failed to register listening channel: {}", e.toString());
+            }
+        });
+    }
+
+    long maxPendingWrite() {
+        return maxPendingWrite;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select(paused.isEmpty() ? 0 : PAUSED_POLL_MILLIS);
+                runTasks();
+                final var selected = selector.selectedKeys();
+                for (final var key : selected) {
+                    handle(key);
+                }
+                selected.clear();
+                resumeDrained();
+            }
+        } catch (final ClosedSelectorException | IOException e) {
+            log.warn("Selector loop {} failed: {}", thread.getName(), e.toString());
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (final Exception e) {
+                log.warn("Selector task failed: {}", e.toString());
+            }
+        }
+    }
+
+    private void handle(final SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        try {
+            if (key.isAcceptable()) {
+                accept(key);
+                return;
+            }
+            final var connection = (TcpConnection) key.attachment();
+            if (key.isWritable()) {
+                connection.flush();
+            }
+            if (key.isValid() && key.isReadable()) {
+                read(connection);
+            }
+        } catch (final IOException | RuntimeException e) {
+            if (key.attachment() instanceof TcpConnection connection) {
+                log.debug("Public connection {} failed: {}", connection.getId(), e.toString());
+                connection.closeByPeer();
+            } else {
+                log.warn("Failed to accept public connection: {}", e.toString());
+            }
+        }
+    }
+
+    private void accept(final SelectionKey key) throws IOException {
+        final var serverChannel = (ServerSocketChannel) key.channel();
+        final var handler = (TcpConnectionHandler) key.attachment();
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            final var accepted = channel;
+            final var loop = engine.next();
+            if (loop == this) {
+                // A task queued from the loop thread would wait for the next wakeup of the selector
+                register(accepted, handler);
+            } else {
+                loop.execute(() -> loop.register(accepted, handler));
+            }
+        }
+    }
+
+    private void register(final SocketChannel channel, final TcpConnectionHandler handler) {
+        try {
+            final var key = channel.register(selector, 0);
+            final var connection = new TcpConnection(this, channel, key, handler);
+            key.attach(connection);
+            handler.onAccepted(connection);
+        } catch (final IOException e) {
+            log.debug("Failed to register public connection: {}", e.toString());
+            try {
+                channel.close();
+            } catch (final IOException ignore) {
+                log.debug("Failed to close public connection: {}", ignore.toString());
+            }
+        }
+    }
+
+    private void read(final TcpConnection connection) throws IOException {
+        readBuffer.clear();
+        readBuffer.limit(connection.readLimit > 0 ? connection.readLimit : readBufferSize);
+        final var read = connection.getChannel().read(readBuffer);
+        if (read < 0) {
+            connection.closeByPeer();
+            return;
+        }
+        var delay = 0L;
+        if (read > 0) {
+            delay = connection.getHandler().onData(connection, readBuffer.array(), 0, read);
+        }
+        if (delay > 0 || connection.getHandler().outboundBacklog() > highWatermark) {
+            pause(connection, delay);
+        }
+    }
+
+    /**
+     * Starts reading from a connection, once the delay has passed and its tunnel is not backed up.
+     */
+    void startReading(final TcpConnection connection, final long delay) {
+        if (delay > 0 || connection.getHandler().outboundBacklog() > highWatermark) {
+            pause(connection, delay);
+        } else {
+            connection.setReading(true);
+        }
+    }
+
+    private void pause(final TcpConnection connection, final long delay) {
+        connection.readResumeAt = System.nanoTime() + delay;
+        connection.setReading(false);
+        paused.add(connection);
+    }
+
+    private void resumeDrained() {
+        if (paused.isEmpty()) {
+            return;
+        }
+        final var now = System.nanoTime();
+        final var iterator = paused.iterator();
+        while (iterator.hasNext()) {
+            final var connection = iterator.next();
+            if (connection.isClosed()) {
+                iterator.remove();
+            } else if (now - connection.readResumeAt >= 0
+                       && connection.getHandler().outboundBacklog() < lowWatermark) {
+                connection.setReading(true);
+                iterator.remove();
+            }
+        }
+    }
+
+    private void closeAll() {
+        for (final var key : selector.keys()) {
+            if (key.attachment() instanceof TcpConnection connection) {
+                connection.close();
+            }
+        }
+        try {
+            selector.close();
+        } catch (final IOException e) {
+            log.debug("Failed to close selector: {}", e.toString());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.netproxy.tunnel;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Handler of the shared TLS listener. Reads the start of every accepted connection until its ClientHello
+ * names a server, then hands the connection over to the handler of the tunnel registered for that host
+ * name together with the bytes read so far, which that handler forwards once the client may receive data.
+ * TLS is not terminated; the stream is forwarded as is.
+ */
+@Slf4j
+final class SniRoutingHandler implements TcpConnectionHandler {
+
+    private static final int MAX_CLIENT_HELLO_BYTES = 64 * 1024;
+
+    private final Function<String, TcpConnectionHandler> routes;
+    private final Map<String, byte[]> pending = new ConcurrentHashMap<>();
+
+    SniRoutingHandler(final Function<String, TcpConnectionHandler> routes) {
+        this.routes = routes;
+    }
+
+    @Override
+    public void onAccepted(final TcpConnection connection) {
+        pending.put(connection.getId(), new byte[0]);
+        connection.startReading();
+    }
+
+    @Override
+    public long onData(final TcpConnection connection, final byte[] data, final int offset, final int length) {
+        final var previous = pending.getOrDefault(connection.getId(), new byte[0]);
+        final var buffered = Arrays.copyOf(previous, previous.length + length);
+        System.arraycopy(data, offset, buffered, previous.length, length);
+
+        final var result = ClientHelloParser.parse(buffered, buffered.length);
+        if (!result.complete()) {
+            if (buffered.length > MAX_CLIENT_HELLO_BYTES) {
+                log.debug("ClientHello of connection {} is too large", connection.getId());
+                reject(connection);
+            } else {
+                pending.put(connection.getId(), buffered);
+            }
+            return 0;
+        }
+        pending.remove(connection.getId());
+        final var serverName = result.serverName();
+        final var target = serverName == null ? null : routes.apply(serverName.toLowerCase(Locale.ROOT));
+        if (target == null) {
+            log.debug("No tunnel for server name {} of connection {}", serverName, connection.getId());
+            reject(connection);
+            return 0;
+        }
+        // Hand over as if just accepted; the target decides when the ClientHello is forwarded and reading starts
+        connection.setReading(false);
+        connection.route(target, buffered);
+        target.onAccepted(connection);
+        if (connection.isClosed()) {
+            log.debug("Tunnel for server name {} refused connection {}", serverName, connection.getId());
+        }
+        return 0;
+    }
+
+    @Override
+    public void onClosed(final TcpConnection connection) {
+        pending.remove(connection.getId());
+    }
+
+    @Override
+    public long outboundBacklog() {
+        return 0;
+    }
+
+    private void reject(final TcpConnection connection) {
+        pending.remove(connection.getId());
+        connection.close();
+    }
+}
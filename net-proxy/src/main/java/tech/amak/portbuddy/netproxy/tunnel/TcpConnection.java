@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.netproxy.tunnel;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import tech.amak.portbuddy.common.tunnel.SocketProfile;
+
+/**
+ * Public TCP connection served by a {@link SelectorLoop}. Writes may come from any thread: data is written
+ * straight to the socket when possible and the rest is queued and flushed by the loop once the socket
+ * becomes writable again.
+ */
+@Slf4j
+public final class TcpConnection {
+
+    @Getter
+    private final String id = UUID.randomUUID().toString();
+    @Getter
+    private final SocketChannel channel;
+    @Getter
+    private volatile TcpConnectionHandler handler;
+    private final SelectorLoop loop;
+    private final SelectionKey key;
+    private final Queue<ByteBuffer> pendingWrites = new ArrayDeque<>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // Bytes a previous handler read before routing the connection on; forwarded ahead of anything read later
+    private final AtomicReference<byte[]> handedOver = new AtomicReference<>();
+    private long pendingBytes;
+    // Monotonic time before which reads stay paused; only accessed on the loop thread
+    long readResumeAt;
+    // Maximum bytes read at once, 0 for the loop default; only accessed on the loop thread
+    int readLimit;
+
+    TcpConnection(final SelectorLoop loop,
+                  final SocketChannel channel,
+                  final SelectionKey key,
+                  final TcpConnectionHandler handler) {
+        this.loop = loop;
+        this.channel = channel;
+        this.key = key;
+        this.handler = handler;
+    }
+
+    /**
+     * Passes the connection on to another handler, e.g. once its destination tunnel is known.
+     *
+     * @param target    handler taking over the connection
+     * @param readSoFar bytes already read from the connection, for the target to forward first
+     */
+    void route(final TcpConnectionHandler target, final byte[] readSoFar) {
+        this.handedOver.set(readSoFar);
+        this.handler = target;
+    }
+
+    /**
+     * Returns the bytes read before the connection was routed to its current handler, once.
+     *
+     * @return bytes to forward ahead of newly read data, or {@code null} if there are none
+     */
+    byte[] takeHandedOver() {
+        return handedOver.getAndSet(null);
+    }
+
+    /**
+     * Applies the socket options and read size of the tunnel's profile; called on the loop thread.
+     */
+    void applyProfile(final SocketProfile profile) {
+        try {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, profile.isTcpNoDelay());
+            channel.setOption(StandardSocketOptions.SO_KEEPALIVE, profile.isKeepAlive());
+            if (profile.getSocketBufferSize() > 0) {
+                channel.setOption(StandardSocketOptions.SO_SNDBUF, profile.getSocketBufferSize());
+                channel.setOption(StandardSocketOptions.SO_RCVBUF, profile.getSocketBufferSize());
+            }
+        } catch (final IOException e) {
+            log.debug("Failed to set socket options of public connection {}: {}", id, e.toString());
+        }
+        readLimit = profile.getReadBufferSize();
+    }
+
+    /**
+     * Starts reading data from the connection, e.g. once the client confirmed the connection.
+     */
+    public void startReading() {
+        startReading(0);
+    }
+
+    /**
+     * Starts reading data from the connection after a pause, e.g. when bytes forwarded on its behalf already
+     * used up the bandwidth of its tunnel.
+     *
+     * @param delayNanos nanoseconds to wait before reading; zero to read right away
+     */
+    public void startReading(final long delayNanos) {
+        loop.execute(() -> loop.startReading(this, delayNanos));
+    }
+
+    /**
+     * Writes data to the connection. The connection is closed if too much data is already queued.
+     *
+     * @param data bytes to write; the array must not be modified afterwards
+     */
+    public void write(final byte[] data) {
+        final var buffer = ByteBuffer.wrap(data);
+        var failed = false;
+        synchronized (this) {
+            if (closed.get()) {
+                return;
+            }
+            try {
+                final var queued = !pendingWrites.isEmpty();
+                if (!queued) {
+                    channel.write(buffer);
+                    if (!buffer.hasRemaining()) {
+                        return;
+                    }
+                }
+                pendingWrites.add(buffer);
+                pendingBytes += buffer.remaining();
+                failed = pendingBytes > loop.maxPendingWrite();
+                if (failed) {
+                    log.info("Public connection {} is not reading, closing it", id);
+                } else if (queued) {
+                    // The loop is already waiting for the socket to become writable
+                    return;
+                }
+            } catch (final IOException e) {
+                log.debug("Failed to write to public connection {}: {}", id, e.toString());
+                failed = true;
+            }
+        }
+        if (failed) {
+            closeByPeer();
+            return;
+        }
+        loop.execute(() -> {
+            if (key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        });
+    }
+
+    /**
+     * Closes the connection without notifying the handler.
+     */
+    public void close() {
+        closeChannel();
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Closes the connection because the peer closed it or it failed, and notifies the handler once.
+     */
+    void closeByPeer() {
+        if (closeChannel()) {
+            handler.onClosed(this);
+        }
+    }
+
+    private boolean closeChannel() {
+        if (!closed.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            channel.close();
+        } catch (final IOException e) {
+            log.debug("Failed to close public connection {}: {}", id, e.toString());
+        }
+        synchronized (this) {
+            pendingWrites.clear();
+            pendingBytes = 0;
+        }
+        return true;
+    }
+
+    void setReading(final boolean reading) {
+        if (!key.isValid()) {
+            return;
+        }
+        final var ops = key.interestOps();
+        key.interestOps(reading ? ops | SelectionKey.OP_READ : ops & ~SelectionKey.OP_READ);
+    }
+
+    /**
+     * Flushes queued data; called on the loop thread when the socket is writable.
+     */
+    synchronized void flush() throws IOException {
+        while (!pendingWrites.isEmpty()) {
+            final var head = pendingWrites.peek();
+            pendingBytes -= channel.write(head);
+            if (head.hasRemaining()) {
+                return;
+            }
+            pendingWrites.poll();
+        }
+        if (key.isValid()) {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        }
+    }
+}
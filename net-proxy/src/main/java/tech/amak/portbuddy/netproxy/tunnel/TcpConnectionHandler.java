@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.netproxy.tunnel;
+
+/**
+ * Callbacks of a listening channel registered with {@link TcpForwardingEngine}. All methods are invoked
+ * on a selector thread and must not block.
+ */
+public interface TcpConnectionHandler {
+
+    /**
+     * Called when a public connection is accepted, or routed to this handler by another one. A routed
+     * connection may carry bytes that were already read, see {@link TcpConnection#takeHandedOver()}.
+     *
+     * @param connection accepted connection, not reading yet
+     */
+    void onAccepted(TcpConnection connection);
+
+    /**
+     * Called with data read from a public connection. The array is reused after the call returns.
+     *
+     * @param connection connection the data was read from
+     * @param data       buffer holding the data
+     * @param offset     offset of the data in the buffer
+     * @param length     number of bytes read
+     * @return nanoseconds to pause reading from the connection, e.g. to shape its bandwidth; zero to
+     *     keep reading
+     */
+    long onData(TcpConnection connection, byte[] data, int offset, int length);
+
+    /**
+     * Called once when a public connection was closed by the peer or failed.
+     *
+     * @param connection closed connection
+     */
+    void onClosed(TcpConnection connection);
+
+    /**
+     * Returns the number of bytes read from public connections that are still waiting to be sent to the
+     * client. Reads are paused while the backlog is above the high watermark.
+     *
+     * @return outbound backlog in bytes
+     */
+    long outboundBacklog();
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.netproxy.tunnel;
+
+import java.io.IOException;
+import java.nio.channels.ServerSocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import tech.amak.portbuddy.netproxy.config.AppProperties;
+
+/**
+ * Event-driven engine for public TCP connections of net tunnels. Listening and accepted channels are
+ * spread over a small, fixed number of {@link SelectorLoop}s, and each loop reads all of its connections
+ * through a single shared buffer, so an idle connection costs no thread and no buffer of its own.
+ */
+@Slf4j
+@Component
+public class TcpForwardingEngine {
+
+    private static final int DEFAULT_READ_BUFFER_SIZE = 16 * 1024;
+    private static final long DEFAULT_HIGH_WATERMARK = 1024 * 1024;
+    private static final long DEFAULT_LOW_WATERMARK = 256 * 1024;
+    private static final long DEFAULT_MAX_PENDING_WRITE = 8 * 1024 * 1024;
+
+    private final SelectorLoop[] loops;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+
+    /**
+     * Constructs the engine and starts its selector threads.
+     *
+     * @param properties application properties holding the TCP engine settings
+     * @throws IOException if a selector cannot be opened
+     */
+    public TcpForwardingEngine(final AppProperties properties) throws IOException {
+        final var tcp = properties.tcp();
+        final var threads = tcp != null && tcp.selectorThreads() > 0
+            ? tcp.selectorThreads()
+            : Runtime.getRuntime().availableProcessors();
+        final var readBufferSize = tcp != null && tcp.readBufferSize() != null
+            ? (int) tcp.readBufferSize().toBytes()
+            : DEFAULT_READ_BUFFER_SIZE;
+        final var highWatermark = tcp != null && tcp.highWatermark() != null
+            ? tcp.highWatermark().toBytes()
+            : DEFAULT_HIGH_WATERMARK;
+        final var lowWatermark = tcp != null && tcp.lowWatermark() != null
+            ? tcp.lowWatermark().toBytes()
+            : DEFAULT_LOW_WATERMARK;
+        final var maxPendingWrite = tcp != null && tcp.maxPendingWrite() != null
+            ? tcp.maxPendingWrite().toBytes()
+            : DEFAULT_MAX_PENDING_WRITE;
+
+        this.loops = new SelectorLoop[threads];
+        for (var i = 0; i < threads; i++) {
+            loops[i] = new SelectorLoop(this, "net-proxy-selector-" + i,
+                readBufferSize, highWatermark, lowWatermark, maxPendingWrite);
+            loops[i].start();
+        }
+        log.info("TCP forwarding engine started with {} selector thread(s)", threads);
+    }
+
+    /**
+     * Starts accepting connections on a bound listening channel. Accepted connections are reported to the
+     * handler and stay idle until {@link TcpConnection#startReading()} is called.
+     *
+     * @param serverChannel bound listening channel
+     * @param handler       callbacks of the tunnel owning the channel
+     */
+    public void listen(final ServerSocketChannel serverChannel, final TcpConnectionHandler handler) {
+        next().listen(serverChannel, handler);
+    }
+
+    SelectorLoop next() {
+        return loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+    }
+
+    @PreDestroy
+    void stop() {
+        for (final var loop : loops) {
+            loop.shutdown();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.netproxy.tunnel;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UDP flows of a tunnel, one per public remote address. Each flow gets a short identifier that is used as
+ * the connection id in tunnel frames, remembers the channel that received it so replies leave through
+ * the same socket, and is dropped after it stays idle. The number of flows is capped; datagrams that
+ * would open a flow beyond the cap are dropped.
+ */
+final class UdpFlowTable {
+
+    private final Map<SocketAddress, Flow> byRemote = new ConcurrentHashMap<>();
+    private final Map<String, Flow> byId = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final int maxFlows;
+
+    UdpFlowTable(final int maxFlows) {
+        this.maxFlows = maxFlows;
+    }
+
+    /**
+     * Returns the flow of a remote address, creating it on the first datagram.
+     *
+     * @param remote   public remote address
+     * @param channel  channel the datagram was received on
+     * @param nowNanos current monotonic time
+     * @return the flow, or {@code null} if the table is full
+     */
+    Flow receivedFrom(final SocketAddress remote, final DatagramChannel channel, final long nowNanos) {
+        var flow = byRemote.get(remote);
+        if (flow == null) {
+            if (byRemote.size() >= maxFlows) {
+                return null;
+            }
+            flow = byRemote.computeIfAbsent(remote, address -> {
+                final var created = new Flow(Long.toString(nextId.incrementAndGet(), Character.MAX_RADIX),
+                    (InetSocketAddress) address, channel, nowNanos);
+                byId.put(created.id, created);
+                return created;
+            });
+        }
+        flow.lastActivityNanos = nowNanos;
+        return flow;
+    }
+
+    /**
+     * Returns the flow with the given identifier and marks it active.
+     */
+    Flow touch(final String id, final long nowNanos) {
+        final var flow = byId.get(id);
+        if (flow != null) {
+            flow.lastActivityNanos = nowNanos;
+        }
+        return flow;
+    }
+
+    void remove(final String id) {
+        final var flow = byId.remove(id);
+        if (flow != null) {
+            byRemote.remove(flow.remote, flow);
+        }
+    }
+
+    /**
+     * Removes flows without traffic in either direction for longer than the idle timeout.
+     *
+     * @return removed flows
+     */
+    List<Flow> expire(final long nowNanos, final long idleTimeoutNanos) {
+        final var expired = new ArrayList<Flow>();
+        for (final var flow : byId.values()) {
+            if (nowNanos - flow.lastActivityNanos > idleTimeoutNanos) {
+                remove(flow.id);
+                expired.add(flow);
+            }
+        }
+        return expired;
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    void clear() {
+        byRemote.clear();
+        byId.clear();
+    }
+
+    static final class Flow {
+
+        final String id;
+        final InetSocketAddress remote;
+        final DatagramChannel channel;
+        volatile long lastActivityNanos;
+
+        private Flow(final String id,
+                     final InetSocketAddress remote,
+                     final DatagramChannel channel,
+                     final long nowNanos) {
+            this.id = id;
+            this.remote = remote;
+            this.channel = channel;
+            this.lastActivityNanos = nowNanos;
+        }
+    }
+}
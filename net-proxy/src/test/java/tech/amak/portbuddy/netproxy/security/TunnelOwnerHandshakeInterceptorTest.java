@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.netproxy.security;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.socket.WebSocketHandler;
+
+import tech.amak.portbuddy.netproxy.tunnel.NetTunnelRegistry;
+
+class TunnelOwnerHandshakeInterceptorTest {
+
+    private static final UUID TUNNEL_ID = UUID.randomUUID();
+
+    private final NetTunnelRegistry registry = mock(NetTunnelRegistry.class);
+    private final TunnelOwnerHandshakeInterceptor interceptor = new TunnelOwnerHandshakeInterceptor(registry);
+    private final Principal principal = mock(Principal.class);
+    private final ServerHttpResponse response = mock(ServerHttpResponse.class);
+
+    @Test
+    void shouldRejectStandbyHandshakeOfAnotherAccount() {
+        // Given
+        when(registry.isOwnedBy(TUNNEL_ID, principal)).thenReturn(false);
+
+        // When
+        final var accepted = handshake(true);
+
+        // Then
+        assertFalse(accepted);
+        verify(response).setStatusCode(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    void shouldRejectActiveHandshakeOfAnotherAccount() {
+        // Given
+        when(registry.isOwnedBy(TUNNEL_ID, principal)).thenReturn(false);
+
+        // When
+        final var accepted = handshake(false);
+
+        // Then
+        assertFalse(accepted);
+        verify(response).setStatusCode(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    void shouldAcceptHandshakeOfOwningAccount() {
+        // Given
+        when(registry.isOwnedBy(TUNNEL_ID, principal)).thenReturn(true);
+
+        // When
+        final var accepted = handshake(true);
+
+        // Then
+        assertTrue(accepted);
+        verify(response, never()).setStatusCode(any());
+    }
+
+    private boolean handshake(final boolean standby) {
+        final var request = mock(ServerHttpRequest.class);
+        when(request.getURI()).thenReturn(URI.create(
+            "ws://localhost/api/net-tunnel/" + TUNNEL_ID + "?type=tcp&port=5432&standby=" + standby));
+        when(request.getPrincipal()).thenReturn(principal);
+        return interceptor.beforeHandshake(request, response, mock(WebSocketHandler.class), new HashMap<>());
+    }
+}
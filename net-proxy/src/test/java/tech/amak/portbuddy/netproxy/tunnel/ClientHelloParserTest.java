@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.netproxy.tunnel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.net.ssl.SSLContext;
+
+import org.junit.jupiter.api.Test;
+
+class ClientHelloParserTest {
+
+    private static final String HOST = "demo.tls.example.com";
+
+    @Test
+    void shouldExtractServerName() throws Exception {
+        // Given
+        final var hello = clientHello(HOST);
+
+        // When
+        final var result = ClientHelloParser.parse(hello, hello.length);
+
+        // Then
+        assertTrue(result.complete());
+        assertEquals(HOST, result.serverName());
+    }
+
+    @Test
+    void shouldJoinClientHelloFragmentedAcrossRecords() throws Exception {
+        // Given
+        final var hello = fragment(clientHello(HOST), 50);
+
+        // When
+        final var result = ClientHelloParser.parse(hello, hello.length);
+
+        // Then
+        assertTrue(result.complete());
+        assertEquals(HOST, result.serverName());
+    }
+
+    @Test
+    void shouldAskForMoreDataWhenClientHelloIsTruncated() throws Exception {
+        // Given
+        final var hello = clientHello(HOST);
+        final var fragmented = fragment(hello, 50);
+
+        // When / Then - within the record header, the first record and the following ones
+        for (final var length : new int[] {3, 40, hello.length - 1}) {
+            assertFalse(ClientHelloParser.parse(hello, length).complete(), "length " + length);
+        }
+        for (final var length : new int[] {55, 60, fragmented.length - 1}) {
+            assertFalse(ClientHelloParser.parse(fragmented, length).complete(), "fragmented length " + length);
+        }
+    }
+
+    @Test
+    void shouldCompleteWithoutServerNameWhenClientSendsNone() throws Exception {
+        // Given
+        final var hello = clientHello(null);
+
+        // When
+        final var result = ClientHelloParser.parse(hello, hello.length);
+
+        // Then
+        assertTrue(result.complete());
+        assertNull(result.serverName());
+    }
+
+    @Test
+    void shouldCompleteWithoutServerNameWhenDataIsNotTls() {
+        // Given
+        final var request = "GET / HTTP/1.1\r\nHost: demo\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+        // When
+        final var result = ClientHelloParser.parse(request, request.length);
+
+        // Then
+        assertTrue(result.complete());
+        assertNull(result.serverName());
+    }
+
+    /**
+     * Produces the first flight of a JDK TLS client, i.e. a single record holding its ClientHello.
+     */
+    private static byte[] clientHello(final String host) throws Exception {
+        final var engine = host == null
+            ? SSLContext.getDefault().createSSLEngine()
+            : SSLContext.getDefault().createSSLEngine(host, 443);
+        engine.setUseClientMode(true);
+        final var out = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+        engine.wrap(ByteBuffer.allocate(0), out);
+        return Arrays.copyOf(out.array(), out.position());
+    }
+
+    /**
+     * Splits the handshake message of a single record into records carrying at most the given number of bytes.
+     */
+    private static byte[] fragment(final byte[] record, final int maxFragment) {
+        final var out = new ByteArrayOutputStream();
+        for (var offset = 5; offset < record.length; offset += maxFragment) {
+            final var length = Math.min(maxFragment, record.length - offset);
+            out.write(record, 0, 3);
+            out.write(length >> 8);
+            out.write(length);
+            out.write(record, offset, length);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.netproxy.tunnel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.DataOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import tech.amak.portbuddy.common.Plan;
+import tech.amak.portbuddy.common.dto.TunnelPlanResponse;
+import tech.amak.portbuddy.common.tunnel.DirectFrame;
+import tech.amak.portbuddy.common.tunnel.DirectHello;
+import tech.amak.portbuddy.netproxy.client.TunnelPlanClient;
+import tech.amak.portbuddy.netproxy.config.AppProperties;
+
+class DirectTransportListenerTest {
+
+    private static final UUID TUNNEL_ID = UUID.randomUUID();
+    private static final UUID OWNER_ACCOUNT_ID = UUID.randomUUID();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final JwtDecoder jwtDecoder = mock(JwtDecoder.class);
+    private final NetTunnelWebSocketHandler handler = mock(NetTunnelWebSocketHandler.class);
+    private DirectTransportListener listener;
+    private ServerSocket serverSocket;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        final var planClient = mock(TunnelPlanClient.class);
+        when(planClient.getPlan(TUNNEL_ID)).thenReturn(CompletableFuture.completedFuture(
+            Optional.of(new TunnelPlanResponse(OWNER_ACCOUNT_ID, Plan.PRO))));
+        final var properties = new AppProperties("localhost", null, null, null, null, null, null, null, null, null);
+        final var registry = new NetTunnelRegistry(mapper, mock(TcpForwardingEngine.class), properties, planClient);
+        listener = new DirectTransportListener(properties, handler, registry, jwtDecoder, mapper,
+            mock(SslBundles.class));
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        serverSocket.close();
+    }
+
+    @Test
+    void shouldRejectHelloWithTokenOfAnotherAccount() throws Exception {
+        // Given
+        when(jwtDecoder.decode("foreign")).thenReturn(jwt(UUID.randomUUID()));
+
+        // When
+        try (var client = connectAndHello("foreign")) {
+            // Then - closed without serving the tunnel
+            assertEquals(-1, client.getInputStream().read());
+        }
+        verify(handler, never()).afterConnectionEstablished(any());
+    }
+
+    @Test
+    void shouldServeTunnelWithTokenOfOwningAccount() throws Exception {
+        // Given
+        when(jwtDecoder.decode("owner")).thenReturn(jwt(OWNER_ACCOUNT_ID));
+
+        // When
+        try (var client = connectAndHello("owner")) {
+            // Then
+            verify(handler, timeout(5000)).afterConnectionEstablished(any());
+        }
+    }
+
+    private Socket connectAndHello(final String token) throws Exception {
+        final var client = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+        client.setSoTimeout(5000);
+        final var accepted = serverSocket.accept();
+        Thread.ofVirtual().start(() -> listener.serve(accepted));
+        final var hello = mapper.writeValueAsBytes(
+            new DirectHello("/api/net-tunnel/" + TUNNEL_ID + "?type=tcp&port=5432", token));
+        final var out = new DataOutputStream(client.getOutputStream());
+        DirectFrame.write(out, DirectFrame.HELLO, hello, 0, hello.length);
+        out.flush();
+        return client;
+    }
+
+    private static Jwt jwt(final UUID accountId) {
+        return new Jwt("token", Instant.now(), Instant.now().plusSeconds(60), Map.of("alg", "RS256"),
+            Map.of("sub", UUID.randomUUID().toString(), "aid", accountId.toString()));
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.netproxy.tunnel;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.tomcat.websocket.WsSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.standard.StandardWebSocketSession;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import tech.amak.portbuddy.common.Plan;
+import tech.amak.portbuddy.common.TunnelType;
+import tech.amak.portbuddy.common.dto.TunnelPlanResponse;
+import tech.amak.portbuddy.netproxy.client.TunnelPlanClient;
+import tech.amak.portbuddy.netproxy.config.AppProperties;
+
+class NetTunnelRegistryTest {
+
+    private static final UUID TUNNEL_ID = UUID.randomUUID();
+
+    private final TunnelPlanClient planClient = mock(TunnelPlanClient.class);
+    private NetTunnelRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        final var properties = new AppProperties("localhost", null, null, null, null, null, null, null, null, null);
+        registry = new NetTunnelRegistry(new ObjectMapper(), mock(TcpForwardingEngine.class), properties,
+            planClient);
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.closeTunnel(TUNNEL_ID);
+    }
+
+    @Test
+    void shouldKeepTunnelWhenReplacedSessionClosesNormally() throws Exception {
+        // Given
+        final var port = registry.expose(TUNNEL_ID, TunnelType.TCP, 0).getPort();
+        final var replaced = session();
+        final var current = session();
+        registry.attachSession(TUNNEL_ID, replaced);
+        registry.attachSession(TUNNEL_ID, current);
+
+        // When
+        registry.closeTunnel(TUNNEL_ID, replaced);
+
+        // Then - the public listener still accepts connections
+        connect(port).close();
+    }
+
+    @Test
+    void shouldCloseTunnelWhenActiveSessionClosesNormally() throws Exception {
+        // Given
+        final var port = registry.expose(TUNNEL_ID, TunnelType.TCP, 0).getPort();
+        final var replaced = session();
+        final var current = session();
+        registry.attachSession(TUNNEL_ID, replaced);
+        registry.attachSession(TUNNEL_ID, current);
+
+        // When
+        registry.closeTunnel(TUNNEL_ID, current);
+
+        // Then
+        assertThrows(ConnectException.class, () -> connect(port).close());
+    }
+
+    @Test
+    void shouldKeepResolvedOwnerForReconnectsWhileServerIsDown() {
+        // Given
+        final var owner = UUID.randomUUID();
+        when(planClient.getPlan(TUNNEL_ID)).thenReturn(CompletableFuture.completedFuture(
+            Optional.of(new TunnelPlanResponse(owner, Plan.PRO))));
+        assertTrue(registry.isOwnedBy(TUNNEL_ID, token(owner)));
+
+        // When - the plan cannot be looked up any more
+        when(planClient.getPlan(TUNNEL_ID)).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+        // Then
+        assertTrue(registry.isOwnedBy(TUNNEL_ID, token(owner)));
+        assertFalse(registry.isOwnedBy(TUNNEL_ID, token(UUID.randomUUID())));
+        verify(planClient, times(1)).getPlan(TUNNEL_ID);
+    }
+
+    @Test
+    void shouldRejectForeignAccountsFromRecordedOwner() {
+        // Given
+        when(planClient.getPlan(TUNNEL_ID)).thenReturn(CompletableFuture.completedFuture(
+            Optional.of(new TunnelPlanResponse(UUID.randomUUID(), Plan.PRO))));
+
+        // When
+        final var owned = registry.isOwnedBy(TUNNEL_ID, token(UUID.randomUUID()));
+
+        // Then
+        assertFalse(owned);
+        assertFalse(registry.isOwnedBy(TUNNEL_ID, token(UUID.randomUUID())));
+        verify(planClient, times(1)).getPlan(TUNNEL_ID);
+    }
+
+    @Test
+    void shouldSuspendClientReadsOnceWhileOverBandwidth() throws Exception {
+        // Given
+        final var planClient = mock(TunnelPlanClient.class);
+        when(planClient.getPlan(TUNNEL_ID)).thenReturn(new CompletableFuture<Optional<TunnelPlanResponse>>());
+        final var limit = new AppProperties.BandwidthLimit(DataSize.ofKilobytes(16), null, DataSize.ofKilobytes(1));
+        final var properties = new AppProperties("localhost", null, null, null, null,
+            new AppProperties.Bandwidth(true, null, limit), null, null, null, null);
+        final var shaped = new NetTunnelRegistry(new ObjectMapper(), mock(TcpForwardingEngine.class), properties,
+            planClient);
+        shaped.applyBandwidthLimits(TUNNEL_ID);
+        final var wsSession = mock(WsSession.class);
+        final var session = mock(StandardWebSocketSession.class);
+        when(session.getNativeSession(WsSession.class)).thenReturn(wsSession);
+
+        // When - each frame is a second worth of bandwidth
+        for (var i = 0; i < 3; i++) {
+            shaped.onClientBinaryBytes(TUNNEL_ID, session, "conn", new byte[16 * 1024]);
+        }
+
+        // Then - one suspend, resumed once after the last frame's delay rather than the first's
+        verify(wsSession, times(1)).suspend();
+        verify(wsSession, after(1500).never()).resume();
+        verify(wsSession, timeout(4000)).resume();
+        verify(wsSession, times(1)).suspend();
+        shaped.closeTunnel(TUNNEL_ID);
+    }
+
+    private static JwtAuthenticationToken token(final UUID accountId) {
+        return new JwtAuthenticationToken(new Jwt("token", Instant.now(), Instant.now().plusSeconds(60),
+            Map.of("alg", "RS256"), Map.of("sub", UUID.randomUUID().toString(), "aid", accountId.toString())));
+    }
+
+    private static Socket connect(final int port) throws IOException {
+        return new Socket(InetAddress.getLoopbackAddress(), port);
+    }
+
+    private static WebSocketSession session() {
+        final var session = mock(WebSocketSession.class);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getId()).thenReturn(UUID.randomUUID().toString());
+        return session;
+    }
+}
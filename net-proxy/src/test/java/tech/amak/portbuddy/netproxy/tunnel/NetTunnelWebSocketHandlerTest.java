@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.netproxy.tunnel;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import tech.amak.portbuddy.netproxy.config.AppProperties;
+
+class NetTunnelWebSocketHandlerTest {
+
+    private static final UUID TUNNEL_ID = UUID.randomUUID();
+
+    private final NetTunnelRegistry registry = mock(NetTunnelRegistry.class);
+    private NetTunnelWebSocketHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        final var properties = new AppProperties("localhost", null, null, null, null, null, null, null, null, null);
+        handler = new NetTunnelWebSocketHandler(registry, new ObjectMapper(), properties);
+    }
+
+    @Test
+    void shouldAttachStandbyWithoutExposingTunnelAgain() throws Exception {
+        // Given
+        final var session = session(true);
+        when(registry.attachStandby(TUNNEL_ID, session)).thenReturn(true);
+
+        // When
+        handler.afterConnectionEstablished(session);
+
+        // Then
+        verify(registry).attachStandby(TUNNEL_ID, session);
+        verify(registry, never()).expose(any(), any(), any());
+        verify(registry, never()).attachSession(any(), any());
+        verify(session, never()).close(any());
+    }
+
+    private WebSocketSession session(final boolean standby) {
+        final var session = mock(WebSocketSession.class);
+        when(session.getUri()).thenReturn(URI.create(
+            "ws://localhost/api/net-tunnel/" + TUNNEL_ID + "?type=tcp&port=5432&standby=" + standby));
+        return session;
+    }
+}
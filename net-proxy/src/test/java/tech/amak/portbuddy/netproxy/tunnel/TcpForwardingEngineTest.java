@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.netproxy.tunnel;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import tech.amak.portbuddy.common.TunnelType;
+import tech.amak.portbuddy.netproxy.client.TunnelPlanClient;
+import tech.amak.portbuddy.netproxy.config.AppProperties;
+
+class TcpForwardingEngineTest {
+
+    private static final UUID STALLED_TUNNEL_ID = UUID.randomUUID();
+    private static final UUID TUNNEL_ID = UUID.randomUUID();
+
+    private final CountDownLatch released = new CountDownLatch(1);
+    private TcpForwardingEngine engine;
+    private NetTunnelRegistry registry;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // A single selector thread serves the public connections of both tunnels
+        final var tcp = new AppProperties.Tcp(1, null, null, null, null, false);
+        final var properties = new AppProperties("localhost", null, tcp, null, null, null, null, null, null, null);
+        engine = new TcpForwardingEngine(properties);
+        registry = new NetTunnelRegistry(new ObjectMapper(), engine, properties, mock(TunnelPlanClient.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        released.countDown();
+        registry.closeTunnel(STALLED_TUNNEL_ID);
+        registry.closeTunnel(TUNNEL_ID);
+        registry.stop();
+        engine.stop();
+    }
+
+    @Test
+    void shouldForwardOtherTunnelsWhileClientSessionIsStalled() throws Exception {
+        // Given - a client that never completes a send
+        final var stalled = session();
+        doAnswer(invocation -> {
+            released.await();
+            return null;
+        }).when(stalled).sendMessage(any());
+        final var stalledPort = registry.expose(STALLED_TUNNEL_ID, TunnelType.TCP, 0).getPort();
+        registry.attachSession(STALLED_TUNNEL_ID, stalled);
+        final var session = session();
+        final var port = registry.expose(TUNNEL_ID, TunnelType.TCP, 0).getPort();
+        registry.attachSession(TUNNEL_ID, session);
+
+        // When
+        try (var stalledSocket = new Socket(InetAddress.getLoopbackAddress(), stalledPort)) {
+            verify(stalled, timeout(5_000)).sendMessage(any());
+            try (var socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+
+                // Then - the OPEN of the second tunnel is sent while the first client is stuck
+                verify(session, timeout(5_000)).sendMessage(any());
+            }
+        }
+    }
+
+    private static WebSocketSession session() {
+        final var session = mock(WebSocketSession.class);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getId()).thenReturn(UUID.randomUUID().toString());
+        return session;
+    }
+}
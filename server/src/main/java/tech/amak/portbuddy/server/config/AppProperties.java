@@ -46,10 +46,25 @@ public record AppProperties(
         }
     }
 
+    /**
+     * Settings of tunnel and browser WebSocket sessions.
+     *
+     * @param maxTextMessageSize   maximum size of an incoming text message
+     * @param maxBinaryMessageSize maximum size of an incoming binary message
+     * @param sessionIdleTimeout   idle timeout of a session
+     * @param sendTimeLimit        how long sending a batch to a tunnel session may take before the CLI
+     *                             is disconnected as a slow consumer
+     * @param sendBufferSizeLimit  maximum amount of data queued for a tunnel session before the CLI is
+     *                             disconnected as a slow consumer
+     * @param sendBatchSize        maximum number of queued messages sent to a tunnel session per flush
+     */
     public record WebSocket(
         DataSize maxTextMessageSize,
         DataSize maxBinaryMessageSize,
-        Duration sessionIdleTimeout
+        Duration sessionIdleTimeout,
+        Duration sendTimeLimit,
+        DataSize sendBufferSizeLimit,
+        int sendBatchSize
     ) {
     }
 
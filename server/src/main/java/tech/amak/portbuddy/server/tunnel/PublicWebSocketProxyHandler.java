@@ -76,6 +76,12 @@ public class PublicWebSocketProxyHandler extends AbstractWebSocketHandler {
             }
         }
 
+        if (tunnel.upstreamDown()) {
+            // Try again later
+            browserSession.close(CloseStatus.SERVICE_OVERLOAD.withReason("Local service is down"));
+            return;
+        }
+
         final var connectionId = UUID.randomUUID().toString();
         registry.registerBrowserWs(tunnel.tunnelId(), connectionId, browserSession);
 
@@ -6,25 +6,30 @@ package tech.amak.portbuddy.server.tunnel;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.annotation.PreDestroy;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
-import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import tech.amak.portbuddy.common.tunnel.HttpTunnelMessage;
 import tech.amak.portbuddy.common.tunnel.WsTunnelMessage;
+import tech.amak.portbuddy.server.config.AppProperties;
 import tech.amak.portbuddy.server.db.entity.TunnelEntity;
 
 /**
@@ -38,8 +43,15 @@ public class TunnelRegistry {
     private final Map<String, Tunnel> bySubdomain = new ConcurrentHashMap<>();
     private final Map<UUID, Tunnel> byTunnelId = new ConcurrentHashMap<>();
     public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration DEFAULT_SEND_TIME_LIMIT = Duration.ofSeconds(10);
+    private static final long DEFAULT_SEND_BUFFER_SIZE_LIMIT = 32L * 1024 * 1024;
+    private static final int DEFAULT_SEND_BATCH_SIZE = 64;
+
+    // Drain tasks of tunnel session writers; a blocked send parks only its own virtual thread
+    private final ExecutorService writerExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     private final ObjectMapper mapper;
+    private final AppProperties properties;
 
     /**
      * Registers a WebSocket session for a given tunnel entity by associating it with a newly created
@@ -50,13 +62,105 @@ public class TunnelRegistry {
      * @return {@code true} to indicate successful registration
      */
     public boolean register(final TunnelEntity tunnelEntity, final WebSocketSession session) {
-        final var tunnel = register(tunnelEntity.getDomain().getSubdomain(), tunnelEntity.getId(),
-                tunnelEntity.getAccountId());
-        tunnel.setSession(session);
-        log.info("Registered tunnel {} with session {}", tunnel.tunnelId(), session.getId());
+        return register(List.of(tunnelEntity), session);
+    }
+
+    /**
+     * Registers a WebSocket session that serves several tunnels of a client. The tunnels share one outbound
+     * queue, so messages of all of them are written to the session in order.
+     *
+     * @param tunnelEntities tunnels served by the session
+     * @param session        the {@code WebSocketSession} to be associated with the tunnels
+     * @return {@code true} to indicate successful registration
+     */
+    public boolean register(final List<TunnelEntity> tunnelEntities, final WebSocketSession session) {
+        final var writer = newWriter(session);
+        for (final var tunnelEntity : tunnelEntities) {
+            final var tunnel = register(tunnelEntity.getDomain().getSubdomain(), tunnelEntity.getId(),
+                    tunnelEntity.getAccountId());
+            tunnel.activate(writer);
+            log.info("Registered tunnel {} with session {}", tunnel.tunnelId(), session.getId());
+        }
+        return true;
+    }
+
+    /**
+     * Registers a standby WebSocket session for tunnels of a client. Nothing is sent on a standby session
+     * until the active session of a tunnel closes; the standby then takes over right away, so the tunnel
+     * keeps serving while the client replaces the lost connection. A tunnel without an open active session
+     * is served by the standby session from the start.
+     *
+     * @param tunnelEntities tunnels served by the session
+     * @param session        the standby {@code WebSocketSession}
+     * @return {@code true} to indicate successful registration
+     */
+    public boolean registerStandby(final List<TunnelEntity> tunnelEntities, final WebSocketSession session) {
+        final var writer = newWriter(session);
+        for (final var tunnelEntity : tunnelEntities) {
+            final var tunnel = register(tunnelEntity.getDomain().getSubdomain(), tunnelEntity.getId(),
+                    tunnelEntity.getAccountId());
+            if (tunnel.standBy(writer)) {
+                log.info("Registered standby session {} for tunnel {}", session.getId(), tunnel.tunnelId());
+            } else {
+                log.info("Registered tunnel {} with standby session {}", tunnel.tunnelId(), session.getId());
+            }
+        }
         return true;
     }
 
+    /**
+     * Removes a closed WebSocket session from a tunnel. When it was the active session and a standby
+     * session is open, the standby becomes the active one.
+     *
+     * @param tunnelId tunnel identifier
+     * @param session  the closed session
+     * @return {@code true} if the tunnel is still connected over another session
+     */
+    public boolean unregister(final UUID tunnelId, final WebSocketSession session) {
+        final var tunnel = byTunnelId.get(tunnelId);
+        if (tunnel == null) {
+            return false;
+        }
+        final var failedOver = tunnel.remove(session);
+        if (failedOver) {
+            log.info("Tunnel {} failed over to standby session {}", tunnelId, tunnel.session().getId());
+        }
+        return tunnel.isOpen();
+    }
+
+    /**
+     * Records whether the client of a tunnel has a local service to serve it, as reported by the client.
+     *
+     * @param tunnelId tunnel identifier
+     * @param down     whether the local service is down
+     */
+    public void setUpstreamDown(final UUID tunnelId, final boolean down) {
+        final var tunnel = byTunnelId.get(tunnelId);
+        if (tunnel != null && tunnel.upstreamDown != down) {
+            tunnel.upstreamDown = down;
+            log.info("Local service of tunnel {} is {}", tunnelId, down ? "down" : "back up");
+        }
+    }
+
+    private TunnelSessionWriter newWriter(final WebSocketSession session) {
+        final var webSocket = properties.webSocket();
+        final var sendTimeLimit = webSocket != null && webSocket.sendTimeLimit() != null
+            ? webSocket.sendTimeLimit()
+            : DEFAULT_SEND_TIME_LIMIT;
+        final var sendBufferSizeLimit = webSocket != null && webSocket.sendBufferSizeLimit() != null
+            ? webSocket.sendBufferSizeLimit().toBytes()
+            : DEFAULT_SEND_BUFFER_SIZE_LIMIT;
+        final var sendBatchSize = webSocket != null && webSocket.sendBatchSize() > 0
+            ? webSocket.sendBatchSize()
+            : DEFAULT_SEND_BATCH_SIZE;
+        return new TunnelSessionWriter(session, writerExecutor, sendBufferSizeLimit, sendTimeLimit, sendBatchSize);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        writerExecutor.shutdownNow();
+    }
+
     /**
      * Creates a new pending Tunnel instance with the specified subdomain and tunnel ID
      * and registers it in the internal mappings.
@@ -67,9 +171,10 @@ public class TunnelRegistry {
      * @return the created Tunnel instance
      */
     private Tunnel register(final String subdomain, final UUID tunnelId, final UUID accountId) {
-        final var tunnel = new Tunnel(tunnelId, accountId);
+        // Keep a tunnel that is still connected, so requests pending on it survive another session joining
+        final var tunnel = byTunnelId.compute(tunnelId, (id, existing) ->
+            existing != null && existing.isOpen() ? existing : new Tunnel(tunnelId, accountId));
         bySubdomain.put(subdomain, tunnel);
-        byTunnelId.put(tunnelId, tunnel);
         return tunnel;
     }
 
@@ -106,11 +211,14 @@ public class TunnelRegistry {
             request.setId(UUID.randomUUID().toString());
         }
         request.setType(HttpTunnelMessage.Type.REQUEST);
+        request.setTunnelId(tunnel.tunnelId().toString());
         final var future = new CompletableFuture<HttpTunnelMessage>();
         tunnel.pending().put(request.getId(), future);
         try {
             final var json = mapper.writeValueAsString(request);
-            tunnel.session().sendMessage(new TextMessage(json));
+            if (!tunnel.send(new TextMessage(json))) {
+                throw new IOException("Tunnel is not accepting requests");
+            }
             log.trace("Forwarded request {} to tunnel {}", json, tunnel.tunnelId());
         } catch (final IOException e) {
             tunnel.pending().remove(request.getId());
@@ -158,14 +266,37 @@ public class TunnelRegistry {
         if (tunnel == null || !tunnel.isOpen()) {
             return;
         }
+        message.setTunnelId(tunnelId.toString());
         try {
             final var json = mapper.writeValueAsString(message);
-            tunnel.session().sendMessage(new TextMessage(json));
+            if (!tunnel.send(new TextMessage(json))) {
+                log.debug("Dropped WS message for closed tunnel {}", tunnelId);
+            }
         } catch (final IOException e) {
             log.warn("Failed to send WS message to client: {}", e.toString());
         }
     }
 
+    /**
+     * Sends a message on a tunnel session through the tunnel's outbound queue, so it is serialized with
+     * forwarded requests. Falls back to a direct send when the session is not registered for the tunnel.
+     *
+     * @param tunnelId tunnel identifier
+     * @param session  tunnel WebSocket session
+     * @param message  message to send
+     * @throws IOException if the direct send fails
+     */
+    public void sendToClient(final UUID tunnelId, final WebSocketSession session, final WebSocketMessage<?> message)
+        throws IOException {
+        final var tunnel = tunnelId == null ? null : byTunnelId.get(tunnelId);
+        final var writer = tunnel == null ? null : tunnel.writerOf(session);
+        if (writer != null) {
+            writer.send(message);
+        } else {
+            session.sendMessage(message);
+        }
+    }
+
     /**
      * Registers a browser WebSocket session associated with the specified tunnel ID and connection ID.
      * If no tunnel with the provided tunnel ID exists, the operation is aborted.
@@ -256,12 +387,15 @@ public class TunnelRegistry {
         private final UUID tunnelId;
         private final UUID accountId;
 
-        @Setter
-        private volatile WebSocketSession session;
+        private volatile TunnelSessionWriter writer;
+        // Session that takes over when the active one closes
+        private volatile TunnelSessionWriter standby;
         private final Map<String, CompletableFuture<HttpTunnelMessage>> pending = new ConcurrentHashMap<>();
         // Browser WS peers for this tunnel
         private final Map<String, WebSocketSession> browserByConnection = new ConcurrentHashMap<>();
         private final Map<WebSocketSession, Ids> browserReverse = new ConcurrentHashMap<>();
+        // Reported by the client while none of its local services accepts connections
+        private volatile boolean upstreamDown;
 
 
         public UUID tunnelId() {
@@ -272,8 +406,92 @@ public class TunnelRegistry {
             return accountId;
         }
 
+        /**
+         * Whether the client reported its local service down; requests would only come back as errors.
+         */
+        public boolean upstreamDown() {
+            return upstreamDown;
+        }
+
         public WebSocketSession session() {
-            return session;
+            final var current = writer;
+            return current == null ? null : current.session();
+        }
+
+        /**
+         * Makes the session of the writer the active one. An open active session it replaces stays as the
+         * standby. The upstream state is cleared, the client restates it on every new session.
+         */
+        synchronized void activate(final TunnelSessionWriter newWriter) {
+            final var previous = writer;
+            writer = newWriter;
+            upstreamDown = false;
+            if (previous != null && previous != newWriter && previous.isOpen()) {
+                standby = previous;
+            }
+        }
+
+        /**
+         * Keeps the session of the writer as the standby, or makes it the active one if there is no open
+         * active session.
+         *
+         * @return {@code true} if the session is the standby
+         */
+        synchronized boolean standBy(final TunnelSessionWriter newWriter) {
+            if (isOpen()) {
+                standby = newWriter;
+                return true;
+            }
+            writer = newWriter;
+            upstreamDown = false;
+            return false;
+        }
+
+        /**
+         * Removes a closed session.
+         *
+         * @return {@code true} if it was the active session and the standby took over
+         */
+        synchronized boolean remove(final WebSocketSession session) {
+            final var currentStandby = standby;
+            if (currentStandby != null && currentStandby.session() == session) {
+                standby = null;
+                return false;
+            }
+            final var current = writer;
+            if (current == null || current.session() != session) {
+                return false;
+            }
+            standby = null;
+            if (currentStandby != null && currentStandby.isOpen()) {
+                writer = currentStandby;
+                return true;
+            }
+            writer = null;
+            return false;
+        }
+
+        /**
+         * Returns the writer of the session if it serves the tunnel, active or standby.
+         */
+        TunnelSessionWriter writerOf(final WebSocketSession session) {
+            final var current = writer;
+            if (current != null && current.session() == session) {
+                return current;
+            }
+            final var currentStandby = standby;
+            return currentStandby != null && currentStandby.session() == session ? currentStandby : null;
+        }
+
+        /**
+         * Queues a message for the tunnel session without blocking.
+         *
+         * @param message message to send
+         * @return {@code true} if queued, {@code false} if the session is closed or too slow
+         */
+        public boolean send(final WebSocketMessage<?> message) {
+            final var current = writer;
+            return current != null && current.send(message);
         }
 
         public Map<String, CompletableFuture<HttpTunnelMessage>> pending() {
@@ -281,7 +499,8 @@ public class TunnelRegistry {
         }
 
         public boolean isOpen() {
-            return session != null && session.isOpen();
+            final var current = writer;
+            return current != null && current.isOpen();
         }
 
         public Map<String, WebSocketSession> browserByConnection() {
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.server.tunnel;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+
+import jakarta.websocket.Session;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Single-writer outbound queue of a tunnel WebSocket session. Callers only enqueue messages and return;
+ * one drain task at a time sends queued messages in batches, letting the container coalesce the frames of
+ * a batch into a single flush where it supports batching. A client that stops reading is detected either
+ * by the queued bytes exceeding the limit or by a batch taking longer than the send time limit, and its
+ * session is closed with {@link CloseStatus#SESSION_NOT_RELIABLE}.
+ */
+@Slf4j
+public class TunnelSessionWriter {
+
+    private final WebSocketSession session;
+    private final Executor executor;
+    private final long maxQueuedBytes;
+    private final long sendTimeLimitNanos;
+    private final int batchSize;
+    private final Queue<WebSocketMessage<?>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile long sendStartedAt;
+
+    /**
+     * Constructs a writer for a session.
+     *
+     * @param session        client WebSocket session
+     * @param executor       executor running drain tasks
+     * @param maxQueuedBytes maximum payload bytes waiting to be sent
+     * @param sendTimeLimit  maximum duration of sending and flushing a single batch
+     * @param batchSize      maximum number of messages sent per flush
+     */
+    public TunnelSessionWriter(final WebSocketSession session,
+                               final Executor executor,
+                               final long maxQueuedBytes,
+                               final Duration sendTimeLimit,
+                               final int batchSize) {
+        this.session = session;
+        this.executor = executor;
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.sendTimeLimitNanos = sendTimeLimit.toNanos();
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public WebSocketSession session() {
+        return session;
+    }
+
+    public boolean isOpen() {
+        return !closed.get() && session.isOpen();
+    }
+
+    public long queuedBytes() {
+        return queuedBytes.get();
+    }
+
+    /**
+     * Queues a message for sending without blocking.
+     *
+     * @param message message to send
+     * @return {@code true} if the message was queued, {@code false} if the session is closed or the
+     *     client was found to be too slow and is being disconnected
+     */
+    public boolean send(final WebSocketMessage<?> message) {
+        if (!isOpen()) {
+            return false;
+        }
+        final var started = sendStartedAt;
+        if (started != 0 && System.nanoTime() - started > sendTimeLimitNanos) {
+            close(CloseStatus.SESSION_NOT_RELIABLE, "send blocked for more than "
+                + Duration.ofNanos(sendTimeLimitNanos).toMillis() + " ms");
+            return false;
+        }
+        final var size = message.getPayloadLength();
+        if (queuedBytes.addAndGet(size) > maxQueuedBytes) {
+            close(CloseStatus.SESSION_NOT_RELIABLE, "more than " + maxQueuedBytes + " bytes queued");
+            return false;
+        }
+        queue.add(message);
+        scheduleDrain();
+        return true;
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        final var nativeSession = session instanceof NativeWebSocketSession nws
+            ? nws.getNativeSession(Session.class)
+            : null;
+        try {
+            while (true) {
+                sendBatch(nativeSession);
+                draining.set(false);
+                // A message may have been queued after the last poll but before the flag was cleared
+                if (queue.isEmpty() || !draining.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        } catch (final Exception e) {
+            close(CloseStatus.SERVER_ERROR, "send failed: " + e);
+            draining.set(false);
+        }
+    }
+
+    private void sendBatch(final Session nativeSession) throws IOException {
+        WebSocketMessage<?> message;
+        var sent = 0;
+        sendStartedAt = System.nanoTime();
+        try {
+            setBatching(nativeSession, true);
+            try {
+                while (sent < batchSize && (message = queue.poll()) != null) {
+                    queuedBytes.addAndGet(-message.getPayloadLength());
+                    session.sendMessage(message);
+                    sent++;
+                }
+            } finally {
+                setBatching(nativeSession, false);
+            }
+        } finally {
+            sendStartedAt = 0;
+        }
+    }
+
+    private static void setBatching(final Session nativeSession, final boolean allowed)
+        throws IOException {
+        // Disabling batching flushes the frames buffered while it was allowed
+        if (nativeSession != null && nativeSession.isOpen()) {
+            nativeSession.getBasicRemote().setBatchingAllowed(allowed);
+        }
+    }
+
+    private void close(final CloseStatus status, final String reason) {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        log.warn("Disconnecting tunnel session {}: {}", session.getId(), reason);
+        queue.clear();
+        queuedBytes.set(0);
+        // Closing may wait for a blocked send, so never do it on the caller thread
+        executor.execute(() -> {
+            try {
+                session.close(status);
+            } catch (final Exception e) {
+                log.debug("Failed to close tunnel session {}: {}", session.getId(), e.toString());
+            }
+        });
+    }
+}
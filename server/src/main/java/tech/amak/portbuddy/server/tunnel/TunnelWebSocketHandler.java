@@ -4,7 +4,10 @@
 
 package tech.amak.portbuddy.server.tunnel;
 
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
 
 import org.springframework.stereotype.Component;
@@ -13,6 +16,7 @@ import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -23,6 +27,7 @@ import tech.amak.portbuddy.common.tunnel.HttpTunnelMessage;
 import tech.amak.portbuddy.common.tunnel.MessageEnvelope;
 import tech.amak.portbuddy.common.tunnel.WsTunnelMessage;
 import tech.amak.portbuddy.common.utils.IdUtils;
+import tech.amak.portbuddy.server.db.entity.TunnelEntity;
 import tech.amak.portbuddy.server.service.TunnelService;
 
 @Slf4j
@@ -30,6 +35,18 @@ import tech.amak.portbuddy.server.service.TunnelService;
 @RequiredArgsConstructor
 public class TunnelWebSocketHandler extends TextWebSocketHandler {
 
+    /**
+     * Handshake query parameter with comma-separated ids of further HTTP tunnels of the same account that the
+     * session serves besides the one in its path. Messages of those tunnels carry their {@code tunnelId}.
+     */
+    static final String SHARED_TUNNELS_PARAM = "tunnels";
+    /**
+     * Handshake query parameter set to {@code true} by a client opening a standby connection, which takes
+     * over its tunnels when their active connection closes.
+     */
+    static final String STANDBY_PARAM = "standby";
+    private static final String TUNNEL_IDS_ATTRIBUTE = "portbuddy.tunnelIds";
+
     private final TunnelRegistry registry;
     private final ObjectMapper mapper;
     private final TunnelService tunnelService;
@@ -39,16 +56,38 @@ public class TunnelWebSocketHandler extends TextWebSocketHandler {
     public void afterConnectionEstablished(final WebSocketSession session) {
         final var tunnelId = extractTunnelId(session);
 
-        tunnelService.findByTunnelId(tunnelId).ifPresentOrElse(
-            tunnel -> {
-                registry.register(tunnel, session);
-                tunnelService.markConnected(tunnelId);
-                log.info("Tunnel session established: {}", tunnelId);
-            },
-            () -> {
-                log.warn("Tunnel not found for id={}", tunnelId);
-                closeWebsocket(session, CloseStatus.NORMAL);
-            });
+        final var tunnel = tunnelService.findByTunnelId(tunnelId).orElse(null);
+        if (tunnel == null) {
+            log.warn("Tunnel not found for id={}", tunnelId);
+            closeWebsocket(session, CloseStatus.NORMAL);
+            return;
+        }
+        final var tunnels = new ArrayList<TunnelEntity>();
+        tunnels.add(tunnel);
+        for (final var sharedId : extractSharedTunnelIds(session)) {
+            final var shared = sharedId == null ? null : tunnelService.findByTunnelId(sharedId)
+                .filter(entity -> Objects.equals(entity.getAccountId(), tunnel.getAccountId()))
+                .filter(entity -> entity.getDomain() != null)
+                .orElse(null);
+            if (shared == null) {
+                log.warn("Tunnel {} cannot share the session of tunnel {}", sharedId, tunnelId);
+                closeWebsocket(session, CloseStatus.POLICY_VIOLATION);
+                return;
+            }
+            if (tunnels.stream().noneMatch(entity -> entity.getId().equals(shared.getId()))) {
+                tunnels.add(shared);
+            }
+        }
+        final var tunnelIds = tunnels.stream().map(TunnelEntity::getId).toList();
+        session.getAttributes().put(TUNNEL_IDS_ATTRIBUTE, tunnelIds);
+        final var standby = Boolean.parseBoolean(queryParam(session, STANDBY_PARAM));
+        if (standby) {
+            registry.registerStandby(tunnels, session);
+        } else {
+            registry.register(tunnels, session);
+        }
+        tunnelIds.forEach(tunnelService::markConnected);
+        log.info("Tunnel session established: {}{}", tunnelIds, standby ? " (standby)" : "");
     }
 
     private void closeWebsocket(final WebSocketSession session,
@@ -67,29 +106,37 @@ public class TunnelWebSocketHandler extends TextWebSocketHandler {
             log.trace("Received message from client: {}", message.getPayload());
             final var tunnelId = extractTunnelId(session);
 
-            tunnelService.heartbeat(tunnelId);
-
             final String payload = message.getPayload();
             final var env = mapper.readValue(payload, MessageEnvelope.class);
             // Control health checks
             if (env.getKind() != null && env.getKind().equals("CTRL")) {
+                // One heartbeat keeps every tunnel of the session alive
+                tunnelIds(session).forEach(tunnelService::heartbeat);
                 final var ctrl = mapper.readValue(payload, ControlMessage.class);
                 if (ctrl.getType() == ControlMessage.Type.PING) {
                     final var pong = new ControlMessage();
                     pong.setType(ControlMessage.Type.PONG);
                     pong.setTs(System.currentTimeMillis());
-                    session.sendMessage(new TextMessage(mapper.writeValueAsString(pong)));
+                    registry.sendToClient(tunnelId, session, new TextMessage(mapper.writeValueAsString(pong)));
+                } else if (ctrl.getType() == ControlMessage.Type.UPSTREAM_DOWN
+                           || ctrl.getType() == ControlMessage.Type.UPSTREAM_UP) {
+                    registry.setUpstreamDown(resolveTunnelId(session, ctrl.getTunnelId()),
+                        ctrl.getType() == ControlMessage.Type.UPSTREAM_DOWN);
                 }
                 return;
             }
             if (env.getKind() != null && env.getKind().equals("WS")) {
                 final var wsMsg = mapper.readValue(payload, WsTunnelMessage.class);
-                handleWsFromClient(tunnelId, wsMsg);
+                final var target = resolveTunnelId(session, wsMsg.getTunnelId());
+                tunnelService.heartbeat(target);
+                handleWsFromClient(target, wsMsg);
                 return;
             }
             final var httpMsg = mapper.readValue(payload, HttpTunnelMessage.class);
+            final var target = resolveTunnelId(session, httpMsg.getTunnelId());
+            tunnelService.heartbeat(target);
             if (httpMsg.getType() == HttpTunnelMessage.Type.RESPONSE) {
-                registry.onResponse(tunnelId, httpMsg);
+                registry.onResponse(target, httpMsg);
             } else {
                 log.debug("Ignoring unexpected message type from client: {}", httpMsg.getType());
             }
@@ -125,18 +172,66 @@ public class TunnelWebSocketHandler extends TextWebSocketHandler {
 
     @Override
     public void afterConnectionClosed(final WebSocketSession session, final CloseStatus status) {
-        final var tunnelId = extractTunnelId(session);
-        final var tunnel = registry.getByTunnelId(tunnelId);
-        if (tunnel != null) {
-            tunnel.setSession(null);
+        for (final var tunnelId : tunnelIds(session)) {
             log.info("Tunnel session closed: {} code={} reason={}", tunnelId,
                 status != null ? status.getCode() : null,
                 status != null ? status.getReason() : null);
+            // A standby session of the client may carry on
+            if (!registry.unregister(tunnelId, session)) {
+                tunnelService.markClosed(tunnelId);
+            }
         }
-        tunnelService.markClosed(tunnelId);
     }
 
     private UUID extractTunnelId(final WebSocketSession session) {
         return IdUtils.extractTunnelId(session.getUri());
     }
+
+    /**
+     * Returns the ids of further tunnels requested in the handshake; {@code null} stands for an invalid id.
+     */
+    private List<UUID> extractSharedTunnelIds(final WebSocketSession session) {
+        final var value = queryParam(session, SHARED_TUNNELS_PARAM);
+        if (value == null || value.isBlank()) {
+            return List.of();
+        }
+        final var ids = new ArrayList<UUID>();
+        for (final var id : value.split(",")) {
+            ids.add(IdUtils.parseUuid(id.trim()));
+        }
+        return ids;
+    }
+
+    private static String queryParam(final WebSocketSession session, final String name) {
+        if (session.getUri() == null) {
+            return null;
+        }
+        return UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst(name);
+    }
+
+    /**
+     * Returns the tunnels served by the session, the one in its path first.
+     */
+    @SuppressWarnings("unchecked")
+    private List<UUID> tunnelIds(final WebSocketSession session) {
+        final var ids = (List<UUID>) session.getAttributes().get(TUNNEL_IDS_ATTRIBUTE);
+        if (ids != null) {
+            return ids;
+        }
+        final var tunnelId = extractTunnelId(session);
+        return tunnelId != null ? List.of(tunnelId) : List.of();
+    }
+
+    /**
+     * Returns the tunnel a client message belongs to: the tunnel it names if the session serves it, otherwise
+     * the tunnel in the session path, as older clients do not name one.
+     */
+    private UUID resolveTunnelId(final WebSocketSession session, final String messageTunnelId) {
+        final var ids = tunnelIds(session);
+        final var named = messageTunnelId != null ? IdUtils.parseUuid(messageTunnelId) : null;
+        if (named != null && ids.contains(named)) {
+            return named;
+        }
+        return ids.isEmpty() ? extractTunnelId(session) : ids.getFirst();
+    }
 }
@@ -53,6 +53,8 @@ import tech.amak.portbuddy.server.tunnel.TunnelRegistry;
 public class IngressController {
 
     private static final String PASSCODE_COOKIE_NAME = "pbp";
+    // The CLI probes a local service that is down every couple of seconds
+    private static final int UPSTREAM_DOWN_RETRY_AFTER_SECONDS = 2;
 
     private final TunnelRegistry registry;
     private final AppProperties properties;
@@ -150,6 +152,14 @@ public class IngressController {
             return;
         }
 
+        // Answer for a local service the client reported down instead of a round trip to it
+        if (tunnel.upstreamDown()) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(UPSTREAM_DOWN_RETRY_AFTER_SECONDS));
+            response.getWriter().write("Service Unavailable: local service is down");
+            return;
+        }
+
         final var pathWithin = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
         final var bestMatch = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
         final var matcher = new AntPathMatcher();
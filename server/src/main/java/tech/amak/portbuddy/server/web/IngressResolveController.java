@@ -5,12 +5,15 @@
 package tech.amak.portbuddy.server.web;
 
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import lombok.RequiredArgsConstructor;
+import tech.amak.portbuddy.common.dto.IngressPlanResponse;
+import tech.amak.portbuddy.server.db.entity.DomainEntity;
 import tech.amak.portbuddy.server.db.repo.AccountRepository;
 import tech.amak.portbuddy.server.db.repo.DomainRepository;
 import tech.amak.portbuddy.server.tunnel.TunnelRegistry;
@@ -66,6 +69,35 @@ public class IngressResolveController {
             .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    /**
+     * Resolves the subscription plan of the account owning the given subdomain.
+     * Unlike the ownership checks, this answer is global and can be served by any instance.
+     *
+     * @param subdomain the subdomain
+     * @return 200 with the plan, 404 if the subdomain is unknown
+     */
+    @GetMapping("/plan/{subdomain}")
+    @Transactional
+    public ResponseEntity<IngressPlanResponse> resolvePlan(final @PathVariable("subdomain") String subdomain) {
+        return ResponseEntity.of(domainRepository.findBySubdomain(subdomain).map(this::toPlanResponse));
+    }
+
+    /**
+     * Resolves the subscription plan of the account owning the given custom domain.
+     *
+     * @param domain the custom domain
+     * @return 200 with the plan, 404 if the custom domain is unknown
+     */
+    @GetMapping("/plan-custom/{domain}")
+    @Transactional
+    public ResponseEntity<IngressPlanResponse> resolveCustomPlan(final @PathVariable("domain") String domain) {
+        return ResponseEntity.of(domainRepository.findByCustomDomain(domain).map(this::toPlanResponse));
+    }
+
+    private IngressPlanResponse toPlanResponse(final DomainEntity domain) {
+        return new IngressPlanResponse(domain.getAccount().getPlan());
+    }
+
     private boolean isSubscriptionActive(final TunnelRegistry.Tunnel tunnel) {
         return accountRepository.findById(tunnel.accountId())
             .map(account -> {
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.server.web;
+
+import java.util.UUID;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import lombok.RequiredArgsConstructor;
+import tech.amak.portbuddy.common.dto.TunnelPlanResponse;
+import tech.amak.portbuddy.server.db.repo.AccountRepository;
+import tech.amak.portbuddy.server.db.repo.TunnelRepository;
+
+/**
+ * Controller for internal tunnel lookups by other services.
+ */
+@RestController
+@RequestMapping(path = "/api/internal/tunnels", produces = MediaType.APPLICATION_JSON_VALUE)
+@RequiredArgsConstructor
+public class InternalTunnelController {
+
+    private final TunnelRepository tunnelRepository;
+    private final AccountRepository accountRepository;
+
+    /**
+     * Resolves the account and subscription plan owning a tunnel.
+     *
+     * @param tunnelId the tunnel id
+     * @return 200 with the account and plan, 404 if the tunnel or its account is unknown
+     */
+    @GetMapping("/{tunnelId}/plan")
+    public ResponseEntity<TunnelPlanResponse> resolvePlan(final @PathVariable("tunnelId") UUID tunnelId) {
+        return ResponseEntity.of(tunnelRepository.findById(tunnelId)
+            .flatMap(tunnel -> accountRepository.findById(tunnel.getAccountId()))
+            .map(account -> new TunnelPlanResponse(account.getId(), account.getPlan())));
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.server.tunnel;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import tech.amak.portbuddy.common.tunnel.HttpTunnelMessage;
+import tech.amak.portbuddy.server.config.AppProperties;
+import tech.amak.portbuddy.server.db.entity.DomainEntity;
+import tech.amak.portbuddy.server.db.entity.TunnelEntity;
+
+class TunnelRegistryTest {
+
+    private TunnelRegistry registry;
+    private TunnelEntity tunnel;
+    private WebSocketSession active;
+    private WebSocketSession standby;
+
+    @BeforeEach
+    void setUp() {
+        registry = new TunnelRegistry(new ObjectMapper(),
+            new AppProperties(null, null, null, null, null, null, null, null));
+        final var domain = new DomainEntity();
+        domain.setSubdomain("app");
+        tunnel = new TunnelEntity();
+        tunnel.setId(UUID.randomUUID());
+        tunnel.setAccountId(UUID.randomUUID());
+        tunnel.setDomain(domain);
+        active = session("active");
+        standby = session("standby");
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void shouldFailOverToStandbySessionWhenActiveCloses() throws Exception {
+        // Given
+        registry.register(tunnel, active);
+        registry.registerStandby(List.of(tunnel), standby);
+        final var pending = registry.forwardRequest("app", request(), null);
+
+        // When
+        when(active.isOpen()).thenReturn(false);
+        final var connected = registry.unregister(tunnel.getId(), active);
+        registry.forwardRequest("app", request(), null);
+
+        // Then
+        assertTrue(connected);
+        assertSame(standby, registry.getByTunnelId(tunnel.getId()).session());
+        verify(standby, timeout(5000)).sendMessage(any());
+        assertFalse(pending.isDone());
+    }
+
+    @Test
+    void shouldKeepActiveSessionWhenStandbyCloses() throws Exception {
+        // Given
+        registry.register(tunnel, active);
+        registry.registerStandby(List.of(tunnel), standby);
+
+        // When
+        when(standby.isOpen()).thenReturn(false);
+        final var connected = registry.unregister(tunnel.getId(), standby);
+        registry.forwardRequest("app", request(), null);
+
+        // Then
+        assertTrue(connected);
+        assertSame(active, registry.getByTunnelId(tunnel.getId()).session());
+        verify(active, timeout(5000)).sendMessage(any());
+        verify(standby, never()).sendMessage(any());
+    }
+
+    @Test
+    void shouldDisconnectWithoutStandbySession() {
+        // Given
+        registry.register(tunnel, active);
+
+        // When
+        when(active.isOpen()).thenReturn(false);
+        final var connected = registry.unregister(tunnel.getId(), active);
+
+        // Then
+        assertFalse(connected);
+        assertFalse(registry.getByTunnelId(tunnel.getId()).isOpen());
+    }
+
+    @Test
+    void shouldServeFromStandbySessionWithoutActiveSession() throws Exception {
+        // Given
+        registry.registerStandby(List.of(tunnel), standby);
+
+        // When
+        registry.forwardRequest("app", request(), null);
+
+        // Then
+        assertSame(standby, registry.getByTunnelId(tunnel.getId()).session());
+        verify(standby, timeout(5000)).sendMessage(any());
+    }
+
+    @Test
+    void shouldClearUpstreamDownOnNewActiveSession() {
+        // Given
+        registry.register(tunnel, active);
+        registry.setUpstreamDown(tunnel.getId(), true);
+
+        // When
+        final var reconnected = session("reconnected");
+        registry.register(tunnel, reconnected);
+
+        // Then
+        assertFalse(registry.getByTunnelId(tunnel.getId()).upstreamDown());
+    }
+
+    @Test
+    void shouldKeepUpstreamDownWhenStandbyJoins() {
+        // Given
+        registry.register(tunnel, active);
+        registry.setUpstreamDown(tunnel.getId(), true);
+
+        // When
+        registry.registerStandby(List.of(tunnel), standby);
+
+        // Then
+        assertTrue(registry.getByTunnelId(tunnel.getId()).upstreamDown());
+    }
+
+    private static WebSocketSession session(final String id) {
+        final var session = mock(WebSocketSession.class);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getId()).thenReturn(id);
+        return session;
+    }
+
+    private static HttpTunnelMessage request() {
+        final var request = new HttpTunnelMessage();
+        request.setMethod("GET");
+        request.setPath("/");
+        return request;
+    }
+}
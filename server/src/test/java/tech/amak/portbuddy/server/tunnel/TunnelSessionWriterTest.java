@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.server.tunnel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+class TunnelSessionWriterTest {
+
+    private WebSocketSession session;
+
+    @BeforeEach
+    void setUp() {
+        session = mock(WebSocketSession.class);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getId()).thenReturn("session-1");
+    }
+
+    @Test
+    void shouldSendQueuedMessagesInOrder() throws Exception {
+        // Given
+        final var sent = new ArrayList<String>();
+        doAnswer(invocation -> sent.add(((TextMessage) invocation.getArgument(0)).getPayload()))
+            .when(session).sendMessage(any());
+        final var writer = new TunnelSessionWriter(session, Runnable::run, 1024, Duration.ofSeconds(5), 2);
+
+        // When
+        for (var i = 0; i < 5; i++) {
+            assertTrue(writer.send(new TextMessage("m" + i)));
+        }
+
+        // Then
+        assertEquals(List.of("m0", "m1", "m2", "m3", "m4"), sent);
+        assertEquals(0, writer.queuedBytes());
+    }
+
+    @Test
+    void shouldNotBlockCallerAndDisconnectWhenQueueIsFull() throws Exception {
+        // Given
+        final var blocked = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            blocked.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(session).sendMessage(any());
+        final var executor = Executors.newVirtualThreadPerTaskExecutor();
+        final var writer = new TunnelSessionWriter(session, executor, 10, Duration.ofSeconds(5), 16);
+
+        // When
+        assertTrue(writer.send(new TextMessage("12345")));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        assertTrue(writer.send(new TextMessage("67890")));
+        final var overflow = writer.send(new TextMessage("abcdef"));
+
+        // Then
+        assertFalse(overflow);
+        assertFalse(writer.isOpen());
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    @Test
+    void shouldRejectMessagesForClosedSession() throws Exception {
+        // Given
+        when(session.isOpen()).thenReturn(false);
+        final var writer = new TunnelSessionWriter(session, Runnable::run, 1024, Duration.ofSeconds(5), 16);
+
+        // When
+        final var accepted = writer.send(new TextMessage("m"));
+
+        // Then
+        assertFalse(accepted);
+        verify(session, never()).sendMessage(any());
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.server.tunnel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import tech.amak.portbuddy.common.tunnel.ControlMessage;
+import tech.amak.portbuddy.common.tunnel.HttpTunnelMessage;
+import tech.amak.portbuddy.server.db.entity.DomainEntity;
+import tech.amak.portbuddy.server.db.entity.TunnelEntity;
+import tech.amak.portbuddy.server.service.TunnelService;
+
+class TunnelWebSocketHandlerTest {
+
+    private final UUID accountId = UUID.randomUUID();
+    // As configured by Spring Boot
+    private final ObjectMapper mapper = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private TunnelRegistry registry;
+    private TunnelService tunnelService;
+    private TunnelWebSocketHandler handler;
+    private WebSocketSession session;
+
+    @BeforeEach
+    void setUp() {
+        registry = mock(TunnelRegistry.class);
+        tunnelService = mock(TunnelService.class);
+        handler = new TunnelWebSocketHandler(registry, mapper, tunnelService);
+        session = mock(WebSocketSession.class);
+        when(session.getAttributes()).thenReturn(new HashMap<>());
+        when(session.isOpen()).thenReturn(true);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldRegisterSharedTunnelsOfSameAccount() {
+        // Given
+        final var primary = tunnel(accountId, "one");
+        final var shared = tunnel(accountId, "two");
+        connect(primary, shared);
+
+        // When
+        handler.afterConnectionEstablished(session);
+
+        // Then
+        final ArgumentCaptor<List<TunnelEntity>> captor = ArgumentCaptor.forClass(List.class);
+        verify(registry).register(captor.capture(), eq(session));
+        assertEquals(List.of(primary, shared), captor.getValue());
+        verify(tunnelService).markConnected(primary.getId());
+        verify(tunnelService).markConnected(shared.getId());
+    }
+
+    @Test
+    void shouldRejectSharedTunnelOfAnotherAccount() throws Exception {
+        // Given
+        final var primary = tunnel(accountId, "one");
+        final var foreign = tunnel(UUID.randomUUID(), "two");
+        connect(primary, foreign);
+
+        // When
+        handler.afterConnectionEstablished(session);
+
+        // Then
+        verify(session).close(CloseStatus.POLICY_VIOLATION);
+        verify(registry, never()).register(anyList(), any());
+    }
+
+    @Test
+    void shouldRouteResponseToTunnelNamedInMessage() throws Exception {
+        // Given
+        final var primary = tunnel(accountId, "one");
+        final var shared = tunnel(accountId, "two");
+        connect(primary, shared);
+        handler.afterConnectionEstablished(session);
+        final var response = new HttpTunnelMessage();
+        response.setId("r1");
+        response.setType(HttpTunnelMessage.Type.RESPONSE);
+        response.setTunnelId(shared.getId().toString());
+        response.setStatus(200);
+
+        // When
+        handler.handleTextMessage(session, new TextMessage(mapper.writeValueAsString(response)));
+
+        // Then
+        final var captor = ArgumentCaptor.forClass(HttpTunnelMessage.class);
+        verify(registry).onResponse(eq(shared.getId()), captor.capture());
+        assertEquals("r1", captor.getValue().getId());
+    }
+
+    @Test
+    void shouldRouteUntaggedResponseToPrimaryTunnel() throws Exception {
+        // Given
+        final var primary = tunnel(accountId, "one");
+        connect(primary);
+        handler.afterConnectionEstablished(session);
+        final var response = new HttpTunnelMessage();
+        response.setId("r1");
+        response.setType(HttpTunnelMessage.Type.RESPONSE);
+
+        // When
+        handler.handleTextMessage(session, new TextMessage(mapper.writeValueAsString(response)));
+
+        // Then
+        verify(registry).onResponse(eq(primary.getId()), any());
+    }
+
+    @Test
+    void shouldRecordUpstreamReportOfTunnelNamedInMessage() throws Exception {
+        // Given
+        final var primary = tunnel(accountId, "one");
+        final var shared = tunnel(accountId, "two");
+        connect(primary, shared);
+        handler.afterConnectionEstablished(session);
+        final var report = new ControlMessage();
+        report.setType(ControlMessage.Type.UPSTREAM_DOWN);
+        report.setTunnelId(shared.getId().toString());
+
+        // When
+        handler.handleTextMessage(session, new TextMessage(mapper.writeValueAsString(report)));
+
+        // Then
+        verify(registry).setUpstreamDown(shared.getId(), true);
+        verify(registry, never()).setUpstreamDown(eq(primary.getId()), anyBoolean());
+    }
+
+    @Test
+    void shouldCloseAllTunnelsOfSession() {
+        // Given
+        final var primary = tunnel(accountId, "one");
+        final var shared = tunnel(accountId, "two");
+        connect(primary, shared);
+        handler.afterConnectionEstablished(session);
+
+        // When
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+
+        // Then
+        verify(tunnelService).markClosed(primary.getId());
+        verify(tunnelService).markClosed(shared.getId());
+    }
+
+    private void connect(final TunnelEntity primary, final TunnelEntity... shared) {
+        var uri = "ws://localhost/api/http-tunnel/" + primary.getId();
+        if (shared.length > 0) {
+            final var ids = new StringBuilder();
+            for (final var tunnel : shared) {
+                ids.append(ids.isEmpty() ? "" : ",").append(tunnel.getId());
+            }
+            uri += "?" + TunnelWebSocketHandler.SHARED_TUNNELS_PARAM + "=" + ids;
+        }
+        when(session.getUri()).thenReturn(URI.create(uri));
+    }
+
+    private TunnelEntity tunnel(final UUID account, final String subdomain) {
+        final var domain = new DomainEntity();
+        domain.setSubdomain(subdomain);
+        final var tunnel = new TunnelEntity();
+        tunnel.setId(UUID.randomUUID());
+        tunnel.setAccountId(account);
+        tunnel.setDomain(domain);
+        when(tunnelService.findByTunnelId(tunnel.getId())).thenReturn(Optional.of(tunnel));
+        return tunnel;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.server.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import tech.amak.portbuddy.common.Plan;
+import tech.amak.portbuddy.server.db.entity.AccountEntity;
+import tech.amak.portbuddy.server.db.entity.DomainEntity;
+import tech.amak.portbuddy.server.db.repo.AccountRepository;
+import tech.amak.portbuddy.server.db.repo.DomainRepository;
+import tech.amak.portbuddy.server.tunnel.TunnelRegistry;
+
+class IngressResolveControllerTest {
+
+    private DomainRepository domainRepository;
+    private IngressResolveController controller;
+
+    @BeforeEach
+    void setUp() {
+        domainRepository = mock(DomainRepository.class);
+        controller = new IngressResolveController(
+            mock(TunnelRegistry.class), domainRepository, mock(AccountRepository.class));
+    }
+
+    @Test
+    void resolvePlan_shouldReturnAccountPlan() {
+        // Given
+        final var account = new AccountEntity();
+        account.setPlan(Plan.TEAM);
+        final var domain = new DomainEntity();
+        domain.setSubdomain("demo");
+        domain.setAccount(account);
+        when(domainRepository.findBySubdomain("demo")).thenReturn(Optional.of(domain));
+
+        // When
+        final var response = controller.resolvePlan("demo");
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(Plan.TEAM, response.getBody().plan());
+    }
+
+    @Test
+    void resolveCustomPlan_shouldReturnNotFoundForUnknownDomain() {
+        // Given
+        when(domainRepository.findByCustomDomain("shop.example.com")).thenReturn(Optional.empty());
+
+        // When
+        final var response = controller.resolveCustomPlan("shop.example.com");
+
+        // Then
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+}
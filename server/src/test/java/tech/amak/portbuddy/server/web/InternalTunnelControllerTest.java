@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2025 AMAK Inc. All rights reserved.
+ */
+
+package tech.amak.portbuddy.server.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import tech.amak.portbuddy.common.Plan;
+import tech.amak.portbuddy.server.db.entity.AccountEntity;
+import tech.amak.portbuddy.server.db.entity.TunnelEntity;
+import tech.amak.portbuddy.server.db.repo.AccountRepository;
+import tech.amak.portbuddy.server.db.repo.TunnelRepository;
+
+class InternalTunnelControllerTest {
+
+    private TunnelRepository tunnelRepository;
+    private AccountRepository accountRepository;
+    private InternalTunnelController controller;
+
+    @BeforeEach
+    void setUp() {
+        tunnelRepository = mock(TunnelRepository.class);
+        accountRepository = mock(AccountRepository.class);
+        controller = new InternalTunnelController(tunnelRepository, accountRepository);
+    }
+
+    @Test
+    void resolvePlan_shouldReturnAccountAndPlanOfTunnel() {
+        // Given
+        final var accountId = UUID.randomUUID();
+        final var account = new AccountEntity();
+        account.setId(accountId);
+        account.setPlan(Plan.PRO);
+        final var tunnel = new TunnelEntity();
+        tunnel.setId(UUID.randomUUID());
+        tunnel.setAccountId(accountId);
+        when(tunnelRepository.findById(tunnel.getId())).thenReturn(Optional.of(tunnel));
+        when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
+
+        // When
+        final var response = controller.resolvePlan(tunnel.getId());
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(accountId, response.getBody().accountId());
+        assertEquals(Plan.PRO, response.getBody().plan());
+    }
+
+    @Test
+    void resolvePlan_shouldReturnNotFoundForUnknownTunnel() {
+        // Given
+        final var tunnelId = UUID.randomUUID();
+        when(tunnelRepository.findById(tunnelId)).thenReturn(Optional.empty());
+
+        // When
+        final var response = controller.resolvePlan(tunnelId);
+
+        // Then
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+}